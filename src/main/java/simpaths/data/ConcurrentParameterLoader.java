@@ -0,0 +1,87 @@
+// define package
+package simpaths.data;
+
+// import Java packages
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// import JAS-mine packages
+import microsim.data.MultiKeyCoefficientMap;
+
+
+/**
+ *
+ * CLASS TO LOAD INDEPENDENT COEFFICIENT MAPS CONCURRENTLY
+ *
+ * Coefficient maps are requested with the field of Parameters that each is assigned to, and are loaded (see
+ * ParameterBundle) on a bounded pool of threads when publish() is called. Once all maps are loaded, they are assigned
+ * on the calling thread in the order requested, so that the fields of Parameters, and anything subsequently evaluated
+ * from them (e.g. bootstrapped regression coefficients), are identical to those of a sequential load.
+ *
+ * Maps are loaded on as many threads as there are available processors, up to THREADS.
+ *
+ */
+public class ConcurrentParameterLoader {
+
+    private static final int THREADS = 8;
+
+    private final List<Request> requests = new ArrayList<>();
+
+
+    /**
+     * Requests the coefficient map of ParameterBundle.loadCoefficientMap(fileName, sheet, keyColumns), to be passed
+     * to target when publish() is called.
+     */
+    public void load(String fileName, String sheet, int keyColumns, Consumer<MultiKeyCoefficientMap> target) {
+        requests.add(new Request(fileName, sheet, keyColumns, target));
+    }
+
+    /**
+     * Loads all requested maps and passes each to its target, in the order requested.
+     */
+    public void publish() {
+
+        int nThreads = Math.min(Math.min(THREADS, Runtime.getRuntime().availableProcessors()), requests.size());
+        if (nThreads <= 1) {
+            for (Request request : requests) {
+                request.target.accept(request.load());
+            }
+            requests.clear();
+            return;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+        try {
+            List<Future<MultiKeyCoefficientMap>> maps = new ArrayList<>(requests.size());
+            for (Request request : requests) {
+                maps.add(pool.submit(request::load));
+            }
+            for (int ii = 0; ii < requests.size(); ii++) {
+                requests.get(ii).target.accept(maps.get(ii).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading parameters", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new RuntimeException("Unable to load parameters", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            requests.clear();
+        }
+    }
+
+
+    private record Request(String fileName, String sheet, int keyColumns, Consumer<MultiKeyCoefficientMap> target) {
+
+        MultiKeyCoefficientMap load() {
+            return ParameterBundle.loadCoefficientMap(fileName, sheet, keyColumns);
+        }
+    }
+}
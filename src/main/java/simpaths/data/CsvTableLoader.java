@@ -0,0 +1,139 @@
+package simpaths.data;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+
+/**
+ *
+ * CLASS TO LOAD CSV FILES INTO DATABASE TABLES
+ *
+ * Replaces CREATE TABLE ... AS SELECT * FROM CSVREAD(...) for the input files of the database setup. Files are read
+ * with a streaming parser, and only the columns that are subsequently used are loaded, with batched prepared inserts.
+ * As for CSVREAD, column names are those of the header in upper case, all columns are of type VARCHAR, values are
+ * trimmed, and empty values are null, so that tables derived from the loaded table are unchanged.
+ *
+ * Loading is independent for each connection, so that files can be loaded concurrently on separate connections.
+ *
+ */
+public class CsvTableLoader {
+
+    private static final int BATCH_SIZE = 5000;
+    private static final int LOCK_TIMEOUT_MILLIS = 600000;     // allows for DDL of concurrent loads
+
+
+    /**
+     * sets the lock timeout of a connection used concurrently with others to modify the database
+     */
+    public static void setConcurrentLockTimeout(Connection conn) throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            stat.execute("SET LOCK_TIMEOUT " + LOCK_TIMEOUT_MILLIS);
+        }
+    }
+
+    /**
+     * (re)creates a table from a csv file
+     * @param conn database connection
+     * @param fileLocation path of csv file, with a header line
+     * @param tableName table to create
+     * @param columns columns to load (case insensitive), or null to load all columns
+     * @return number of rows loaded
+     */
+    public static long load(Connection conn, String fileLocation, String tableName, Collection<String> columns) throws SQLException {
+
+        long startTime = System.currentTimeMillis();
+        File file = new File(fileLocation);
+        Set<String> requested = null;
+        if (columns != null) {
+            requested = new LinkedHashSet<>();
+            for (String column : columns) requested.add(column.toUpperCase(Locale.ROOT));
+        }
+
+        long rows = 0;
+        boolean autoCommit = conn.getAutoCommit();
+        CSVFormat format = CSVFormat.DEFAULT.builder().setNullString("").setIgnoreSurroundingSpaces(true).build();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+             CSVParser parser = new CSVParser(reader, format);
+             Statement stat = conn.createStatement()) {
+
+            // header: positions of columns to load
+            Iterator<CSVRecord> records = parser.iterator();
+            if (!records.hasNext())
+                throw new RuntimeException("no header found in " + fileLocation);
+            CSVRecord header = records.next();
+            List<String> names = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            for (int ii = 0; ii < header.size(); ii++) {
+                String name = header.get(ii) == null ? "" : header.get(ii).toUpperCase(Locale.ROOT);
+                if ((requested == null || requested.contains(name)) && !names.contains(name)) {
+                    names.add(name);
+                    positions.add(ii);
+                }
+            }
+            if (names.isEmpty())
+                throw new RuntimeException("none of the requested columns found in " + fileLocation);
+
+            StringBuilder definition = new StringBuilder(), parameters = new StringBuilder();
+            for (String name : names) {
+                if (definition.length() > 0) {
+                    definition.append(", ");
+                    parameters.append(", ");
+                }
+                definition.append(name).append(" VARCHAR");
+                parameters.append("?");
+            }
+            stat.execute("DROP TABLE IF EXISTS " + tableName + " CASCADE;"
+                    + "CREATE TABLE " + tableName + " (" + definition + ");");
+
+            // rows
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO " + tableName + " VALUES (" + parameters + ")")) {
+                int batch = 0;
+                while (records.hasNext()) {
+                    CSVRecord record = records.next();
+                    for (int ii = 0; ii < positions.size(); ii++) {
+                        int pos = positions.get(ii);
+                        insert.setString(ii + 1, (pos < record.size()) ? record.get(pos) : null);
+                    }
+                    insert.addBatch();
+                    rows++;
+                    if (++batch == BATCH_SIZE) {
+                        insert.executeBatch();
+                        batch = 0;
+                    }
+                }
+                if (batch > 0)
+                    insert.executeBatch();
+            }
+            conn.commit();
+        } catch (IOException e) {
+            throw new RuntimeException("problem reading " + fileLocation + ": " + e.getMessage());
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        double seconds = Math.max(System.currentTimeMillis() - startTime, 1) / 1000.0;
+        double megabytes = file.length() / (1024.0 * 1024.0);
+        System.out.printf("Loaded %d rows (%.1f MB) from %s in %.1f seconds (%.0f rows/s, %.1f MB/s)%n",
+                rows, megabytes, file.getName(), seconds, rows / seconds, megabytes / seconds);
+        return rows;
+    }
+}
@@ -0,0 +1,21 @@
+package simpaths.data;
+
+/**
+ * INTERFACE FOR ALIGNMENTS THAT CAN BE SOLVED FROM THE CRITICAL THRESHOLDS OF AGENTS (SEE ThresholdAlignment)
+ *
+ * evaluate(args) must return the target share less the share of agents with thresholds not above args[0].
+ */
+public interface IThresholdEvaluation extends IEvaluation {
+
+    /**
+     * @return target share of the alignment
+     */
+    double getTargetShare();
+
+    /**
+     * Returns, for each agent in the population over which the aligned share is evaluated, the adjustment from which
+     * the agent has the aligned outcome, or null if outcomes are not monotone in the adjustment. Agents whose outcome
+     * does not change between the lower and upper bounds have thresholds of -infinity or +infinity.
+     */
+    double[] getThresholds(double lower, double upper);
+}
@@ -0,0 +1,172 @@
+package simpaths.data;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import microsim.data.db.DatabaseUtils;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl;
+import org.hibernate.engine.jdbc.env.spi.JdbcEnvironment;
+import simpaths.model.enums.Country;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ *
+ * CLASS TO READ THE INPUT DATABASE WITHOUT MODIFYING IT
+ *
+ * The input database is opened read-only, through a small pool of JDBC connections and entity manager factories
+ * that are shared by all simulations of the JVM. Entities are mapped directly to the country (and year) specific
+ * tables of the starting population and tax donors, which are therefore not copied to default tables, and the
+ * starting population is uprated in memory as it is loaded. Several processes can then read the same input
+ * database concurrently.
+ *
+ * A database is opened read-only or read-write by the first connection to it in a JVM. Code that writes to the
+ * input database must therefore call close beforehand, to release read-only connections.
+ *
+ * Used by SimPathsModel unless its readOnlyInputDatabase parameter is unset, in which case the tables are copied to
+ * the default tables of the input database and uprated there, as before.
+ *
+ */
+public class InputDatabase {
+
+    public static final String STARTING_POPULATION = "starting-population";
+    public static final String TAX_DATABASE = "tax-database";
+    private static final Set<String> STARTING_POPULATION_TABLES = Set.of("HOUSEHOLD", "BENEFITUNIT", "PERSON");
+    private static final Set<String> TAX_DONOR_TABLES = Set.of("DONORTAXUNIT", "DONORPERSON", "DONORPERSONPOLICY", "DONORTAXUNITPOLICY");
+    private static final int POOL_SIZE = 2;
+    private static final int UPRATING_SCALE = 6;       // scale of monetary columns previously uprated in the database
+
+    private static JdbcConnectionPool connectionPool;
+    private static final Map<String, EntityManagerFactory> entityManagerFactories = new HashMap<>();
+
+
+    public static String getUrl() {
+        return "jdbc:h2:file:" + DatabaseUtils.databaseInputUrl + ";ACCESS_MODE_DATA=r;TRACE_LEVEL_FILE=0;TRACE_LEVEL_SYSTEM_OUT=0";
+    }
+
+    public static String getStartingPopulationTableSuffix(Country country, int year) {
+        return "_" + country + "_" + year;
+    }
+
+    public static String getTaxDonorTableSuffix(Country country) {
+        return "_" + country;
+    }
+
+    /**
+     * @return connection from the pool, to be closed by the caller to return it to the pool
+     */
+    public static synchronized Connection getConnection() throws SQLException {
+        if (connectionPool == null) {
+            connectionPool = JdbcConnectionPool.create(getUrl(), "sa", "");
+            connectionPool.setMaxConnections(POOL_SIZE);
+        }
+        return connectionPool.getConnection();
+    }
+
+    /**
+     * @param persistenceUnitName STARTING_POPULATION or TAX_DATABASE
+     * @param tableSuffix suffix appended to the tables of the persistence unit
+     * @return entity manager factory shared by all callers with the same arguments
+     */
+    public static synchronized EntityManagerFactory getEntityManagerFactory(String persistenceUnitName, String tableSuffix) {
+
+        String key = persistenceUnitName + tableSuffix;
+        EntityManagerFactory factory = entityManagerFactories.get(key);
+        if (factory == null || !factory.isOpen()) {
+
+            Set<String> tables = STARTING_POPULATION.equals(persistenceUnitName) ? STARTING_POPULATION_TABLES : TAX_DONOR_TABLES;
+            Map<String, Object> propertyMap = new HashMap<>();
+            propertyMap.put("hibernate.connection.url", getUrl());
+            propertyMap.put("hibernate.connection.pool_size", String.valueOf(POOL_SIZE));
+            propertyMap.put("hibernate.hbm2ddl.auto", "none");
+            propertyMap.put("hibernate.physical_naming_strategy", new SuffixNamingStrategy(tables, tableSuffix));
+            factory = Persistence.createEntityManagerFactory(persistenceUnitName, propertyMap);
+            entityManagerFactories.put(key, factory);
+        }
+        return factory;
+    }
+
+    /**
+     * releases all connections and entity manager factories, so that the database can be opened for writing
+     */
+    public static synchronized void close() {
+        for (EntityManagerFactory factory : entityManagerFactories.values()) {
+            if (factory.isOpen())
+                factory.close();
+        }
+        entityManagerFactories.clear();
+        if (connectionPool != null) {
+            connectionPool.dispose();
+            connectionPool = null;
+        }
+    }
+
+    /**
+     * @return hours worked weekly by id of each person of the starting population
+     */
+    public static Map<Long, Double> readInitialHoursWorkedWeekly(Country country, int year) {
+
+        Map<Long, Double> initialHoursWorkedWeekly = new LinkedHashMap<>();
+        String query = "SELECT ID, " + Parameters.HOURS_WORKED_WEEKLY + " FROM PERSON" + getStartingPopulationTableSuffix(country, year);
+        try (Connection conn = getConnection(); Statement stat = conn.createStatement(); ResultSet rs = stat.executeQuery(query)) {
+            while (rs.next()) {
+                initialHoursWorkedWeekly.put(rs.getLong("ID"), rs.getDouble(Parameters.HOURS_WORKED_WEEKLY));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL Exception thrown! " + e.getMessage());
+        }
+        return initialHoursWorkedWeekly;
+    }
+
+    /**
+     * uprates an asinh transformed monetary value, with the rounding of the NUMERIC(30,6) columns to which values
+     * were previously converted when uprated in the database
+     * @param value asinh of monetary value, or null
+     * @param upratingFactor factor applied to the monetary value
+     * @return asinh of uprated monetary value, or null
+     */
+    public static Double uprateAsinh(Double value, double upratingFactor) {
+        if (value == null)
+            return null;
+        double level = round(Math.sinh(round(value)) * upratingFactor);
+        return round(Math.log(level + Math.sqrt(Math.pow(level, 2) + 1)));
+    }
+
+    private static double round(double value) {
+        return BigDecimal.valueOf(value).setScale(UPRATING_SCALE, RoundingMode.HALF_UP).doubleValue();
+    }
+
+
+    /**
+     * Naming strategy that maps the tables of entities to tables with a suffix, e.g. PERSON to PERSON_UK_2019
+     */
+    private static class SuffixNamingStrategy extends PhysicalNamingStrategyStandardImpl {
+
+        private final Set<String> tables;
+        private final String suffix;
+
+        SuffixNamingStrategy(Set<String> tables, String suffix) {
+            this.tables = tables;
+            this.suffix = suffix;
+        }
+
+        @Override
+        public Identifier toPhysicalTableName(Identifier logicalName, JdbcEnvironment context) {
+            if (logicalName != null && tables.contains(logicalName.getText().toUpperCase(Locale.ROOT)))
+                return Identifier.toIdentifier(logicalName.getText() + suffix, logicalName.isQuoted());
+            return super.toPhysicalTableName(logicalName, context);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+// define package
+package simpaths.data;
+
+// import Java packages
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// import JAS-mine packages
+import microsim.data.MultiKeyCoefficientMap;
+
+// import SimPaths packages
+import simpaths.model.decisions.Grids;
+
+
+/**
+ *
+ * CLASS TO RETAIN STRUCTURES BETWEEN THE RUNS OF A MULTIRUN
+ *
+ * SimPathsMultiRun builds a new SimPathsModel for each run, which reloads its parameters and inputs. Structures that
+ * do not vary between runs are retained here for the life of the JVM, and rebuilt only if their source changes:
+ *  - coefficient maps, as loaded from their workbooks (before bootstrapping), retained in serialised form so that
+ *    each run takes its own copy, to which it may apply bootstrapped draws and alignment adjustments;
+ *  - decision grids read from disk, keyed by the files read and the scale of the grids, which are not updated once
+ *    read;
+ *  - the key of the tax donor pool and database references held by Parameters, which are rebuilt by SimPathsModel
+ *    only if the key changes (i.e. the country or EUROMOD systems simulated).
+ *
+ */
+public class MultiRunCache {
+
+    private static final Map<String, CachedMap> coefficientMaps = new ConcurrentHashMap<>();
+    private static String gridsKey;
+    private static Grids grids;
+    private static String donorsKey;
+
+
+    /**
+     * Returns a copy of the coefficient map loaded for the workbook, sheet and key columns by a preceding run, or the
+     * map obtained from loader if the workbook has since changed or has not been loaded.
+     */
+    public static MultiKeyCoefficientMap coefficientMap(String fileName, String sheet, int keyColumns, Supplier<MultiKeyCoefficientMap> loader) {
+
+        File source = new File(fileName);
+        String key;
+        try {
+            key = source.getCanonicalPath() + '\u0000' + sheet + '\u0000' + keyColumns;
+        } catch (IOException e) {
+            return loader.get();
+        }
+        long lastModified = source.lastModified();
+        long length = source.length();
+        CachedMap cached = coefficientMaps.get(key);
+        if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+            try {
+                return cached.deserialize();
+            } catch (IOException | ClassNotFoundException e) {
+                coefficientMaps.remove(key);
+            }
+        }
+
+        MultiKeyCoefficientMap map = loader.get();
+        try {
+            coefficientMaps.put(key, new CachedMap(lastModified, length, serialize(map)));
+        } catch (IOException e) {
+            // not cached: reloaded by the next run
+        }
+        return map;
+    }
+
+    /**
+     * Returns the grids read by a preceding run, if read from the same files for the same scale (dimensions and
+     * axes), or the grids obtained from reader.
+     */
+    public static synchronized Grids grids(String directory, String scale, Supplier<Grids> reader) {
+
+        StringBuilder key = new StringBuilder(new File(directory).getAbsolutePath());
+        File[] files = new File(directory).listFiles((dir, name) -> name.endsWith(".uft"));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                key.append('|').append(file.getName()).append(':').append(file.length()).append(':').append(file.lastModified());
+            }
+        }
+        key.append('|').append(scale);
+        if (grids != null && key.toString().equals(gridsKey))
+            return grids;
+
+        grids = null;       // release grids of a preceding run before reading
+        Grids read = reader.get();
+        grids = read;
+        gridsKey = key.toString();
+        return read;
+    }
+
+    /**
+     * Returns true if the donor pool and tax database references held by Parameters were built for the key.
+     */
+    public static synchronized boolean hasDonors(String key) {
+        return key.equals(donorsKey);
+    }
+
+    public static synchronized void setDonors(String key) {
+        donorsKey = key;
+    }
+
+    private static byte[] serialize(MultiKeyCoefficientMap map) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(map);
+        }
+        return bytes.toByteArray();
+    }
+
+
+    private record CachedMap(long lastModified, long length, byte[] bytes) {
+
+        MultiKeyCoefficientMap deserialize() throws IOException, ClassNotFoundException {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return (MultiKeyCoefficientMap) in.readObject();
+            }
+        }
+    }
+}
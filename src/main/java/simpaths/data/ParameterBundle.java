@@ -0,0 +1,357 @@
+// define package
+package simpaths.data;
+
+// import Java packages
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// import plug-in packages
+import org.apache.log4j.Logger;
+
+// import JAS-mine packages
+import microsim.data.MultiKeyCoefficientMap;
+import microsim.data.excel.ExcelAssistant;
+
+
+/**
+ *
+ * CLASS TO CACHE COEFFICIENT MAPS LOADED FROM EXCEL WORKBOOKS IN A BINARY PARAMETER BUNDLE
+ *
+ * Parsing the Excel workbooks of the input directory accounts for most of the time taken to load parameters. Each
+ * input directory holds a bundle file (parameters.bundle) with the coefficient maps loaded from the workbooks of that
+ * directory, in binary form, together with a SHA-256 hash of the content of each source workbook.
+ *
+ * A coefficient map is taken from the bundle only if the current content of its source workbook has the recorded
+ * hash. Otherwise, the map is loaded from the workbook by ExcelAssistant, and the bundle is updated when flush() is
+ * called. The bundle is therefore compiled by the first simulation to load its parameters, and is refreshed
+ * automatically whenever a workbook is edited. Maps are returned exactly as loaded from Excel, so that any
+ * subsequent processing (e.g. bootstrapping of regression coefficients) is unaffected.
+ *
+ * Running the main method with input directories as arguments recompiles the bundles of those directories from the
+ * current workbooks. Bundles are used only where enabled by the parameterBundle option of SimPathsModel; otherwise
+ * maps are always loaded from Excel.
+ *
+ */
+public class ParameterBundle {
+
+    private static final Logger log = Logger.getLogger(ParameterBundle.class);
+
+    public static final String BUNDLE_FILENAME = "parameters.bundle";
+    private static final int MAGIC = 0x5350424E;        // "SPBN"
+    private static final int FORMAT_VERSION = 1;
+
+    private static volatile boolean enabled = false;       // set for each run from the model options
+
+    private static final Map<String, ParameterBundle> bundles = new HashMap<>();        // by canonical path of input directory
+    private static final Map<String, SourceHash> sourceHashes = new HashMap<>();        // by canonical path of workbook
+
+    private final File file;
+    private final Map<String, String> hashes = new LinkedHashMap<>();       // by workbook file name
+    private final Map<String, Entry> entries = new LinkedHashMap<>();       // by workbook, sheet and key columns
+    private boolean modified;
+
+
+    private ParameterBundle(File directory) {
+        file = new File(directory, BUNDLE_FILENAME);
+        if (file.exists()) {
+            try {
+                read();
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable parameter bundle " + file + ": " + e.getMessage());
+                hashes.clear();
+                entries.clear();
+            }
+        }
+    }
+
+
+    /**
+     * Returns the coefficient map of ExcelAssistant.loadCoefficientMap(fileName, sheet, keyColumns), from the bundle
+     * of the directory of the workbook if it is up to date. Workbooks are parsed outside the lock on the bundles, so
+     * that maps can be loaded from Excel concurrently (see ConcurrentParameterLoader). Maps loaded by a preceding
+     * run of a multirun are taken from MultiRunCache.
+     */
+    public static MultiKeyCoefficientMap loadCoefficientMap(String fileName, String sheet, int keyColumns) {
+        return MultiRunCache.coefficientMap(fileName, sheet, keyColumns, () -> loadFromBundle(fileName, sheet, keyColumns));
+    }
+
+    private static MultiKeyCoefficientMap loadFromBundle(String fileName, String sheet, int keyColumns) {
+
+        if (!enabled)
+            return ExcelAssistant.loadCoefficientMap(fileName, sheet, keyColumns);
+
+        File source = new File(fileName);
+        String hash;
+        ParameterBundle bundle;
+        synchronized (ParameterBundle.class) {
+            try {
+                hash = hash(source);
+                bundle = bundles.computeIfAbsent(source.getCanonicalFile().getParent(), directory -> new ParameterBundle(new File(directory)));
+            } catch (IOException e) {
+                // e.g. missing workbook: leave reporting to ExcelAssistant
+                bundle = null;
+                hash = null;
+            }
+            if (bundle != null) {
+                MultiKeyCoefficientMap map = bundle.lookup(source.getName(), hash, sheet, keyColumns, fileName);
+                if (map != null)
+                    return map;
+            }
+        }
+        MultiKeyCoefficientMap map = ExcelAssistant.loadCoefficientMap(fileName, sheet, keyColumns);
+        if (bundle != null) {
+            synchronized (ParameterBundle.class) {
+                bundle.store(source.getName(), hash, sheet, keyColumns, fileName, map);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Sets whether coefficient maps are taken from the parameter bundles, or always loaded from Excel.
+     */
+    public static void setEnabled(boolean enabled) {
+        ParameterBundle.enabled = enabled;
+    }
+
+    /**
+     * Writes all bundles that have been updated since they were read.
+     */
+    public static synchronized void flush() {
+        for (ParameterBundle bundle : bundles.values()) {
+            if (bundle.modified) {
+                try {
+                    bundle.write();
+                    bundle.modified = false;
+                } catch (IOException e) {
+                    log.warn("Unable to save parameter bundle " + bundle.file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private MultiKeyCoefficientMap get(String source, String hash, String sheet, int keyColumns, String fileName) {
+
+        MultiKeyCoefficientMap map = lookup(source, hash, sheet, keyColumns, fileName);
+        if (map == null) {
+            map = ExcelAssistant.loadCoefficientMap(fileName, sheet, keyColumns);
+            store(source, hash, sheet, keyColumns, fileName, map);
+        }
+        return map;
+    }
+
+    /**
+     * Returns the bundled map, or null if it is not bundled for the current content of its source workbook
+     */
+    private MultiKeyCoefficientMap lookup(String source, String hash, String sheet, int keyColumns, String fileName) {
+
+        if (hash.equals(hashes.get(source))) {
+            Entry entry = entries.get(key(source, sheet, keyColumns));
+            if (entry != null) {
+                try {
+                    return entry.deserialize();
+                } catch (IOException | ClassNotFoundException e) {
+                    log.warn("Reloading " + sheet + " of " + fileName + " from Excel, as its bundled copy is unreadable: " + e.getMessage());
+                }
+            }
+        } else {
+            // source changed since the bundle was compiled: discard all maps loaded from it
+            entries.values().removeIf(entry -> entry.source.equals(source));
+            hashes.put(source, hash);
+        }
+        return null;
+    }
+
+    private void store(String source, String hash, String sheet, int keyColumns, String fileName, MultiKeyCoefficientMap map) {
+
+        if (!hash.equals(hashes.get(source)))
+            return;     // source changed while the map was loaded
+        try {
+            entries.put(key(source, sheet, keyColumns), new Entry(source, sheet, keyColumns, serialize(map)));
+            modified = true;
+        } catch (IOException e) {
+            log.warn("Unable to bundle " + sheet + " of " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    private static String key(String source, String sheet, int keyColumns) {
+        return source + '\u0000' + sheet + '\u0000' + keyColumns;
+    }
+
+    private static byte[] serialize(MultiKeyCoefficientMap map) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(map);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Hashes the content of a workbook, reusing the previous hash while its size and modification time are unchanged.
+     */
+    private static String hash(File source) throws IOException {
+
+        String path = source.getCanonicalPath();
+        long lastModified = source.lastModified();
+        long length = source.length();
+        SourceHash cached = sourceHashes.get(path);
+        if (cached != null && cached.lastModified == lastModified && cached.length == length)
+            return cached.hash;
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (InputStream in = new FileInputStream(source)) {
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte bb : digest.digest()) {
+            hash.append(String.format("%02x", bb));
+        }
+        sourceHashes.put(path, new SourceHash(lastModified, length, hash.toString()));
+        return hash.toString();
+    }
+
+    private void read() throws IOException {
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+                throw new IOException("not a parameter bundle of the current format");
+            int nSources = in.readInt();
+            for (int ii = 0; ii < nSources; ii++) {
+                hashes.put(in.readUTF(), in.readUTF());
+            }
+            int nEntries = in.readInt();
+            for (int ii = 0; ii < nEntries; ii++) {
+                String source = in.readUTF();
+                String sheet = in.readUTF();
+                int keyColumns = in.readInt();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                entries.put(key(source, sheet, keyColumns), new Entry(source, sheet, keyColumns, bytes));
+            }
+        }
+    }
+
+    /**
+     * Writes to a temporary file that then replaces the bundle, so that simulations running concurrently never read
+     * a partially written bundle.
+     */
+    private void write() throws IOException {
+
+        File temp = File.createTempFile(BUNDLE_FILENAME, ".tmp", file.getParentFile());
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(hashes.size());
+                for (Map.Entry<String, String> hash : hashes.entrySet()) {
+                    out.writeUTF(hash.getKey());
+                    out.writeUTF(hash.getValue());
+                }
+                out.writeInt(entries.size());
+                for (Entry entry : entries.values()) {
+                    out.writeUTF(entry.source);
+                    out.writeUTF(entry.sheet);
+                    out.writeInt(entry.keyColumns);
+                    out.writeInt(entry.bytes.length);
+                    out.write(entry.bytes);
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * Recompiles the parameter bundles of the input directories given as arguments from their current workbooks.
+     */
+    public static void main(String[] args) {
+
+        if (args.length == 0) {
+            System.out.println("Usage: ParameterBundle <input directory>...");
+            return;
+        }
+        for (String arg : args) {
+            File directory = new File(arg);
+            ParameterBundle bundle = new ParameterBundle(directory);
+            if (bundle.entries.isEmpty()) {
+                System.out.println("No parameter bundle in " + directory + ": it is compiled when a simulation first loads its parameters");
+                continue;
+            }
+            List<Entry> requests = new ArrayList<>(bundle.entries.values());
+            bundle.hashes.clear();
+            bundle.entries.clear();
+            for (Entry request : requests) {
+                File source = new File(directory, request.source);
+                if (!source.exists()) {
+                    System.out.println("Dropping " + request.sheet + " of missing workbook " + source);
+                    continue;
+                }
+                try {
+                    bundle.get(request.source, hash(source), request.sheet, request.keyColumns, source.getPath());
+                } catch (IOException e) {
+                    throw new RuntimeException("Unable to read " + source, e);
+                }
+            }
+            try {
+                bundle.write();
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to write parameter bundle " + bundle.file, e);
+            }
+            System.out.println("Compiled " + bundle.entries.size() + " coefficient maps from " + bundle.hashes.size() + " workbooks into " + bundle.file);
+        }
+    }
+
+
+    private static class Entry {
+
+        final String source;
+        final String sheet;
+        final int keyColumns;
+        final byte[] bytes;
+
+        Entry(String source, String sheet, int keyColumns, byte[] bytes) {
+            this.source = source;
+            this.sheet = sheet;
+            this.keyColumns = keyColumns;
+            this.bytes = bytes;
+        }
+
+        MultiKeyCoefficientMap deserialize() throws IOException, ClassNotFoundException {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return (MultiKeyCoefficientMap) in.readObject();
+            }
+        }
+    }
+
+    private record SourceHash(long lastModified, long length, String hash) {}
+}
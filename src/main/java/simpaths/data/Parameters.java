@@ -950,7 +950,7 @@ public class Parameters {
          * setParametersFromMap method overrides the default values of these parameters set in this class with values read in from the Excel file.
          */
 
-        countrySpecificParameters = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "parameters.xlsx"), "Parameters", 1);
+        countrySpecificParameters = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "parameters.xlsx"), "Parameters", 1);
         ParametersLoader.setParametersFromMap(countrySpecificParameters);
 
         maxAge      = maxAgeModel;
@@ -993,7 +993,7 @@ public class Parameters {
         donorPoolAveraging = donorPoolAveraging1;
         realInterestRateInnov = interestRateInnov1;
         disposableIncomeFromLabourInnov = disposableIncomeFromLabourInnov1;
-        fixedRetireAge = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_retirementAgeFixed.xlsx"), "Retirement_age", 1);
+        fixedRetireAge = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_retirementAgeFixed.xlsx"), "Retirement_age", 1);
 
         /*
         Code below introduces macro shocks in terms of population, productivity, and employment
@@ -1007,7 +1007,7 @@ public class Parameters {
         if (macroShocksOn) {
             switch (macroShockPopulation) {
                 case High:
-                    populationProjections = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "population_high", 3);
+                    populationProjections = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "population_high", 3);
 
                     // Productivity sub-switch
                     switch (macroShockProductivity) {
@@ -1015,14 +1015,14 @@ public class Parameters {
                             // Green policy sub-switch
                             switch (macroShockGreenPolicy) {
                                 case Yes:
-                                    upratingIndexMapRealGDP = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "gdp_highpop_baseprod_green", 1);
-                                    upratingIndexMapRealWageGrowth = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "wage_highpop_baseprod_green", 1);
+                                    upratingIndexMapRealGDP = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "gdp_highpop_baseprod_green", 1);
+                                    upratingIndexMapRealWageGrowth = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "wage_highpop_baseprod_green", 1);
                                     rebaseIndexMap(TimeSeriesVariable.GDP);
                                     rebaseIndexMap(TimeSeriesVariable.WageGrowth);
-                                    employedShareSingleMales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_highpop_baseprod_green", 1);
-                                    employedShareSingleFemales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_highpop_baseprod_green", 1);
-                                    employedShareCouples = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_highpop_baseprod_green", 1);
-                                    employedShare = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_highpop_baseprod_green", 1);
+                                    employedShareSingleMales = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_highpop_baseprod_green", 1);
+                                    employedShareSingleFemales = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_highpop_baseprod_green", 1);
+                                    employedShareCouples = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_highpop_baseprod_green", 1);
+                                    employedShare = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_highpop_baseprod_green", 1);
                                     break;
                                 case No:
                                 default:
@@ -1040,20 +1040,20 @@ public class Parameters {
                     break;
 
                 case Low:
-                    populationProjections = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "population_low", 3);
+                    populationProjections = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "population_low", 3);
 
                     switch (macroShockProductivity) {
                         case Baseline:
                             switch (macroShockGreenPolicy) {
                                 case Yes:
-                                    upratingIndexMapRealGDP = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "gdp_lowpop_baseprod_green", 1);
-                                    upratingIndexMapRealWageGrowth = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "wage_lowpop_baseprod_green", 1);
+                                    upratingIndexMapRealGDP = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "gdp_lowpop_baseprod_green", 1);
+                                    upratingIndexMapRealWageGrowth = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "wage_lowpop_baseprod_green", 1);
                                     rebaseIndexMap(TimeSeriesVariable.GDP);
                                     rebaseIndexMap(TimeSeriesVariable.WageGrowth);
-                                    employedShareSingleMales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_lowpop_baseprod_green", 1);
-                                    employedShareSingleFemales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_lowpop_baseprod_green", 1);
-                                    employedShareCouples = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_lowpop_baseprod_green", 1);
-                                    employedShare = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_lowpop_baseprod_green", 1);
+                                    employedShareSingleMales = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_lowpop_baseprod_green", 1);
+                                    employedShareSingleFemales = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_lowpop_baseprod_green", 1);
+                                    employedShareCouples = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_lowpop_baseprod_green", 1);
+                                    employedShare = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_lowpop_baseprod_green", 1);
                                     break;
                                 case No:
                                 default:
@@ -1072,56 +1072,56 @@ public class Parameters {
 
                 case Baseline:
                 default:
-                    populationProjections = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "align_popProjections.xlsx"), "Population_projections", 3);
+                    populationProjections = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "align_popProjections.xlsx"), "Population_projections", 3);
 
                     switch (macroShockProductivity) {
                         case Baseline:
                             switch (macroShockGreenPolicy) {
                                 case Yes:
-                                    upratingIndexMapRealGDP = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "gdp_basepop_baseprod_green", 1);
-                                    upratingIndexMapRealWageGrowth = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "wage_basepop_baseprod_green", 1);
+                                    upratingIndexMapRealGDP = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "gdp_basepop_baseprod_green", 1);
+                                    upratingIndexMapRealWageGrowth = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "wage_basepop_baseprod_green", 1);
                                     rebaseIndexMap(TimeSeriesVariable.GDP);
                                     rebaseIndexMap(TimeSeriesVariable.WageGrowth);
-                                    employedShareSingleMales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
-                                    employedShareSingleFemales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
-                                    employedShareCouples = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
-                                    employedShare = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
+                                    employedShareSingleMales = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
+                                    employedShareSingleFemales = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
+                                    employedShareCouples = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
+                                    employedShare = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
                                     break;
                                 case No:
                                 default:
-                                    upratingIndexMapRealGDP = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "gdp_basepop_baseprod", 1);
-                                    upratingIndexMapRealWageGrowth = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "wage_basepop_baseprod", 1);
+                                    upratingIndexMapRealGDP = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "gdp_basepop_baseprod", 1);
+                                    upratingIndexMapRealWageGrowth = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "wage_basepop_baseprod", 1);
                                     rebaseIndexMap(TimeSeriesVariable.GDP);
                                     rebaseIndexMap(TimeSeriesVariable.WageGrowth);
-                                    employedShareSingleMales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod", 1);
-                                    employedShareSingleFemales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod", 1);
-                                    employedShareCouples = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod", 1);
-                                    employedShare = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
+                                    employedShareSingleMales = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod", 1);
+                                    employedShareSingleFemales = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod", 1);
+                                    employedShareCouples = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod", 1);
+                                    employedShare = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
                                     break;
                             }
                             break;
                         case High:
                             switch (macroShockGreenPolicy) {
                                 case Yes:
-                                    upratingIndexMapRealGDP = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "gdp_basepop_highprod_green", 1);
-                                    upratingIndexMapRealWageGrowth = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "wage_basepop_highprod_green", 1);
+                                    upratingIndexMapRealGDP = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "gdp_basepop_highprod_green", 1);
+                                    upratingIndexMapRealWageGrowth = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "wage_basepop_highprod_green", 1);
                                     rebaseIndexMap(TimeSeriesVariable.GDP);
                                     rebaseIndexMap(TimeSeriesVariable.WageGrowth);
-                                    employedShareSingleMales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_highprod_green", 1);
-                                    employedShareSingleFemales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_highprod_green", 1);
-                                    employedShareCouples = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_highprod_green", 1);
-                                    employedShare = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
+                                    employedShareSingleMales = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_highprod_green", 1);
+                                    employedShareSingleFemales = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_highprod_green", 1);
+                                    employedShareCouples = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_highprod_green", 1);
+                                    employedShare = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
                                     break;
                                 case No:
                                 default:
-                                    upratingIndexMapRealGDP = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "gdp_basepop_highprod", 1);
-                                    upratingIndexMapRealWageGrowth = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "wage_basepop_highprod", 1);
+                                    upratingIndexMapRealGDP = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "gdp_basepop_highprod", 1);
+                                    upratingIndexMapRealWageGrowth = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "wage_basepop_highprod", 1);
                                     rebaseIndexMap(TimeSeriesVariable.GDP);
                                     rebaseIndexMap(TimeSeriesVariable.WageGrowth);
-                                    employedShareSingleMales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_highprod", 1);
-                                    employedShareSingleFemales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_highprod", 1);
-                                    employedShareCouples = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_highprod", 1);
-                                    employedShare = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
+                                    employedShareSingleMales = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_highprod", 1);
+                                    employedShareSingleFemales = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_highprod", 1);
+                                    employedShareCouples = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_highprod", 1);
+                                    employedShare = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "scenario_macro_shocks.xlsx"), "emp_basepop_baseprod_green", 1);
                                     break;
                             }
                             break;
@@ -1133,7 +1133,7 @@ public class Parameters {
                     break;
             }
         } else {
-            populationProjections = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "align_popProjections.xlsx"), "Population_projections", 3);
+            populationProjections = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "align_popProjections.xlsx"), "Population_projections", 3);
         }
 
 
@@ -1141,84 +1141,89 @@ public class Parameters {
 
 
 
+        // coefficient maps that are independent of one another are loaded concurrently, and assigned in order below
+        ConcurrentParameterLoader loader = new ConcurrentParameterLoader();
+
         // Not currently used. Consider removing.
-        projectionsHighEdu = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "align_educLevel.xlsx"), "High", 1);
-        projectionsLowEdu = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "align_educLevel.xlsx"), "Low", 1);
+        loader.load(resolveCountryFile(country, "align_educLevel.xlsx"), "High", 1, map -> projectionsHighEdu = map);
+        loader.load(resolveCountryFile(country, "align_educLevel.xlsx"), "Low", 1, map -> projectionsLowEdu = map);
 
-        studentShareProjections = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "align_student_under30.xlsx"), "Student_share", 1);
+        loader.load(resolveCountryFile(country, "align_student_under30.xlsx"), "Student_share", 1, map -> studentShareProjections = map);
         //Employment alignment
         //employmentAlignment = ExcelAssistant.loadCoefficientMap("input/align_employment.xlsx", countryString, 2);
 
         //Fertility rates:
-        fertilityProjectionsByYear = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "projections_fertility.xlsx"), "FertilityByYear", 1);
-        setMapBounds(MapBounds.Fertility, countryString);
+        loader.load(resolveCountryFile(country, "projections_fertility.xlsx"), "FertilityByYear", 1, map -> fertilityProjectionsByYear = map);
 
         //RMSE
-        coefficientMapRMSE = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_RMSE.xlsx"), "RMSE", 1);
+        loader.load(resolveCountryFile(country, "reg_RMSE.xlsx"), "RMSE", 1, map -> coefficientMapRMSE = map);
 
         //Mortality rates
-        mortalityProbabilityByGenderAgeYear = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "projections_mortality.xlsx"), "MortalityByGenderAgeYear", 2);
-        setMapBounds(MapBounds.Mortality, countryString);
+        loader.load(resolveCountryFile(country, "projections_mortality.xlsx"), "MortalityByGenderAgeYear", 2, map -> mortalityProbabilityByGenderAgeYear = map);
 
 
 
         //The Raw maps contain the estimates and covariance matrices, from which we bootstrap at the start of each simulation
 
         // Wages
-        coeffCovarianceW1mb = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_wages.xlsx"), "W1mb", 1);
-        coeffCovarianceW1ma = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_wages.xlsx"), "W1ma", 1);
-        coeffCovarianceW1fb = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_wages.xlsx"), "W1fb", 1);
-        coeffCovarianceW1fa = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_wages.xlsx"), "W1fa", 1);
+        loader.load(resolveCountryFile(country, "reg_wages.xlsx"), "W1mb", 1, map -> coeffCovarianceW1mb = map);
+        loader.load(resolveCountryFile(country, "reg_wages.xlsx"), "W1ma", 1, map -> coeffCovarianceW1ma = map);
+        loader.load(resolveCountryFile(country, "reg_wages.xlsx"), "W1fb", 1, map -> coeffCovarianceW1fb = map);
+        loader.load(resolveCountryFile(country, "reg_wages.xlsx"), "W1fa", 1, map -> coeffCovarianceW1fa = map);
 
         //Labour Supply utility function coefficients
         //Employment alignment adjusts *fixed-cost* -> add the relevant alignment fixed-cost regressors to each subgroup
-        coeffLabourSupplyUtilityMales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"),"Single_male", 1);
-        coeffLabourSupplyUtilityFemales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"),"Single_female", 1);
-        coeffLabourSupplyUtilityMalesWithDependent = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"),"SingleDep_Males", 1);
-        coeffLabourSupplyUtilityFemalesWithDependent = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"),"SingleDep_Females", 1);
-        coeffLabourSupplyUtilityACMales =ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"),"SingleAC_Males", 1);
-        coeffLabourSupplyUtilityACFemales =ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"),"SingleAC_Females", 1);
-        coeffLabourSupplyUtilityCouples =ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"),"Couples", 1);
+        loader.load(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"), "Single_male", 1, map -> coeffLabourSupplyUtilityMales = map);
+        loader.load(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"), "Single_female", 1, map -> coeffLabourSupplyUtilityFemales = map);
+        loader.load(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"), "SingleDep_Males", 1, map -> coeffLabourSupplyUtilityMalesWithDependent = map);
+        loader.load(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"), "SingleDep_Females", 1, map -> coeffLabourSupplyUtilityFemalesWithDependent = map);
+        loader.load(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"), "SingleAC_Males", 1, map -> coeffLabourSupplyUtilityACMales = map);
+        loader.load(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"), "SingleAC_Females", 1, map -> coeffLabourSupplyUtilityACFemales = map);
+        loader.load(resolveCountryFile(country, "reg_labourSupplyUtility.xlsx"), "Couples", 1, map -> coeffLabourSupplyUtilityCouples = map);
 
 
         //Heckman model employment selection
-        coeffCovarianceEmploymentSelectionMalesE = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_employmentSelection.xlsx"), "W1mb-sel", 1);
-        coeffCovarianceEmploymentSelectionMalesNE = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_employmentSelection.xlsx"), "W1ma-sel", 1);
-        coeffCovarianceEmploymentSelectionFemalesE = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_employmentSelection.xlsx"), "W1fb-sel", 1);
-        coeffCovarianceEmploymentSelectionFemalesNE = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_employmentSelection.xlsx"), "W1fa-sel", 1);
+        loader.load(resolveCountryFile(country, "reg_employmentSelection.xlsx"), "W1mb-sel", 1, map -> coeffCovarianceEmploymentSelectionMalesE = map);
+        loader.load(resolveCountryFile(country, "reg_employmentSelection.xlsx"), "W1ma-sel", 1, map -> coeffCovarianceEmploymentSelectionMalesNE = map);
+        loader.load(resolveCountryFile(country, "reg_employmentSelection.xlsx"), "W1fb-sel", 1, map -> coeffCovarianceEmploymentSelectionFemalesE = map);
+        loader.load(resolveCountryFile(country, "reg_employmentSelection.xlsx"), "W1fa-sel", 1, map -> coeffCovarianceEmploymentSelectionFemalesNE = map);
 
         //Health
-        coeffCovarianceHealthH1 = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_health.xlsx"), "H1", 1);
-        coeffCovarianceHealthH2 = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_health.xlsx"),  "H2", 1);
+        loader.load(resolveCountryFile(country, "reg_health.xlsx"), "H1", 1, map -> coeffCovarianceHealthH1 = map);
+        loader.load(resolveCountryFile(country, "reg_health.xlsx"), "H2", 1, map -> coeffCovarianceHealthH2 = map);
 
         //Education
-        coeffCovarianceEducationE1a = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_education.xlsx"), "E1a", 1);
-        coeffCovarianceEducationE1b = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_education.xlsx"), "E1b", 1);
-        coeffCovarianceEducationE2a = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_education.xlsx"), "E2a", 1);
+        loader.load(resolveCountryFile(country, "reg_education.xlsx"), "E1a", 1, map -> coeffCovarianceEducationE1a = map);
+        loader.load(resolveCountryFile(country, "reg_education.xlsx"), "E1b", 1, map -> coeffCovarianceEducationE1b = map);
+        loader.load(resolveCountryFile(country, "reg_education.xlsx"), "E2a", 1, map -> coeffCovarianceEducationE2a = map);
 
         //Partnership
-        coeffCovariancePartnershipU1 = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_partnership.xlsx"),"U1", 1);
-        coeffCovariancePartnershipU2 = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_partnership.xlsx"), "U2", 1);
+        loader.load(resolveCountryFile(country, "reg_partnership.xlsx"), "U1", 1, map -> coeffCovariancePartnershipU1 = map);
+        loader.load(resolveCountryFile(country, "reg_partnership.xlsx"), "U2", 1, map -> coeffCovariancePartnershipU2 = map);
 
         //Partnership - parameters for matching based on wage and age differential
-        meanCovarianceParametricMatching = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "scenario_parametricMatching.xlsx"), "Parameters", 1);
+        loader.load(resolveCountryFile(country, "scenario_parametricMatching.xlsx"), "Parameters", 1, map -> meanCovarianceParametricMatching = map);
 
         //Fertility
-        coeffCovarianceFertilityF1 = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_fertility.xlsx"), "F1", 1);
+        loader.load(resolveCountryFile(country, "reg_fertility.xlsx"), "F1", 1, map -> coeffCovarianceFertilityF1 = map);
 
         //Income
-        coeffCovarianceIncomeI1a = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_income.xlsx"), "I1a", 1);
-        coeffCovarianceIncomeI1b = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_income.xlsx"), "I1b", 1);
+        loader.load(resolveCountryFile(country, "reg_income.xlsx"), "I1a", 1, map -> coeffCovarianceIncomeI1a = map);
+        loader.load(resolveCountryFile(country, "reg_income.xlsx"), "I1b", 1, map -> coeffCovarianceIncomeI1b = map);
 
         //Leaving parental home
-        coeffCovarianceLeaveHomeP1 = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_leave_parental_home.xlsx"), "P1", 1);
+        loader.load(resolveCountryFile(country, "reg_leave_parental_home.xlsx"), "P1", 1, map -> coeffCovarianceLeaveHomeP1 = map);
 
         //Homeownership
-        coeffCovarianceHomeownership = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_home_ownership.xlsx"), "HO1", 1);
+        loader.load(resolveCountryFile(country, "reg_home_ownership.xlsx"), "HO1", 1, map -> coeffCovarianceHomeownership = map);
 
         //Retirement
-        coeffCovarianceRetirementR1a = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_retirement.xlsx"), "R1a", 1);
-        coeffCovarianceRetirementR1b = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "reg_retirement.xlsx"), "R1b", 1);
+        loader.load(resolveCountryFile(country, "reg_retirement.xlsx"), "R1a", 1, map -> coeffCovarianceRetirementR1a = map);
+        loader.load(resolveCountryFile(country, "reg_retirement.xlsx"), "R1b", 1, map -> coeffCovarianceRetirementR1b = map);
+
+        loader.publish();
+        setMapBounds(MapBounds.Fertility, countryString);
+        setMapBounds(MapBounds.Mortality, countryString);
 
 
         //Bootstrap the coefficients
@@ -1399,6 +1404,8 @@ public class Parameters {
         calculateFertilityRatesFromProjections();
         calculatePopulationGrowthRatiosFromProjections();
 
+        // save coefficient maps loaded from Excel, for faster loading by subsequent simulations
+        ParameterBundle.flush();
     }
 
 
@@ -1471,7 +1478,7 @@ public class Parameters {
     public static TreeMap<Integer, String> calculateEUROMODpolicySchedule(Country country) {
         //Load current values for policy description and initiation year
         String countryInputPath = "input" + File.separator + country.toString();
-        MultiKeyCoefficientMap currentEUROMODpolicySchedule = ExcelAssistant.loadCoefficientMap(
+        MultiKeyCoefficientMap currentEUROMODpolicySchedule = ParameterBundle.loadCoefficientMap(
                 countryInputPath + File.separator + EUROMODpolicyScheduleFilename + ".xlsx",
                 country.toString(),
                 1
@@ -1559,7 +1566,7 @@ public class Parameters {
     public static void setCountryBenefitUnitName() {
 
         //Benefit unit variable has different name in each country. This method loads the correct name of the benefit unit variable from Excel file system_bu_names.xlsx in the input folder.
-        benefitUnitVariableNames = ExcelAssistant.loadCoefficientMap("input/system_bu_names.xlsx", "Names", 1);
+        benefitUnitVariableNames = ParameterBundle.loadCoefficientMap("input/system_bu_names.xlsx", "Names", 1);
     }
 
     //-----------------------------------------------------------------------------------------------------
@@ -1999,24 +2006,42 @@ public class Parameters {
 
     public static void loadTimeSeriesFactorMaps(Country country) {
 
+        ConcurrentParameterLoader loader = new ConcurrentParameterLoader();
 
         // load time varying indices
-        upratingIndexMapRealGDP = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "gdp", 1);
-        upratingIndexMapInflation = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "inflation", 1);
-        upratingIndexMapRealWageGrowth = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "wage_growth", 1);
-        partnershipTimeAdjustment = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "cohabitation_adjustment", 1);
-        retirementTimeAdjustment = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "retirement_adjustment", 1);
-        disabilityTimeAdjustment = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "disability_adjustment", 1);
-        studentsTimeAdjustment = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "students_adjustment", 1);
-        fertilityTimeAdjustment = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "fertility_adjustment", 1);
-        utilityTimeAdjustmentSingleMales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_smales", 1);
-        utilityTimeAdjustmentACMales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_acmales", 1);
-        utilityTimeAdjustmentACFemales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_acfemales", 1);
-        utilityTimeAdjustmentSingleFemales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_sfemales", 1);
-        utilityTimeAdjustmentCouples = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_couples", 1);
-        utilityTimeAdjustmentMaleWithDep = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_malewdep", 1);
-        utilityTimeAdjustmentFemaleWithDep = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_femalewdep", 1);
-        utilityTimeAdjustment = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_all", 1);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "gdp", 1, map -> upratingIndexMapRealGDP = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "inflation", 1, map -> upratingIndexMapInflation = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "wage_growth", 1, map -> upratingIndexMapRealWageGrowth = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "cohabitation_adjustment", 1, map -> partnershipTimeAdjustment = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "retirement_adjustment", 1, map -> retirementTimeAdjustment = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "disability_adjustment", 1, map -> disabilityTimeAdjustment = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "students_adjustment", 1, map -> studentsTimeAdjustment = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "fertility_adjustment", 1, map -> fertilityTimeAdjustment = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_smales", 1, map -> utilityTimeAdjustmentSingleMales = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_acmales", 1, map -> utilityTimeAdjustmentACMales = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_acfemales", 1, map -> utilityTimeAdjustmentACFemales = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_sfemales", 1, map -> utilityTimeAdjustmentSingleFemales = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_couples", 1, map -> utilityTimeAdjustmentCouples = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_malewdep", 1, map -> utilityTimeAdjustmentMaleWithDep = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_femalewdep", 1, map -> utilityTimeAdjustmentFemaleWithDep = map);
+        loader.load(resolveCountryFile(country, "time_series_factor.xlsx"), "utility_adj_all", 1, map -> utilityTimeAdjustment = map);
+
+        // load year-specific fiscal policy parameters
+        loader.load(resolveCountryFile(country, "policy parameters.xlsx"), "social care", 1, map -> socialCarePolicy = map);
+        loader.load(resolveCountryFile(country, "partnered_share_targets_BUlogic.xlsx"), "partnered", 1, map -> partneredShare = map);
+        loader.load(resolveCountryFile(country, "retirement_targets.xlsx"), "retirement", 1, map -> retiredShare = map);
+        loader.load(resolveCountryFile(country, "disability_targets.xlsx"), "disability", 1, map -> disabledShare = map);
+        loader.load(resolveCountryFile(country, "inSchool_targets.xlsx"), "students", 1, map -> studentShare = map);
+
+        //Employment targets
+        loader.load(resolveCountryFile(country, "employment_targets.xlsx"), "Single_male", 1, map -> employedShareSingleMales = map);
+        loader.load(resolveCountryFile(country, "employment_targets.xlsx"), "SingleAC_Males", 1, map -> employedShareACMales = map);
+        loader.load(resolveCountryFile(country, "employment_targets.xlsx"), "Single_female", 1, map -> employedShareSingleFemales = map);
+        loader.load(resolveCountryFile(country, "employment_targets.xlsx"), "SingleAC_Females", 1, map -> employedShareACFemales = map);
+        loader.load(resolveCountryFile(country, "employment_targets.xlsx"), "Couples", 1, map -> employedShareCouples = map);
+        loader.load(resolveCountryFile(country, "employment_targets.xlsx"), "SingleDep_Males", 1, map -> employedShareMaleWithDep = map);
+        loader.load(resolveCountryFile(country, "employment_targets.xlsx"), "SingleDep_Females", 1, map -> employedShareFemaleWithDep = map);
+        loader.publish();
 
         // Snapshot initial utility adjustment values from xlsx before alignment can overwrite them.
         // Activity alignment uses these as cold-start values each year to avoid whiplash oscillation.
@@ -2026,22 +2051,6 @@ public class Parameters {
         rebaseIndexMap(TimeSeriesVariable.GDP);
         rebaseIndexMap(TimeSeriesVariable.Inflation);
         rebaseIndexMap(TimeSeriesVariable.WageGrowth);
-
-        // load year-specific fiscal policy parameters
-        socialCarePolicy = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "policy parameters.xlsx"), "social care", 1);
-        partneredShare = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "partnered_share_targets_BUlogic.xlsx"), "partnered", 1);
-        retiredShare = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "retirement_targets.xlsx"), "retirement", 1);
-        disabledShare = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "disability_targets.xlsx"), "disability", 1);
-        studentShare = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "inSchool_targets.xlsx"), "students", 1);
-
-        //Employment targets
-        employedShareSingleMales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "employment_targets.xlsx"), "Single_male", 1);
-        employedShareACMales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "employment_targets.xlsx"), "SingleAC_Males", 1);
-        employedShareSingleFemales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "employment_targets.xlsx"), "Single_female", 1);
-        employedShareACFemales = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "employment_targets.xlsx"), "SingleAC_Females", 1);
-        employedShareCouples = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "employment_targets.xlsx"), "Couples", 1);
-        employedShareMaleWithDep = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "employment_targets.xlsx"), "SingleDep_Males", 1);
-        employedShareFemaleWithDep = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "employment_targets.xlsx"), "SingleDep_Females", 1);
     }
 
     public static void instantiateAlignmentMaps() {
@@ -2064,16 +2073,16 @@ public class Parameters {
         TimeSeriesVariable index = getTimeSeriesVariable(UpratingCase.TaxDonor);
         switch (index) {
             case GDP -> {
-                upratingIndexMapRealGDP = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "gdp", 1);
+                upratingIndexMapRealGDP = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "gdp", 1);
                 rebaseIndexMap(TimeSeriesVariable.GDP);
             }
             case WageGrowth -> {
-                upratingIndexMapRealWageGrowth = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "wage_growth", 1);
+                upratingIndexMapRealWageGrowth = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "wage_growth", 1);
 
                 rebaseIndexMap(TimeSeriesVariable.WageGrowth);
             }
             case Inflation -> {
-                upratingIndexMapInflation = ExcelAssistant.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "inflation", 1);
+                upratingIndexMapInflation = ParameterBundle.loadCoefficientMap(resolveCountryFile(country, "time_series_factor.xlsx"), "inflation", 1);
                 rebaseIndexMap(TimeSeriesVariable.Inflation);
             }
         }
@@ -2098,7 +2107,7 @@ public class Parameters {
         }
     }
 
-    private static MultiKeyCoefficientMap getTimeSeriesValueMap(TimeSeriesVariable timeSeriesVariable) {
+    public static MultiKeyCoefficientMap getTimeSeriesValueMap(TimeSeriesVariable timeSeriesVariable) {
 
         MultiKeyCoefficientMap map = null;
         switch (timeSeriesVariable) {
@@ -2340,7 +2349,8 @@ public static void putPrevOrNewTarget(int year, Object newTarget, TimeSeriesVari
         putTimeSeriesValue(year, stringKey1, stringKey2, valPut, valueMap);
     }
 
-    public static void putTimeSeriesValue(int year, String stringKey1, String stringKey2, Object valPut, MultiKeyCoefficientMap valueMap) {
+    // synchronized with extendValueTimeSeries, as alignments of different subgroups may write concurrently
+    public synchronized static void putTimeSeriesValue(int year, String stringKey1, String stringKey2, Object valPut, MultiKeyCoefficientMap valueMap) {
 
         Object val = getObjectFromTimeSeriesValueMap(year, stringKey1, stringKey2, valueMap);
         if (val == null) {
@@ -0,0 +1,142 @@
+package simpaths.data;
+
+import java.util.Arrays;
+import java.util.function.DoublePredicate;
+
+
+/**
+ *
+ * CLASS TO SOLVE ALIGNMENT ADJUSTMENTS FROM THE CRITICAL THRESHOLDS OF AGENTS
+ *
+ * Alignments that shift the intercept of a probit (or other monotone) model compare a fixed random draw of each agent
+ * with a probability that increases with the adjustment. The outcome of each agent therefore switches once, at a
+ * critical value of the adjustment, and the simulated share at any adjustment is the share of agents whose critical
+ * value does not exceed it. Sorting the critical values once allows the adjustment that best meets a target share
+ * to be found directly, in place of a root search that re-evaluates the whole population at every iteration.
+ *
+ * As for RootSearch, the starting adjustment is retained if it meets the target to within epsFunction. Otherwise
+ * the adjustment is taken from the middle of the interval over which the simulated share is closest to the target.
+ * Outcomes are then set by a single evaluation of the alignment, which is checked against the share predicted from
+ * the critical values. Where the alignment does not provide critical values, or the check fails, null is returned
+ * so that the caller can use a root search instead.
+ *
+ * Threshold alignment is used by SimPathsModel unless its thresholdAlignment parameter is unset.
+ *
+ */
+public class ThresholdAlignment {
+
+    private final double[] thresholds;      // critical values, in ascending order
+
+
+    // CONSTRUCTOR
+    public ThresholdAlignment(double[] thresholds) {
+        this.thresholds = thresholds.clone();
+        Arrays.parallelSort(this.thresholds);
+    }
+
+
+    /**
+     * Aligns by critical thresholds.
+     *
+     * @return the adjustment, with outcomes of agents set accordingly, or null if the alignment could not be solved
+     * from thresholds
+     */
+    public static Double align(IThresholdEvaluation alignment, double start, double lower, double upper, double epsFunction) {
+
+        double[] thresholds = alignment.getThresholds(lower, upper);
+        if (thresholds == null || thresholds.length == 0)
+            return null;
+        for (double threshold : thresholds) {
+            if (Double.isNaN(threshold))
+                return null;
+        }
+
+        ThresholdAlignment thresholdAlignment = new ThresholdAlignment(thresholds);
+        double targetShare = alignment.getTargetShare();
+        double adjustment = thresholdAlignment.solve(targetShare, start, lower, upper, epsFunction);
+        double error = alignment.evaluate(new double[] {adjustment});
+        double expectedError = targetShare - thresholdAlignment.share(adjustment);
+        if (Math.abs(error - expectedError) > 0.5 / thresholds.length)
+            return null;
+        return adjustment;
+    }
+
+    /**
+     * Finds the adjustment from which an outcome holds, to the precision of a double.
+     *
+     * @param outcome outcome of the agent, which must hold for all adjustments above any at which it holds
+     * @return smallest adjustment between the bounds at which the outcome holds, -infinity if it holds at the lower
+     * bound, or +infinity if it does not hold at the upper bound
+     */
+    public static double threshold(DoublePredicate outcome, double lower, double upper) {
+
+        if (outcome.test(lower))
+            return Double.NEGATIVE_INFINITY;
+        if (!outcome.test(upper))
+            return Double.POSITIVE_INFINITY;
+        double without = lower, with = upper;
+        while (true) {
+            double mid = without + 0.5 * (with - without);
+            if (mid <= without || mid >= with)
+                return with;
+            if (outcome.test(mid))
+                with = mid;
+            else
+                without = mid;
+        }
+    }
+
+    /**
+     * @return number of agents with the outcome at the given adjustment
+     */
+    public int count(double adjustment) {
+
+        // number of thresholds not above adjustment
+        int lo = 0, hi = thresholds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (thresholds[mid] <= adjustment)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @return share of agents with the outcome at the given adjustment
+     */
+    public double share(double adjustment) {
+        return (double) count(adjustment) / thresholds.length;
+    }
+
+    /**
+     * @return adjustment between the bounds at which the share is closest to the target, retaining the start value
+     * if it is within epsFunction of the target
+     */
+    public double solve(double targetShare, double start, double lower, double upper, double epsFunction) {
+
+        int nn = thresholds.length;
+        int countStart = count(start);
+        if (start >= lower && start <= upper && Math.abs(targetShare - (double) countStart / nn) <= epsFunction)
+            return start;
+
+        // number of agents with the outcome closest to the target, among those feasible between the bounds
+        int countLower = count(lower), countUpper = count(upper);
+        int best = countLower;
+        for (int candidate : new int[] {(int) Math.floor(targetShare * nn), (int) Math.ceil(targetShare * nn), countLower, countUpper}) {
+            int cc = Math.max(countLower, Math.min(countUpper, candidate));
+            double gap = Math.abs(targetShare - (double) cc / nn), bestGap = Math.abs(targetShare - (double) best / nn);
+            if (gap < bestGap || (gap == bestGap && Math.abs(cc - countStart) < Math.abs(best - countStart)))
+                best = cc;
+        }
+
+        // middle of the interval of adjustments at which that number of agents have the outcome
+        double from = (best == 0) ? lower : Math.max(lower, thresholds[best - 1]);
+        double to = (best == nn) ? upper : Math.min(upper, thresholds[best]);
+        double adjustment = from + 0.5 * (to - from);
+        if (count(adjustment) != best)
+            adjustment = from;
+        return adjustment;
+    }
+}
@@ -0,0 +1,187 @@
+package simpaths.data.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+
+/**
+ * ColumnarCodec encodes schemas and snapshots of columns, as used by ColumnarExport files and population snapshots.
+ *
+ * A schema is the entity name and the name and type of each column. Rows are the number of rows followed, for each
+ * column, by its compressed length and bytes. Each column is compressed separately with Deflate, and holds a bitmap
+ * of non-null rows followed by the values. Dictionary columns hold the dictionary of distinct names followed by an
+ * integer code for each row (-1 for nulls).
+ */
+public final class ColumnarCodec {
+
+    private ColumnarCodec() {}
+
+    public static void writeSchema(DataOutputStream out, ColumnarSchema schema) throws IOException {
+
+        out.writeUTF(schema.getEntityName());
+        out.writeInt(schema.getNumberOfColumns());
+        for (int cc = 0; cc < schema.getNumberOfColumns(); cc++) {
+            out.writeUTF(schema.getColumnName(cc));
+            out.writeByte(schema.getColumnType(cc).ordinal());
+        }
+    }
+
+    public static ColumnarSchema readSchema(DataInputStream in) throws IOException {
+
+        String entityName = in.readUTF();
+        int nColumns = in.readInt();
+        List<String> names = new ArrayList<>();
+        List<ColumnarSchema.ColumnType> types = new ArrayList<>();
+        for (int cc = 0; cc < nColumns; cc++) {
+            names.add(in.readUTF());
+            int type = in.readByte();
+            if (type < 0 || type >= ColumnarSchema.ColumnType.values().length)
+                throw new IOException("Unknown type " + type + " of column " + names.get(cc));
+            types.add(ColumnarSchema.ColumnType.values()[type]);
+        }
+        return new ColumnarSchema(entityName, names, types);
+    }
+
+    /**
+     * @param deflater  compressor, which is reset before each column and not ended
+     */
+    public static void writeRows(DataOutputStream out, ColumnarSchema schema, ColumnarSchema.Snapshot snapshot, Deflater deflater) throws IOException {
+
+        out.writeInt(snapshot.numberOfRows);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (int cc = 0; cc < schema.getNumberOfColumns(); cc++) {
+            buffer.reset();
+            deflater.reset();
+            try (DataOutputStream column = new DataOutputStream(new DeflaterOutputStream(buffer, deflater, 1 << 16))) {
+                writeColumn(column, schema.getColumnType(cc), snapshot.values[cc], snapshot.present[cc], snapshot.numberOfRows);
+            }
+            out.writeInt(buffer.size());
+            buffer.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads rows written by writeRows. Values of dictionary columns are returned as Strings.
+     */
+    public static ColumnarSchema.Snapshot readRows(DataInputStream in, ColumnarSchema schema, int year) throws IOException {
+
+        int nRows = in.readInt();
+        ColumnarSchema.Snapshot snapshot = new ColumnarSchema.Snapshot(year, nRows, schema.getNumberOfColumns());
+        for (int cc = 0; cc < schema.getNumberOfColumns(); cc++) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            try (DataInputStream column = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+                readColumn(column, schema.getColumnType(cc), snapshot, cc, nRows);
+            }
+        }
+        return snapshot;
+    }
+
+    private static void writeColumn(DataOutputStream out, ColumnarSchema.ColumnType type, Object values, boolean[] present, int nRows) throws IOException {
+
+        // bitmap of non-null rows
+        byte[] bitmap = new byte[(nRows + 7) / 8];
+        for (int ii = 0; ii < nRows; ii++) {
+            if (present[ii])
+                bitmap[ii >>> 3] |= (byte) (1 << (ii & 7));
+        }
+        out.write(bitmap);
+
+        switch (type) {
+            case DOUBLE -> {
+                for (double value : (double[]) values) out.writeDouble(value);
+            }
+            case LONG -> {
+                for (long value : (long[]) values) out.writeLong(value);
+            }
+            case INT -> {
+                for (int value : (int[]) values) out.writeInt(value);
+            }
+            case BOOLEAN -> {
+                for (boolean value : (boolean[]) values) out.writeBoolean(value);
+            }
+            case DICTIONARY -> {
+                Object[] objects = (Object[]) values;
+                Map<String, Integer> dictionary = new HashMap<>();
+                int[] codes = new int[nRows];
+                String[] entries = new String[16];
+                for (int ii = 0; ii < nRows; ii++) {
+                    if (objects[ii] == null) {
+                        codes[ii] = -1;
+                        continue;
+                    }
+                    String name = (objects[ii] instanceof Enum<?> e) ? e.name() : objects[ii].toString();
+                    Integer code = dictionary.get(name);
+                    if (code == null) {
+                        code = dictionary.size();
+                        dictionary.put(name, code);
+                        if (code == entries.length)
+                            entries = Arrays.copyOf(entries, 2 * entries.length);
+                        entries[code] = name;
+                    }
+                    codes[ii] = code;
+                }
+                out.writeInt(dictionary.size());
+                for (int ii = 0; ii < dictionary.size(); ii++) {
+                    out.writeUTF(entries[ii]);
+                }
+                for (int code : codes) out.writeInt(code);
+            }
+        }
+    }
+
+    private static void readColumn(DataInputStream column, ColumnarSchema.ColumnType type, ColumnarSchema.Snapshot snapshot, int cc, int nRows) throws IOException {
+
+        byte[] bitmap = new byte[(nRows + 7) / 8];
+        column.readFully(bitmap);
+        boolean[] present = new boolean[nRows];
+        for (int ii = 0; ii < nRows; ii++) {
+            present[ii] = (bitmap[ii >>> 3] & (1 << (ii & 7))) != 0;
+        }
+        snapshot.present[cc] = present;
+
+        switch (type) {
+            case DOUBLE -> {
+                double[] values = new double[nRows];
+                for (int ii = 0; ii < nRows; ii++) values[ii] = column.readDouble();
+                snapshot.values[cc] = values;
+            }
+            case LONG -> {
+                long[] values = new long[nRows];
+                for (int ii = 0; ii < nRows; ii++) values[ii] = column.readLong();
+                snapshot.values[cc] = values;
+            }
+            case INT -> {
+                int[] values = new int[nRows];
+                for (int ii = 0; ii < nRows; ii++) values[ii] = column.readInt();
+                snapshot.values[cc] = values;
+            }
+            case BOOLEAN -> {
+                boolean[] values = new boolean[nRows];
+                for (int ii = 0; ii < nRows; ii++) values[ii] = column.readBoolean();
+                snapshot.values[cc] = values;
+            }
+            case DICTIONARY -> {
+                String[] dictionary = new String[column.readInt()];
+                for (int ii = 0; ii < dictionary.length; ii++) dictionary[ii] = column.readUTF();
+                Object[] values = new Object[nRows];
+                for (int ii = 0; ii < nRows; ii++) {
+                    int code = column.readInt();
+                    values[ii] = (code < 0) ? null : dictionary[code];
+                }
+                snapshot.values[cc] = values;
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package simpaths.data.export;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+
+/**
+ * ColumnarExport writes yearly snapshots of a population of agents to a compressed, column-oriented binary file,
+ * as an alternative to the row-by-row CSV output of DataExport.
+ *
+ * On the simulation thread, export() only copies the exported fields of the agents into primitive column arrays
+ * (see ColumnarSchema). Encoding, compression and disk I/O are performed by a background writer thread, so that
+ * the simulation can proceed with the next year while the previous one is written. The number of snapshots waiting
+ * to be written is bounded by the queue capacity: when the writer falls behind, export() blocks until space is
+ * available, which bounds the memory used by the exporter.
+ *
+ * File layout (all integers big-endian, as written by DataOutputStream):
+ *  header:     "SPCOL", format version, schema
+ *  row group:  ROW_GROUP marker, year, rows
+ *  end:        END marker
+ * Schemas and rows are encoded by ColumnarCodec.
+ * Use ColumnarExportReader to read the files, or to convert them to CSV.
+ */
+public class ColumnarExport {
+
+    private static final Logger log = Logger.getLogger(ColumnarExport.class);
+
+    public static final String FILE_EXTENSION = ".spc";
+    static final byte[] MAGIC = {'S', 'P', 'C', 'O', 'L'};
+    static final byte FORMAT_VERSION = 1;
+    static final int ROW_GROUP = 0x52475250;
+    static final int END = 0x454E4421;
+
+    private static final ColumnarSchema.Snapshot CLOSE = new ColumnarSchema.Snapshot(Integer.MIN_VALUE, 0, 0);
+    private static final long QUEUE_POLL_MILLIS = 200;      // interval at which a blocked export checks the writer
+
+    private final Collection<?> agents;
+    private final ColumnarSchema schema;
+    private final File file;
+    private final BlockingQueue<ColumnarSchema.Snapshot> queue;
+    private final Thread writer;
+    private final Thread shutdownHook;
+    private final int compressionLevel;
+    private volatile Throwable failure;
+    private boolean closed;
+
+
+    /**
+     * @param agents            the collection of agents to export, read on each call to export()
+     * @param entityClass       the class of the agents, whose persistent fields define the columns
+     * @param directory         output directory, in which a file named after the entity class is created
+     * @param queueCapacity     maximum number of yearly snapshots held in memory while waiting to be written
+     */
+    public ColumnarExport(Collection<?> agents, Class<?> entityClass, String directory, int queueCapacity) {
+        this(agents, entityClass, directory, queueCapacity, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public ColumnarExport(Collection<?> agents, Class<?> entityClass, String directory, int queueCapacity, int compressionLevel) {
+
+        if (queueCapacity < 1)
+            throw new IllegalArgumentException("Columnar export queue capacity must be positive, but is " + queueCapacity);
+        this.agents = agents;
+        this.schema = new ColumnarSchema(entityClass);
+        this.compressionLevel = compressionLevel;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        File dir = new File(directory);
+        if (!dir.exists() && !dir.mkdirs())
+            throw new RuntimeException("Unable to create directory " + directory + " for columnar export");
+        this.file = new File(dir, schema.getEntityName() + FILE_EXTENSION);
+
+        final DataOutputStream out;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            writeHeader(out);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to open " + file + " for columnar export", e);
+        }
+
+        writer = new Thread(() -> writeLoop(out), "ColumnarExport-" + schema.getEntityName());
+        writer.setDaemon(true);
+        writer.start();
+
+        // make sure queued years are written if the simulation is stopped before close() is called
+        shutdownHook = new Thread(this::closeQuietly);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Takes a snapshot of the agents for the given year, and queues it for writing. Blocks while the queue is full,
+     * unless the writer fails or stops, in which case its failure is rethrown.
+     */
+    public void export(int year) {
+
+        if (closed)
+            throw new IllegalStateException("Columnar export to " + file + " has been closed");
+        checkFailure();
+        ColumnarSchema.Snapshot snapshot = schema.capture(year, agents.toArray());
+        try {
+            while (!queue.offer(snapshot, QUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+                if (!writer.isAlive())
+                    throw new IllegalStateException("Writer of columnar export to " + file + " has stopped");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing columnar export of year " + year, e);
+        }
+    }
+
+    /**
+     * Waits until all queued snapshots have been written, and closes the file. Calling close() more than once has
+     * no further effect.
+     */
+    public synchronized void close() {
+
+        if (closed)
+            return;
+        closed = true;
+        try {
+            while (writer.isAlive() && !queue.offer(CLOSE, QUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                // wait for the writer to take queued snapshots, unless it has stopped
+            }
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while closing columnar export to " + file, e);
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM is already shutting down
+        }
+        checkFailure();
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (RuntimeException e) {
+            log.error("Columnar export to " + file + " did not complete: " + e.getMessage());
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public ColumnarSchema getSchema() {
+        return schema;
+    }
+
+    private void checkFailure() {
+        if (failure != null)
+            throw new RuntimeException("Columnar export to " + file + " failed", failure);
+    }
+
+    private void writeLoop(DataOutputStream out) {
+
+        try (out) {
+            while (true) {
+                ColumnarSchema.Snapshot snapshot = queue.take();
+                if (snapshot == CLOSE)
+                    break;
+                if (failure == null)
+                    writeRowGroup(out, snapshot);     // after a failure, keep draining the queue so export() does not block
+            }
+            if (failure == null)
+                out.writeInt(END);
+        } catch (Throwable e) {
+            if (failure == null)
+                failure = e;
+        }
+    }
+
+    private void writeHeader(DataOutputStream out) throws IOException {
+
+        out.write(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        ColumnarCodec.writeSchema(out, schema);
+    }
+
+    private void writeRowGroup(DataOutputStream out, ColumnarSchema.Snapshot snapshot) {
+
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            out.writeInt(ROW_GROUP);
+            out.writeInt(snapshot.year);
+            ColumnarCodec.writeRows(out, schema, snapshot, deflater);
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            deflater.end();
+        }
+    }
+}
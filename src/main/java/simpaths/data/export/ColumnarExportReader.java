@@ -0,0 +1,135 @@
+package simpaths.data.export;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * ColumnarExportReader reads files written by ColumnarExport, one row group (simulated year) at a time.
+ *
+ * The main method converts files to CSV, with one row per agent and year, e.g.:
+ *  java -cp simpaths.jar simpaths.data.export.ColumnarExportReader output/.../columnar/Person.spc
+ */
+public class ColumnarExportReader implements Closeable {
+
+    private final DataInputStream in;
+    private final ColumnarSchema schema;
+    private boolean finished;
+
+
+    public ColumnarExportReader(File file) throws IOException {
+
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        byte[] magic = new byte[ColumnarExport.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarExport.MAGIC))
+            throw new IOException(file + " is not a columnar export file");
+        int version = in.readByte();
+        if (version != ColumnarExport.FORMAT_VERSION)
+            throw new IOException("Unsupported columnar export format version " + version + " in " + file);
+
+        schema = ColumnarCodec.readSchema(in);
+    }
+
+    public ColumnarSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns the next row group, or null when the end of the file has been reached. Values of dictionary columns
+     * are returned as Strings.
+     */
+    public ColumnarSchema.Snapshot next() throws IOException {
+
+        if (finished)
+            return null;
+        int marker;
+        try {
+            marker = in.readInt();
+        } catch (EOFException e) {
+            throw new IOException("Columnar export file is truncated: the simulation may not have completed", e);
+        }
+        if (marker == ColumnarExport.END) {
+            finished = true;
+            return null;
+        }
+        if (marker != ColumnarExport.ROW_GROUP)
+            throw new IOException("Corrupt columnar export file: unexpected marker " + Integer.toHexString(marker));
+
+        return ColumnarCodec.readRows(in, schema, in.readInt());
+    }
+
+    /**
+     * Writes all row groups of the file to CSV, with a leading column holding the year of each row group.
+     * Null values are written as empty fields.
+     */
+    public void toCsv(File csv) throws IOException {
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csv), 1 << 16)) {
+            writer.write("year");
+            for (int cc = 0; cc < schema.getNumberOfColumns(); cc++) {
+                writer.write(',');
+                writer.write(schema.getColumnName(cc));
+            }
+            writer.newLine();
+
+            StringBuilder line = new StringBuilder();
+            ColumnarSchema.Snapshot snapshot;
+            while ((snapshot = next()) != null) {
+                for (int ii = 0; ii < snapshot.numberOfRows; ii++) {
+                    line.setLength(0);
+                    line.append(snapshot.year);
+                    for (int cc = 0; cc < schema.getNumberOfColumns(); cc++) {
+                        line.append(',');
+                        if (snapshot.present[cc][ii])
+                            appendValue(line, schema.getColumnType(cc), snapshot.values[cc], ii);
+                    }
+                    writer.write(line.toString());
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    private static void appendValue(StringBuilder line, ColumnarSchema.ColumnType type, Object values, int row) {
+        switch (type) {
+            case DOUBLE -> line.append(((double[]) values)[row]);
+            case LONG -> line.append(((long[]) values)[row]);
+            case INT -> line.append(((int[]) values)[row]);
+            case BOOLEAN -> line.append(((boolean[]) values)[row]);
+            case DICTIONARY -> line.append(((Object[]) values)[row]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length == 0) {
+            System.out.println("Usage: ColumnarExportReader <file" + ColumnarExport.FILE_EXTENSION + ">...");
+            return;
+        }
+        for (String arg : args) {
+            File file = new File(arg);
+            String name = file.getName();
+            if (name.endsWith(ColumnarExport.FILE_EXTENSION))
+                name = name.substring(0, name.length() - ColumnarExport.FILE_EXTENSION.length());
+            File csv = new File(file.getParentFile(), name + ".csv");
+            try (ColumnarExportReader reader = new ColumnarExportReader(file)) {
+                reader.toCsv(csv);
+            }
+            System.out.println("Converted " + file + " to " + csv);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package simpaths.data.export;
+
+import jakarta.persistence.Embedded;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Transient;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+
+/**
+ * ColumnarSchema describes the exported columns of an entity class, and captures snapshots of a population of
+ * agents as one primitive array per column.
+ *
+ * Columns are the persistent scalar fields of the class and its superclasses, i.e. all fields that are not static,
+ * transient or annotated @Transient, of primitive, boxed, String or enum type. Fields of @EmbeddedId and @Embedded
+ * objects (e.g. the PanelEntityKey of agents) are flattened into columns named after the embedded fields. References
+ * to other entities and collections are not exported.
+ */
+public class ColumnarSchema {
+
+    public enum ColumnType {
+        DOUBLE,
+        LONG,
+        INT,
+        BOOLEAN,
+        DICTIONARY,      //Enums, Strings and chars, stored as integer codes into a dictionary of their names
+    }
+
+    private final String entityName;
+    private final List<Column> columns = new ArrayList<>();
+
+
+    public ColumnarSchema(Class<?> entityClass) {
+        entityName = entityClass.getSimpleName();
+        addColumns(entityClass, null);
+        if (columns.isEmpty())
+            throw new IllegalArgumentException("Class " + entityName + " has no exportable fields");
+    }
+
+    ColumnarSchema(String entityName, List<String> names, List<ColumnType> types) {
+        this.entityName = entityName;
+        for (int ii = 0; ii < names.size(); ii++) {
+            columns.add(new Column(names.get(ii), types.get(ii), null, null));
+        }
+    }
+
+    private void addColumns(Class<?> clazz, Field embeddedIn) {
+
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> cc = clazz; cc != null && cc != Object.class; cc = cc.getSuperclass()) {
+            hierarchy.add(0, cc);
+        }
+        for (Class<?> cc : hierarchy) {
+            for (Field field : cc.getDeclaredFields()) {
+
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isAnnotationPresent(Transient.class) || field.isSynthetic())
+                    continue;
+                ColumnType type = columnType(field.getType());
+                if (type != null) {
+                    field.setAccessible(true);
+                    columns.add(new Column(field.getName(), type, embeddedIn, field));
+                } else if (embeddedIn == null && (field.isAnnotationPresent(EmbeddedId.class) || field.isAnnotationPresent(Embedded.class))) {
+                    field.setAccessible(true);
+                    addColumns(field.getType(), field);
+                }
+            }
+        }
+    }
+
+    private static ColumnType columnType(Class<?> type) {
+
+        if (type == double.class || type == Double.class || type == float.class || type == Float.class)
+            return ColumnType.DOUBLE;
+        if (type == long.class || type == Long.class)
+            return ColumnType.LONG;
+        if (type == int.class || type == Integer.class || type == short.class || type == Short.class || type == byte.class || type == Byte.class)
+            return ColumnType.INT;
+        if (type == boolean.class || type == Boolean.class)
+            return ColumnType.BOOLEAN;
+        if (type == String.class || type == char.class || type == Character.class || type.isEnum())
+            return ColumnType.DICTIONARY;
+        return null;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public int getNumberOfColumns() {
+        return columns.size();
+    }
+
+    public String getColumnName(int column) {
+        return columns.get(column).name;
+    }
+
+    public ColumnType getColumnType(int column) {
+        return columns.get(column).type;
+    }
+
+    /**
+     * Copies the exported fields of the agents into one array per column. Agents are read in parallel, so the
+     * agents must not be modified while the snapshot is taken.
+     */
+    public Snapshot capture(int year, Object[] agents) {
+
+        final int nRows = agents.length;
+        final int nColumns = columns.size();
+        final Snapshot snapshot = new Snapshot(year, nRows, nColumns);
+        for (int cc = 0; cc < nColumns; cc++) {
+            snapshot.present[cc] = new boolean[nRows];
+            switch (columns.get(cc).type) {
+                case DOUBLE -> snapshot.values[cc] = new double[nRows];
+                case LONG -> snapshot.values[cc] = new long[nRows];
+                case INT -> snapshot.values[cc] = new int[nRows];
+                case BOOLEAN -> snapshot.values[cc] = new boolean[nRows];
+                case DICTIONARY -> snapshot.values[cc] = new Object[nRows];
+            }
+        }
+
+        IntStream.range(0, nRows).parallel().forEach(ii -> {
+            for (int cc = 0; cc < nColumns; cc++) {
+                Column column = columns.get(cc);
+                try {
+                    Object target = (column.embeddedIn == null) ? agents[ii] : column.embeddedIn.get(agents[ii]);
+                    Object value = (target == null) ? null : column.field.get(target);
+                    if (value == null)
+                        continue;
+                    snapshot.present[cc][ii] = true;
+                    switch (column.type) {
+                        case DOUBLE -> ((double[]) snapshot.values[cc])[ii] = ((Number) value).doubleValue();
+                        case LONG -> ((long[]) snapshot.values[cc])[ii] = ((Number) value).longValue();
+                        case INT -> ((int[]) snapshot.values[cc])[ii] = ((Number) value).intValue();
+                        case BOOLEAN -> ((boolean[]) snapshot.values[cc])[ii] = (Boolean) value;
+                        case DICTIONARY -> ((Object[]) snapshot.values[cc])[ii] = value;
+                    }
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException("Unable to read field " + column.name + " of " + entityName, e);
+                }
+            }
+        });
+        return snapshot;
+    }
+
+    /**
+     * Returns true if the other schema has the same entity name and columns, e.g. to check that a file was written
+     * from the current version of an entity class.
+     */
+    public boolean matches(ColumnarSchema other) {
+
+        if (!entityName.equals(other.entityName) || columns.size() != other.columns.size())
+            return false;
+        for (int cc = 0; cc < columns.size(); cc++) {
+            if (!columns.get(cc).name.equals(other.columns.get(cc).name) || columns.get(cc).type != other.columns.get(cc).type)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sets the exported fields of an agent to the values of a row of a snapshot taken, or read, with this schema.
+     * Embedded objects (e.g. keys) must have been created by the constructor of the agent. Different agents may be
+     * restored in parallel.
+     */
+    public void restore(Snapshot snapshot, int row, Object agent) {
+
+        for (int cc = 0; cc < columns.size(); cc++) {
+            Column column = columns.get(cc);
+            if (column.field == null)
+                throw new IllegalStateException("Schema of " + entityName + " was not built from its class");
+            try {
+                Object target = (column.embeddedIn == null) ? agent : column.embeddedIn.get(agent);
+                if (!snapshot.present[cc][row]) {
+                    if (!column.field.getType().isPrimitive())
+                        column.field.set(target, null);
+                    continue;
+                }
+                Class<?> type = column.field.getType();
+                switch (column.type) {
+                    case DOUBLE -> {
+                        double value = ((double[]) snapshot.values[cc])[row];
+                        if (type == float.class || type == Float.class)
+                            column.field.set(target, (float) value);
+                        else
+                            column.field.set(target, value);
+                    }
+                    case LONG -> column.field.set(target, ((long[]) snapshot.values[cc])[row]);
+                    case INT -> {
+                        int value = ((int[]) snapshot.values[cc])[row];
+                        if (type == short.class || type == Short.class)
+                            column.field.set(target, (short) value);
+                        else if (type == byte.class || type == Byte.class)
+                            column.field.set(target, (byte) value);
+                        else
+                            column.field.set(target, value);
+                    }
+                    case BOOLEAN -> column.field.set(target, ((boolean[]) snapshot.values[cc])[row]);
+                    case DICTIONARY -> column.field.set(target, fromName(type, ((Object[]) snapshot.values[cc])[row]));
+                }
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Unable to set field " + column.name + " of " + entityName, e);
+            }
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object fromName(Class<?> type, Object value) {
+        if (!(value instanceof String name))
+            return value;
+        if (type.isEnum())
+            return Enum.valueOf((Class<? extends Enum>) type, name);
+        if (type == char.class || type == Character.class)
+            return name.charAt(0);
+        return name;
+    }
+
+
+    private static class Column {
+
+        final String name;
+        final ColumnType type;
+        final Field embeddedIn;
+        final Field field;
+
+        Column(String name, ColumnType type, Field embeddedIn, Field field) {
+            this.name = name;
+            this.type = type;
+            this.embeddedIn = embeddedIn;
+            this.field = field;
+        }
+    }
+
+    /**
+     * Values of all columns for one year. Arrays are double[], long[], int[], boolean[] or Object[] (for
+     * dictionary columns) according to the column type, with present[column][row] false for null values.
+     */
+    public static class Snapshot {
+
+        final int year;
+        final int numberOfRows;
+        final Object[] values;
+        final boolean[][] present;
+
+        Snapshot(int year, int numberOfRows, int numberOfColumns) {
+            this.year = year;
+            this.numberOfRows = numberOfRows;
+            this.values = new Object[numberOfColumns];
+            this.present = new boolean[numberOfColumns][];
+        }
+
+        public int getYear() {
+            return year;
+        }
+
+        public int getNumberOfRows() {
+            return numberOfRows;
+        }
+
+        public Object getValues(int column) {
+            return values[column];
+        }
+
+        public boolean isPresent(int column, int row) {
+            return present[column][row];
+        }
+    }
+}
@@ -10,7 +10,9 @@ import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.stream.IntStream;
 
+import simpaths.data.CsvTableLoader;
 import simpaths.data.FormattedDialogBox;
 import simpaths.data.Parameters;
 import simpaths.model.enums.Country;
@@ -25,10 +27,25 @@ public class DataParser {
 		//Initialise repository table for country-year-population size combinations
 		initialiseRepository(conn, startYear);
 
+		//Region - See Region class for mapping definitions and sources of info
+		Parameters.setCountryRegions(country);
+
 		//Construct tables for Simulated Persons & Households (initial population)
-		for (int year = startYear; year <= endYear; year++) {
-			DataParser.parse(Parameters.getInputDirectoryInitialPopulations(country) + initialInputFilename + "_" + year + ".csv", initialInputFilename, conn, country, year);
+		// years are processed concurrently, each on its own connection
+		String url;
+		try {
+			url = conn.getMetaData().getURL();
+		} catch (SQLException e) {
+			throw new RuntimeException("SQL Exception thrown! " + e.getMessage());
 		}
+		IntStream.rangeClosed(startYear, endYear).parallel().forEach(year -> {
+			try (Connection yearConn = DriverManager.getConnection(url, "sa", "")) {
+				CsvTableLoader.setConcurrentLockTimeout(yearConn);
+				DataParser.parse(Parameters.getInputDirectoryInitialPopulations(country) + initialInputFilename + "_" + year + ".csv", initialInputFilename + "_" + year, yearConn, country, year);
+			} catch (SQLException e) {
+				throw new RuntimeException("SQL Exception thrown! " + e.getMessage());
+			}
+		});
 	}
 
 	private static void initialiseRepository(Connection conn, int startYear) {
@@ -75,12 +92,14 @@ public class DataParser {
 		Statement stat = null;
 		try {
 			stat = conn.createStatement();
+			// load only the columns used below, in a single pass of the file
+			Set<String> inputColumnNamesSet = new LinkedHashSet<>(inputPersonColumnNamesSet);
+			inputColumnNamesSet.addAll(inputBenefitUnitColumnNamesSet);
+			inputColumnNamesSet.addAll(inputHouseholdColumnNameSet);
+			CsvTableLoader.load(conn, inputFileLocation, inputFileName, inputColumnNamesSet);
 			stat.execute(
 				//SQL statements creating database tables go here
-				//Refresh table
-				"DROP TABLE IF EXISTS " + inputFileName + " CASCADE;"
-				+ "CREATE TABLE " + inputFileName + " AS SELECT * FROM CSVREAD(\'" + inputFileLocation + "\');"
-				+ "DROP TABLE IF EXISTS " + personTable + " CASCADE;"
+				"DROP TABLE IF EXISTS " + personTable + " CASCADE;"
 				+ "CREATE TABLE " + personTable + " AS (SELECT " + stringAppender(inputPersonColumnNamesSet) + " FROM " + inputFileName + ");"
 
 				//Add panel entity key
@@ -247,8 +266,7 @@ public class DataParser {
 				+ "ALTER TABLE " + benefitUnitTable + " ADD region VARCHAR_IGNORECASE;"
 			);
 
-			//Region - See Region class for mapping definitions and sources of info
-			Parameters.setCountryRegions(country);
+			//Region - See Region class for mapping definitions and sources of info (set before parsing)
 			for(Region region: Parameters.getCountryRegions()) {
 				stat.execute(
 					"UPDATE " + benefitUnitTable + " SET region = '" + region + "' WHERE drgn1 = " + region.getValue() + ";"
@@ -287,9 +305,9 @@ public class DataParser {
 
 			//Remove duplicate rows
 			stat.execute(
-				"CREATE TABLE NEW AS SELECT DISTINCT * FROM " + benefitUnitTable + ";"
+				"CREATE TABLE " + benefitUnitTable + "_NEW AS SELECT DISTINCT * FROM " + benefitUnitTable + ";"
 				+ "DROP TABLE IF EXISTS " + benefitUnitTable + ";"
-				+ "ALTER TABLE NEW RENAME TO " + benefitUnitTable + ";"
+				+ "ALTER TABLE " + benefitUnitTable + "_NEW RENAME TO " + benefitUnitTable + ";"
 			);
 
 			if (PROCESS_KEY_IDENTIFICATION) {
@@ -316,9 +334,9 @@ public class DataParser {
 
 			//Remove duplicate rows
 			stat.execute(
-					"CREATE TABLE NEW AS SELECT DISTINCT * FROM " + householdTable + ";"
+					"CREATE TABLE " + householdTable + "_NEW AS SELECT DISTINCT * FROM " + householdTable + ";"
 				+ "DROP TABLE IF EXISTS " + householdTable + ";"
-				+ "ALTER TABLE NEW RENAME TO " + householdTable + ";"
+				+ "ALTER TABLE " + householdTable + "_NEW RENAME TO " + householdTable + ";"
 			);
 
 			if (PROCESS_KEY_IDENTIFICATION) {
@@ -0,0 +1,284 @@
+package simpaths.data.startingpop;
+
+import org.apache.log4j.Logger;
+import simpaths.data.Parameters;
+import simpaths.data.export.ColumnarCodec;
+import simpaths.data.export.ColumnarSchema;
+import simpaths.model.BenefitUnit;
+import simpaths.model.Household;
+import simpaths.model.Person;
+import simpaths.model.enums.Country;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
+
+/**
+ *
+ * CLASS TO STORE PROCESSED STARTING POPULATIONS IN A COMPACT BINARY FILE
+ *
+ * Loading a Processed population through Hibernate, and saving it entity by entity, is slow and memory-heavy for
+ * large populations. A population snapshot holds the same population as flat records: the persistent fields of all
+ * households, benefit units and persons, stored column by column (see ColumnarCodec), with each benefit unit and
+ * person referring to its household or benefit unit by its position in the file.
+ *
+ * Snapshots are keyed like Processed, by country, start year, population size and noTargets, and record the id of
+ * the Processed dataset they copy. A snapshot is only used while that dataset exists in the input database, and
+ * while the persistent fields of the entity classes are unchanged; otherwise it is ignored, and rewritten when the
+ * population is next loaded from the database.
+ *
+ * Newly processed populations are saved only to their snapshot, with a Processed record in the input database that
+ * holds no households. Where such a snapshot is missing or out of date, the record is removed and the population is
+ * processed again.
+ *
+ * Snapshots are used only where enabled by the populationSnapshot option of SimPathsModel; otherwise populations
+ * are always read from and saved to the input database.
+ *
+ */
+public class PopulationSnapshot {
+
+    private static final Logger log = Logger.getLogger(PopulationSnapshot.class);
+
+    public static final String SNAPSHOT_DIRECTORY = Parameters.INPUT_DIRECTORY + "population_snapshots";
+    private static final int MAGIC = 0x53505053;     // "SPPS"
+    private static final int FORMAT_VERSION = 1;
+
+    private static ColumnarSchema householdSchema;
+    private static ColumnarSchema benefitUnitSchema;
+    private static ColumnarSchema personSchema;
+
+
+    public static File getFile(Country country, int startYear, int popSize, boolean noTargets) {
+        return new File(SNAPSHOT_DIRECTORY, country + "_" + startYear + "_" + popSize + "_" + noTargets + ".sps");
+    }
+
+    /**
+     * Writes the population of a Processed dataset to its snapshot file. Households and benefit units are written
+     * in ascending order of their keys, which is the order in which they are loaded from the input database.
+     * Returns true if the snapshot was saved.
+     */
+    public static boolean write(Processed processed) {
+
+        File file = getFile(processed.getCountry(), processed.getStartYear(), processed.getPopSize(), processed.isNoTargets());
+        long timerStart = System.currentTimeMillis();
+
+        List<Household> households = new ArrayList<>(processed.getHouseholds());
+        households.sort(Comparator.comparingLong(Household::getId));
+        List<BenefitUnit> benefitUnits = new ArrayList<>();
+        List<Person> persons = new ArrayList<>();
+        List<Integer> benefitUnitParents = new ArrayList<>();
+        List<Integer> personParents = new ArrayList<>();
+        for (int hh = 0; hh < households.size(); hh++) {
+            List<BenefitUnit> householdBenefitUnits = new ArrayList<>(households.get(hh).getBenefitUnits());
+            householdBenefitUnits.sort(Comparator.comparingLong(BenefitUnit::getId));
+            for (BenefitUnit benefitUnit : householdBenefitUnits) {
+                int bu = benefitUnits.size();
+                benefitUnits.add(benefitUnit);
+                benefitUnitParents.add(hh);
+                for (Person person : benefitUnit.getMembers()) {
+                    persons.add(person);
+                    personParents.add(bu);
+                }
+            }
+        }
+
+        File temp = null;
+        try {
+            File dir = file.getParentFile();
+            if (!dir.exists() && !dir.mkdirs())
+                throw new IOException("unable to create directory " + dir);
+            temp = File.createTempFile(file.getName(), ".tmp", dir);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(processed.getId());
+                writeEntities(out, householdSchema(), households.toArray(), null, deflater);
+                writeEntities(out, benefitUnitSchema(), benefitUnits.toArray(), benefitUnitParents, deflater);
+                writeEntities(out, personSchema(), persons.toArray(), personParents, deflater);
+            } finally {
+                deflater.end();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Saved population snapshot " + file.getName() + " in " + (System.currentTimeMillis() - timerStart) / 1000.0 + " seconds");
+            return true;
+        } catch (IOException e) {
+            log.warn("Unable to save population snapshot " + file + ": " + e.getMessage());
+            return false;
+        } finally {
+            if (temp != null)
+                temp.delete();
+        }
+    }
+
+    /**
+     * Reads the snapshot of a Processed dataset. Returns null if there is no snapshot, if it copies a different
+     * dataset, or if it was written from a different version of the entity classes.
+     */
+    public static Processed read(Country country, int startYear, int popSize, boolean noTargets, long processedId) {
+
+        File file = getFile(country, startYear, popSize, noTargets);
+        if (!file.exists())
+            return null;
+
+        long timerStart = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+                return stale(file, "unrecognised format");
+            if (in.readLong() != processedId)
+                return stale(file, "copies a different processed dataset");
+
+            Entities households = readEntities(in, householdSchema());
+            Entities benefitUnits = readEntities(in, benefitUnitSchema());
+            Entities persons = readEntities(in, personSchema());
+            if (households == null || benefitUnits == null || persons == null)
+                return stale(file, "entity fields have changed");
+
+            // rebuild entities in parallel
+            Household[] householdArray = new Household[households.snapshot.getNumberOfRows()];
+            IntStream.range(0, householdArray.length).parallel().forEach(ii -> {
+                householdArray[ii] = new Household(0L);
+                householdSchema.restore(households.snapshot, ii, householdArray[ii]);
+            });
+            BenefitUnit[] benefitUnitArray = new BenefitUnit[benefitUnits.snapshot.getNumberOfRows()];
+            IntStream.range(0, benefitUnitArray.length).parallel().forEach(ii -> {
+                benefitUnitArray[ii] = new BenefitUnit(0L);
+                benefitUnitSchema.restore(benefitUnits.snapshot, ii, benefitUnitArray[ii]);
+            });
+            Person[] personArray = new Person[persons.snapshot.getNumberOfRows()];
+            IntStream.range(0, personArray.length).parallel().forEach(ii -> {
+                personArray[ii] = new Person(0L);
+                personSchema.restore(persons.snapshot, ii, personArray[ii]);
+            });
+
+            // link entities, in file order so that iteration orders are reproducible
+            Processed processed = new Processed(processedId, country, startYear, popSize, noTargets);
+            Relations relations = relations();
+            for (Household household : householdArray) {
+                relations.householdProcessed.set(household, processed);
+            }
+            for (int ii = 0; ii < benefitUnitArray.length; ii++) {
+                Household household = householdArray[benefitUnits.parents[ii]];
+                relations.benefitUnitHousehold.set(benefitUnitArray[ii], household);
+                household.getBenefitUnits().add(benefitUnitArray[ii]);
+            }
+            for (int ii = 0; ii < personArray.length; ii++) {
+                BenefitUnit benefitUnit = benefitUnitArray[persons.parents[ii]];
+                relations.personBenefitUnit.set(personArray[ii], benefitUnit);
+                benefitUnit.getMembers().add(personArray[ii]);
+            }
+            Set<Household> householdSet = new LinkedHashSet<>(householdArray.length);
+            for (Household household : householdArray) {
+                householdSet.add(household);
+            }
+            processed.setHouseholds(householdSet);
+
+            System.out.println("Loaded population snapshot " + file.getName() + " (" + personArray.length + " persons) in " + (System.currentTimeMillis() - timerStart) / 1000.0 + " seconds");
+            return processed;
+        } catch (IOException | IllegalAccessException | RuntimeException e) {
+            return stale(file, e.getMessage());
+        }
+    }
+
+    private static Processed stale(File file, String reason) {
+        log.warn("Ignoring population snapshot " + file + ": " + reason);
+        return null;
+    }
+
+    private static void writeEntities(DataOutputStream out, ColumnarSchema schema, Object[] entities, List<Integer> parents, Deflater deflater) throws IOException {
+
+        ColumnarCodec.writeSchema(out, schema);
+        ColumnarCodec.writeRows(out, schema, schema.capture(0, entities), deflater);
+        if (parents != null) {
+            for (int parent : parents) {
+                out.writeInt(parent);
+            }
+        }
+    }
+
+    private static Entities readEntities(DataInputStream in, ColumnarSchema schema) throws IOException {
+
+        ColumnarSchema fileSchema = ColumnarCodec.readSchema(in);
+        if (!fileSchema.matches(schema))
+            return null;
+        Entities entities = new Entities();
+        entities.snapshot = ColumnarCodec.readRows(in, fileSchema, 0);
+        if (schema != householdSchema) {
+            entities.parents = new int[entities.snapshot.getNumberOfRows()];
+            for (int ii = 0; ii < entities.parents.length; ii++) {
+                entities.parents[ii] = in.readInt();
+            }
+        }
+        return entities;
+    }
+
+    private static synchronized ColumnarSchema householdSchema() {
+        if (householdSchema == null)
+            householdSchema = new ColumnarSchema(Household.class);
+        return householdSchema;
+    }
+
+    private static synchronized ColumnarSchema benefitUnitSchema() {
+        if (benefitUnitSchema == null)
+            benefitUnitSchema = new ColumnarSchema(BenefitUnit.class);
+        return benefitUnitSchema;
+    }
+
+    private static synchronized ColumnarSchema personSchema() {
+        if (personSchema == null)
+            personSchema = new ColumnarSchema(Person.class);
+        return personSchema;
+    }
+
+    private static Relations relations() {
+        try {
+            return new Relations();
+        } catch (NoSuchFieldException e) {
+            throw new RuntimeException("Entity relations have changed: " + e.getMessage(), e);
+        }
+    }
+
+
+    private static class Entities {
+        ColumnarSchema.Snapshot snapshot;
+        int[] parents;
+    }
+
+    /**
+     * Fields mapping the many-to-one relations between entities, which are set directly as when loaded by Hibernate.
+     */
+    private static class Relations {
+
+        final Field householdProcessed;
+        final Field benefitUnitHousehold;
+        final Field personBenefitUnit;
+
+        Relations() throws NoSuchFieldException {
+            householdProcessed = field(Household.class, "processed");
+            benefitUnitHousehold = field(BenefitUnit.class, "household");
+            personBenefitUnit = field(Person.class, "benefitUnit");
+        }
+
+        private static Field field(Class<?> clazz, String name) throws NoSuchFieldException {
+            Field field = clazz.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        }
+    }
+}
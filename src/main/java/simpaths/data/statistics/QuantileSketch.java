@@ -0,0 +1,308 @@
+package simpaths.data.statistics;
+
+import java.util.Arrays;
+
+
+/**
+ * QuantileSketch is a mergeable streaming approximation of a (weighted) distribution, based on the merging
+ * t-digest of Dunning and Ertl. Values are summarised by at most about 2 * compression centroids, each holding a
+ * mean and a weight, so memory is independent of the number of observations.
+ *
+ * The compression parameter controls accuracy. Centroid sizes are limited by the arcsine scale function, so that
+ * the rank error at quantile q is of order q * (1 - q) * 4 / compression: about 0.5% of the population at the median
+ * and much less towards the tails for the default compression of 200.
+ *
+ * Non-finite values are counted but not summarised, and are ranked as in a sorted array of doubles:
+ * -Infinity before all finite values, followed by +Infinity and then NaN.
+ *
+ * Sketches built on separate partitions of a population can be combined with {@link #merge(QuantileSketch)}.
+ * Results are deterministic for a given sequence of additions and merges.
+ */
+public class QuantileSketch {
+
+    public static final double DEFAULT_COMPRESSION = 200.0;
+
+    private final double compression;
+
+    // centroids, sorted by mean
+    private double[] means;
+    private double[] weights;
+    private int numberOfCentroids;
+
+    // unsorted buffer of observations still to be merged into the centroids
+    private double[] bufferValues;
+    private double[] bufferWeights;
+    private int numberBuffered;
+
+    private double finiteWeight;
+    private double negativeInfinityWeight;
+    private double positiveInfinityWeight;
+    private double nanWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+
+    public QuantileSketch() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public QuantileSketch(double compression) {
+        if (compression < 10.0)
+            throw new IllegalArgumentException("Quantile sketch compression must be at least 10, but is " + compression);
+        this.compression = compression;
+        int capacity = (int) Math.ceil(2.0 * compression) + 10;
+        means = new double[capacity];
+        weights = new double[capacity];
+        bufferValues = new double[5 * capacity];
+        bufferWeights = new double[5 * capacity];
+    }
+
+    public void add(double value) {
+        add(value, 1.0);
+    }
+
+    public void add(double value, double weight) {
+
+        if (Double.isNaN(value)) {
+            nanWeight += weight;
+        } else if (value == Double.NEGATIVE_INFINITY) {
+            negativeInfinityWeight += weight;
+        } else if (value == Double.POSITIVE_INFINITY) {
+            positiveInfinityWeight += weight;
+        } else if (weight > 0.0) {
+            if (numberBuffered == bufferValues.length)
+                compress();
+            bufferValues[numberBuffered] = value;
+            bufferWeights[numberBuffered] = weight;
+            numberBuffered++;
+            finiteWeight += weight;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+    }
+
+    /**
+     * Adds all observations summarised by another sketch to this one.
+     */
+    public void merge(QuantileSketch other) {
+
+        other.compress();
+        for (int ii = 0; ii < other.numberOfCentroids; ii++) {
+            if (numberBuffered == bufferValues.length)
+                compress();
+            bufferValues[numberBuffered] = other.means[ii];
+            bufferWeights[numberBuffered] = other.weights[ii];
+            numberBuffered++;
+        }
+        finiteWeight += other.finiteWeight;
+        negativeInfinityWeight += other.negativeInfinityWeight;
+        positiveInfinityWeight += other.positiveInfinityWeight;
+        nanWeight += other.nanWeight;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the approximate value at quantile q in [0, 1] of the observations added to the sketch.
+     */
+    public double quantile(double q) {
+
+        if (q < 0.0 || q > 1.0)
+            throw new IllegalArgumentException("Quantile must be between 0 and 1, but is " + q);
+        double totalWeight = getTotalWeight();
+        if (totalWeight <= 0.0)
+            return Double.NaN;
+
+        double rank = q * totalWeight;
+        if (rank < negativeInfinityWeight)
+            return Double.NEGATIVE_INFINITY;
+        rank -= negativeInfinityWeight;
+        if (rank > finiteWeight) {
+            rank -= finiteWeight;
+            return (rank <= positiveInfinityWeight && positiveInfinityWeight > 0.0) ? Double.POSITIVE_INFINITY : Double.NaN;
+        }
+        if (finiteWeight <= 0.0)
+            return (positiveInfinityWeight > 0.0) ? Double.POSITIVE_INFINITY : Double.NaN;
+
+        compress();
+        if (numberOfCentroids == 1)
+            return means[0];
+
+        // centroids are treated as located at the mid-point of their cumulative weight
+        double cumulative = weights[0] / 2.0;
+        if (rank < cumulative)
+            return interpolate(rank, 0.0, cumulative, min, means[0]);
+        for (int ii = 0; ii < numberOfCentroids - 1; ii++) {
+            double next = cumulative + (weights[ii] + weights[ii + 1]) / 2.0;
+            if (rank <= next) {
+                if (weights[ii] == 1.0 && rank - cumulative < 0.5)
+                    return means[ii];
+                if (weights[ii + 1] == 1.0 && next - rank <= 0.5)
+                    return means[ii + 1];
+                return interpolate(rank, cumulative, next, means[ii], means[ii + 1]);
+            }
+            cumulative = next;
+        }
+        return interpolate(rank, cumulative, finiteWeight, means[numberOfCentroids - 1], max);
+    }
+
+    /**
+     * Returns the Gini coefficient of the finite observations, treating each centroid as a point mass at its mean:
+     *  G = [ sum_i sum_j w_i * w_j * abs( x_i - x_j) ] / [ 2 * (sum_i w_i) * (sum_j w_j * x_j) ]
+     * Dispersion within centroids is ignored, so the coefficient is slightly underestimated for small compressions.
+     */
+    public double gini() {
+
+        compress();
+        double absoluteDifference = 0.0, cumulativeWeight = 0.0, cumulativeWeightedValue = 0.0;
+        for (int ii = 0; ii < numberOfCentroids; ii++) {
+            absoluteDifference += 2.0 * weights[ii] * (means[ii] * cumulativeWeight - cumulativeWeightedValue);
+            cumulativeWeight += weights[ii];
+            cumulativeWeightedValue += weights[ii] * means[ii];
+        }
+        return absoluteDifference / (2.0 * cumulativeWeight * cumulativeWeightedValue);
+    }
+
+    public double getTotalWeight() {
+        return finiteWeight + negativeInfinityWeight + positiveInfinityWeight + nanWeight;
+    }
+
+    public double getFiniteWeight() {
+        return finiteWeight;
+    }
+
+    /**
+     * Returns the weighted sum of the finite observations (which is preserved exactly by the centroids).
+     */
+    public double getWeightedSum() {
+        compress();
+        double weightedSum = 0.0;
+        for (int ii = 0; ii < numberOfCentroids; ii++) {
+            weightedSum += weights[ii] * means[ii];
+        }
+        return weightedSum;
+    }
+
+    public double getCompression() {
+        return compression;
+    }
+
+    public int getNumberOfCentroids() {
+        compress();
+        return numberOfCentroids;
+    }
+
+    private static double interpolate(double xx, double x0, double x1, double y0, double y1) {
+        if (x1 <= x0)
+            return y0;
+        return y0 + (y1 - y0) * (xx - x0) / (x1 - x0);
+    }
+
+    /**
+     * Arcsine scale function, which limits the weight of centroids near the tails of the distribution.
+     */
+    private double scale(double q) {
+        return compression / (2.0 * Math.PI) * Math.asin(2.0 * Math.min(1.0, Math.max(0.0, q)) - 1.0);
+    }
+
+    /**
+     * Merges the buffered observations into the centroids.
+     */
+    private void compress() {
+
+        if (numberBuffered == 0)
+            return;
+        sort(bufferValues, bufferWeights, 0, numberBuffered - 1);
+
+        // merge sorted centroids and sorted buffer into a single sorted sequence
+        int nn = numberOfCentroids + numberBuffered;
+        double[] values = new double[nn];
+        double[] valueWeights = new double[nn];
+        int ic = 0, ib = 0;
+        for (int ii = 0; ii < nn; ii++) {
+            if (ib >= numberBuffered || (ic < numberOfCentroids && means[ic] <= bufferValues[ib])) {
+                values[ii] = means[ic];
+                valueWeights[ii] = weights[ic++];
+            } else {
+                values[ii] = bufferValues[ib];
+                valueWeights[ii] = bufferWeights[ib++];
+            }
+        }
+        double total = 0.0;
+        for (int ii = 0; ii < nn; ii++) {
+            total += valueWeights[ii];
+        }
+
+        // greedy pass combining neighbours while the centroid spans at most one unit of the scale function
+        numberOfCentroids = 0;
+        double currentMean = values[0];
+        double currentWeight = valueWeights[0];
+        double weightSoFar = 0.0;
+        double scaleLeft = scale(0.0);
+        for (int ii = 1; ii < nn; ii++) {
+            double proposedWeight = currentWeight + valueWeights[ii];
+            if (scale((weightSoFar + proposedWeight) / total) - scaleLeft <= 1.0) {
+                currentMean += (values[ii] - currentMean) * valueWeights[ii] / proposedWeight;
+                currentWeight = proposedWeight;
+            } else {
+                addCentroid(currentMean, currentWeight);
+                weightSoFar += currentWeight;
+                scaleLeft = scale(weightSoFar / total);
+                currentMean = values[ii];
+                currentWeight = valueWeights[ii];
+            }
+        }
+        addCentroid(currentMean, currentWeight);
+        numberBuffered = 0;
+    }
+
+    private void addCentroid(double mean, double weight) {
+        if (numberOfCentroids == means.length) {
+            means = Arrays.copyOf(means, 2 * means.length);
+            weights = Arrays.copyOf(weights, 2 * weights.length);
+        }
+        means[numberOfCentroids] = mean;
+        weights[numberOfCentroids] = weight;
+        numberOfCentroids++;
+    }
+
+    /**
+     * Sorts values in ascending order between indices lo and hi (inclusive), permuting weights alongside.
+     */
+    private static void sort(double[] values, double[] weights, int lo, int hi) {
+
+        while (hi - lo > 16) {
+            double pivot = values[(lo + hi) >>> 1];
+            int ii = lo, jj = hi;
+            while (ii <= jj) {
+                while (values[ii] < pivot) ii++;
+                while (values[jj] > pivot) jj--;
+                if (ii <= jj) {
+                    swap(values, weights, ii++, jj--);
+                }
+            }
+            // recurse on the smaller partition to bound stack depth
+            if (jj - lo < hi - ii) {
+                sort(values, weights, lo, jj);
+                lo = ii;
+            } else {
+                sort(values, weights, ii, hi);
+                hi = jj;
+            }
+        }
+        for (int ii = lo + 1; ii <= hi; ii++) {
+            for (int jj = ii; jj > lo && values[jj - 1] > values[jj]; jj--) {
+                swap(values, weights, jj, jj - 1);
+            }
+        }
+    }
+
+    private static void swap(double[] values, double[] weights, int ii, int jj) {
+        double value = values[ii];
+        values[ii] = values[jj];
+        values[jj] = value;
+        double weight = weights[ii];
+        weights[ii] = weights[jj];
+        weights[jj] = weight;
+    }
+}
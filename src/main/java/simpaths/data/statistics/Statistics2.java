@@ -11,6 +11,8 @@ import simpaths.model.SimPathsModel;
 import simpaths.model.enums.Education;
 import simpaths.model.enums.Indicator;
 
+import java.util.Arrays;
+
 @Entity
 public class Statistics2 {
 
@@ -592,90 +594,114 @@ public class Statistics2 {
         this.aaworkNone55to74 = aaworkNone55to74;
     }
 
+    // layout of the vector of sums accumulated over persons (see accumulate)
+    private static final int PR_MARR = 0, AVKIDS = 3, HEALTH = 6, PR_DISA = 9, WORK_FT = 12, WORK_PT = 15, WORK_NN = 18,
+            LAB_INC = 22, INV_INC = 25, INV_LOSSES = 28, PEN_INC = 31, DIS_INC = 34, GROSS_DIS_INC = 37, EXPEN = 40,
+            WEALTH = 44, POPULA = 47, CTL_NG = 50, CTL_G = 51, NUMBER_NG = 52, NUMBER_G = 53;
+    public static final int NUMBER_OF_SUMS = 54;
+
     public void update(SimPathsModel model) {
 
-        // initialise outputs
-        double[] prMarr = {0.,0.,0.};
-        double[] avkids = {0.,0.,0.};
-        double[] health = {0.,0.,0.};
-        double[] prDisa = {0.,0.,0.};
-        double[] workFT = {0.,0.,0.};
-        double[] workPT = {0.,0.,0.};
-        double[] workNn = {0.,0.,0.,0.};
-        double[] labInc = {0.,0.,0.};
-        double[] invInc = {0.,0.,0.};
-        double[] invLosses = {0.,0.,0.};
-        double[] penInc = {0.,0.,0.};
-        double[] disInc = {0.,0.,0.};
-        double[] grossDisInc = {0.,0.,0.};
-        double[] expen = {0.,0.,0.,0.};
-        double[] wealth = {0.,0.,0.};
-        double[] popula = {0.,0.,0.};
-        double ctlNG = 0.0, ctlG = 0.0;
-        double numberNG = 0.0, numberG = 0.0;
+        double[] sums = new double[NUMBER_OF_SUMS];
         for (Person person : model.getPersons()) {
             // loop over entire population
+            accumulate(person, sums);
+        }
+        update(sums);
+    }
+
+    /**
+     * Adds the contributions of a person to the vector of sums used to evaluate the statistics.
+     * Allows the statistics to be accumulated over the population in the collector's single pass
+     * (see StatisticsAggregator.VectorSum), with update(double[]) evaluating the statistics from the totals.
+     */
+    public static void accumulate(Person person, double[] sums) {
+
+        int ii = -1;
+        if (person.getDag()>=18 && person.getDag()<=29) {
+            ii = 0;
+        } else if (person.getDag()>=30 && person.getDag()<=54) {
+            ii = 1;
+        } else if (person.getDag()>=55 && person.getDag()<=74) {
+            ii = 2;
+        }
+        if (ii>=0) {
+
+            double es = person.getBenefitUnit().getEquivalisedWeight();
+
+            sums[PR_MARR+ii] += person.getCohabiting();
+            sums[AVKIDS+ii] += person.getBenefitUnit().getNumberChildrenAll();
+            sums[HEALTH+ii] += person.getDheValue();
+            sums[PR_DISA+ii] += (Indicator.True.equals(person.getDlltsd()))? 1.0: 0.0;
+            sums[LAB_INC+ii] += person.getEarningsWeekly();
+            if ((double)person.getLabourSupplyHoursWeekly() > Parameters.MIN_HOURS_FULL_TIME_EMPLOYED)
+                sums[WORK_FT+ii] += 1.0;
+            else if ((double)person.getLabourSupplyHoursWeekly() > 1.0)
+                sums[WORK_PT+ii] += 1.0;
+            else {
+                sums[WORK_NN+ii] += 1.0;
+                sums[WORK_NN+3] += 1.0;
+            }
 
-            int ii = -1;
-            if (person.getDag()>=18 && person.getDag()<=29) {
-                ii = 0;
-            } else if (person.getDag()>=30 && person.getDag()<=54) {
-                ii = 1;
-            } else if (person.getDag()>=55 && person.getDag()<=74) {
-                ii = 2;
+            sums[INV_INC+ii] += person.getBenefitUnit().getInvestmentIncomeAnnual() / 12.0 / es;
+            sums[PEN_INC+ii] += person.getBenefitUnit().getPensionIncomeAnnual() / 12.0 / es;
+            sums[DIS_INC+ii] += person.getBenefitUnit().getDisposableIncomeMonthly() / es;
+            if (person.getBenefitUnit().getInvestmentIncomeAnnual()<0.0) {
+                sums[INV_LOSSES+ii] += person.getBenefitUnit().getInvestmentIncomeAnnual() / 12.0 / es;
+                sums[GROSS_DIS_INC+ii] += (person.getBenefitUnit().getDisposableIncomeMonthly() -
+                        person.getBenefitUnit().getInvestmentIncomeAnnual() / 12.0) / es;
+            } else {
+                sums[GROSS_DIS_INC+ii] += person.getBenefitUnit().getDisposableIncomeMonthly() / es;
             }
-            if (ii>=0) {
-
-                double es = person.getBenefitUnit().getEquivalisedWeight();
-                
-                prMarr[ii] += person.getCohabiting();
-                avkids[ii] += person.getBenefitUnit().getNumberChildrenAll();
-                health[ii] += person.getDheValue();
-                prDisa[ii] += (Indicator.True.equals(person.getDlltsd()))? 1.0: 0.0;
-                labInc[ii] += person.getEarningsWeekly();
-                if ((double)person.getLabourSupplyHoursWeekly() > Parameters.MIN_HOURS_FULL_TIME_EMPLOYED)
-                    workFT[ii] += 1.0;
-                else if ((double)person.getLabourSupplyHoursWeekly() > 1.0)
-                    workPT[ii] += 1.0;
-                else {
-                    workNn[ii] += 1.0;
-                    workNn[3] += 1.0;
+            double expenditurePerMonth = person.getBenefitUnit().getDiscretionaryConsumptionPerYear(false) / 12.0 +
+                    person.getBenefitUnit().getChildcareCostPerWeek(false) * Parameters.WEEKS_PER_MONTH +
+                    person.getBenefitUnit().getSocialCareCostPerWeek(false) * Parameters.WEEKS_PER_MONTH;
+            if (expenditurePerMonth > 0.0) {
+                expenditurePerMonth /= es;
+                sums[EXPEN+ii] += Math.log(expenditurePerMonth);
+                if (person.getDag()>=18 && person.getDag()<=54) {
+                    sums[EXPEN+3] += Math.log(expenditurePerMonth);
                 }
+            }
+            if (person.getDag()>=55 && person.getDag()<=60) {
 
-                invInc[ii] += person.getBenefitUnit().getInvestmentIncomeAnnual() / 12.0 / es;
-                penInc[ii] += person.getBenefitUnit().getPensionIncomeAnnual() / 12.0 / es;
-                disInc[ii] += person.getBenefitUnit().getDisposableIncomeMonthly() / es;
-                if (person.getBenefitUnit().getInvestmentIncomeAnnual()<0.0) {
-                    invLosses[ii] += person.getBenefitUnit().getInvestmentIncomeAnnual() / 12.0 / es;
-                    grossDisInc[ii] += (person.getBenefitUnit().getDisposableIncomeMonthly() -
-                            person.getBenefitUnit().getInvestmentIncomeAnnual() / 12.0) / es;
+                if (Education.High.equals(person.getDeh_c4())) {
+                    sums[NUMBER_G] += 1.0;
+                    sums[CTL_G] += expenditurePerMonth / Parameters.WEEKS_PER_MONTH / person.getLeisureHoursPerWeek();
                 } else {
-                    grossDisInc[ii] += person.getBenefitUnit().getDisposableIncomeMonthly() / es;
+                    sums[NUMBER_NG] += 1.0;
+                    sums[CTL_NG] += expenditurePerMonth / Parameters.WEEKS_PER_MONTH / person.getLeisureHoursPerWeek();
                 }
-                double expenditurePerMonth = person.getBenefitUnit().getDiscretionaryConsumptionPerYear(false) / 12.0 +
-                        person.getBenefitUnit().getChildcareCostPerWeek(false) * Parameters.WEEKS_PER_MONTH +
-                        person.getBenefitUnit().getSocialCareCostPerWeek(false) * Parameters.WEEKS_PER_MONTH;
-                if (expenditurePerMonth > 0.0) {
-                    expenditurePerMonth /= es;
-                    expen[ii] += Math.log(expenditurePerMonth);
-                    if (person.getDag()>=18 && person.getDag()<=54) {
-                        expen[3] += Math.log(expenditurePerMonth);
-                    }
-                }
-                if (person.getDag()>=55 && person.getDag()<=60) {
-
-                    if (Education.High.equals(person.getDeh_c4())) {
-                        numberG += 1.0;
-                        ctlG += expenditurePerMonth / Parameters.WEEKS_PER_MONTH / person.getLeisureHoursPerWeek();
-                    } else {
-                        numberNG += 1.0;
-                        ctlNG += expenditurePerMonth / Parameters.WEEKS_PER_MONTH / person.getLeisureHoursPerWeek();
-                    }
-                }
-                wealth[ii] += person.getBenefitUnit().getLiquidWealth(false) / es;
-                popula[ii] += 1.0;
             }
+            sums[WEALTH+ii] += person.getBenefitUnit().getLiquidWealth(false) / es;
+            sums[POPULA+ii] += 1.0;
         }
+    }
+
+    /**
+     * Evaluates the statistics from the vector of population sums obtained from accumulate.
+     */
+    public void update(double[] sums) {
+
+        // initialise outputs
+        double[] prMarr = Arrays.copyOfRange(sums, PR_MARR, PR_MARR+3);
+        double[] avkids = Arrays.copyOfRange(sums, AVKIDS, AVKIDS+3);
+        double[] health = Arrays.copyOfRange(sums, HEALTH, HEALTH+3);
+        double[] prDisa = Arrays.copyOfRange(sums, PR_DISA, PR_DISA+3);
+        double[] workFT = Arrays.copyOfRange(sums, WORK_FT, WORK_FT+3);
+        double[] workPT = Arrays.copyOfRange(sums, WORK_PT, WORK_PT+3);
+        double[] workNn = Arrays.copyOfRange(sums, WORK_NN, WORK_NN+4);
+        double[] labInc = Arrays.copyOfRange(sums, LAB_INC, LAB_INC+3);
+        double[] invInc = Arrays.copyOfRange(sums, INV_INC, INV_INC+3);
+        double[] invLosses = Arrays.copyOfRange(sums, INV_LOSSES, INV_LOSSES+3);
+        double[] penInc = Arrays.copyOfRange(sums, PEN_INC, PEN_INC+3);
+        double[] disInc = Arrays.copyOfRange(sums, DIS_INC, DIS_INC+3);
+        double[] grossDisInc = Arrays.copyOfRange(sums, GROSS_DIS_INC, GROSS_DIS_INC+3);
+        double[] expen = Arrays.copyOfRange(sums, EXPEN, EXPEN+4);
+        double[] wealth = Arrays.copyOfRange(sums, WEALTH, WEALTH+3);
+        double[] popula = Arrays.copyOfRange(sums, POPULA, POPULA+3);
+        double ctlNG = sums[CTL_NG], ctlG = sums[CTL_G];
+        double numberNG = sums[NUMBER_NG], numberG = sums[NUMBER_G];
         if (numberG>0.1) {
             ctlG /= numberG;
         }
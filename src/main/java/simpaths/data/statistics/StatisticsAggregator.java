@@ -0,0 +1,593 @@
+package simpaths.data.statistics;
+
+import microsim.statistics.IDoubleArraySource;
+import microsim.statistics.functions.PercentileArrayFunction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+
+/**
+ * StatisticsAggregator evaluates a set of registered statistics over a population of agents in a single pass.
+ *
+ * Statistics are registered as accumulators (vector sums, quantiles, Gini coefficients) before the
+ * simulation starts. Each call to {@link #update(Collection)} takes an array snapshot of the agents, splits it
+ * into fixed-size chunks and feeds every chunk to every accumulator in parallel. Partial results are combined
+ * in chunk order, so results do not depend on the number of worker threads, and order-sensitive statistics
+ * (e.g. exact quantiles) see the agents in the same order as a sequential loop over the collection.
+ *
+ * Quantiles and Gini coefficients are exact by default. An aggregator constructed with a sketch compression
+ * evaluates them instead from mergeable QuantileSketches built for each chunk, which avoids copying and sorting
+ * the full population at the cost of a small, configurable approximation error.
+ *
+ * @param <T> agent type (e.g. Person or BenefitUnit)
+ */
+public class StatisticsAggregator<T> {
+
+    public static final int CHUNK_SIZE = 8192;
+
+    private final List<Accumulator<T, ?>> accumulators = new ArrayList<>();
+
+    private final double sketchCompression;     //Compression of quantile sketches; 0 for exact statistics
+
+    private int numberOfAgents;
+
+
+    /**
+     * Constructor for an aggregator that evaluates exact quantiles and Gini coefficients.
+     */
+    public StatisticsAggregator() {
+        this(0.0);
+    }
+
+    /**
+     * Constructor for an aggregator that evaluates quantiles and Gini coefficients from streaming sketches.
+     *
+     * @param sketchCompression compression of the QuantileSketches (higher values are more accurate), or 0 for
+     *                          exact statistics
+     */
+    public StatisticsAggregator(double sketchCompression) {
+        this.sketchCompression = sketchCompression;
+    }
+
+
+    /**
+     * Registers an accumulator to be fed on every subsequent update.
+     *
+     * @return the accumulator, to allow results to be retrieved after each update
+     */
+    public <A extends Accumulator<T, ?>> A register(A accumulator) {
+        accumulators.add(accumulator);
+        return accumulator;
+    }
+
+    public Quantiles<T> quantiles(ToDoubleFunction<? super T> value, Predicate<? super T> filter) {
+        return register(new Quantiles<T>(value, filter, sketchCompression));
+    }
+
+    public <K> Gini<T, K> gini(ToDoubleFunction<? super T> value, ToDoubleFunction<? super T> weight, Function<? super T, K> group, Predicate<? super T> filter) {
+        return register(new Gini<T, K>(value, weight, group, filter, sketchCompression));
+    }
+
+    public VectorSum<T> vectorSum(int length, BiConsumer<? super T, double[]> accumulate) {
+        return register(new VectorSum<T>(length, accumulate));
+    }
+
+    /**
+     * Evaluates all registered accumulators over the supplied agents.
+     */
+    public void update(Collection<T> agents) {
+
+        final Object[] snapshot = agents.toArray();
+        final int nAccumulators = accumulators.size();
+        final int nChunks = (snapshot.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final Object[][] partials = new Object[nChunks][];
+        numberOfAgents = snapshot.length;
+
+        IntStream.range(0, nChunks).parallel().forEach(cc -> {
+
+            Object[] chunkPartials = new Object[nAccumulators];
+            for (int aa = 0; aa < nAccumulators; aa++) {
+                chunkPartials[aa] = accumulators.get(aa).newPartial();
+            }
+            int from = cc * CHUNK_SIZE;
+            int to = Math.min(from + CHUNK_SIZE, snapshot.length);
+            for (int ii = from; ii < to; ii++) {
+                T agent = (T) snapshot[ii];
+                for (int aa = 0; aa < nAccumulators; aa++) {
+                    accept(accumulators.get(aa), chunkPartials[aa], agent);
+                }
+            }
+            partials[cc] = chunkPartials;
+        });
+
+        for (int aa = 0; aa < nAccumulators; aa++) {
+            List<Object> accumulatorPartials = new ArrayList<>(nChunks);
+            for (int cc = 0; cc < nChunks; cc++) {
+                accumulatorPartials.add(partials[cc][aa]);
+            }
+            combine(accumulators.get(aa), accumulatorPartials);
+        }
+    }
+
+    public int getNumberOfAgents() {
+        return numberOfAgents;
+    }
+
+    public boolean isStreaming() {
+        return sketchCompression > 0.0;
+    }
+
+    private static <T, P> void accept(Accumulator<T, P> accumulator, Object partial, T agent) {
+        if (accumulator.filter == null || accumulator.filter.test(agent))
+            accumulator.accumulate((P) partial, agent);
+    }
+
+    private static <T, P> void combine(Accumulator<T, P> accumulator, List<Object> partials) {
+        accumulator.combine((List<P>) partials);
+    }
+
+
+    // ---------------------------------------------------------------------
+    // Accumulators
+    // ---------------------------------------------------------------------
+
+    /**
+     * Base class for statistics evaluated by the aggregator.
+     *
+     * @param <T> agent type
+     * @param <P> type of the partial result held for each chunk of agents
+     */
+    public abstract static class Accumulator<T, P> {
+
+        private final Predicate<? super T> filter;
+
+        protected Accumulator(Predicate<? super T> filter) {
+            this.filter = filter;
+        }
+
+        /**
+         * Creates an empty partial result for one chunk of agents.
+         */
+        protected abstract P newPartial();
+
+        /**
+         * Adds one agent (that has passed the filter) to a partial result. Only called by one thread per partial.
+         */
+        protected abstract void accumulate(P partial, T agent);
+
+        /**
+         * Combines the partial results of all chunks, supplied in chunk order.
+         */
+        protected abstract void combine(List<P> partials);
+    }
+
+    /**
+     * Element-wise sums of a vector of statistics, where each agent adds its contributions directly into the
+     * vector. Useful to fold an existing hand-written accumulation loop into the aggregator pass.
+     */
+    public static class VectorSum<T> extends Accumulator<T, double[]> {
+
+        private final int length;
+        private final BiConsumer<? super T, double[]> accumulate;
+        private double[] sums;
+
+        public VectorSum(int length, BiConsumer<? super T, double[]> accumulate) {
+            super(null);
+            this.length = length;
+            this.accumulate = accumulate;
+            this.sums = new double[length];
+        }
+
+        @Override
+        protected double[] newPartial() {
+            return new double[length];
+        }
+
+        @Override
+        protected void accumulate(double[] partial, T agent) {
+            accumulate.accept(agent, partial);
+        }
+
+        @Override
+        protected void combine(List<double[]> partials) {
+            sums = new double[length];
+            for (double[] partial : partials) {
+                for (int ii = 0; ii < length; ii++) {
+                    sums[ii] += partial[ii];
+                }
+            }
+        }
+
+        public double[] getSums() {
+            return sums;
+        }
+    }
+
+    /**
+     * Percentiles of a variable. In exact mode, these are evaluated with the JAS-mine PercentileArrayFunction so
+     * that values are identical to those obtained from a CrossSection over the same collection. In streaming mode,
+     * they are evaluated from a QuantileSketch.
+     */
+    public static class Quantiles<T> extends Accumulator<T, QuantilesPartial> {
+
+        private final ToDoubleFunction<? super T> value;
+        private final double sketchCompression;
+        private PercentileArrayFunction percentiles;
+        private QuantileSketch sketch;
+
+        public Quantiles(ToDoubleFunction<? super T> value, Predicate<? super T> filter) {
+            this(value, filter, 0.0);
+        }
+
+        public Quantiles(ToDoubleFunction<? super T> value, Predicate<? super T> filter, double sketchCompression) {
+            super(filter);
+            this.value = value;
+            this.sketchCompression = sketchCompression;
+        }
+
+        @Override
+        protected QuantilesPartial newPartial() {
+            return new QuantilesPartial(sketchCompression);
+        }
+
+        @Override
+        protected void accumulate(QuantilesPartial partial, T agent) {
+            if (partial.sketch != null)
+                partial.sketch.add(value.applyAsDouble(agent));
+            else
+                partial.values.add(value.applyAsDouble(agent));
+        }
+
+        @Override
+        protected void combine(List<QuantilesPartial> partials) {
+
+            if (sketchCompression > 0.0) {
+                sketch = new QuantileSketch(sketchCompression);
+                for (QuantilesPartial partial : partials) {
+                    sketch.merge(partial.sketch);
+                }
+            } else {
+                List<DoubleBuffer> buffers = new ArrayList<>(partials.size());
+                for (QuantilesPartial partial : partials) {
+                    buffers.add(partial.values);
+                }
+                final double[] values = DoubleBuffer.concatenate(buffers);
+                percentiles = new PercentileArrayFunction(new IDoubleArraySource() {
+                    @Override
+                    public double[] getDoubleArray() {
+                        return values;
+                    }
+                });
+                percentiles.updateSource();
+            }
+        }
+
+        public double getValue(PercentileArrayFunction.Variables percentile) {
+            if (sketch != null)
+                return sketch.quantile(probability(percentile));
+            return percentiles.getDoubleValue(percentile);
+        }
+
+        /**
+         * Returns the cumulative probability of a percentile of PercentileArrayFunction, for evaluation from a sketch.
+         * Percentiles are mapped explicitly, so that the mapping does not depend on the names of the constants.
+         */
+        static double probability(PercentileArrayFunction.Variables percentile) {
+            return switch (percentile) {
+                case P20 -> 0.2;
+                case P40 -> 0.4;
+                case P50 -> 0.5;
+                case P60 -> 0.6;
+                case P80 -> 0.8;
+                default -> throw new IllegalArgumentException("Percentile " + percentile + " is not evaluated in streaming mode");
+            };
+        }
+
+        /**
+         * Returns the sketch of the distribution evaluated in streaming mode (null in exact mode).
+         */
+        public QuantileSketch getSketch() {
+            return sketch;
+        }
+    }
+
+    public static class QuantilesPartial {
+        private final DoubleBuffer values;
+        private final QuantileSketch sketch;
+
+        QuantilesPartial(double sketchCompression) {
+            values = (sketchCompression > 0.0) ? null : new DoubleBuffer();
+            sketch = (sketchCompression > 0.0) ? new QuantileSketch(sketchCompression) : null;
+        }
+    }
+
+    /**
+     * Weighted Gini coefficient, nationally and by group:
+     *  G = [ sum_i sum_j w_i * w_j * abs( x_i - x_j) ] / [ 2 * (sum_i w_i) * (sum_j w_j * x_j) ]
+     * The double sum is evaluated in O(N log N) by sorting on x, using
+     *  sum_i sum_j w_i * w_j * abs( x_i - x_j) = 2 * sum_i w_i * ( x_i * W_{<i} - S_{<i} )
+     * where W_{<i} and S_{<i} are the cumulative weight and weighted value of observations ranked below i.
+     * In streaming mode, the same expression is evaluated over the centroids of QuantileSketches.
+     */
+    public static class Gini<T, K> extends Accumulator<T, GiniPartial<K>> {
+
+        private final ToDoubleFunction<? super T> value;
+        private final ToDoubleFunction<? super T> weight;
+        private final Function<? super T, K> group;
+        private final double sketchCompression;
+        private double giniNational;
+        private double absoluteDifferenceNational;
+        private double totalWeightNational;
+        private double totalWeightedValueNational;
+        private Map<K, double[]> groupTotals = new LinkedHashMap<>();
+
+        public Gini(ToDoubleFunction<? super T> value, ToDoubleFunction<? super T> weight, Function<? super T, K> group, Predicate<? super T> filter) {
+            this(value, weight, group, filter, 0.0);
+        }
+
+        public Gini(ToDoubleFunction<? super T> value, ToDoubleFunction<? super T> weight, Function<? super T, K> group, Predicate<? super T> filter, double sketchCompression) {
+            super(filter);
+            this.value = value;
+            this.weight = weight;
+            this.group = group;
+            this.sketchCompression = sketchCompression;
+        }
+
+        @Override
+        protected GiniPartial<K> newPartial() {
+            return new GiniPartial<K>(sketchCompression);
+        }
+
+        @Override
+        protected void accumulate(GiniPartial<K> partial, T agent) {
+            double xx = value.applyAsDouble(agent);
+            double ww = weight.applyAsDouble(agent);
+            K key = (group != null) ? group.apply(agent) : null;
+            if (partial.sketch != null) {
+                partial.sketch.add(xx, ww);
+                if (key != null)
+                    partial.groupSketches.computeIfAbsent(key, kk -> new QuantileSketch(sketchCompression)).add(xx, ww);
+            } else {
+                partial.values.add(xx);
+                partial.weights.add(ww);
+                partial.groups.add((key != null) ? partial.groupId(key) : -1);
+            }
+        }
+
+        @Override
+        protected void combine(List<GiniPartial<K>> partials) {
+
+            if (sketchCompression > 0.0) {
+                combineSketches(partials);
+                return;
+            }
+
+            // group ids of all partials, in order of first occurrence
+            Map<K, Integer> groupIds = new LinkedHashMap<>();
+            List<DoubleBuffer> valueBuffers = new ArrayList<>(partials.size());
+            List<DoubleBuffer> weightBuffers = new ArrayList<>(partials.size());
+            List<IntBuffer> groupBuffers = new ArrayList<>(partials.size());
+            for (GiniPartial<K> partial : partials) {
+                int[] partialToCombined = new int[partial.groupKeys.size()];
+                for (int gg = 0; gg < partialToCombined.length; gg++) {
+                    partialToCombined[gg] = groupIds.computeIfAbsent(partial.groupKeys.get(gg), kk -> groupIds.size());
+                }
+                IntBuffer groupBuffer = new IntBuffer();
+                for (int ii = 0; ii < partial.groups.size(); ii++) {
+                    int gg = partial.groups.get(ii);
+                    groupBuffer.add((gg >= 0) ? partialToCombined[gg] : -1);
+                }
+                valueBuffers.add(partial.values);
+                weightBuffers.add(partial.weights);
+                groupBuffers.add(groupBuffer);
+            }
+            final double[] values = DoubleBuffer.concatenate(valueBuffers);
+            final double[] weights = DoubleBuffer.concatenate(weightBuffers);
+            final int[] groups = IntBuffer.concatenate(groupBuffers);
+            int[] order = sortedOrder(values);
+
+            // group totals hold {absolute difference, total weight, total weighted value}
+            double[][] totalsByGroup = new double[groupIds.size()][3];
+            absoluteDifferenceNational = 0.0;
+            totalWeightNational = 0.0;
+            totalWeightedValueNational = 0.0;
+            for (int ii : order) {
+                double xx = values[ii];
+                double ww = weights[ii];
+                absoluteDifferenceNational += 2.0 * ww * (xx * totalWeightNational - totalWeightedValueNational);
+                totalWeightNational += ww;
+                totalWeightedValueNational += ww * xx;
+                int gg = groups[ii];
+                if (gg >= 0) {
+                    double[] totals = totalsByGroup[gg];
+                    totals[0] += 2.0 * ww * (xx * totals[1] - totals[2]);
+                    totals[1] += ww;
+                    totals[2] += ww * xx;
+                }
+            }
+            groupTotals = new LinkedHashMap<>();
+            for (Map.Entry<K, Integer> entry : groupIds.entrySet()) {
+                groupTotals.put(entry.getKey(), totalsByGroup[entry.getValue()]);
+            }
+            giniNational = absoluteDifferenceNational / (2.0 * totalWeightNational * totalWeightedValueNational);
+        }
+
+        /**
+         * Returns the indices of values in ascending order of value, with equal values in order of index. Each index
+         * is packed with the rank of its value among distinct values into a long, so that a primitive sort is used.
+         */
+        static int[] sortedOrder(double[] values) {
+
+            double[] distinct = values.clone();
+            Arrays.parallelSort(distinct);
+            int nDistinct = 0;
+            for (int ii = 0; ii < distinct.length; ii++) {
+                if (nDistinct == 0 || Double.compare(distinct[ii], distinct[nDistinct - 1]) != 0)
+                    distinct[nDistinct++] = distinct[ii];
+            }
+            final double[] ranks = Arrays.copyOf(distinct, nDistinct);
+            long[] packed = new long[values.length];
+            IntStream.range(0, values.length).parallel().forEach(ii ->
+                    packed[ii] = ((long) Arrays.binarySearch(ranks, values[ii]) << 32) | ii);
+            Arrays.parallelSort(packed);
+            int[] order = new int[packed.length];
+            for (int ii = 0; ii < packed.length; ii++) {
+                order[ii] = (int) packed[ii];
+            }
+            return order;
+        }
+
+        private void combineSketches(List<GiniPartial<K>> partials) {
+
+            QuantileSketch sketch = new QuantileSketch(sketchCompression);
+            Map<K, QuantileSketch> groupSketches = new LinkedHashMap<>();
+            for (GiniPartial<K> partial : partials) {
+                sketch.merge(partial.sketch);
+                for (Map.Entry<K, QuantileSketch> entry : partial.groupSketches.entrySet()) {
+                    groupSketches.computeIfAbsent(entry.getKey(), kk -> new QuantileSketch(sketchCompression)).merge(entry.getValue());
+                }
+            }
+
+            giniNational = sketch.gini();
+            totalWeightNational = sketch.getFiniteWeight();
+            totalWeightedValueNational = sketch.getWeightedSum();
+            absoluteDifferenceNational = giniNational * 2.0 * totalWeightNational * totalWeightedValueNational;
+            groupTotals = new LinkedHashMap<>();
+            for (Map.Entry<K, QuantileSketch> entry : groupSketches.entrySet()) {
+                QuantileSketch groupSketch = entry.getValue();
+                double groupWeight = groupSketch.getFiniteWeight();
+                double groupWeightedValue = groupSketch.getWeightedSum();
+                groupTotals.put(entry.getKey(), new double[]{groupSketch.gini() * 2.0 * groupWeight * groupWeightedValue, groupWeight, groupWeightedValue});
+            }
+        }
+
+        public double getValue() {
+            return giniNational;
+        }
+
+        public double getValue(K key) {
+            double[] totals = groupTotals.get(key);
+            return (totals != null) ? totals[0] / (2.0 * totals[1] * totals[2]) : Double.NaN;
+        }
+
+        public double getAbsoluteDifference() {
+            return absoluteDifferenceNational;
+        }
+
+        public double getTotalWeight() {
+            return totalWeightNational;
+        }
+
+        public double getTotalWeightedValue() {
+            return totalWeightedValueNational;
+        }
+    }
+
+    public static class GiniPartial<K> {
+        private final DoubleBuffer values = new DoubleBuffer();
+        private final DoubleBuffer weights = new DoubleBuffer();
+        private final IntBuffer groups = new IntBuffer();              // id of the group of each agent, or -1 for none
+        private final List<K> groupKeys = new ArrayList<>();           // key of each group id
+        private final Map<K, Integer> groupIds = new LinkedHashMap<>();
+        private final QuantileSketch sketch;
+        private final Map<K, QuantileSketch> groupSketches = new LinkedHashMap<>();
+
+        GiniPartial(double sketchCompression) {
+            sketch = (sketchCompression > 0.0) ? new QuantileSketch(sketchCompression) : null;
+        }
+
+        private int groupId(K key) {
+            Integer id = groupIds.get(key);
+            if (id == null) {
+                id = groupKeys.size();
+                groupKeys.add(key);
+                groupIds.put(key, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Growable array of primitive doubles, to avoid boxing when collecting values for a chunk.
+     */
+    public static class DoubleBuffer {
+
+        private double[] data = new double[64];
+        private int size;
+
+        public void add(double value) {
+            if (size == data.length)
+                data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public double get(int index) {
+            return data[index];
+        }
+
+        public static double[] concatenate(List<DoubleBuffer> buffers) {
+            int length = 0;
+            for (DoubleBuffer buffer : buffers) {
+                length += buffer.size;
+            }
+            double[] values = new double[length];
+            int offset = 0;
+            for (DoubleBuffer buffer : buffers) {
+                System.arraycopy(buffer.data, 0, values, offset, buffer.size);
+                offset += buffer.size;
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Growable array of primitive ints, to avoid boxing when collecting group ids for a chunk.
+     */
+    public static class IntBuffer {
+
+        private int[] data = new int[64];
+        private int size;
+
+        public void add(int value) {
+            if (size == data.length)
+                data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int get(int index) {
+            return data[index];
+        }
+
+        public static int[] concatenate(List<IntBuffer> buffers) {
+            int length = 0;
+            for (IntBuffer buffer : buffers) {
+                length += buffer.size;
+            }
+            int[] values = new int[length];
+            int offset = 0;
+            for (IntBuffer buffer : buffers) {
+                System.arraycopy(buffer.data, 0, values, offset, buffer.size);
+                offset += buffer.size;
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+// define package
+package simpaths.experiment;
+
+// import Java packages
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// import plug-in packages
+import org.apache.log4j.Logger;
+
+
+/**
+ *
+ * CLASS TO LAUNCH A MULTIRUN AS SEVERAL INDEPENDENT WORKER PROCESSES
+ *
+ * Parameters and the SimulationEngine are process-wide statics, so simulations cannot share a JVM. This class
+ * splits the sequence of runs produced by SimPathsMultiRun.iterateParameters into contiguous blocks, and runs each
+ * block in its own JVM (a SimPathsMultiRun started with -runOffset). Worker w simulates runs
+ * [offset(w), offset(w) + runs(w)), with exactly the random seeds and innovations of the sequential multirun.
+ *
+ * Each worker is passed its index of first run (-runOffset) and its own output directory (-outputDir), under which
+ * the simulation engine creates its time-stamped experiment folder. The first run of a multirun prepares the input
+ * database and the processed starting population used by all later runs, so it is simulated alone by a first worker
+ * process, and the remaining runs are split between the workers once it has exited successfully. Workers are
+ * monitored by their exit status: if any fails, the output of the workers is not merged.
+ *
+ * Each worker writes the console output and log messages of each run to run_[seed].log in its output directory,
+ * and progress messages are echoed to the console. When all workers have completed, the .csv files of the workers
+ * are merged into output/[timestamp]_parallel/csv, with the run column renumbered to the position of each run in the
+ * sequential multirun. A workers.csv index records the runs and output directory of each worker.
+ *
+ */
+public class ParallelMultiRun {
+
+    private static final Logger log = Logger.getLogger(ParallelMultiRun.class);
+
+    // console output of the workers echoed by the launcher
+    private static final String[] PROGRESS_MARKERS = {"Random seed", "Starting year", "Finished simulating", "Exception", "Error"};
+
+    private final List<String> workerArgs;
+    private final int numberOfWorkers;
+    private final int numberOfRuns;
+    private final long firstSeed;
+    private final boolean seedIncrementedEachRun;
+    private final String workerHeap;
+    private final Integer workerProcessors;
+
+    private final List<Worker> workers = new ArrayList<>();
+
+
+    /**
+     * @param args                      command line arguments of the launcher, to be passed on to the workers
+     * @param numberOfWorkers           number of worker processes
+     * @param numberOfRuns              total number of runs, split between the workers
+     * @param firstSeed                 random seed of the first run
+     * @param seedIncrementedEachRun    whether the seed is incremented for each run (randomSeedInnov)
+     * @param workerHeap                maximum heap of each worker (e.g. 8g), or null for the JVM default
+     * @param workerProcessors          number of processors available to each worker, or null to share the
+     *                                  processors of the machine equally between workers
+     */
+    public ParallelMultiRun(String[] args, int numberOfWorkers, int numberOfRuns, long firstSeed, boolean seedIncrementedEachRun,
+                            String workerHeap, Integer workerProcessors) {
+
+        if (numberOfWorkers < 1)
+            throw new IllegalArgumentException("Number of parallel workers must be positive, but is " + numberOfWorkers);
+        this.workerArgs = stripLauncherArgs(args);
+        this.numberOfWorkers = Math.min(numberOfWorkers, numberOfRuns);
+        this.numberOfRuns = numberOfRuns;
+        this.firstSeed = firstSeed;
+        this.seedIncrementedEachRun = seedIncrementedEachRun;
+        this.workerHeap = workerHeap;
+        this.workerProcessors = (workerProcessors != null) ? workerProcessors :
+                Math.max(1, Runtime.getRuntime().availableProcessors() / this.numberOfWorkers);
+    }
+
+    /**
+     * Runs all workers, waits for them to complete and merges their output. Returns true if all workers succeeded.
+     */
+    public boolean run() throws IOException, InterruptedException {
+
+        File mergedFolder = new File("output" + File.separator + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date()) + "_parallel");
+        File workersFolder = new File(mergedFolder, "workers");
+
+        // the first run prepares the input database and starting population for later runs, so is simulated alone
+        workers.add(new Worker(0, 0, 1, workersFolder));
+        int remainingWorkers = Math.min(numberOfWorkers, numberOfRuns - 1);
+        int offset = 1;
+        for (int ww = 0; ww < remainingWorkers; ww++) {
+            int runs = (numberOfRuns - 1) / remainingWorkers + ((ww < (numberOfRuns - 1) % remainingWorkers) ? 1 : 0);
+            workers.add(new Worker(workers.size(), offset, runs, workersFolder));
+            offset += runs;
+        }
+        log.info("Launching " + numberOfRuns + " runs on " + numberOfWorkers + " worker processes, with " + workerProcessors + " processors each");
+
+        long timerStart = System.currentTimeMillis();
+        Worker first = workers.get(0);
+        first.start();
+        first.await();
+        boolean success = first.succeeded();
+        if (success) {
+            for (Worker worker : workers.subList(1, workers.size())) {
+                worker.start();
+            }
+            for (Worker worker : workers.subList(1, workers.size())) {
+                worker.await();
+                success &= worker.succeeded();
+            }
+        }
+        System.out.println("Parallel multirun completed in " + (System.currentTimeMillis() - timerStart) / 1000.0 / 60.0 + " minutes.");
+
+        if (!success) {
+            log.error("Output of the workers has not been merged, as not all workers succeeded");
+            return false;
+        }
+        mergeOutput(mergedFolder);
+        System.out.println("Merged output of " + workers.size() + " workers saved to " + mergedFolder.getPath());
+        return true;
+    }
+
+    private List<String> workerCommand(Worker worker) {
+
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if (workerHeap != null)
+            command.add("-Xmx" + workerHeap);
+        command.add("-XX:ActiveProcessorCount=" + workerProcessors);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(SimPathsMultiRun.class.getName());
+        command.addAll(workerArgs);
+        command.add("-g");
+        command.add("false");
+        command.add("-n");
+        command.add(Integer.toString(worker.runs));
+        command.add("-runOffset");
+        command.add(Integer.toString(worker.offset));
+        command.add("-outputDir");
+        command.add(worker.outputDirectory.getPath());
+        return command;
+    }
+
+    /**
+     * Removes the options that are set by the launcher for each worker, or that only apply to the launcher.
+     */
+    private static List<String> stripLauncherArgs(String[] args) {
+
+        List<String> optionsWithValue = List.of("-n", "--maxNumberOfRuns", "-g", "--executeWithGui", "-P", "--parallelWorkers",
+                "-workerHeap", "-workerProcessors", "-runOffset", "-outputDir");
+        List<String> flags = List.of("-f");
+        List<String> stripped = new ArrayList<>();
+        for (int ii = 0; ii < args.length; ii++) {
+            if (optionsWithValue.contains(args[ii])) {
+                ii++;
+            } else if (!flags.contains(args[ii])) {
+                stripped.add(args[ii]);
+            }
+        }
+        return stripped;
+    }
+
+
+    /**
+     * Concatenates the .csv files of the workers, in the order of their runs. The first column of each file, if
+     * named run, is renumbered from the run counter of the worker to that of the sequential multirun.
+     */
+    private void mergeOutput(File mergedFolder) throws IOException {
+
+        File csvFolder = new File(mergedFolder, "csv");
+        csvFolder.mkdirs();
+
+        Map<String, PrintWriter> writers = new LinkedHashMap<>();
+        Map<String, String> headers = new LinkedHashMap<>();
+        try {
+            for (Worker worker : workers) {
+                File workerCsvFolder = worker.findCsvFolder();
+                if (workerCsvFolder == null) {
+                    log.warn("No .csv output found for worker " + worker.index);
+                    continue;
+                }
+                File[] files = workerCsvFolder.listFiles((dir, name) -> name.endsWith(".csv"));
+                if (files == null)
+                    continue;
+                for (File file : files) {
+                    try (BufferedReader reader = new BufferedReader(new FileReader(file), 1 << 16)) {
+                        String header = reader.readLine();
+                        if (header == null)
+                            continue;
+                        String name = file.getName();
+                        if (!headers.containsKey(name)) {
+                            headers.put(name, header);
+                            PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(new File(csvFolder, name)), 1 << 16));
+                            writer.println(header);
+                            writers.put(name, writer);
+                        } else if (!headers.get(name).equals(header)) {
+                            log.error("Columns of " + file + " differ from those of other workers; file not merged");
+                            continue;
+                        }
+                        boolean renumber = header.startsWith("run,") || header.startsWith("\"run\",");
+                        PrintWriter writer = writers.get(name);
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (renumber) {
+                                int comma = line.indexOf(',');
+                                long run = Long.parseLong(line.substring(0, comma).replace("\"", "").trim());
+                                writer.print(run + worker.offset);
+                                writer.println(line.substring(comma));
+                            } else {
+                                writer.println(line);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (PrintWriter writer : writers.values()) {
+                writer.close();
+            }
+        }
+
+        try (PrintWriter index = new PrintWriter(new FileWriter(new File(mergedFolder, "workers.csv")))) {
+            index.println("worker,first_run,number_of_runs,first_seed,output_directory");
+            for (Worker worker : workers) {
+                long seed = seedIncrementedEachRun ? firstSeed + worker.offset : firstSeed;
+                index.println(worker.index + "," + worker.offset + "," + worker.runs + "," + seed + "," + worker.outputDirectory.getPath());
+            }
+        }
+    }
+
+
+    private class Worker {
+
+        final int index;
+        final int offset;
+        final int runs;
+        final File outputDirectory;
+        Process process;
+        Thread reader;
+        int exitCode = -1;
+
+        Worker(int index, int offset, int runs, File workersFolder) {
+            this.index = index;
+            this.offset = offset;
+            this.runs = runs;
+            this.outputDirectory = new File(workersFolder, "worker_" + index);
+        }
+
+        void start() throws IOException {
+
+            if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs())
+                throw new IOException("Unable to create output directory " + outputDirectory + " of worker " + index);
+            ProcessBuilder builder = new ProcessBuilder(workerCommand(this));
+            builder.redirectErrorStream(true);
+            process = builder.start();
+            System.out.println("[worker " + index + "] started runs " + offset + " to " + (offset + runs - 1) + ", logging to " + outputDirectory.getPath());
+
+            // drain console output of the worker, which logs each run itself, echoing progress messages
+            reader = new Thread(() -> {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        for (String marker : PROGRESS_MARKERS) {
+                            if (line.contains(marker)) {
+                                System.out.println("[worker " + index + "] " + line);
+                                break;
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    log.error("Unable to read output of worker " + index + ": " + e.getMessage());
+                }
+            }, "ParallelMultiRun-worker-" + index);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        void await() throws InterruptedException {
+            exitCode = process.waitFor();
+            reader.join();
+        }
+
+        boolean succeeded() {
+            if (exitCode != 0)
+                log.error("Worker " + index + " (runs " + offset + " to " + (offset + runs - 1) + ") failed with exit code " + exitCode + "; see the run logs in " + outputDirectory);
+            return exitCode == 0;
+        }
+
+        /**
+         * The worker is the only process writing to its output directory, in which the simulation engine creates the
+         * time-stamped experiment folder. Multirun .csv files are written to the experiment folder, without the run
+         * label appended to the folders of individual runs.
+         */
+        File findCsvFolder() {
+
+            File[] folders = outputDirectory.listFiles(file -> file.isDirectory() && !file.getName().contains("_"));
+            if (folders == null)
+                return null;
+            for (File folder : folders) {
+                File csv = new File(folder, "csv");
+                if (csv.isDirectory())
+                    return csv;
+            }
+            return null;
+        }
+    }
+}
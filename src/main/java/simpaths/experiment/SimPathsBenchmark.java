@@ -0,0 +1,205 @@
+// define package
+package simpaths.experiment;
+
+// import Java packages
+import org.apache.commons.cli.*;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+// import JAS-mine packages
+import microsim.data.db.DatabaseUtils;
+import microsim.data.db.Experiment;
+import microsim.data.ExperimentManager;
+import microsim.engine.ExperimentBuilder;
+import microsim.engine.SimulationEngine;
+import microsim.event.EventListener;
+import microsim.event.SingleTargetEvent;
+
+// import SimPaths packages
+import simpaths.data.Parameters;
+import simpaths.model.SimPathsModel;
+import simpaths.model.enums.Country;
+
+
+/**
+ *
+ * 	CLASS FOR HEADLESS BENCHMARKS OF SIMULATION THROUGHPUT
+ *
+ * 	Simulates a synthetic starting population of a given size (see SyntheticPopulation) for a fixed number of years,
+ * 	without the GUI, and reports the time to build the model and to simulate each year, with the number of persons
+ * 	simulated per second. Model parameters and tax donors are read from the input folder as for any simulation, but
+ * 	the starting population is not read from the input database, so that populations of any size can be simulated.
+ *
+ */
+public class SimPathsBenchmark implements ExperimentBuilder, EventListener {
+
+	// default benchmark parameters
+	private static Country country = Country.PL;
+	private static int startYear = Parameters.getMaxStartYear();
+	private static int years = 5;
+	private static int popSize = 100000;
+	private static long randomSeed = 615L;
+
+	private SimPathsModel model;
+	private final List<Integer> yearsSimulated = new ArrayList<>();
+	private final List<Integer> personsSimulated = new ArrayList<>();
+	private final List<Long> nanosByYear = new ArrayList<>();
+	private long lastNanos;
+
+	public enum Processes {
+		YearSimulated,
+	}
+
+
+	/**
+	 *
+	 * 	MAIN PROGRAM ENTRY FOR BENCHMARKS
+	 *
+	 */
+	public static void main(String[] args) {
+
+		if (!parseCommandLineArgs(args)) {
+			return;
+		}
+
+		ExperimentManager.getInstance().copyInputFolderStructure = false;
+		DatabaseUtils.databaseInputUrl = Experiment.inputFolder + File.separator + "input";
+
+		System.out.println("Benchmark of " + country + " from " + startYear + " for " + years + " years with " + popSize + " persons");
+		SimulationEngine engine = SimulationEngine.getInstance();
+		SimPathsBenchmark benchmark = new SimPathsBenchmark();
+		engine.setExperimentBuilder(benchmark);
+
+		long buildStart = System.nanoTime();
+		engine.setup();
+		long buildNanos = System.nanoTime() - buildStart;
+
+		// record the end of each simulated year, once the model and collector have processed it
+		engine.getEventQueue().scheduleRepeat(new SingleTargetEvent(benchmark, Processes.YearSimulated), startYear, Parameters.OBSERVER_ORDERING + 2, 1.);
+		benchmark.lastNanos = System.nanoTime();
+		engine.startSimulation();
+		benchmark.report(buildNanos);
+		System.exit(0);
+	}
+
+	@Override
+	public void buildExperiment(SimulationEngine engine) {
+
+		model = new SimPathsModel(country, startYear);
+		model.setEndYear(startYear + years - 1);
+		model.setPopSize(popSize);
+		model.setRandomSeedIfFixed(randomSeed);
+		model.setSyntheticPopulation(true);
+		SimPathsCollector collector = new SimPathsCollector(model);
+
+		engine.addSimulationManager(model);
+		engine.addSimulationManager(collector);
+		model.setCollector(collector);
+	}
+
+	@Override
+	public void onEvent(Enum<?> type) {
+
+		long nanos = System.nanoTime();
+		yearsSimulated.add(model.getYear() - 1);
+		personsSimulated.add(model.getPersons().size());
+		nanosByYear.add(nanos - lastNanos);
+		lastNanos = nanos;
+	}
+
+	private void report(long buildNanos) {
+
+		System.out.println();
+		System.out.printf("Time to build model with synthetic population: %.1f seconds%n", buildNanos / 1.0E9);
+		System.out.printf("%6s %12s %12s %16s%n", "year", "persons", "seconds", "persons/second");
+		long totalNanos = 0L, totalPersons = 0L;
+		for (int ii = 0; ii < yearsSimulated.size(); ii++) {
+			double seconds = nanosByYear.get(ii) / 1.0E9;
+			System.out.printf("%6d %12d %12.2f %16.0f%n", yearsSimulated.get(ii), personsSimulated.get(ii), seconds,
+					personsSimulated.get(ii) / seconds);
+			totalNanos += nanosByYear.get(ii);
+			totalPersons += personsSimulated.get(ii);
+		}
+		if (!yearsSimulated.isEmpty()) {
+			double seconds = totalNanos / 1.0E9;
+			System.out.printf("Simulated %d years in %.1f seconds: %.2f seconds per year, %.0f persons per second%n",
+					yearsSimulated.size(), seconds, seconds / yearsSimulated.size(), totalPersons / seconds);
+		}
+	}
+
+	private static boolean parseCommandLineArgs(String[] args) {
+
+		Options options = new Options();
+
+		Option countryOption = new Option("c", "country", true, "Country (by country code CC, e.g. 'PL'/'IT')");
+		countryOption.setArgName("CC");
+		options.addOption(countryOption);
+
+		Option startYearOption = new Option("s", "startYear", true, "Start year");
+		startYearOption.setArgName("year");
+		options.addOption(startYearOption);
+
+		Option yearsOption = new Option("y", "years", true, "Number of years to simulate");
+		yearsOption.setArgName("int");
+		options.addOption(yearsOption);
+
+		Option popSizeOption = new Option("p", "popSize", true, "Number of persons of the synthetic population");
+		popSizeOption.setArgName("int");
+		options.addOption(popSizeOption);
+
+		Option seedOption = new Option("r", "randomSeed", true, "Random seed");
+		seedOption.setArgName("long");
+		options.addOption(seedOption);
+
+		Option helpOption = new Option("h", "help", false, "Print help message");
+		options.addOption(helpOption);
+
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter formatter = new HelpFormatter();
+		formatter.setOptionComparator(null);
+
+		try {
+			CommandLine cmd = parser.parse(options, args);
+
+			if (cmd.hasOption("h")) {
+				formatter.printHelp("SimPathsBenchmark", "Simulates a synthetic population without the GUI and reports throughput. " +
+						"It takes the following options:", options, "", true);
+				return false;
+			}
+
+			if (cmd.hasOption("c")) {
+				try {
+					country = Country.valueOf(cmd.getOptionValue("c"));
+				} catch (Exception e) {
+					throw new IllegalArgumentException("Code '" + cmd.getOptionValue("c") + "' not a valid country.");
+				}
+			}
+
+			if (cmd.hasOption("s")) {
+				startYear = Integer.parseInt(cmd.getOptionValue("s"));
+			}
+
+			if (cmd.hasOption("y")) {
+				years = Integer.parseInt(cmd.getOptionValue("y"));
+			}
+
+			if (cmd.hasOption("p")) {
+				popSize = Integer.parseInt(cmd.getOptionValue("p"));
+			}
+
+			if (cmd.hasOption("r")) {
+				randomSeed = Long.parseLong(cmd.getOptionValue("r"));
+			}
+
+			if (years < 1 || popSize < 1)
+				throw new IllegalArgumentException("years and popSize must be positive");
+		} catch (ParseException | IllegalArgumentException e) {
+			System.err.println("Error parsing command line arguments: " + e.getMessage());
+			formatter.printHelp("SimPathsBenchmark", options);
+			return false;
+		}
+
+		return true;
+	}
+}
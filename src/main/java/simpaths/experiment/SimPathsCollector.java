@@ -2,6 +2,7 @@
 package simpaths.experiment;
 
 // import Java packages
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
@@ -9,9 +10,9 @@ import java.util.Map;
 
 import simpaths.data.filters.FlexibleInLabourSupplyFilter;
 import simpaths.model.BenefitUnit;
+import simpaths.model.Household;
 import simpaths.model.SimPathsModel;
 import simpaths.model.enums.Quintiles;
-import microsim.statistics.Series;
 import microsim.statistics.functions.*;
 // import plug-in packages
 import org.apache.commons.math3.util.Pair;
@@ -25,18 +26,18 @@ import microsim.engine.SimulationEngine;
 import microsim.engine.SimulationManager;
 import microsim.event.EventListener;
 import microsim.event.SingleTargetEvent;
-import microsim.statistics.CrossSection;
 import microsim.statistics.IDoubleSource;
 // import LABOURsim packages
 import simpaths.data.Parameters;
+import simpaths.data.export.ColumnarExport;
+import simpaths.data.statistics.QuantileSketch;
 import simpaths.data.statistics.Statistics;
 import simpaths.data.statistics.Statistics2;
+import simpaths.data.statistics.StatisticsAggregator;
 import simpaths.data.statistics.AlignmentAdjustmentFactors;
 import simpaths.model.Person;
 import simpaths.model.enums.Region;
 
-import static simpaths.model.Person.DoublesVariables.GrossLabourIncomeMonthly;
-
 
 /**
  *
@@ -63,6 +64,12 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
     @GUIparameter(description="Toggle to turn export to .csv files on/off")
     private boolean exportToCSV = true;
 
+    @GUIparameter(description="Export persons, benefit units and households to compressed columnar files (written in the background) instead of .csv files")
+    private boolean exportToColumnar = false;
+
+    @GUIparameter(description="Maximum number of yearly snapshots held in memory while waiting to be written to columnar files")
+    private Integer columnarExportQueueCapacity = 2;
+
     @GUIparameter(description="Toggle to turn persistence of statistics on/off")
     private boolean persistStatistics = true;
 
@@ -75,6 +82,12 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
     @GUIparameter(description = "Toggle to turn persistence of households on/off")
     private boolean persistHouseholds = true;
 
+    @GUIparameter(description="Evaluate percentiles and Gini coefficients from streaming sketches rather than exactly (faster for large populations)")
+    private boolean streamingQuantiles = false;
+
+    @GUIparameter(description="Compression of streaming quantile sketches (higher is more accurate; rank error about 1/compression at the median)")
+    private Double quantileSketchCompression = QuantileSketch.DEFAULT_COMPRESSION;
+
     @GUIparameter(description="First time-step to dump data to database")
     private Long dataDumpStartTime = 0L;
 
@@ -101,14 +114,30 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
 
     private SIndex sIndex;
 
+    private double sIndexMedianForNormalisation;     //Median S Index of the first year in which it is calculated
+
     private GrossLabourIncome grossLabourIncome;
 
+    private StatisticsAggregator<Person> personAggregator;
+
+    private StatisticsAggregator<BenefitUnit> benefitUnitAggregator;
+
+    private StatisticsAggregator.VectorSum<Person> statistics2Sums;
+
+    private int aggregatesYear = Integer.MIN_VALUE;       //Year in which the aggregated statistics were last evaluated
+
     private DataExport exportPersons;
 
     private DataExport exportBenefitUnits;
 
     private DataExport exportHouseholds;
 
+    private ColumnarExport exportPersonsColumnar;
+
+    private ColumnarExport exportBenefitUnitsColumnar;
+
+    private ColumnarExport exportHouseholdsColumnar;
+
     private DataExport exportStatistics;
 
     private DataExport exportStatistics2;
@@ -150,6 +179,7 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
         DumpStatistics,
         DumpStatistics2,
 		DumpAlignmentAdjustmentFactors,
+        CloseExports,
     }
 
 
@@ -163,12 +193,9 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
         switch ((Processes) type) {
 
         case CalculateSIndex:
-            calculateSIndex();
         case CalculateHouseholdsGrossIncome:
-            calculateGrossIncome();
         case CalculateEquivalisedHouseholdDisposableIncome:
-            calculateEquivalisedHouseholdDisposableIncome();
-            calculateEDI();
+            updateAggregates();
             break;
         case CalculateGiniCoefficients:
             calculateGiniCoefficients();
@@ -176,21 +203,30 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
         //To output data:
         case DumpPersons:
             try {
-                exportPersons.export();
+                if (exportPersonsColumnar != null)
+                    exportPersonsColumnar.export(dumpYear());
+                if (exportPersons != null)
+                    exportPersons.export();
             } catch (Exception e) {
                 log.error(e.getMessage());
             }
             break;
         case DumpBenefitUnits:
             try {
-                exportBenefitUnits.export();
+                if (exportBenefitUnitsColumnar != null)
+                    exportBenefitUnitsColumnar.export(dumpYear());
+                if (exportBenefitUnits != null)
+                    exportBenefitUnits.export();
             } catch (Exception e) {
                 log.error(e.getMessage());
             }
             break;
         case DumpHouseholds:
             try {
-                exportHouseholds.export();
+                if (exportHouseholdsColumnar != null)
+                    exportHouseholdsColumnar.export(dumpYear());
+                if (exportHouseholds != null)
+                    exportHouseholds.export();
             } catch (Exception e) {
                 log.error(e.getMessage());
             }
@@ -203,7 +239,8 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
             }
             break;
         case DumpStatistics2:
-            stats2.update(model);
+            updateAggregates();
+            stats2.update(statistics2Sums.getSums());
             try {
                 exportStatistics2.export();
             } catch (Exception e) {
@@ -218,6 +255,9 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
 				log.error(e.getMessage());
 			}
 			break;
+        case CloseExports:
+            closeColumnarExports();
+            break;
         }
     }
 
@@ -235,13 +275,33 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
         stats2 = new Statistics2();
         alignmentAdjustmentFactors = new AlignmentAdjustmentFactors();
 
+        //Statistics register their accumulators with the aggregators, which evaluate them in one pass over each population
+        //Exact percentiles are the default, as required for validation
+        double sketchCompression = streamingQuantiles ? quantileSketchCompression : 0.0;
+        personAggregator = new StatisticsAggregator<>(sketchCompression);
+        benefitUnitAggregator = new StatisticsAggregator<>(sketchCompression);
+        if (persistStatistics2)
+            statistics2Sums = personAggregator.vectorSum(Statistics2.NUMBER_OF_SUMS, Statistics2::accumulate);
+
+        //For export of agents to columnar files, which replace their .csv files
+        if (exportToColumnar) {
+            String columnarDirectory = getEngine().getCurrentExperiment().getOutputFolder() + File.separator + "columnar";
+            if (persistPersons)
+                exportPersonsColumnar = new ColumnarExport(model.getPersons(), Person.class, columnarDirectory, columnarExportQueueCapacity);
+            if (persistBenefitUnits)
+                exportBenefitUnitsColumnar = new ColumnarExport(model.getBenefitUnits(), BenefitUnit.class, columnarDirectory, columnarExportQueueCapacity);
+            if (persistHouseholds)
+                exportHouseholdsColumnar = new ColumnarExport(model.getHouseholds(), Household.class, columnarDirectory, columnarExportQueueCapacity);
+        }
+
         //For export to database or .csv files.
-        if(persistPersons)
-            exportPersons = new DataExport(model.getPersons(), exportToDatabase, exportToCSV);
-        if(persistBenefitUnits)
-            exportBenefitUnits = new DataExport(model.getBenefitUnits(), exportToDatabase, exportToCSV);
-        if (persistHouseholds)
-            exportHouseholds = new DataExport(model.getHouseholds(), exportToDatabase, exportToCSV);
+        boolean exportAgentsToCSV = exportToCSV && !exportToColumnar;
+        if (persistPersons && (exportToDatabase || exportAgentsToCSV))
+            exportPersons = new DataExport(model.getPersons(), exportToDatabase, exportAgentsToCSV);
+        if (persistBenefitUnits && (exportToDatabase || exportAgentsToCSV))
+            exportBenefitUnits = new DataExport(model.getBenefitUnits(), exportToDatabase, exportAgentsToCSV);
+        if (persistHouseholds && (exportToDatabase || exportAgentsToCSV))
+            exportHouseholds = new DataExport(model.getHouseholds(), exportToDatabase, exportAgentsToCSV);
         if (persistStatistics)
             exportStatistics = new DataExport(stats, exportToDatabase, exportToCSV);
         if (persistStatistics2)
@@ -274,7 +334,9 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
         sIndex = new SIndex();
         grossLabourIncome = new GrossLabourIncome();
 
-
+        //Statistics carried over from the simulation that saved the checkpoint being resumed
+        if (model.getResumedCheckpoint() != null)
+            model.getResumedCheckpoint().restoreCollector(this);
     }
 
     @Override
@@ -282,42 +344,82 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
 
         SimPathsModel model = (SimPathsModel) SimulationEngine.getInstance().getManager(SimPathsModel.class.getCanonicalName());
 
-        getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.CalculateHouseholdsGrossIncome), model.getStartYear(), ordering, dataDumpTimePeriod);
+        getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.CalculateHouseholdsGrossIncome), firstScheduledYear(model, 0L), ordering, dataDumpTimePeriod);
 
 //		getEngine().getEventQueue().scheduleRepeat(new CollectionTargetEvent(model.getHouseholds(), BenefitUnit.Processes.CalculateEquivalisedDisposableIncome, true), model.getStartYear() + dataDumpStartTime, ordering, dataDumpTimePeriod);
 //		getEngine().getEventQueue().scheduleOnce(new SingleTargetEvent(this, Processes.CalculateEquivalisedHouseholdDisposableIncome), model.getStartYear(), Order.BEFORE_ALL.getOrdering());
 //		getEngine().getEventQueue().scheduleOnce(new SingleTargetEvent(this, Processes.CalculateEquivalisedHouseholdDisposableIncome), model.getStartYear(), -2); //Run once in the start year, before the model?
 //		getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.CalculateEquivalisedHouseholdDisposableIncome), model.getStartYear(), ordering, dataDumpTimePeriod);
 //		getEngine().getEventQueue().scheduleOnce(new SingleTargetEvent(this, Processes.CalculateEquivalisedHouseholdDisposableIncome), model.getEndYear(), -2);
-        getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.CalculateSIndex), model.getStartYear(), ordering, dataDumpTimePeriod);
+        getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.CalculateSIndex), firstScheduledYear(model, 0L), ordering, dataDumpTimePeriod);
 
         if (calculateGiniCoefficients) {
-            getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.CalculateGiniCoefficients), model.getStartYear() + dataDumpStartTime, ordering, dataDumpTimePeriod);
+            getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.CalculateGiniCoefficients), firstScheduledYear(model, dataDumpStartTime), ordering, dataDumpTimePeriod);
         }
 
         if (persistStatistics) {
-            getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.DumpStatistics), model.getStartYear() + dataDumpStartTime, ordering, dataDumpTimePeriod);
+            getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.DumpStatistics), firstScheduledYear(model, dataDumpStartTime), ordering, dataDumpTimePeriod);
 //			getEngine().getEventQueue().scheduleOnce(new SingleTargetEvent(this, Processes.DumpStatistics), model.getEndYear(), -2);		//Ensures the database is persisted on the last time-step
         }
 
         if (persistStatistics2) {
-            getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.DumpStatistics2), model.getStartYear() + dataDumpStartTime, ordering, dataDumpTimePeriod);
+            getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.DumpStatistics2), firstScheduledYear(model, dataDumpStartTime), ordering, dataDumpTimePeriod);
         }
 
 		if (persistAlignmentAdjustmentFactors) {
-			getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.DumpAlignmentAdjustmentFactors), model.getStartYear() + dataDumpStartTime, ordering, dataDumpTimePeriod);
+			getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.DumpAlignmentAdjustmentFactors), firstScheduledYear(model, dataDumpStartTime), ordering, dataDumpTimePeriod);
 		}
 
         if (persistPersons) {
-            getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.DumpPersons), model.getStartYear() + dataDumpStartTime, ordering, dataDumpTimePeriod);
+            getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.DumpPersons), firstScheduledYear(model, dataDumpStartTime), ordering, dataDumpTimePeriod);
         }
 
         if (persistBenefitUnits) {
-            getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.DumpBenefitUnits), model.getStartYear() + dataDumpStartTime, ordering, dataDumpTimePeriod);
+            getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.DumpBenefitUnits), firstScheduledYear(model, dataDumpStartTime), ordering, dataDumpTimePeriod);
         }
 
         if (persistHouseholds) {
-            getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.DumpHouseholds), model.getStartYear() + dataDumpStartTime, ordering, dataDumpTimePeriod);
+            getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.DumpHouseholds), firstScheduledYear(model, dataDumpStartTime), ordering, dataDumpTimePeriod);
+        }
+
+        if (exportToColumnar) {
+            //Flush columnar files once the last year has been dumped
+            getEngine().getEventQueue().scheduleOnce(new SingleTargetEvent(this, Processes.CloseExports), model.getEndYear(), ordering + 1);
+        }
+    }
+
+    /**
+     * First year of a repeated event that starts dataDumpStartTime years after the start year. When resuming from a
+     * checkpoint, the first year of the event from the checkpoint onwards, so that events fall in the same years as
+     * in a simulation from the start year.
+     */
+    private double firstScheduledYear(SimPathsModel model, long offset) {
+        double first = model.getStartYear() + offset;
+        while (first < model.getFirstScheduledYear())
+            first += dataDumpTimePeriod;
+        return first;
+    }
+
+    /**
+     * Year described by the agents when dumped. Dumps are fired after the model has updated its year, so this is the
+     * time of the event (as recorded by the CSV exports) rather than model.getYear().
+     */
+    private int dumpYear() {
+        return (int) getEngine().getTime();
+    }
+
+    /**
+     * Waits for the background writers of columnar files to complete, and closes the files.
+     */
+    private void closeColumnarExports() {
+        for (ColumnarExport export : new ColumnarExport[] {exportPersonsColumnar, exportBenefitUnitsColumnar, exportHouseholdsColumnar}) {
+            if (export == null)
+                continue;
+            try {
+                export.close();
+            } catch (Exception e) {
+                log.error(e.getMessage());
+            }
         }
     }
 
@@ -329,11 +431,7 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
 
         final SimPathsModel model = (SimPathsModel) getManager();
 
-        private CrossSection.Double personsSIndexCS;
-
-        private PercentileArrayFunction percentileFunctionSIndexCS;
-
-        double sIndexMedianForNormalisation;
+        private StatisticsAggregator.Quantiles<Person> sIndexQuantiles;
 
         //What I probably need is a map with <person, array of incomes>
         //Or, person would have to have a series object in which their incomes over time are collected. Then, each year, update that object to record new income, and calculate the security index looking at last T elements in that series
@@ -386,55 +484,55 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
         }
 */
 
-        public void update() {
-            for (Person person : model.getPersons()) { //For each person, get values of income over time in a series object
-                person.getYearlyEquivalisedConsumptionSeries().updateSource(); //Update values in the series of consumption
+        SIndex() {
+            sIndexQuantiles = personAggregator.quantiles(Person::getsIndex, null);
+        }
 
-                Series.Double consumptionSeries = person.getYearlyEquivalisedConsumptionSeries();
-                double[] consumptionValues = consumptionSeries.getDoubleArray();
-                int timeWindow = model.getsIndexTimeWindow(); //Time window in which the S Index should be calculated
-                int lengthConsumptionSeries = consumptionValues.length;
+        /**
+         * Updates the S Index of each person from their consumption over the time window. Must be called before the
+         * aggregator pass, which evaluates the median of the updated values.
+         *
+         * Each person retains the consumption of the last years of the window only (see
+         * Person.recordSIndexConsumption), so that the cost of an update does not grow with the number of years
+         * simulated. Terms are summed in the same order as over the full series of consumption, so that the index is
+         * unchanged.
+         */
+        public void updatePersons() {
+
+            int timeWindow = model.getsIndexTimeWindow(); //Time window in which the S Index should be calculated
+            double alpha = model.getsIndexAlpha();
+            double[] discount = new double[timeWindow + 1];
+            double denominatorSum = 0.;
+            for (int t = timeWindow; t >= 1; t--) {
+                discount[t] = Math.pow(model.getsIndexDelta(), t);
+                denominatorSum += discount[t];
+            }
+            final double denominator = denominatorSum;
 
-                if (lengthConsumptionSeries >= timeWindow) { //Only start calculating the index when enough years for the specified time window elapsed
-                    int t = timeWindow;
-                    double numeratorSum = 0.;
-                    double denominatorSum = 0.;
-                    for (int i = lengthConsumptionSeries-1; i >= (lengthConsumptionSeries - timeWindow); i--) { //Start at the end of the income series and iterate back within the time window
+            model.getPersons().parallelStream().forEach(person -> {
 
-                        double numeratorValue, denominatorValue, consumptionValue;
+                person.recordSIndexConsumption(timeWindow, alpha);
+                if (person.hasSIndexConsumptionWindow()) { //Only start calculating the index when enough years for the specified time window elapsed
 
-                        consumptionValue = consumptionValues[i];
+                    double numeratorSum = 0.;
+                    for (int lag = 0; lag < timeWindow; lag++) { //Start at the latest year and iterate back within the time window
 
                         //TODO: do we still need to account for different amount of capital income depending on age?
-                        numeratorValue = Math.pow(consumptionValue, 1/model.getsIndexAlpha())*Math.pow(model.getsIndexDelta(), t); //Formula to calculate SIndex
-                        denominatorValue = Math.pow(model.getsIndexDelta(), t);
-
-                        numeratorSum += numeratorValue; //Note that for any period in which income was missing (-9999.99), this will result in a NaN sIndex. Should we use 0 for income instead?
-                        denominatorSum += denominatorValue;
-                        t--; //Because t is used in the formula
+                        numeratorSum += person.getSIndexConsumption(lag) * discount[timeWindow - lag]; //Note that for any period in which income was missing (-9999.99), this will result in a NaN sIndex. Should we use 0 for income instead?
                     }
-                    double sIndex = numeratorSum/denominatorSum;
 
                     //Update SIndex for the person
-                    person.setsIndex(sIndex);
-
-                    //	person.getsIndexYearMap().put(model.getYear()-timeWindow, sIndex);
-                    //	System.out.println(person.getsIndexYearMap());
-
-                    //	System.out.println("For person " + person.getKey().getId() + " the sIndex is " + sIndex + " in year " + model.getYear());
+                    person.setsIndex(numeratorSum / denominator);
 
                     //TODO: plot a histogram or a pyramid with sIndex for different categories: by gender, education, employment status
-
                 }
-            }
+            });
+        }
 
-            //Now calculate the median value of the sIndex
-            personsSIndexCS = new CrossSection.Double(model.getPersons(), Person.DoublesVariables.sIndex);
-            percentileFunctionSIndexCS = new PercentileArrayFunction(personsSIndexCS);
-            percentileFunctionSIndexCS.updateSource();
+        public void update() {
 
-            //Set value in the statistics object
-            stats.setsIndex_p50(percentileFunctionSIndexCS.getDoubleValue(PercentileArrayFunction.Variables.P50));
+            //Set median value of the sIndex in the statistics object
+            stats.setsIndex_p50(sIndexQuantiles.getValue(PercentileArrayFunction.Variables.P50));
 
             if (model.getYear() == model.getStartYear()+model.getsIndexTimeWindow()+1) { //+1 added to the RHS because model increments the year and model runs before the collector
                 sIndexMedianForNormalisation = stats.getsIndex_p50();
@@ -459,23 +557,22 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
     private class GrossLabourIncome {
 
         final SimPathsModel model = (SimPathsModel) getManager();
-        private CrossSection.Double personsGrossLabourIncomesCS;
-        private PercentileArrayFunction percentileFunctionGrossLabourIncomes;
+        private StatisticsAggregator.Quantiles<Person> grossLabourIncomeQuantiles;
 
-        public void update() {
-            personsGrossLabourIncomesCS = new CrossSection.Double(model.getPersons(), GrossLabourIncomeMonthly); // Retrieve Gross Labour Income monthly value using native access through IDoubleSource
+        GrossLabourIncome() {
+            // Quantiles of Gross Labour Income monthly value, only for those who could work
             FlexibleInLabourSupplyFilter flexibleInLabourSupplyFilter = new FlexibleInLabourSupplyFilter();
-            personsGrossLabourIncomesCS.setFilter(flexibleInLabourSupplyFilter); // Filter only those who could work for calculation of quintiles of gross labour income
+            grossLabourIncomeQuantiles = personAggregator.quantiles(Person::getCovidModuleGrossLabourIncome_Baseline, flexibleInLabourSupplyFilter::isFiltered);
+        }
 
-            percentileFunctionGrossLabourIncomes = new PercentileArrayFunction(personsGrossLabourIncomesCS);
-            percentileFunctionGrossLabourIncomes.updateSource();
+        public void update() {
 
-            stats.setGrossLabourIncome_p20(percentileFunctionGrossLabourIncomes.getDoubleValue(PercentileArrayFunction.Variables.P20));
-            stats.setGrossLabourIncome_p40(percentileFunctionGrossLabourIncomes.getDoubleValue(PercentileArrayFunction.Variables.P40));
-            stats.setGrossLabourIncome_p60(percentileFunctionGrossLabourIncomes.getDoubleValue(PercentileArrayFunction.Variables.P60));
-            stats.setGrossLabourIncome_p80(percentileFunctionGrossLabourIncomes.getDoubleValue(PercentileArrayFunction.Variables.P80));
+            stats.setGrossLabourIncome_p20(grossLabourIncomeQuantiles.getValue(PercentileArrayFunction.Variables.P20));
+            stats.setGrossLabourIncome_p40(grossLabourIncomeQuantiles.getValue(PercentileArrayFunction.Variables.P40));
+            stats.setGrossLabourIncome_p60(grossLabourIncomeQuantiles.getValue(PercentileArrayFunction.Variables.P60));
+            stats.setGrossLabourIncome_p80(grossLabourIncomeQuantiles.getValue(PercentileArrayFunction.Variables.P80));
 
-            for (Person person : model.getPersons()) {
+            model.getPersons().parallelStream().forEach(person -> {
                 double covidModuleGrossLabourIncomeBaseline = person.getCovidModuleGrossLabourIncome_Baseline();
                 if (covidModuleGrossLabourIncomeBaseline <= stats.getGrossLabourIncome_p20()) {
                     person.setCovidModuleGrossLabourIncomeBaseline_Xt5(Quintiles.Q1);
@@ -488,7 +585,7 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
                 } else {
                     person.setCovidModuleGrossLabourIncomeBaseline_Xt5(Quintiles.Q5);
                 }
-            }
+            });
 
         }
     }
@@ -502,9 +599,7 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
 
         final SimPathsModel model = (SimPathsModel) getManager();
 
-        private CrossSection.Double householdsGrossIncomesCS;
-
-        private PercentileArrayFunction percentileFunctionHouseholdsGrossIncomes;
+        private StatisticsAggregator.Quantiles<BenefitUnit> householdsGrossIncomeQuantiles;
 
         private double p50HouseholdsGrossIncome;
 
@@ -516,18 +611,18 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
 
         private double p80HouseholdsGrossIncome;
 
+        Ydses_c5() {
+            householdsGrossIncomeQuantiles = benefitUnitAggregator.quantiles(BenefitUnit::getTmpHHYpnbihs_dv_asinh, null);
+        }
+
         public void update() {
 
             //Ydses_c5
-            householdsGrossIncomesCS = new CrossSection.Double(model.getBenefitUnits(), BenefitUnit.class, "getTmpHHYpnbihs_dv_asinh", true); //Populate CS
-
-            percentileFunctionHouseholdsGrossIncomes = new PercentileArrayFunction(householdsGrossIncomesCS); //Get p50
-            percentileFunctionHouseholdsGrossIncomes.updateSource();
-            p50HouseholdsGrossIncome = percentileFunctionHouseholdsGrossIncomes.getDoubleValue(PercentileArrayFunction.Variables.P50); //Retrieve P50 value
-            p20HouseholdsGrossIncome = percentileFunctionHouseholdsGrossIncomes.getDoubleValue(PercentileArrayFunction.Variables.P20);
-            p40HouseholdsGrossIncome = percentileFunctionHouseholdsGrossIncomes.getDoubleValue(PercentileArrayFunction.Variables.P40);
-            p60HouseholdsGrossIncome = percentileFunctionHouseholdsGrossIncomes.getDoubleValue(PercentileArrayFunction.Variables.P60);
-            p80HouseholdsGrossIncome = percentileFunctionHouseholdsGrossIncomes.getDoubleValue(PercentileArrayFunction.Variables.P80);
+            p50HouseholdsGrossIncome = householdsGrossIncomeQuantiles.getValue(PercentileArrayFunction.Variables.P50); //Retrieve P50 value
+            p20HouseholdsGrossIncome = householdsGrossIncomeQuantiles.getValue(PercentileArrayFunction.Variables.P20);
+            p40HouseholdsGrossIncome = householdsGrossIncomeQuantiles.getValue(PercentileArrayFunction.Variables.P40);
+            p60HouseholdsGrossIncome = householdsGrossIncomeQuantiles.getValue(PercentileArrayFunction.Variables.P60);
+            p80HouseholdsGrossIncome = householdsGrossIncomeQuantiles.getValue(PercentileArrayFunction.Variables.P80);
 //			System.out.println("P50 value from the percentile function: " + p50HouseholdsGrossIncome + " P20: " + p20HouseholdsGrossIncome + " P40: " + p40HouseholdsGrossIncome +
 //								" P60: " + p60HouseholdsGrossIncome + " P80: " + p80HouseholdsGrossIncome);
 
@@ -550,15 +645,15 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
 
     private class EDI implements IDoubleSource {
         final SimPathsModel model = (SimPathsModel) getManager();
-        private CrossSection.Double householdsEDICS;
-        private PercentileArrayFunction percentileFunctionHouseholdsEDI;
+        private StatisticsAggregator.Quantiles<BenefitUnit> householdsEDIQuantiles;
         private double p50HouseholdsEDI;
 
+        EDI() {
+            householdsEDIQuantiles = benefitUnitAggregator.quantiles(BenefitUnit::getEquivalisedDisposableIncomeYearly, null);
+        }
+
         public void update() {
-            householdsEDICS = new CrossSection.Double(model.getBenefitUnits(), BenefitUnit.class, "getEquivalisedDisposableIncomeYearly", true);
-            percentileFunctionHouseholdsEDI = new PercentileArrayFunction(householdsEDICS);
-            percentileFunctionHouseholdsEDI.updateSource();
-            p50HouseholdsEDI = percentileFunctionHouseholdsEDI.getDoubleValue(PercentileArrayFunction.Variables.P50);
+            p50HouseholdsEDI = householdsEDIQuantiles.getValue(PercentileArrayFunction.Variables.P50);
             stats.setEdi_p50(p50HouseholdsEDI);
 //			System.out.println("Median EDI (collector) "+p50HouseholdsEDI);
         }
@@ -575,85 +670,32 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
         //I calculate that the Gini coefficient for household-weights w_i and variables x_i:
         //	G = [ sum_i sum_j w_i * w_j * abs( x_i - x_j) ] / [ 2 * (sum_i w_i) * (sum_j w_j * x_j) ]
         //Note in this particular case, the x_i are the personal (individual) gross income (potential earnings * labour supply)
+        //The double sum is evaluated by StatisticsAggregator.Gini in the collector's single pass over persons
 
         final SimPathsModel model = (SimPathsModel) getManager();
 
+        private StatisticsAggregator.Gini<Person, Region> giniPersonalGrossEarnings;
+
         private Map<Region, Double> giniWeightedPersonalGrossEarningsRegionalMap = new LinkedHashMap<Region, Double>();
 
         private double giniWeightedPersonalGrossEarningsNational;
 
-        //Update gini coefficient of personal gross earnings
-        public void update() {
-
-            //Note that weighted means individual person weighted measures
-            double weightedAbsDiffPersonalGrossEarningsNational = 0.;	//Sum of absolute difference between two person's weighted gross earnings (personal weight * potential earnings * labour supply)
-
-            Map<Region, Double> weightedAbsDiffPersonalGrossEarningsRegional = new LinkedHashMap<Region, Double>();	//Sum of absolute difference between two person's weighted gross earnings (personal weight * potential earnings * labour supply)
-            Map<Region, Double> totalWeightedPersonalGrossEarningsRegional = new LinkedHashMap<Region, Double>();	//Sum of (personal weight * potential earnings * labour supply)
-            Map<Region, Double> totalPersonWeightRegional = new LinkedHashMap<Region, Double>();	//Sum of personal weights
-
-            for(Region region: Parameters.getCountryRegions()) {
-                weightedAbsDiffPersonalGrossEarningsRegional.put(region,  0.);
-                totalWeightedPersonalGrossEarningsRegional.put(region,  0.);
-                totalPersonWeightRegional.put(region,  0.);
-            }
-
+        GiniPersonalGrossEarnings() {
             //Filter out people with non-finite or negative gross earnings
-            Map<Person, Double> validPersonalGrossEarningsMap = new LinkedHashMap<Person, Double>();
-            for(Person person: model.getPersons()) {
-                Double grossEarnings = person.getGrossEarningsWeekly();
-                if(grossEarnings != null && Double.isFinite(grossEarnings) && grossEarnings >= 0.) {
-                    validPersonalGrossEarningsMap.put(person, grossEarnings);
-                }
-            }
-
-            for(Map.Entry<Person, Double> e1 : validPersonalGrossEarningsMap.entrySet()) {
-
-                Person person1 = e1.getKey();
-                Region region1 = person1.getRegion();
-                double personWeight1 = person1.getWeight();
-                double grossEarnings1 = e1.getValue();
-                double weightedPersonalGrossEarnings1 = personWeight1 * grossEarnings1;
-
-                Double thw = totalPersonWeightRegional.get(region1);
-                totalPersonWeightRegional.put(region1,  thw + personWeight1);
-
-                Double tir = totalWeightedPersonalGrossEarningsRegional.get(region1);
-                totalWeightedPersonalGrossEarningsRegional.put(region1, tir + weightedPersonalGrossEarnings1);
-
-                for(Map.Entry<Person, Double> e2 : validPersonalGrossEarningsMap.entrySet()) {
-
-                    Person person2 = e2.getKey();
-                    Region region2 = person2.getRegion();
-                    double personWeight2 = person2.getWeight();
-                    double grossEarnings2 = e2.getValue();
-
-                    double weightedAbsDiffGrossEarnings = personWeight1 * personWeight2 * Math.abs(grossEarnings1 - grossEarnings2);
-                    weightedAbsDiffPersonalGrossEarningsNational += weightedAbsDiffGrossEarnings;
+            giniPersonalGrossEarnings = personAggregator.gini(Person::getGrossEarningsWeekly, Person::getWeight, Person::getRegion,
+                    person -> Double.isFinite(person.getGrossEarningsWeekly()) && person.getGrossEarningsWeekly() >= 0.);
+        }
 
-                    if(region1.equals(region2)) {
-                        double adGrossEarningsR = weightedAbsDiffPersonalGrossEarningsRegional.get(region1);
-                        weightedAbsDiffPersonalGrossEarningsRegional.put(region1, adGrossEarningsR + weightedAbsDiffGrossEarnings);
-                    }
-                }
-            }
+        //Update gini coefficient of personal gross earnings
+        public void update() {
 
-            double totalWeightedPersonalGrossEarningsNational = 0.;	//Sum of (personal weight * potential earnings * labour supply)
-            double totalPersonWeightNational = 0.;	//Sum of (person Weight)
             for(Region region : Parameters.getCountryRegions()) {
-                double totalPersonWeightForRegion = totalPersonWeightRegional.get(region);
-                totalPersonWeightNational += totalPersonWeightForRegion;
-
-                double totalWeightedPersonalGrossEarningsForRegion = totalWeightedPersonalGrossEarningsRegional.get(region);
-                totalWeightedPersonalGrossEarningsNational += totalWeightedPersonalGrossEarningsForRegion;
-
-                double giniRegional = weightedAbsDiffPersonalGrossEarningsRegional.get(region) / (2. * totalPersonWeightForRegion * totalWeightedPersonalGrossEarningsForRegion);
-                giniWeightedPersonalGrossEarningsRegionalMap.put(region, giniRegional);
-                log.info("giniWeightedPersonalGrossEarningsRegionalMap for " + region + " = " + giniWeightedPersonalGrossEarningsRegionalMap.get(region) + ", weightedAbsDiffEquivalisedIncomeRegional.get(region) = " + weightedAbsDiffPersonalGrossEarningsRegional.get(region) + ", totalPersonWeightForRegion = " + totalPersonWeightForRegion + ", totalWeightedPersonalGrossEarningsForRegion = " + totalWeightedPersonalGrossEarningsForRegion);
+                giniWeightedPersonalGrossEarningsRegionalMap.put(region, giniPersonalGrossEarnings.getValue(region));
+                log.info("giniWeightedPersonalGrossEarningsRegionalMap for " + region + " = " + giniWeightedPersonalGrossEarningsRegionalMap.get(region));
             }
-            giniWeightedPersonalGrossEarningsNational = weightedAbsDiffPersonalGrossEarningsNational / (2. * totalPersonWeightNational * totalWeightedPersonalGrossEarningsNational);
+            giniWeightedPersonalGrossEarningsNational = giniPersonalGrossEarnings.getValue();
             stats.setGiniPersonalGrossEarningsNational(giniWeightedPersonalGrossEarningsNational);
-            log.info("giniWeightedPersonalGrossEarningsNational = " + giniWeightedPersonalGrossEarningsNational + ", weightedAbsDiffPersonalGrossEarningsNational = " + weightedAbsDiffPersonalGrossEarningsNational + ", totalPersonWeightNational = " + totalPersonWeightNational + ", totalWeightedPersonalGrossEarningsNational = " + totalWeightedPersonalGrossEarningsNational);
+            log.info("giniWeightedPersonalGrossEarningsNational = " + giniWeightedPersonalGrossEarningsNational + ", weightedAbsDiffPersonalGrossEarningsNational = " + giniPersonalGrossEarnings.getAbsoluteDifference() + ", totalPersonWeightNational = " + giniPersonalGrossEarnings.getTotalWeight() + ", totalWeightedPersonalGrossEarningsNational = " + giniPersonalGrossEarnings.getTotalWeightedValue());
 
         }
 
@@ -678,85 +720,32 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
         //I calculate that the Gini coefficient for household-weights w_i and variables x_i:
         //	G = [ sum_i sum_j w_i * w_j * abs( x_i - x_j) ] / [ 2 * (sum_i w_i) * (sum_j w_j * x_j) ]
         //Note in this particular case, the x_i are the equivalised household income, so the variable itself also contains an 'equivalised weight', which is treated as part of the income (and different from the household-weight)
+        //The double sum is evaluated by StatisticsAggregator.Gini in the collector's single pass over benefit units
 
         final SimPathsModel model = (SimPathsModel) getManager();
 
+        private StatisticsAggregator.Gini<BenefitUnit, Region> giniEquivalisedHouseholdDisposableIncome;
+
         private Map<Region, Double> giniWeightedEquivalisedHouseholdDisposableIncomeRegionalMap = new LinkedHashMap<Region, Double>();
 
         private double giniWeightedEquivalisedHouseholdDisposableIncomeNational;
 
-        //Update gini coefficient of household disposable income
-        public void update() {
-
-            //Note that weighted means household weighted measures
-            double weightedAbsDiffEquivalisedIncomeNational = 0.;	//Sum of absolute difference between two household's weighted equivalised income (household weight * equivalised weight * household disposable income)
-
-            Map<Region, Double> weightedAbsDiffEquivalisedIncomeRegional = new LinkedHashMap<Region, Double>();	//Sum of absolute difference between two household's weighted equivalised income (household weight * equivalised weight * household disposable income)
-            Map<Region, Double> totalWeightedEquivalisedHouseholdIncomeRegional = new LinkedHashMap<Region, Double>();	//Sum of (household weight * equivalised weight * household disposable income)
-            Map<Region, Double> totalHouseholdWeightRegional = new LinkedHashMap<Region, Double>();	//Sum of (household weight)
-
-            for(Region region: Parameters.getCountryRegions()) {
-                weightedAbsDiffEquivalisedIncomeRegional.put(region,  0.);
-                totalWeightedEquivalisedHouseholdIncomeRegional.put(region,  0.);
-                totalHouseholdWeightRegional.put(region,  0.);
-            }
-
+        GiniEquivalisedHouseholdDisposableIncome() {
             //Filter out households with non-finite or negative disposable income
-            Map<BenefitUnit, Double> validHousesEquivalisedIncomeMap = new LinkedHashMap<BenefitUnit, Double>();
-            for(BenefitUnit house: model.getBenefitUnits()) {
-                Double income = house.getEquivalisedDisposableIncomeYearly();
-                if(income != null && Double.isFinite(income) && income >= 0.) {
-                    validHousesEquivalisedIncomeMap.put(house, income);
-                }
-            }
-
-            for(Map.Entry<BenefitUnit, Double> e1 : validHousesEquivalisedIncomeMap.entrySet()) {
-
-                BenefitUnit house1 = e1.getKey();
-                Region region1 = house1.getRegion();
-                double houseWeight1 = house1.getWeight();
-                double equivalisedIncome1 = e1.getValue();
-                double weightedEquivalisedHouseholdIncome1 = houseWeight1 * equivalisedIncome1;	//Equivalised income * BenefitUnit-Weight
-
-                Double thw = totalHouseholdWeightRegional.get(region1);
-                totalHouseholdWeightRegional.put(region1,  thw + houseWeight1);
-
-                Double tir = totalWeightedEquivalisedHouseholdIncomeRegional.get(region1);
-                totalWeightedEquivalisedHouseholdIncomeRegional.put(region1, tir + weightedEquivalisedHouseholdIncome1);
-
-                for(Map.Entry<BenefitUnit, Double> e2 : validHousesEquivalisedIncomeMap.entrySet()) {
-
-                    BenefitUnit house2 = e2.getKey();
-                    Region region2 = house2.getRegion();
-                    double houseWeight2 = house2.getWeight();
-                    double equivalisedIncome2 = e2.getValue();
-
-                    double weightedAbsDiffEquivalisedIncome = houseWeight1 * houseWeight2 * Math.abs(equivalisedIncome1 - equivalisedIncome2);
-                    weightedAbsDiffEquivalisedIncomeNational += weightedAbsDiffEquivalisedIncome;
+            giniEquivalisedHouseholdDisposableIncome = benefitUnitAggregator.gini(BenefitUnit::getEquivalisedDisposableIncomeYearly, BenefitUnit::getWeight, BenefitUnit::getRegion,
+                    house -> Double.isFinite(house.getEquivalisedDisposableIncomeYearly()) && house.getEquivalisedDisposableIncomeYearly() >= 0.);
+        }
 
-                    if(region1.equals(region2)) {
-                        double adIncomeR = weightedAbsDiffEquivalisedIncomeRegional.get(region1);
-                        weightedAbsDiffEquivalisedIncomeRegional.put(region1, adIncomeR + weightedAbsDiffEquivalisedIncome);
-                    }
-                }
-            }
+        //Update gini coefficient of household disposable income
+        public void update() {
 
-            double totalWeightedEquivalisedHouseholdIncomeNational = 0.;	//Sum of (household weight * equivalised weight * household disposable income)
-            double totalHouseholdWeightNational = 0.;	//Sum of (household weight)
             for(Region region : Parameters.getCountryRegions()) {
-                double totalHouseholdWeightForRegion = totalHouseholdWeightRegional.get(region);
-                totalHouseholdWeightNational += totalHouseholdWeightForRegion;
-
-                double totalWeightedEquivalisedHouseholdIncomeForRegion = totalWeightedEquivalisedHouseholdIncomeRegional.get(region);
-                totalWeightedEquivalisedHouseholdIncomeNational += totalWeightedEquivalisedHouseholdIncomeForRegion;
-
-                double giniRegional = weightedAbsDiffEquivalisedIncomeRegional.get(region) / (2. * totalHouseholdWeightForRegion * totalWeightedEquivalisedHouseholdIncomeForRegion);
-                giniWeightedEquivalisedHouseholdDisposableIncomeRegionalMap.put(region, giniRegional);
-                log.info("giniHouseholdDisposableIncomeRegional for " + region + " = " + giniWeightedEquivalisedHouseholdDisposableIncomeRegionalMap.get(region) + ", weightedAbsDiffEquivalisedIncomeRegional.get(region) = " + weightedAbsDiffEquivalisedIncomeRegional.get(region) + ", totalHouseholdWeightForRegion = " + totalHouseholdWeightForRegion + ", totalWeightedEquivalisedHouseholdIncomeForRegion = " + totalWeightedEquivalisedHouseholdIncomeForRegion);
+                giniWeightedEquivalisedHouseholdDisposableIncomeRegionalMap.put(region, giniEquivalisedHouseholdDisposableIncome.getValue(region));
+                log.info("giniHouseholdDisposableIncomeRegional for " + region + " = " + giniWeightedEquivalisedHouseholdDisposableIncomeRegionalMap.get(region));
             }
-            giniWeightedEquivalisedHouseholdDisposableIncomeNational = weightedAbsDiffEquivalisedIncomeNational / (2. * totalHouseholdWeightNational * totalWeightedEquivalisedHouseholdIncomeNational);
+            giniWeightedEquivalisedHouseholdDisposableIncomeNational = giniEquivalisedHouseholdDisposableIncome.getValue();
             stats.setGiniEquivalisedHouseholdDisposableIncomeNational(giniWeightedEquivalisedHouseholdDisposableIncomeNational);
-            log.info("giniWeightedEquivalisedHouseholdDisposableIncomeNational = " + giniWeightedEquivalisedHouseholdDisposableIncomeNational + ", weightedAbsDiffEquivalisedIncomeNational = " + weightedAbsDiffEquivalisedIncomeNational + ", totalHouseholdWeightNational = " + totalHouseholdWeightNational + ", totalWeightedEquivalisedHouseholdIncomeNational = " + totalWeightedEquivalisedHouseholdIncomeNational);
+            log.info("giniWeightedEquivalisedHouseholdDisposableIncomeNational = " + giniWeightedEquivalisedHouseholdDisposableIncomeNational + ", weightedAbsDiffEquivalisedIncomeNational = " + giniEquivalisedHouseholdDisposableIncome.getAbsoluteDifference() + ", totalHouseholdWeightNational = " + giniEquivalisedHouseholdDisposableIncome.getTotalWeight() + ", totalWeightedEquivalisedHouseholdIncomeNational = " + giniEquivalisedHouseholdDisposableIncome.getTotalWeightedValue());
 
         }
 
@@ -838,25 +827,36 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
 
     private void calculateGiniCoefficients() {			//Called just before database dump of statistics entity
 
+        updateAggregates();
         giniPersonalGrossEarnings.update();
         giniEquivalisedHouseholdDisposableIncome.update();
 
     }
 
-    private void calculateEDI() {
-        edi.update();
-    }
+    /**
+     * Evaluates all statistics registered with the person and benefit unit aggregators, with one pass over each
+     * population. Statistics are evaluated at most once per year, however many collector events request them.
+     *
+     * The S Index of each person (calculated from the time window and alpha and delta parameters specified in
+     * the model class) and the equivalised disposable income of each benefit unit are updated before the passes,
+     * as statistics are evaluated over them.
+     */
+    private void updateAggregates() {
 
-    private void calculateGrossIncome() {
-        ydses_c5.update();
-        grossLabourIncome.update();
-    }
+        if (aggregatesYear == model.getYear())
+            return;
+
+        sIndex.updatePersons();
+        calculateEquivalisedHouseholdDisposableIncome();
+
+        personAggregator.update(model.getPersons());
+        benefitUnitAggregator.update(model.getBenefitUnits());
 
-    private void calculateSIndex() {
-        /*
-        This method calculates the in(security) S Index for each individual in the simulation, using the time window and alpha and delta parameters specified in the model class.
-         */
         sIndex.update();
+        ydses_c5.update();
+        grossLabourIncome.update();
+        edi.update();
+        aggregatesYear = model.getYear();
     }
 
     // ---------------------------------------------------------------------
@@ -883,6 +883,22 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
 
     public void setPersistHouseholds(boolean persistHouseholds) { this.persistHouseholds = persistHouseholds; }
 
+    public boolean isStreamingQuantiles() {
+        return streamingQuantiles;
+    }
+
+    public void setStreamingQuantiles(boolean streamingQuantiles) {
+        this.streamingQuantiles = streamingQuantiles;
+    }
+
+    public Double getQuantileSketchCompression() {
+        return quantileSketchCompression;
+    }
+
+    public void setQuantileSketchCompression(Double quantileSketchCompression) {
+        this.quantileSketchCompression = quantileSketchCompression;
+    }
+
     public Long getDataDumpStartTime() {
         return dataDumpStartTime;
     }
@@ -933,6 +949,22 @@ public class SimPathsCollector extends AbstractSimulationCollectorManager implem
         this.exportToCSV = exportToCSV;
     }
 
+    public boolean isExportToColumnar() {
+        return exportToColumnar;
+    }
+
+    public void setExportToColumnar(boolean exportToColumnar) {
+        this.exportToColumnar = exportToColumnar;
+    }
+
+    public Integer getColumnarExportQueueCapacity() {
+        return columnarExportQueueCapacity;
+    }
+
+    public void setColumnarExportQueueCapacity(Integer columnarExportQueueCapacity) {
+        this.columnarExportQueueCapacity = columnarExportQueueCapacity;
+    }
+
     public boolean isPersistStatistics() {
         return persistStatistics;
     }
@@ -25,6 +25,7 @@ import simpaths.model.enums.Country;
 import org.apache.log4j.FileAppender;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
 import java.io.*;
 import microsim.data.ExperimentManager;
 
@@ -46,6 +47,14 @@ public class SimPathsMultiRun extends MultiRun {
 	private static boolean labourSupplyElasticityInnov = false;
 	private static boolean flagDatabaseSetup = false;
 
+	// parallel execution args
+	private static int parallelWorkers = 1;
+	private static String workerHeap;
+	private static Integer workerProcessors;
+	private static int runOffset = 0;
+	private static boolean parallelWorker = false;
+	private static String outputDirectory;
+
 	// passing args for config file
 	private static Map<String, Object> modelArgs;
 	private static Map<String, Object> innovationArgs;
@@ -57,6 +66,9 @@ public class SimPathsMultiRun extends MultiRun {
 	private static double interestRateInnov = 0.0;
 	private static double disposableIncomeFromLabourInnov = 0.0;
 	private Long counter = 0L;
+	private PrintStream runLog;					// log of the current run of a parallel worker
+	private WriterAppender runLogAppender;
+	private PrintStream consoleOut, consoleErr;
 	public static Logger log = Logger.getLogger(SimPathsMultiRun.class);
 
 	/**
@@ -111,6 +123,16 @@ public class SimPathsMultiRun extends MultiRun {
 		if (flagDatabaseSetup) {
 
 			Parameters.databaseSetup(country, executeWithGui, startYear);
+		} else if (parallelWorkers > 1) {
+			// launch runs in independent worker processes, each a SimPathsMultiRun started with -runOffset
+
+			try {
+				ParallelMultiRun launcher = new ParallelMultiRun(args, parallelWorkers, maxNumberOfRuns, randomSeed, randomSeedInnov, workerHeap, workerProcessors);
+				if (!launcher.run())
+					System.exit(1);
+			} catch (IOException | InterruptedException e) {
+				throw new RuntimeException("Parallel multirun failed: " + e.getMessage(), e);
+			}
 		} else {
 			// standard simulation
 
@@ -118,10 +140,22 @@ public class SimPathsMultiRun extends MultiRun {
 
 			SimulationEngine engine = SimulationEngine.getInstance();
 
+			if (outputDirectory != null)
+				Experiment.outputRootFolder = outputDirectory;
 			SimPathsMultiRun experimentBuilder = new SimPathsMultiRun();
+			experimentBuilder.skipRuns(runOffset);
 			engine.setExperimentBuilder(experimentBuilder);
 			engine.setup();		//This is needed to update model attributes (from model_args in config file)
 
+			if (parallelWorker) {
+				// worker of a parallel multirun: report failure of any thread to the launcher by the exit status
+				Thread.setDefaultUncaughtExceptionHandler((thread, e) -> {
+					log.error("Parallel worker failed in thread " + thread.getName(), e);
+					e.printStackTrace();
+					Runtime.getRuntime().halt(1);
+				});
+			}
+
 			if (executeWithGui)
 				new MultiRunFrame(experimentBuilder, "SimPaths MultiRun", maxNumberOfRuns);
 			else
@@ -167,6 +201,26 @@ public class SimPathsMultiRun extends MultiRun {
 		Option fileOption = new Option("f", "Output to file");
 		options.addOption(fileOption);
 
+		Option parallelOption = new Option("P", "parallelWorkers", true, "Number of worker processes to run in parallel (default: 1)");
+		parallelOption.setArgName("int");
+		options.addOption(parallelOption);
+
+		Option workerHeapOption = new Option("workerHeap", true, "Maximum heap of each parallel worker (e.g. 8g)");
+		workerHeapOption.setArgName("size");
+		options.addOption(workerHeapOption);
+
+		Option workerProcessorsOption = new Option("workerProcessors", true, "Number of processors available to each parallel worker (default: shared equally)");
+		workerProcessorsOption.setArgName("int");
+		options.addOption(workerProcessorsOption);
+
+		Option runOffsetOption = new Option("runOffset", true, "Index of the first run, set by the launcher for parallel workers");
+		runOffsetOption.setArgName("int");
+		options.addOption(runOffsetOption);
+
+		Option outputDirOption = new Option("outputDir", true, "Directory in which the output folder is created, set by the launcher for parallel workers (default: output)");
+		outputDirOption.setArgName("dir");
+		options.addOption(outputDirOption);
+
 		Option helpOption = new Option("h", "help", false, "Print this help message");
 		options.addOption(helpOption);
 
@@ -208,6 +262,29 @@ public class SimPathsMultiRun extends MultiRun {
 			if (cmd.hasOption("p")) {
 				popSize = Integer.parseInt(cmd.getOptionValue("p"));
 			}
+
+			if (cmd.hasOption("P")) {
+				parallelWorkers = Integer.parseInt(cmd.getOptionValue("P"));
+			}
+
+			if (cmd.hasOption("workerHeap")) {
+				workerHeap = cmd.getOptionValue("workerHeap");
+			}
+
+			if (cmd.hasOption("workerProcessors")) {
+				workerProcessors = Integer.parseInt(cmd.getOptionValue("workerProcessors"));
+			}
+
+			if (cmd.hasOption("runOffset")) {
+				runOffset = Integer.parseInt(cmd.getOptionValue("runOffset"));
+				parallelWorker = true;
+				parallelWorkers = 1;
+			}
+
+			if (cmd.hasOption("outputDir")) {
+				outputDirectory = cmd.getOptionValue("outputDir");
+			}
+
 			if (cmd.hasOption("f")) {
 				try {
 					File logDir = new File("output/logs");
@@ -243,7 +320,9 @@ public class SimPathsMultiRun extends MultiRun {
 		String header = "SimPathsMultiRun can run multiple sequential runs, " +
 				"resetting the population to the start year and iterating from the start seed. " +
 				"It takes the following options:";
-		String footer = "When running with no display, `-g` must be set to `false`.";
+		String footer = "When running with no display, `-g` must be set to `false`. " +
+				"With `-P` greater than 1, runs are split between independent worker processes without display, " +
+				"and their .csv output is merged when all have completed.";
 		formatter.printHelp("SimPathsMultiRun", header, options, footer, true);
 	}
 
@@ -379,6 +458,9 @@ public class SimPathsMultiRun extends MultiRun {
 	@Override
 	public void buildExperiment(SimulationEngine engine) {
 
+		if (parallelWorker)
+			openRunLog();
+
 		SimPathsModel model = new SimPathsModel(Country.getCountryFromNameString(countryString), startYear);
 		updateLocalParameters(model);
 		if (modelArgs != null)
@@ -424,10 +506,95 @@ public class SimPathsMultiRun extends MultiRun {
 		}
 	}
 	
+	/**
+	 * Advances the seed and innovations to those of run number runs, as if the preceding runs had been simulated.
+	 * Used by workers of a parallel multirun.
+	 */
+	private void skipRuns(int runs) {
+		while (counter < runs) {
+			counter++;
+			iterateParameters(counter);
+		}
+	}
+
+	/**
+	 * Opens the log of the run about to start in the output directory of a parallel worker, named run_[seed].log
+	 * (or run_[seed]_[run].log where the seed is not incremented between runs). Console output and log messages are
+	 * written to the log while the run is simulated, and console output is still passed on to the launcher.
+	 */
+	private void openRunLog() {
+
+		closeRunLog();
+		String name = (randomSeedInnov) ? "run_" + randomSeed : "run_" + setupRunLabel();
+		File logFile = new File(outputDirectory != null ? outputDirectory : ".", name + ".log");
+		try {
+			runLog = new PrintStream(new BufferedOutputStream(new FileOutputStream(logFile)), true);
+		} catch (FileNotFoundException e) {
+			throw new RuntimeException("Unable to open run log " + logFile + ": " + e.getMessage(), e);
+		}
+		consoleOut = System.out;
+		consoleErr = System.err;
+		System.setOut(new PrintStream(new TeeOutputStream(consoleOut, runLog), true));
+		System.setErr(new PrintStream(new TeeOutputStream(consoleErr, runLog), true));
+		runLogAppender = new WriterAppender(new PatternLayout("%d{yyyy MMM dd HH:mm:ss} - %m%n"), runLog);
+		runLogAppender.setName("Run logging");
+		Logger.getRootLogger().addAppender(runLogAppender);
+	}
+
+	/**
+	 * Closes the log of the run just completed, restoring console output.
+	 */
+	private void closeRunLog() {
+
+		if (runLog == null)
+			return;
+		Logger.getRootLogger().removeAppender(runLogAppender);
+		System.out.flush();
+		System.err.flush();
+		System.setOut(consoleOut);
+		System.setErr(consoleErr);
+		runLog.close();
+		runLog = null;
+		runLogAppender = null;
+	}
+
+	/**
+	 * Writes to the console and to the log of a run.
+	 */
+	private static class TeeOutputStream extends OutputStream {
+
+		private final OutputStream console, log;
+
+		TeeOutputStream(OutputStream console, OutputStream log) {
+			this.console = console;
+			this.log = log;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			console.write(b);
+			log.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			console.write(b, off, len);
+			log.write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			console.flush();
+			log.flush();
+		}
+	}
+
 	@Override
 	public boolean nextModel() {
+		if (parallelWorker)
+			closeRunLog();
 		counter++;
-		if (counter < maxNumberOfRuns) {
+		if (counter < runOffset + maxNumberOfRuns) {
 			iterateParameters(counter);
 			return true;
 		} else {
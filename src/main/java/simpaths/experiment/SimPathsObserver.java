@@ -1662,8 +1662,8 @@ public class SimPathsObserver extends AbstractSimulationObserverManager implemen
 				chartingEvents.addEvent(plot, CommonEventType.Update);
 			}
 //			getEngine().getEventQueue().scheduleOnce(chartingEvents, model.getStartYear(), Order.BEFORE_ALL.getOrdering()+1);
-			getEngine().getEventQueue().scheduleRepeat(chartingEvents, model.getStartYear(), ordering, displayFrequency);
-			getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.ResetConvergenceChart), model.getStartYear(), ordering, displayFrequency);
+			getEngine().getEventQueue().scheduleRepeat(chartingEvents, model.getFirstScheduledYear(), ordering, displayFrequency);
+			getEngine().getEventQueue().scheduleRepeat(new SingleTargetEvent(this, Processes.ResetConvergenceChart), model.getFirstScheduledYear(), ordering, displayFrequency);
 
 		}
 							
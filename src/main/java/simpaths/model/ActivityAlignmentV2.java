@@ -9,11 +9,15 @@ import simpaths.model.enums.OccupancyExtended;
 import simpaths.model.enums.TargetShares;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * ActivityAlignmentV2 calibrates the labor supply model by adjusting utility coefficients
  * so that the simulated employment rate for a specific benefit-unit subgroup matches its target.
  * Uses OccupancyExtended flags and the atRiskOfWork()/getAdultChildFlag() flow for classification.
+ *
+ * The subgroups are disjoint, and each adjusts its own coefficient map. Benefit units can therefore be partitioned
+ * by subgroup once (see partitionBySubgroup), and the alignments of different subgroups run concurrently.
  */
 public class ActivityAlignmentV2 implements IEvaluation {
 
@@ -21,7 +25,8 @@ public class ActivityAlignmentV2 implements IEvaluation {
     private final Map<String, CoefficientValue> originalCoefficients;
     private final MultiKeyCoefficientMap coefficientMap;
     private final List<String> regressorsToModify;
-    private final Set<BenefitUnit> benefitUnits;
+    private final Set<BenefitUnit> benefitUnits;          // all benefit units, filtered on each evaluation
+    private final BenefitUnit[] subgroupBenefitUnits;     // benefit units of the subgroup, if partitioned beforehand
     private final OccupancyExtended subgroupFlag;
     private final SimPathsModel model;
 
@@ -37,9 +42,33 @@ public class ActivityAlignmentV2 implements IEvaluation {
                                MultiKeyCoefficientMap coefficientMap,
                                String[] regressorsToModify,
                                OccupancyExtended subgroupFlag) {
+        this(Collections.unmodifiableSet(benefitUnits), null, coefficientMap, regressorsToModify, subgroupFlag);
+    }
+
+    /**
+     * Constructor accepting the benefit units of the subgroup, as partitioned by partitionBySubgroup.
+     *
+     * @param subgroupBenefitUnits  benefit units in the subgroup
+     * @param coefficientMap        map of utility coefficients
+     * @param regressorsToModify    array of coefficient keys to adjust
+     * @param subgroupFlag          extended occupancy flag of the subgroup
+     */
+    public ActivityAlignmentV2(BenefitUnit[] subgroupBenefitUnits,
+                               MultiKeyCoefficientMap coefficientMap,
+                               String[] regressorsToModify,
+                               OccupancyExtended subgroupFlag) {
+        this(null, subgroupBenefitUnits, coefficientMap, regressorsToModify, subgroupFlag);
+    }
+
+    private ActivityAlignmentV2(Set<BenefitUnit> benefitUnits,
+                                BenefitUnit[] subgroupBenefitUnits,
+                                MultiKeyCoefficientMap coefficientMap,
+                                String[] regressorsToModify,
+                                OccupancyExtended subgroupFlag) {
         this.model = (SimPathsModel) SimulationEngine.getInstance()
                 .getManager(SimPathsModel.class.getCanonicalName());
-        this.benefitUnits = Collections.unmodifiableSet(benefitUnits);
+        this.benefitUnits = benefitUnits;
+        this.subgroupBenefitUnits = subgroupBenefitUnits;
         this.coefficientMap = coefficientMap;
         this.regressorsToModify = Arrays.asList(regressorsToModify.clone());
         this.subgroupFlag = subgroupFlag;
@@ -135,8 +164,7 @@ public class ActivityAlignmentV2 implements IEvaluation {
 
         // Update all benefit units in parallel for efficiency
         // Update only benefit units in the selected(!) subgroup
-        benefitUnits.parallelStream()
-                .filter(this::matchesSubgroup)
+        subgroupStream()
                 .forEach(bu -> {
 
                     // Avoid full labour update — too costly for alignment loop
@@ -162,8 +190,7 @@ public class ActivityAlignmentV2 implements IEvaluation {
      * Computes the simulated employment share for benefit units in the specified subgroup using employment boolean of each BU
      */
     private double computeSimulatedShare() {
-        long[] counts = benefitUnits.stream()
-                .filter(this::matchesSubgroup)
+        long[] counts = subgroupStream().sequential()
                 .collect(() -> new long[2],
                         (a, bu) -> { a[0]++; if (bu.isEmployed()) a[1]++; },
                         (a, b) -> { a[0] += b[0]; a[1] += b[1]; });
@@ -175,8 +202,7 @@ public class ActivityAlignmentV2 implements IEvaluation {
      */
 
     private double computeSimulatedShareUsingFraction() {
-        double[] totals = benefitUnits.parallelStream()
-                .filter(this::matchesSubgroup)
+        double[] totals = subgroupStream()
                 .collect(
                         () -> new double[2], // [0] = count of units, [1] = sum of fracEmployed
                         (a, bu) -> {
@@ -192,63 +218,79 @@ public class ActivityAlignmentV2 implements IEvaluation {
         return totals[0] > 0 ? totals[1] / totals[0] : 0.0;
     }
 
+    /**
+     * Parallel stream of the benefit units in the subgroup.
+     */
+    private Stream<BenefitUnit> subgroupStream() {
+        if (subgroupBenefitUnits != null)
+            return Arrays.stream(subgroupBenefitUnits).parallel();
+        return benefitUnits.parallelStream().filter(this::matchesSubgroup);
+    }
+
     /**
      * Determines whether a BenefitUnit belongs to the subgroup defined by subgroupFlag.
+     */
+    private boolean matchesSubgroup(BenefitUnit bu) {
+        return subgroupFlag == subgroupOf(bu);
+    }
+
+    /**
+     * Partitions benefit units by subgroup, keeping their order within each subgroup.
+     * Benefit units that do not belong to any subgroup are omitted.
+     */
+    public static Map<OccupancyExtended, BenefitUnit[]> partitionBySubgroup(Collection<BenefitUnit> benefitUnits) {
+        Map<OccupancyExtended, List<BenefitUnit>> lists = new EnumMap<>(OccupancyExtended.class);
+        for (OccupancyExtended flag : OccupancyExtended.values()) {
+            lists.put(flag, new ArrayList<>());
+        }
+        for (BenefitUnit bu : benefitUnits) {
+            OccupancyExtended flag = subgroupOf(bu);
+            if (flag != null)
+                lists.get(flag).add(bu);
+        }
+        Map<OccupancyExtended, BenefitUnit[]> partition = new EnumMap<>(OccupancyExtended.class);
+        lists.forEach((flag, list) -> partition.put(flag, list.toArray(new BenefitUnit[0])));
+        return partition;
+    }
+
+    /**
+     * Determines the subgroup of a BenefitUnit, or null if it belongs to none.
      * Mirrors the atRiskOfWork()/getAdultChildFlag() flow used by BenefitUnit class.
      *
-     * Determines whether a BenefitUnit belongs to the subgroup defined by subgroupFlag.
      * Safely handles missing male/female members and retrieves the adult-child flag
      * from the Person instance.
      */
-    private boolean matchesSubgroup(BenefitUnit bu) {
+    static OccupancyExtended subgroupOf(BenefitUnit bu) {
         Occupancy occ = bu.getOccupancy();
 
         // Safely retrieve the male and female Person objects (may be null)
         Person male = bu.getMale();
-        boolean maleAtRisk = (male != null) && male.atRiskOfWork();
-
         Person female = bu.getFemale();
-        boolean femaleAtRisk = (female != null) && female.atRiskOfWork();
-
-        // Retrieve adult-child flag only for single‐person units
-        int acFlag = 0;
-        if (occ == Occupancy.Single_Male && male != null) {
-            acFlag = male.getAdultChildFlag();
-        } else if (occ == Occupancy.Single_Female && female != null) {
-            acFlag = female.getAdultChildFlag();
-        }
-
-        switch (subgroupFlag) {
-            case Couple:
-                return occ == Occupancy.Couple
-                        && maleAtRisk && femaleAtRisk;
 
-            case Male_With_Dependent:
-                return occ == Occupancy.Couple
-                        && maleAtRisk && !femaleAtRisk;
-
-            case Female_With_Dependent:
-                return occ == Occupancy.Couple
-                        && femaleAtRisk && !maleAtRisk;
+        switch (occ) {
+            case Couple: {
+                boolean maleAtRisk = (male != null) && male.atRiskOfWork();
+                boolean femaleAtRisk = (female != null) && female.atRiskOfWork();
+                if (maleAtRisk && femaleAtRisk)
+                    return OccupancyExtended.Couple;
+                if (maleAtRisk)
+                    return OccupancyExtended.Male_With_Dependent;
+                if (femaleAtRisk)
+                    return OccupancyExtended.Female_With_Dependent;
+                return null;
+            }
 
+            // Adult-child flag only for single-person units
             case Single_Male:
-                return occ == Occupancy.Single_Male
-                        && acFlag != 1;
-
-            case Male_AC:
-                return occ == Occupancy.Single_Male
-                        && acFlag == 1;
+                return (male != null && male.getAdultChildFlag() == 1)
+                        ? OccupancyExtended.Male_AC : OccupancyExtended.Single_Male;
 
             case Single_Female:
-                return occ == Occupancy.Single_Female
-                        && acFlag != 1;
-
-            case Female_AC:
-                return occ == Occupancy.Single_Female
-                        && acFlag == 1;
+                return (female != null && female.getAdultChildFlag() == 1)
+                        ? OccupancyExtended.Female_AC : OccupancyExtended.Single_Female;
 
             default:
-                return false;
+                return null;
         }
     }
 
@@ -0,0 +1,205 @@
+package simpaths.model;
+
+import simpaths.model.enums.Gender;
+import simpaths.model.enums.Region;
+import simpaths.model.enums.SampleExit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+
+/**
+ *
+ * CLASS TO INDEX THE SIMULATED POPULATION BY POPULATION ALIGNMENT CELL
+ *
+ * Cells are defined by gender, region and age, with ages above the maximum alignment age included in the cell of the
+ * maximum age. Persons are held in a flat array, bucketed by cell with a counting sort, so that the persons of each
+ * cell are a range of the array given by an offset table.
+ *
+ * Within each cell, persons are sorted as by Collections.sort, and then shuffled cell by cell in order of gender,
+ * region and age. This reproduces the lists of persons by alignment group obtained with the same sequence of random
+ * numbers. Cells and migrant eligibility are evaluated in parallel, and the arrays are retained between rebuilds.
+ *
+ */
+public class AlignmentCellIndex {
+
+    private final Gender[] genders = Gender.values();
+    private Region[] regions;
+    private int[] regionIndex;                          // position of each region in regions, by ordinal, or -1
+    private int nAges;
+    private int nPersons;
+
+    private int[] offsets = new int[1];                 // persons of cell cc are persons[offsets[cc]] to persons[offsets[cc+1]-1]
+    private Person[] persons = new Person[0];           // persons bucketed by cell
+    private boolean[] migrantEligible = new boolean[0]; // by position in persons
+    private Person[] unsorted = new Person[0];          // persons in order of population
+    private int[] cells = new int[0];                   // cell of each person in unsorted
+
+
+    /**
+     * rebuilds the index for all persons who have not exited the sample
+     * @param population simulated population
+     * @param countryRegions regions of the country, in the order of alignment
+     * @param maxAlignAge upper age for population alignment
+     * @param random random number generator used to shuffle the persons of each cell
+     */
+    public void rebuild(Collection<Person> population, Collection<Region> countryRegions, int maxAlignAge, Random random) {
+
+        regions = countryRegions.toArray(new Region[0]);
+        regionIndex = new int[Region.values().length];
+        Arrays.fill(regionIndex, -1);
+        for (int rr = 0; rr < regions.length; rr++) {
+            regionIndex[regions[rr].ordinal()] = rr;
+        }
+        nAges = maxAlignAge + 1;
+        int nCells = getNumberOfCells();
+        if (unsorted.length < population.size()) {
+            int capacity = population.size() + population.size() / 8;
+            unsorted = new Person[capacity];
+            cells = new int[capacity];
+            persons = new Person[capacity];
+            migrantEligible = new boolean[capacity];
+        }
+
+        // persons to align, in order of population
+        int nn = 0;
+        for (Person person : population) {
+            if (SampleExit.NotYet.equals(person.getSampleExit()))
+                unsorted[nn++] = person;
+        }
+        if (nn < nPersons)
+            Arrays.fill(persons, nn, nPersons, null);
+        nPersons = nn;
+        IntStream.range(0, nPersons).parallel().forEach(ii -> cells[ii] = cell(unsorted[ii], maxAlignAge));
+
+        // counting sort by cell, retaining order of population within cells
+        if (offsets.length != nCells + 1)
+            offsets = new int[nCells + 1];
+        else
+            Arrays.fill(offsets, 0);
+        for (int ii = 0; ii < nPersons; ii++) {
+            offsets[cells[ii] + 1]++;
+        }
+        for (int cc = 0; cc < nCells; cc++) {
+            offsets[cc + 1] += offsets[cc];
+        }
+        int[] next = Arrays.copyOf(offsets, nCells);
+        for (int ii = 0; ii < nPersons; ii++) {
+            persons[next[cells[ii]]++] = unsorted[ii];
+        }
+        Arrays.fill(unsorted, 0, nPersons, null);
+
+        // order cells as Collections.sort (stable), then shuffle in order of cells
+        // NOTE: ordering is used to ensure that simulated populations are replicable
+        IntStream.range(0, nCells).parallel().forEach(cc -> Arrays.sort(persons, offsets[cc], offsets[cc + 1]));
+        for (int cc = 0; cc < nCells; cc++) {
+            shuffle(persons, offsets[cc], offsets[cc + 1], random);
+        }
+
+        // individuals who are the exclusive youngest member of their benefit unit, in households comprised of a
+        // single benefit unit
+        IntStream.range(0, nPersons).parallel().forEach(ii -> migrantEligible[ii] = isMigrantEligible(persons[ii]));
+    }
+
+    private int cell(Person person, int maxAlignAge) {
+        int rr = regionIndex[person.getRegion().ordinal()];
+        if (rr < 0)
+            throw new RuntimeException("failed to identify requested person alignment list");
+        return cell(person.getDgn().ordinal(), rr, Math.min(person.getDag(), maxAlignAge));
+    }
+
+    private int cell(int gg, int rr, int age) {
+        return (gg * regions.length + rr) * nAges + age;
+    }
+
+    private static boolean isMigrantEligible(Person person) {
+        if (person.getBenefitUnit().getHousehold().getBenefitUnits().size() != 1)
+            return false;
+        for (Person member : person.getBenefitUnit().getMembers()) {
+            if (member.getDag() <= person.getDag() && member != person)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * as Collections.shuffle, applied to a range of the array
+     */
+    private static void shuffle(Person[] array, int from, int to, Random random) {
+        for (int ii = to - from; ii > 1; ii--) {
+            int jj = from + random.nextInt(ii);
+            Person tmp = array[from + ii - 1];
+            array[from + ii - 1] = array[jj];
+            array[jj] = tmp;
+        }
+    }
+
+    public int getNumberOfCells() {
+        return genders.length * regions.length * nAges;
+    }
+
+    public int cell(Gender gender, Region region, int age) {
+        int rr = regionIndex[region.ordinal()];
+        if (rr < 0 || age < 0 || age >= nAges)
+            throw new RuntimeException("failed to identify requested person alignment list");
+        return cell(gender.ordinal(), rr, age);
+    }
+
+    /**
+     * @return total weight of the persons in each cell, summed in order of the cell
+     */
+    public double[] getWeights() {
+        double[] weights = new double[getNumberOfCells()];
+        IntStream.range(0, weights.length).parallel().forEach(cc -> {
+            double weight = 0.0;
+            for (int ii = offsets[cc]; ii < offsets[cc + 1]; ii++) {
+                weight += persons[ii].getWeight();
+            }
+            weights[cc] = weight;
+        });
+        return weights;
+    }
+
+    /**
+     * sets the weight of all persons of each cell
+     */
+    public void setWeights(double[] weightByCell) {
+        IntStream.range(0, getNumberOfCells()).parallel().forEach(cc -> {
+            for (int ii = offsets[cc]; ii < offsets[cc + 1]; ii++) {
+                persons[ii].setWeight(weightByCell[cc]);
+            }
+        });
+    }
+
+    /**
+     * @return modifiable lists of the persons of each cell, by cell
+     */
+    public List<List<Person>> getPersonLists() {
+        List<List<Person>> lists = new ArrayList<>(getNumberOfCells());
+        for (int cc = 0; cc < getNumberOfCells(); cc++) {
+            lists.add(new LinkedList<>(Arrays.asList(persons).subList(offsets[cc], offsets[cc + 1])));
+        }
+        return lists;
+    }
+
+    /**
+     * @return modifiable lists of the persons of each cell who are eligible to migrate, by cell
+     */
+    public List<List<Person>> getMigrantLists() {
+        List<List<Person>> lists = new ArrayList<>(getNumberOfCells());
+        for (int cc = 0; cc < getNumberOfCells(); cc++) {
+            List<Person> list = new LinkedList<>();
+            for (int ii = offsets[cc]; ii < offsets[cc + 1]; ii++) {
+                if (migrantEligible[ii])
+                    list.add(persons[ii]);
+            }
+            lists.add(list);
+        }
+        return lists;
+    }
+}
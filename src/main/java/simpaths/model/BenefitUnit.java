@@ -183,6 +183,18 @@ public class BenefitUnit implements EventListener, IDoubleSource, Weight, Compar
         }
     }
 
+    // USED BY EXPECTATIONS OBJECT TO REUSE A PROXY, AS IF CONSTRUCTED BY THE COPY CONSTRUCTOR FOR REGRESSION MODELS
+    public void resetRegressionProxy(BenefitUnit originalBenefitUnit) {
+        if (model != null)
+            throw new RuntimeException("reset of simulated benefit unit as proxy for regression models");
+        yearLocal = originalBenefitUnit.yearLocal;
+        occupancyLocal = originalBenefitUnit.occupancyLocal;
+        deh_c4Local = originalBenefitUnit.deh_c4Local;
+        region = originalBenefitUnit.region;
+        labourHoursWeekly1Local = null;
+        labourHoursWeekly2Local = null;
+    }
+
     // USED BY OTHER CONSTRUCTORS
     public BenefitUnit(Long id, long seed) {
         super();
@@ -191,7 +203,7 @@ public class BenefitUnit implements EventListener, IDoubleSource, Weight, Compar
         key  = new PanelEntityKey(id);        //Sets up key
 
         this.seed = seed;
-        innovations = new Innovations(9, seed);
+        innovations = new Innovations(9, seed, model != null && model.isCompactAgents());
 
         this.numberChildrenAll_lag1 = 0;
         this.numberChildren02_lag1 = 0;
@@ -233,7 +245,7 @@ public class BenefitUnit implements EventListener, IDoubleSource, Weight, Compar
     public BenefitUnit(Person p1, Person p2) {
 
         // initialise benefit unit
-        this(benefitUnitIdCounter++, (long)(p1.getBenefitUnitRandomUniform()*100000));
+        this(benefitUnitIdCounter++, p1.getNewAgentSeed(RandomStreams.Stream.Partnership, p1.getBenefitUnitRandomUniform()));
         region = p1.getRegion();
         if (region != p2.getRegion())
             throw new RuntimeException("ERROR - region of responsible male and female must match!");
@@ -258,8 +270,13 @@ public class BenefitUnit implements EventListener, IDoubleSource, Weight, Compar
     // Below is a "copy constructor" for benefitUnits: it takes an original benefit unit as input, changes the ID, copies
     // the rest of the benefit unit's properties, and creates a new benefit unit.
     public BenefitUnit(BenefitUnit originalBenefitUnit, long benefitUnitInnov, SampleEntry sampleEntry) {
+        this(originalBenefitUnit, benefitUnitIdCounter++, benefitUnitInnov, sampleEntry);
+    }
+
+    // copy constructor with the id of the new benefit unit given, for use where benefit units are cloned in parallel
+    public BenefitUnit(BenefitUnit originalBenefitUnit, long id, long benefitUnitInnov, SampleEntry sampleEntry) {
 
-        this(benefitUnitIdCounter++, benefitUnitInnov);
+        this(id, benefitUnitInnov);
         switch (sampleEntry) {
             case ProcessedInputData -> {
                 key.setId(originalBenefitUnit.getId());
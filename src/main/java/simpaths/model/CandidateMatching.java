@@ -0,0 +1,222 @@
+package simpaths.model;
+
+import microsim.matching.MatchingClosure;
+import microsim.matching.MatchingScoreClosure;
+import org.apache.commons.math3.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+
+/**
+ *
+ * CLASS TO MATCH TWO COLLECTIONS BY GLOBAL MATCHING OVER CANDIDATE PAIRS
+ *
+ * Global matching scores every pair of agents and matches pairs in ascending order of score, skipping pairs where
+ * either agent is already matched. Where the score is only finite for pairs that are within given bounds of each
+ * other in a two-dimensional space, only pairs within the bounds need to be scored. This class indexes the second
+ * collection in a grid of cells the size of the bounds, so that the candidates of each agent of the first
+ * collection are found in the nine cells around it.
+ *
+ * Coordinates are only used to select candidates, which are then scored by the score closure, so that matches do
+ * not depend on rounding of the coordinates. The bounds must therefore be such that any pair with a finite score
+ * lies within them. Pairs of equal score are matched in order of the first and then the second collection.
+ *
+ */
+public class CandidateMatching {
+
+    // relative margin added to the bounds, to allow for rounding differences between coordinates and scores
+    private static final double BOUND_MARGIN = 1.0E-9;
+
+    // minimum number of agents in the first collection for candidates to be scored in parallel
+    private static final int PARALLEL_THRESHOLD = 1000;
+
+    // bounds above which pruning is not worth indexing, as most pairs are candidates (as assumed by UnionMatching.evaluate)
+    private static final double PRUNING_BOUND = 100.;
+
+
+    /**
+     * Returns true if bounds are finite and small enough for matching over candidate pairs to score fewer pairs than
+     * matching over all pairs.
+     */
+    public static boolean prunes(double boundX, double boundY) {
+        return Double.isFinite(boundX) && Double.isFinite(boundY) && (boundX <= PRUNING_BOUND || boundY <= PRUNING_BOUND);
+    }
+
+    /**
+     * @param collection1 agents to match, e.g. males
+     * @param x1 first coordinate of agents in collection1
+     * @param y1 second coordinate of agents in collection1
+     * @param collection2 agents to match, e.g. females
+     * @param x2 first coordinate of agents in collection2
+     * @param y2 second coordinate of agents in collection2
+     * @param boundX score is infinite if the first coordinates differ by boundX or more
+     * @param boundY score is infinite if the second coordinates differ by boundY or more
+     * @param scoreClosure score of pairs, lowest matched first, with Double.POSITIVE_INFINITY for pairs not to match
+     * @param matchingClosure called for each match, in order of matching
+     * @return agents of each collection left unmatched
+     */
+    public static <T> Pair<Set<T>, Set<T>> matching(Collection<T> collection1, ToDoubleFunction<T> x1, ToDoubleFunction<T> y1,
+                                                    Collection<T> collection2, ToDoubleFunction<T> x2, ToDoubleFunction<T> y2,
+                                                    double boundX, double boundY,
+                                                    MatchingScoreClosure<T> scoreClosure, MatchingClosure<T> matchingClosure) {
+
+        List<T> list1 = new ArrayList<>(collection1);
+        List<T> list2 = new ArrayList<>(collection2);
+        Candidate[] candidates = candidates(list1, x1, y1, list2, x2, y2, boundX, boundY, scoreClosure);
+        Arrays.sort(candidates);
+
+        boolean[] matched1 = new boolean[list1.size()];
+        boolean[] matched2 = new boolean[list2.size()];
+        for (Candidate candidate : candidates) {
+            if (!matched1[candidate.index1] && !matched2[candidate.index2]) {
+                matched1[candidate.index1] = true;
+                matched2[candidate.index2] = true;
+                matchingClosure.match(list1.get(candidate.index1), list2.get(candidate.index2));
+            }
+        }
+
+        Set<T> unmatched1 = new LinkedHashSet<>();
+        for (int ii = 0; ii < list1.size(); ii++) {
+            if (!matched1[ii]) unmatched1.add(list1.get(ii));
+        }
+        Set<T> unmatched2 = new LinkedHashSet<>();
+        for (int ii = 0; ii < list2.size(); ii++) {
+            if (!matched2[ii]) unmatched2.add(list2.get(ii));
+        }
+        return new Pair<>(unmatched1, unmatched2);
+    }
+
+    private static <T> Candidate[] candidates(List<T> list1, ToDoubleFunction<T> x1, ToDoubleFunction<T> y1,
+                                              List<T> list2, ToDoubleFunction<T> x2, ToDoubleFunction<T> y2,
+                                              double boundX, double boundY, MatchingScoreClosure<T> scoreClosure) {
+
+        if (!(boundX > 0.0) || !(boundY > 0.0) || list1.isEmpty() || list2.isEmpty())
+            return new Candidate[0];
+        Grid grid = new Grid(boundX * (1.0 + BOUND_MARGIN), boundY * (1.0 + BOUND_MARGIN));
+        grid.index(list2, x2, y2);
+
+        Candidate[][] candidatesByAgent = new Candidate[list1.size()][];
+        IntStream range = IntStream.range(0, list1.size());
+        if (list1.size() >= PARALLEL_THRESHOLD)
+            range = range.parallel();
+        range.forEach(ii -> {
+            T agent = list1.get(ii);
+            double xx = x1.applyAsDouble(agent), yy = y1.applyAsDouble(agent);
+            List<Candidate> found = new ArrayList<>();
+            if (Double.isFinite(xx) && Double.isFinite(yy)) {
+                grid.forEachNear(xx, yy, jj -> {
+                    Double score = scoreClosure.getValue(agent, list2.get(jj));
+                    if (score != null && score < Double.POSITIVE_INFINITY)
+                        found.add(new Candidate(score, ii, jj));
+                });
+            }
+            candidatesByAgent[ii] = found.toArray(new Candidate[0]);
+        });
+
+        int nCandidates = 0;
+        for (Candidate[] found : candidatesByAgent) nCandidates += found.length;
+        Candidate[] candidates = new Candidate[nCandidates];
+        int pos = 0;
+        for (Candidate[] found : candidatesByAgent) {
+            System.arraycopy(found, 0, candidates, pos, found.length);
+            pos += found.length;
+        }
+        return candidates;
+    }
+
+
+    /**
+     * Pair of agents with a finite score, ordered by score and then by position of the agents in their collections.
+     */
+    private record Candidate(double score, int index1, int index2) implements Comparable<Candidate> {
+
+        @Override
+        public int compareTo(Candidate other) {
+            int cc = Double.compare(score, other.score);
+            if (cc == 0) cc = Integer.compare(index1, other.index1);
+            if (cc == 0) cc = Integer.compare(index2, other.index2);
+            return cc;
+        }
+    }
+
+    /**
+     * Grid of agents by cell, with agents sorted by cell so that each cell is a range of the sorted arrays.
+     */
+    private static class Grid {
+
+        private final double cellX;
+        private final double cellY;
+        private long[] cellKeys;        // cell of each indexed agent, in ascending order
+        private int[] agents;           // index of each agent, sorted by cell
+
+        Grid(double cellX, double cellY) {
+            this.cellX = cellX;
+            this.cellY = cellY;
+        }
+
+        private static int cell(double value, double cellSize) {
+            double cell = Math.floor(value / cellSize);
+            if (Double.isNaN(cell)) return 0;       // infinite cell size
+            return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE - 1, cell));
+        }
+
+        private static long key(int cx, int cy) {
+            return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+        }
+
+        <T> void index(List<T> list, ToDoubleFunction<T> x, ToDoubleFunction<T> y) {
+
+            // agents with finite coordinates, and their cells
+            int[] indices = new int[list.size()];
+            long[] keys = new long[list.size()];
+            int nn = 0;
+            for (int jj = 0; jj < list.size(); jj++) {
+                double xx = x.applyAsDouble(list.get(jj)), yy = y.applyAsDouble(list.get(jj));
+                if (Double.isFinite(xx) && Double.isFinite(yy)) {
+                    indices[nn] = jj;
+                    keys[nn] = key(cell(xx, cellX), cell(yy, cellY));
+                    nn++;
+                }
+            }
+
+            // sort by cell
+            Integer[] order = new Integer[nn];
+            for (int ii = 0; ii < nn; ii++) order[ii] = ii;
+            Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+            cellKeys = new long[nn];
+            agents = new int[nn];
+            for (int ii = 0; ii < nn; ii++) {
+                cellKeys[ii] = keys[order[ii]];
+                agents[ii] = indices[order[ii]];
+            }
+        }
+
+        /**
+         * Calls the consumer for each indexed agent in the cells within one cell of the coordinates, which include
+         * all agents whose coordinates differ by less than the cell sizes.
+         */
+        void forEachNear(double xx, double yy, IntConsumer consumer) {
+
+            int cx = cell(xx, cellX), cy = cell(yy, cellY);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    long key = key(cx + dx, cy + dy);
+                    int pos = Arrays.binarySearch(cellKeys, key);
+                    if (pos < 0) continue;
+                    while (pos > 0 && cellKeys[pos - 1] == key) pos--;
+                    for (; pos < cellKeys.length && cellKeys[pos] == key; pos++) {
+                        consumer.accept(agents[pos]);
+                    }
+                }
+            }
+        }
+    }
+}
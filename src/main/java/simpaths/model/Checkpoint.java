@@ -0,0 +1,898 @@
+package simpaths.model;
+
+import microsim.data.MultiKeyCoefficientMap;
+import microsim.engine.SimulationEngine;
+import microsim.engine.SimulationManager;
+import org.apache.commons.collections4.keyvalue.MultiKey;
+import org.apache.commons.collections4.map.AbstractHashedMap;
+import org.apache.commons.collections4.map.AbstractMapDecorator;
+import org.apache.commons.collections4.map.MultiKeyMap;
+import org.apache.log4j.Category;
+import org.apache.log4j.Logger;
+import simpaths.data.Parameters;
+import simpaths.experiment.SimPathsCollector;
+import simpaths.model.enums.Country;
+import simpaths.model.enums.TimeSeriesVariable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+
+/**
+ *
+ * CLASS TO SAVE AND RESTORE THE STATE OF A SIMULATION
+ *
+ * A checkpoint holds the state of a simulation at the end of a simulated year: the simulated population with all of
+ * its fields (including the random number generators of each agent), the state fields of SimPathsModel listed in
+ * MODEL_STATE (including the model random number generators), the random number generator of the simulation
+ * engine, the static counters of the entity classes, the alignment adjustments of the time series held by Parameters
+ * (listed in ALIGNMENT_ADJUSTMENTS), and the statistics of SimPathsCollector listed in COLLECTOR_STATE.
+ *
+ * A simulation that resumes from a checkpoint (see the resumeFromCheckpoint parameter of SimPathsModel) loads
+ * parameters as usual, so that scenarios can vary any parameter from the year after the checkpoint, but takes its
+ * population and model state from the checkpoint instead of the input database. Without any change to parameters,
+ * a resumed simulation reproduces the simulation from which the checkpoint was saved.
+ *
+ * Objects are written field by field, with references between objects preserved. On reading, each object is
+ * created by the no-arg constructor of its class (or, for classes of the simulated state without one, by its factory
+ * in FACTORIES), and its fields are then set from the checkpoint. Collections and maps are written as their elements,
+ * and are refilled once all objects have been read, as the hash codes of entities depend on their keys.
+ *
+ */
+public class Checkpoint {
+
+    public static final String FILE_EXTENSION = ".spk";
+    private static final int MAGIC = 0x5350434B;        // "SPCK"
+    private static final int FORMAT_VERSION = 2;
+
+    // fields of SimPathsModel that describe the simulated state, as distinct from parameters of the scenario
+    static final String[] MODEL_STATE = {"year", "persons", "benefitUnits", "households", "personsToMatch",
+            "personsToMatch2", "marriageTargetsByGenderAndRegion", "marriageTargetsByKey", "scalingFactor",
+            "initialHoursWorkedWeekly", "labourMarket", "policyNameIncomeMedianMap", "tests", "matches",
+            "cohabitInnov", "initialiseInnov1", "initialiseInnov2", "popAlignInnov", "educationInnov",
+            "randomStreamSeed", "lastInSchoolAdjustment", "lastPartnershipAdjustment", "lastFertilityAdjustment",
+            "lastRetirementAdjustment", "lastDisabilityAdjustment", "tmpPeopleAssigned", "lowEd", "medEd",
+            "highEd", "naEd", "nothing"};
+
+    // time series of Parameters that are adjusted by the alignments of the simulation
+    static final EnumSet<TimeSeriesVariable> ALIGNMENT_ADJUSTMENTS = EnumSet.of(TimeSeriesVariable.CareProvisionAdjustment,
+            TimeSeriesVariable.PartnershipAdjustment, TimeSeriesVariable.FertilityAdjustment,
+            TimeSeriesVariable.DisabilityAdjustment, TimeSeriesVariable.UtilityAdjustment,
+            TimeSeriesVariable.UtilityAdjustmentSingleMales, TimeSeriesVariable.UtilityAdjustmentACMales,
+            TimeSeriesVariable.UtilityAdjustmentSingleFemales, TimeSeriesVariable.UtilityAdjustmentACFemales,
+            TimeSeriesVariable.UtilityAdjustmentCouples, TimeSeriesVariable.UtilityAdjustmentMaleWithDep,
+            TimeSeriesVariable.UtilityAdjustmentFemaleWithDep, TimeSeriesVariable.RetirementAdjustment,
+            TimeSeriesVariable.InSchoolAdjustment);
+
+    // fields of SimPathsCollector that hold statistics of the simulated population
+    static final String[] COLLECTOR_STATE = {"stats", "stats2", "alignmentAdjustmentFactors", "sIndexMedianForNormalisation"};
+
+    // classes of the simulated state without a no-arg constructor, created by these factories before their fields are set
+    private static final Map<Class<?>, Supplier<Object>> FACTORIES = Map.of(
+            Innovations.class, () -> new Innovations(0, 0L));
+
+    // classes with static counters that are advanced during the simulation
+    private static final Class<?>[] ENTITY_CLASSES = {Person.class, BenefitUnit.class, Household.class};
+
+    // value tags
+    private static final byte NULL = 0, REF = 1, BOOLEAN = 2, BYTE = 3, SHORT = 4, CHAR = 5, INT = 6, LONG = 7,
+            FLOAT = 8, DOUBLE = 9, STRING = 10, ENUM = 11, CLASS = 12, ARRAY = 13, COLLECTION = 14, MAP = 15,
+            ENUM_SET = 16, ENUM_MAP = 17, MULTI_KEY = 18, MULTI_KEY_MAP = 19, RECORD = 20, OBJECT = 21,
+            SERIALIZED = 22, MANAGER = 23, LOGGER = 24;
+
+    private final Country country;
+    private final int startYear;
+    private final int popSize;
+    private final int year;
+    private final Map<String, Object> modelState;
+    private final Random engineRandom;
+    private final Map<String, Object> entityStatics;
+    private final Map<String, Object> timeSeries;
+    private final Map<String, Object> collectorState;
+
+
+    private Checkpoint(Country country, int startYear, int popSize, int year, Map<String, Object> modelState,
+                       Random engineRandom, Map<String, Object> entityStatics, Map<String, Object> timeSeries, Map<String, Object> collectorState) {
+        this.country = country;
+        this.startYear = startYear;
+        this.popSize = popSize;
+        this.year = year;
+        this.modelState = modelState;
+        this.engineRandom = engineRandom;
+        this.entityStatics = entityStatics;
+        this.timeSeries = timeSeries;
+        this.collectorState = collectorState;
+    }
+
+    public Country getCountry() {
+        return country;
+    }
+
+    public int getStartYear() {
+        return startYear;
+    }
+
+    public int getPopSize() {
+        return popSize;
+    }
+
+    /**
+     * @return the first year to simulate when resuming from the checkpoint
+     */
+    public int getYear() {
+        return year;
+    }
+
+
+    /**
+     * Saves the current state of the simulation. To be called after all events of a year have been processed, when
+     * the year of the model has already been advanced to the next year.
+     */
+    public static void save(SimPathsModel model, SimPathsCollector collector, File file) {
+
+        long timerStart = System.currentTimeMillis();
+        try {
+            Map<String, Object> modelState = new LinkedHashMap<>();
+            for (String name : MODEL_STATE) {
+                modelState.put(name, field(SimPathsModel.class, name).get(model));
+            }
+            Map<String, Object> entityStatics = new LinkedHashMap<>();
+            for (Class<?> clazz : ENTITY_CLASSES) {
+                for (Field field : staticCounters(clazz)) {
+                    entityStatics.put(clazz.getSimpleName() + "." + field.getName(), field.get(null));
+                }
+            }
+            Map<String, Object> timeSeries = new LinkedHashMap<>();
+            for (TimeSeriesVariable variable : TimeSeriesVariable.values()) {
+                MultiKeyCoefficientMap map = Parameters.getTimeSeriesValueMap(variable);
+                if (ALIGNMENT_ADJUSTMENTS.contains(variable) && map != null)
+                    timeSeries.put(variable.name(), map);
+            }
+            Map<String, Object> collectorState = new LinkedHashMap<>();
+            if (collector != null) {
+                for (Field field : collectorStatistics()) {
+                    collectorState.put(field.getName(), field.get(collector));
+                }
+            }
+
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (!dir.exists() && !dir.mkdirs())
+                throw new IOException("unable to create directory " + dir);
+            File temp = File.createTempFile(file.getName(), ".tmp", dir);
+            try {
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(new FileOutputStream(temp), deflater, 1 << 16), 1 << 16))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeUTF(model.getCountry().name());
+                    out.writeInt(model.getStartYear());
+                    out.writeInt(model.getPopSize());
+                    out.writeInt(model.getYear());
+                    StateWriter writer = new StateWriter(out);
+                    writer.writeSection(modelState);
+                    writer.write(SimulationEngine.getRnd());
+                    writer.writeSection(entityStatics);
+                    writer.writeSection(timeSeries);
+                    writer.writeSection(collectorState);
+                } finally {
+                    deflater.end();
+                }
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+        } catch (IOException | IllegalAccessException e) {
+            throw new RuntimeException("Unable to save checkpoint " + file + ": " + e.getMessage(), e);
+        }
+        System.out.println("Saved checkpoint " + file + " in " + (System.currentTimeMillis() - timerStart) / 1000.0 + " seconds");
+    }
+
+    /**
+     * Reads a checkpoint. Managers of the simulation engine referenced by the saved state (e.g. by each agent) are
+     * resolved to the managers of the current simulation, which must therefore have been added to the engine.
+     */
+    public static Checkpoint read(File file) {
+
+        long timerStart = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(file), new Inflater(), 1 << 16), 1 << 16))) {
+
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+                throw new IOException("not a checkpoint of the current format");
+            Country country = Country.valueOf(in.readUTF());
+            int startYear = in.readInt();
+            int popSize = in.readInt();
+            int year = in.readInt();
+            StateReader reader = new StateReader(in);
+            Map<String, Object> modelState = reader.readSection();
+            Random engineRandom = (Random) reader.read();
+            Map<String, Object> entityStatics = reader.readSection();
+            Map<String, Object> timeSeries = reader.readSection();
+            Map<String, Object> collectorState = reader.readSection();
+            reader.fillCollections();
+
+            System.out.println("Loaded checkpoint " + file + " for year " + year + " in " + (System.currentTimeMillis() - timerStart) / 1000.0 + " seconds");
+            return new Checkpoint(country, startYear, popSize, year, modelState, engineRandom, entityStatics, timeSeries, collectorState);
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new RuntimeException("Unable to read checkpoint " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Restores the state of the model, the random number generator of the simulation engine, the static counters of
+     * the entity classes, and the alignment adjustments of Parameters. To be called once parameters have been loaded.
+     */
+    public void restoreModel(SimPathsModel model) {
+
+        try {
+            for (Map.Entry<String, Object> entry : modelState.entrySet()) {
+                field(SimPathsModel.class, entry.getKey()).set(model, entry.getValue());
+            }
+            restoreEngineRandom(engineRandom);
+            for (Class<?> clazz : ENTITY_CLASSES) {
+                for (Field field : staticCounters(clazz)) {
+                    String key = clazz.getSimpleName() + "." + field.getName();
+                    if (entityStatics.containsKey(key))
+                        field.set(null, entityStatics.get(key));
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Unable to restore model state from checkpoint: " + e.getMessage(), e);
+        }
+        for (Map.Entry<String, Object> entry : timeSeries.entrySet()) {
+            MultiKeyCoefficientMap map = Parameters.getTimeSeriesValueMap(TimeSeriesVariable.valueOf(entry.getKey()));
+            map.clear();
+            map.putAll((MultiKeyCoefficientMap) entry.getValue());
+        }
+    }
+
+    /**
+     * Restores the statistics of the collector. Values are copied into the statistics objects of the collector, which
+     * are referenced by its exports, and statistics held in fields of primitive type are set directly.
+     */
+    public void restoreCollector(SimPathsCollector collector) {
+
+        try {
+            for (Field field : collectorStatistics()) {
+                Object saved = collectorState.get(field.getName());
+                if (isValueType(field.getType())) {
+                    if (saved != null)
+                        field.set(collector, saved);
+                    continue;
+                }
+                Object current = field.get(collector);
+                if (saved == null || current == null || saved.getClass() != current.getClass())
+                    continue;
+                for (Field statistic : instanceFields(saved.getClass())) {
+                    statistic.set(current, statistic.get(saved));
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Unable to restore collector state from checkpoint: " + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Returns a copy of state, as written to and read from a checkpoint.
+     */
+    static Map<String, Object> copy(Map<String, Object> state) throws IOException, ReflectiveOperationException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            new StateWriter(out).writeSection(state);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            StateReader reader = new StateReader(in);
+            Map<String, Object> copy = reader.readSection();
+            reader.fillCollections();
+            return copy;
+        }
+    }
+
+
+    /**
+     * Replaces the random number generator of the simulation engine, returned by SimulationEngine.getRnd(), by the
+     * generator read from the checkpoint.
+     */
+    private static void restoreEngineRandom(Random random) throws IllegalAccessException {
+
+        Random current = SimulationEngine.getRnd();
+        for (Field field : SimulationEngine.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType().isInstance(random)) {
+                field.setAccessible(true);
+                if (field.get(null) == current) {
+                    field.set(null, random);
+                    return;
+                }
+            }
+        }
+        throw new IllegalStateException("random number generator of the simulation engine not found");
+    }
+
+    private static List<Field> staticCounters(Class<?> clazz) {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : clazz.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers) && isValueType(field.getType())) {
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private static List<Field> collectorStatistics() {
+        List<Field> fields = new ArrayList<>();
+        for (String name : COLLECTOR_STATE) {
+            fields.add(field(SimPathsCollector.class, name));
+        }
+        return fields;
+    }
+
+    private static boolean isValueType(Class<?> type) {
+        return type.isPrimitive() || type == String.class || Number.class.isAssignableFrom(type) || type == Boolean.class || type == Character.class;
+    }
+
+    private static Field field(Class<?> clazz, String name) {
+        try {
+            Field field = clazz.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new RuntimeException("Checkpoint state refers to missing field " + clazz.getSimpleName() + "." + name, e);
+        }
+    }
+
+    private static final Map<Class<?>, List<Field>> instanceFieldCache = new HashMap<>();
+
+    /**
+     * Returns the instance fields of a class and its superclasses, or null if the class extends a class of the JDK
+     * (other than Object), whose fields cannot be accessed.
+     */
+    private static synchronized List<Field> instanceFields(Class<?> clazz) {
+
+        if (instanceFieldCache.containsKey(clazz))
+            return instanceFieldCache.get(clazz);
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> cc = clazz; cc != Object.class; cc = cc.getSuperclass()) {
+            if (isJdkClass(cc)) {
+                fields = null;
+                break;
+            }
+            for (Field field : cc.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        }
+        instanceFieldCache.put(clazz, fields);
+        return fields;
+    }
+
+    private static boolean isJdkClass(Class<?> clazz) {
+        String name = clazz.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") || name.startsWith("sun.");
+    }
+
+    private static boolean isRestorable(Class<?> clazz) {
+        if (FACTORIES.containsKey(clazz))
+            return true;
+        try {
+            clazz.getDeclaredConstructor();
+            return !clazz.isMemberClass() || Modifier.isStatic(clazz.getModifiers());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static boolean hasPublicConstructor(Class<?> clazz) {
+        try {
+            clazz.getConstructor();
+            return !clazz.isMemberClass() || Modifier.isStatic(clazz.getModifiers());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Writes values with tags, and objects with handles that preserve references between them.
+     */
+    private static class StateWriter {
+
+        private final DataOutputStream out;
+        private final Map<Object, Integer> handles = new IdentityHashMap<>();
+        private final Map<Class<?>, Integer> classes = new HashMap<>();
+        private final Set<Class<?>> layouts = new HashSet<>();
+        private final Field decoratedMap;
+
+        StateWriter(DataOutputStream out) {
+            this.out = out;
+            decoratedMap = field(AbstractMapDecorator.class, "map");
+        }
+
+        void writeSection(Map<String, Object> section) throws IOException {
+            out.writeInt(section.size());
+            for (Map.Entry<String, Object> entry : section.entrySet()) {
+                out.writeUTF(entry.getKey());
+                write(entry.getValue());
+            }
+        }
+
+        private void writeClass(Class<?> clazz) throws IOException {
+            Integer code = classes.get(clazz);
+            if (code != null) {
+                out.writeInt(code);
+            } else {
+                classes.put(clazz, classes.size());
+                out.writeInt(-1);
+                out.writeUTF(clazz.getName());
+            }
+        }
+
+        private boolean writeReference(Object value) throws IOException {
+            Integer handle = handles.get(value);
+            if (handle != null) {
+                out.writeByte(REF);
+                out.writeInt(handle);
+                return true;
+            }
+            handles.put(value, handles.size());
+            return false;
+        }
+
+        void write(Object value) throws IOException {
+
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof Boolean bb) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean(bb);
+            } else if (value instanceof Byte bb) {
+                out.writeByte(BYTE);
+                out.writeByte(bb);
+            } else if (value instanceof Short ss) {
+                out.writeByte(SHORT);
+                out.writeShort(ss);
+            } else if (value instanceof Character cc) {
+                out.writeByte(CHAR);
+                out.writeChar(cc);
+            } else if (value instanceof Integer ii) {
+                out.writeByte(INT);
+                out.writeInt(ii);
+            } else if (value instanceof Long ll) {
+                out.writeByte(LONG);
+                out.writeLong(ll);
+            } else if (value instanceof Float ff) {
+                out.writeByte(FLOAT);
+                out.writeFloat(ff);
+            } else if (value instanceof Double dd) {
+                out.writeByte(DOUBLE);
+                out.writeDouble(dd);
+            } else if (value instanceof String ss) {
+                out.writeByte(STRING);
+                writeString(ss);
+            } else if (value instanceof Enum<?> ee) {
+                out.writeByte(ENUM);
+                writeClass(ee.getDeclaringClass());
+                out.writeUTF(ee.name());
+            } else if (value instanceof Class<?> cc) {
+                out.writeByte(CLASS);
+                out.writeUTF(cc.getName());
+            } else if (value instanceof SimulationManager) {
+                out.writeByte(MANAGER);
+                out.writeUTF(value.getClass().getCanonicalName());
+            } else if (value instanceof Category logger) {
+                out.writeByte(LOGGER);
+                out.writeUTF(logger.getName());
+            } else if (!writeReference(value)) {
+                writeObject(value);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            // writeUTF is limited to 64KB
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeObject(Object value) throws IOException {
+
+            Class<?> clazz = value.getClass();
+            if (clazz.isArray()) {
+                out.writeByte(ARRAY);
+                writeClass(clazz.getComponentType());
+                int length = Array.getLength(value);
+                out.writeInt(length);
+                if (value instanceof double[] dd) {
+                    for (double d : dd) out.writeDouble(d);
+                } else if (value instanceof int[] ii) {
+                    for (int i : ii) out.writeInt(i);
+                } else if (value instanceof long[] ll) {
+                    for (long l : ll) out.writeLong(l);
+                } else if (value instanceof boolean[] bb) {
+                    for (boolean b : bb) out.writeBoolean(b);
+                } else if (value instanceof byte[] bb) {
+                    out.write(bb);
+                } else if (clazz.getComponentType().isPrimitive()) {
+                    for (int ii = 0; ii < length; ii++) write(Array.get(value, ii));
+                } else {
+                    for (Object element : (Object[]) value) write(element);
+                }
+            } else if (value instanceof EnumSet<?> set && !set.isEmpty()) {
+                out.writeByte(ENUM_SET);
+                writeClass(set.iterator().next().getDeclaringClass());
+                writeElements(set);
+            } else if (value instanceof EnumMap<?, ?> map && !map.isEmpty()) {
+                out.writeByte(ENUM_MAP);
+                writeClass(map.keySet().iterator().next().getDeclaringClass());
+                writeEntries(map);
+            } else if (value instanceof MultiKey<?> key) {
+                out.writeByte(MULTI_KEY);
+                write(key.getKeys());
+            } else if (clazz == MultiKeyMap.class) {
+                out.writeByte(MULTI_KEY_MAP);
+                try {
+                    Object map = decoratedMap.get(value);
+                    writeClass(map.getClass());
+                } catch (IllegalAccessException e) {
+                    throw new IOException(e);
+                }
+                writeEntries((Map<?, ?>) value);
+            } else if (value instanceof Collection<?> collection && hasPublicConstructor(clazz) && !hasComparator(value)) {
+                out.writeByte(COLLECTION);
+                writeClass(clazz);
+                writeElements(collection);
+            } else if (value instanceof Map<?, ?> map && hasPublicConstructor(clazz) && !hasComparator(value) && !(value instanceof MultiKeyMap)) {
+                out.writeByte(MAP);
+                writeClass(clazz);
+                writeEntries(map);
+            } else if (clazz.isRecord()) {
+                out.writeByte(RECORD);
+                writeClass(clazz);
+                try {
+                    for (RecordComponent component : clazz.getRecordComponents()) {
+                        component.getAccessor().setAccessible(true);
+                        write(component.getAccessor().invoke(value));
+                    }
+                } catch (ReflectiveOperationException e) {
+                    throw new IOException(e);
+                }
+            } else if (!(value instanceof Collection) && !(value instanceof Map) && !clazz.isSynthetic() && !clazz.isHidden() && instanceFields(clazz) != null && isRestorable(clazz)) {
+                out.writeByte(OBJECT);
+                writeClass(clazz);
+                List<Field> fields = instanceFields(clazz);
+                boolean newLayout = layouts.add(clazz);
+                out.writeBoolean(newLayout);
+                if (newLayout) {
+                    // field layout, checked on reading
+                    out.writeInt(fields.size());
+                    for (Field field : fields) out.writeUTF(field.getName());
+                }
+                try {
+                    for (Field field : fields) write(field.get(value));
+                } catch (IllegalAccessException e) {
+                    throw new IOException(e);
+                }
+            } else if (value instanceof Serializable) {
+                out.writeByte(SERIALIZED);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+                    objectOut.writeObject(value);
+                }
+                out.writeInt(bytes.size());
+                bytes.writeTo(out);
+            } else {
+                throw new IOException("unable to save object of " + clazz);
+            }
+        }
+
+        private static boolean hasComparator(Object value) {
+            return (value instanceof SortedSet<?> set && set.comparator() != null) || (value instanceof SortedMap<?, ?> map && map.comparator() != null);
+        }
+
+        private void writeElements(Collection<?> collection) throws IOException {
+            out.writeInt(collection.size());
+            for (Object element : collection) write(element);
+        }
+
+        private void writeEntries(Map<?, ?> map) throws IOException {
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                write(entry.getKey());
+                write(entry.getValue());
+            }
+        }
+    }
+
+
+    /**
+     * Reads values written by StateWriter.
+     */
+    private static class StateReader {
+
+        private final DataInputStream in;
+        private final List<Object> handles = new ArrayList<>();
+        private final List<Class<?>> classes = new ArrayList<>();
+        private final Map<Class<?>, List<Field>> layouts = new HashMap<>();
+        private final List<Runnable> fills = new ArrayList<>();
+        private final Map<Class<?>, Constructor<?>> constructors = new HashMap<>();
+
+        StateReader(DataInputStream in) {
+            this.in = in;
+        }
+
+        Map<String, Object> readSection() throws IOException, ReflectiveOperationException {
+            int size = in.readInt();
+            Map<String, Object> section = new LinkedHashMap<>();
+            for (int ii = 0; ii < size; ii++) {
+                String name = in.readUTF();
+                section.put(name, read());
+            }
+            return section;
+        }
+
+        /**
+         * Fills collections and maps once all objects are complete. Collections are filled in reverse order of
+         * reading, so that collections nested in others are filled first.
+         */
+        void fillCollections() {
+            for (int ii = fills.size() - 1; ii >= 0; ii--) {
+                fills.get(ii).run();
+            }
+            fills.clear();
+        }
+
+        private Class<?> readClass() throws IOException, ClassNotFoundException {
+            int code = in.readInt();
+            if (code >= 0)
+                return classes.get(code);
+            String name = in.readUTF();
+            Class<?> clazz = switch (name) {
+                case "boolean" -> boolean.class;
+                case "byte" -> byte.class;
+                case "short" -> short.class;
+                case "char" -> char.class;
+                case "int" -> int.class;
+                case "long" -> long.class;
+                case "float" -> float.class;
+                case "double" -> double.class;
+                default -> Class.forName(name, false, Checkpoint.class.getClassLoader());
+            };
+            classes.add(clazz);
+            return clazz;
+        }
+
+        private int register(Object value) {
+            handles.add(value);
+            return handles.size() - 1;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Object read() throws IOException, ReflectiveOperationException {
+
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL: return null;
+                case REF: return handles.get(in.readInt());
+                case BOOLEAN: return in.readBoolean();
+                case BYTE: return in.readByte();
+                case SHORT: return in.readShort();
+                case CHAR: return in.readChar();
+                case INT: return in.readInt();
+                case LONG: return in.readLong();
+                case FLOAT: return in.readFloat();
+                case DOUBLE: return in.readDouble();
+                case STRING: {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    return new String(bytes, StandardCharsets.UTF_8);
+                }
+                case ENUM: {
+                    Class enumClass = readClass();
+                    return Enum.valueOf(enumClass, in.readUTF());
+                }
+                case CLASS: return Class.forName(in.readUTF(), false, Checkpoint.class.getClassLoader());
+                case MANAGER: {
+                    String name = in.readUTF();
+                    Object manager = SimulationEngine.getInstance().getManager(name);
+                    if (manager == null)
+                        throw new IOException("no manager " + name + " in the simulation engine");
+                    return manager;
+                }
+                case LOGGER: return Logger.getLogger(in.readUTF());
+                case ARRAY: {
+                    Class<?> componentType = readClass();
+                    int length = in.readInt();
+                    Object array = Array.newInstance(componentType, length);
+                    register(array);
+                    if (array instanceof double[] dd) {
+                        for (int ii = 0; ii < length; ii++) dd[ii] = in.readDouble();
+                    } else if (array instanceof int[] ii) {
+                        for (int jj = 0; jj < length; jj++) ii[jj] = in.readInt();
+                    } else if (array instanceof long[] ll) {
+                        for (int ii = 0; ii < length; ii++) ll[ii] = in.readLong();
+                    } else if (array instanceof boolean[] bb) {
+                        for (int ii = 0; ii < length; ii++) bb[ii] = in.readBoolean();
+                    } else if (array instanceof byte[] bb) {
+                        in.readFully(bb);
+                    } else {
+                        for (int ii = 0; ii < length; ii++) Array.set(array, ii, read());
+                    }
+                    return array;
+                }
+                case ENUM_SET: {
+                    Class enumClass = readClass();
+                    EnumSet set = EnumSet.noneOf(enumClass);
+                    register(set);
+                    List<Object> elements = readElements();
+                    fills.add(() -> set.addAll(elements));
+                    return set;
+                }
+                case ENUM_MAP: {
+                    Class enumClass = readClass();
+                    EnumMap map = new EnumMap(enumClass);
+                    register(map);
+                    List<Object> entries = readEntries();
+                    fills.add(() -> putEntries(map, entries));
+                    return map;
+                }
+                case MULTI_KEY: {
+                    int handle = register(null);
+                    MultiKey<?> key = new MultiKey<>((Object[]) read(), false);
+                    handles.set(handle, key);
+                    return key;
+                }
+                case MULTI_KEY_MAP: {
+                    Class<?> mapClass = readClass();
+                    MultiKeyMap map = MultiKeyMap.multiKeyMap((AbstractHashedMap) mapClass.getConstructor().newInstance());
+                    register(map);
+                    List<Object> entries = readEntries();
+                    fills.add(() -> putEntries(map, entries));
+                    return map;
+                }
+                case COLLECTION: {
+                    Class<?> collectionClass = readClass();
+                    Collection collection = (Collection) collectionClass.getConstructor().newInstance();
+                    register(collection);
+                    List<Object> elements = readElements();
+                    fills.add(() -> collection.addAll(elements));
+                    return collection;
+                }
+                case MAP: {
+                    Class<?> mapClass = readClass();
+                    Map map = (Map) mapClass.getConstructor().newInstance();
+                    register(map);
+                    List<Object> entries = readEntries();
+                    fills.add(() -> putEntries(map, entries));
+                    return map;
+                }
+                case RECORD: {
+                    Class<?> recordClass = readClass();
+                    int handle = register(null);
+                    RecordComponent[] components = recordClass.getRecordComponents();
+                    Class<?>[] types = new Class<?>[components.length];
+                    Object[] values = new Object[components.length];
+                    for (int ii = 0; ii < components.length; ii++) {
+                        types[ii] = components[ii].getType();
+                        values[ii] = read();
+                    }
+                    Constructor<?> constructor = recordClass.getDeclaredConstructor(types);
+                    constructor.setAccessible(true);
+                    Object record = constructor.newInstance(values);
+                    handles.set(handle, record);
+                    return record;
+                }
+                case OBJECT: {
+                    Class<?> clazz = readClass();
+                    if (in.readBoolean()) {
+                        List<Field> fields = instanceFields(clazz);
+                        int nFields = in.readInt();
+                        boolean matches = fields != null && fields.size() == nFields;
+                        for (int ii = 0; ii < nFields; ii++) {
+                            String name = in.readUTF();
+                            matches = matches && fields.get(ii).getName().equals(name);
+                        }
+                        if (!matches)
+                            throw new IOException("fields of " + clazz.getName() + " have changed since the checkpoint was saved");
+                        layouts.put(clazz, fields);
+                    }
+                    Object object = allocate(clazz);
+                    register(object);
+                    for (Field field : layouts.get(clazz)) {
+                        field.set(object, read());
+                    }
+                    return object;
+                }
+                case SERIALIZED: {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                        Object object = objectIn.readObject();
+                        register(object);
+                        return object;
+                    }
+                }
+                default: throw new IOException("corrupt checkpoint: unknown tag " + tag);
+            }
+        }
+
+        /**
+         * Creates an instance by the factory of its class, or its no-arg constructor, whose fields are then set from
+         * the checkpoint.
+         */
+        private Object allocate(Class<?> clazz) throws ReflectiveOperationException {
+            Supplier<Object> factory = FACTORIES.get(clazz);
+            if (factory != null)
+                return factory.get();
+            Constructor<?> constructor = constructors.get(clazz);
+            if (constructor == null) {
+                constructor = clazz.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                constructors.put(clazz, constructor);
+            }
+            return constructor.newInstance();
+        }
+
+        private List<Object> readElements() throws IOException, ReflectiveOperationException {
+            int size = in.readInt();
+            List<Object> elements = new ArrayList<>(size);
+            for (int ii = 0; ii < size; ii++) elements.add(read());
+            return elements;
+        }
+
+        private List<Object> readEntries() throws IOException, ReflectiveOperationException {
+            int size = in.readInt();
+            List<Object> entries = new ArrayList<>(2 * size);
+            for (int ii = 0; ii < 2 * size; ii++) entries.add(read());
+            return entries;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static void putEntries(Map map, List<Object> entries) {
+            for (int ii = 0; ii < entries.size(); ii += 2) {
+                map.put(entries.get(ii), entries.get(ii + 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package simpaths.model;
+
+import microsim.event.EventGroup;
+import microsim.event.EventListener;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ *
+ * CLASS TO PROFILE THE EVENTS OF THE SIMULATION SCHEDULE
+ *
+ * A mark is added to the schedule before each event, and after the last event of the schedule. Each mark closes the
+ * interval of the previous event and opens the interval of the next, so that the wall time, CPU time and bytes
+ * allocated of each event are recorded by simulated year, without wrapping the events themselves.
+ *
+ * CPU time and allocations are those of the whole process, so that work done by parallel streams is attributed to
+ * the event that started it. CPU time includes garbage collection, and allocations are those of live threads.
+ *
+ */
+public class EventProfiler {
+
+    public enum Processes {
+        Mark,
+    }
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+    private final Map<Integer, Map<String, long[]>> profileByYear = new TreeMap<>();    // {wall ns, cpu ns, bytes, calls} by event
+
+    private String openEvent;
+    private int openYear;
+    private long openWall, openCpu, openAllocated;
+
+
+    public EventProfiler() {
+        if (threadBean instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported())
+            bean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * adds a mark to the schedule, to open the interval of the event that follows
+     * @param schedule event group to which the event that follows is added
+     * @param model source of the simulated year
+     * @param type type of the event that follows, or null after the last event
+     */
+    public void mark(EventGroup schedule, SimPathsModel model, Enum<?> type) {
+        schedule.addEvent(new Mark(model, (type == null) ? null : label(type)), Processes.Mark);
+    }
+
+    private static String label(Enum<?> type) {
+        Class<?> owner = type.getDeclaringClass().getEnclosingClass();
+        return ((owner == null) ? "" : owner.getSimpleName() + ".") + type.name();
+    }
+
+    private synchronized void record(String nextEvent, int year) {
+
+        long wall = System.nanoTime();
+        long cpu = processCpuTime();
+        long allocated = allocatedBytes();
+        if (openEvent != null) {
+            long[] profile = profileByYear.computeIfAbsent(openYear, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(openEvent, k -> new long[4]);
+            profile[0] += wall - openWall;
+            profile[1] += Math.max(cpu - openCpu, 0L);
+            profile[2] += Math.max(allocated - openAllocated, 0L);
+            profile[3]++;
+        }
+        openEvent = nextEvent;
+        openYear = year;
+        openWall = System.nanoTime();
+        openCpu = processCpuTime();
+        openAllocated = allocatedBytes();
+    }
+
+    private long processCpuTime() {
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean bean)
+            return bean.getProcessCpuTime();
+        return threadBean.getCurrentThreadCpuTime();
+    }
+
+    private long allocatedBytes() {
+        if (threadBean instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemoryEnabled()) {
+            long total = 0L;
+            for (long bytes : bean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+                if (bytes > 0L) total += bytes;
+            }
+            return total;
+        }
+        return 0L;
+    }
+
+    /**
+     * writes the profile of each simulated year to a csv file, and prints the totals of each year
+     * @param file csv file, with a line for each event of each year
+     */
+    public synchronized void write(File file) {
+
+        file.getParentFile().mkdirs();
+        try (PrintWriter pw = new PrintWriter(new FileWriter(file))) {
+            pw.println("year,event,calls,wall_ms,cpu_ms,allocated_mb,wall_share");
+            for (Map.Entry<Integer, Map<String, long[]>> year : profileByYear.entrySet()) {
+
+                long wallYear = 0L, cpuYear = 0L, allocatedYear = 0L;
+                for (long[] profile : year.getValue().values()) {
+                    wallYear += profile[0];
+                    cpuYear += profile[1];
+                    allocatedYear += profile[2];
+                }
+                for (Map.Entry<String, long[]> event : year.getValue().entrySet()) {
+                    long[] profile = event.getValue();
+                    pw.printf("%d,%s,%d,%.1f,%.1f,%.1f,%.4f%n", year.getKey(), event.getKey(), profile[3],
+                            profile[0] / 1.0E6, profile[1] / 1.0E6, profile[2] / 1048576.0,
+                            (wallYear > 0L) ? (double) profile[0] / wallYear : 0.0);
+                }
+                System.out.printf("Profile of year %d: %.1f seconds wall, %.1f seconds CPU, %.0f MB allocated%n",
+                        year.getKey(), wallYear / 1.0E9, cpuYear / 1.0E9, allocatedYear / 1048576.0);
+            }
+            System.out.println("Event profile written to " + file.getPath());
+        } catch (IOException e) {
+            throw new RuntimeException("problem writing event profile to " + file.getPath() + ": " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Mark before an event of the schedule, with the label of the event.
+     */
+    private class Mark implements EventListener {
+
+        private final SimPathsModel model;
+        private final String nextEvent;
+
+        Mark(SimPathsModel model, String nextEvent) {
+            this.model = model;
+            this.nextEvent = nextEvent;
+        }
+
+        @Override
+        public void onEvent(Enum<?> type) {
+            record(nextEvent, model.getYear());
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package simpaths.model;
 
 import microsim.engine.SimulationEngine;
-import simpaths.data.IEvaluation;
+import simpaths.data.IThresholdEvaluation;
 import simpaths.data.Parameters;
 import simpaths.data.filters.FertileFilter;
 
@@ -17,8 +17,11 @@ import java.util.Set;
  * then the intercept is adjusted and the share re-evaluated.
  *
  * Importantly, the adjustment needs to be only found once. Modified intercepts can then be used in subsequent simulations.
+ *
+ * As the adjustment shifts the intercept of a single probit, the adjustment can also be solved from the thresholds of
+ * fertile women (see ThresholdAlignment).
  */
-public class FertilityAlignment implements IEvaluation {
+public class FertilityAlignment implements IThresholdEvaluation {
 
     private double targetFertilityRate;
     private Set<Person> persons;
@@ -54,6 +57,21 @@ public class FertilityAlignment implements IEvaluation {
     }
 
 
+    @Override
+    public double getTargetShare() {
+        return targetFertilityRate;
+    }
+
+    @Override
+    public double[] getThresholds(double lower, double upper) {
+        FertileFilter filter = new FertileFilter();
+        return model.getPersons().parallelStream()
+                .filter(person -> filter.evaluate(person))
+                .mapToDouble(person -> person.getFertilityThreshold(lower, upper))
+                .toArray();
+    }
+
+
     /**
      * Evaluates the aggregate share of persons with partners assigned in a test run of union matching among those eligible for partnership.
      *
@@ -58,18 +58,20 @@ public class Household implements EventListener, IDoubleSource {
     }
 
     public Household(Household originalHousehold, SampleEntry sampleEntry) {
+        this(originalHousehold, sampleEntry, (SampleEntry.ProcessedInputData.equals(sampleEntry)) ? originalHousehold.getId() : householdIdCounter++);
+    }
+
+    // copy constructor with the id of the new household given, for use where households are cloned in parallel
+    public Household(Household originalHousehold, SampleEntry sampleEntry, long householdId) {
 
+        model = (SimPathsModel) SimulationEngine.getInstance().getManager(SimPathsModel.class.getCanonicalName());
+        collector = (SimPathsCollector) SimulationEngine.getInstance().getManager(SimPathsCollector.class.getCanonicalName());
+        key  = new PanelEntityKey(householdId);
         switch (sampleEntry) {
             case ProcessedInputData -> {
-                model = (SimPathsModel) SimulationEngine.getInstance().getManager(SimPathsModel.class.getCanonicalName());
-                collector = (SimPathsCollector) SimulationEngine.getInstance().getManager(SimPathsCollector.class.getCanonicalName());
-                key  = new PanelEntityKey(originalHousehold.getId());
                 this.idOriginalHH = originalHousehold.getIdOriginalHH();
             }
             default -> {
-                model = (SimPathsModel) SimulationEngine.getInstance().getManager(SimPathsModel.class.getCanonicalName());
-                collector = (SimPathsCollector) SimulationEngine.getInstance().getManager(SimPathsCollector.class.getCanonicalName());
-                key  = new PanelEntityKey(householdIdCounter++);
                 idOriginalHH = originalHousehold.key.getId();
             }
         }
@@ -1,7 +1,7 @@
 package simpaths.model;
 
 import microsim.engine.SimulationEngine;
-import simpaths.data.IEvaluation;
+import simpaths.data.IThresholdEvaluation;
 import simpaths.data.Parameters;
 import simpaths.model.enums.Les_c4;
 import simpaths.model.enums.TargetShares;
@@ -19,7 +19,7 @@ import java.util.Set;
  *
  * Importantly, the adjustment needs to be only found once. Modified intercepts can then be used in subsequent simulations.
  */
-public class InSchoolAlignment implements IEvaluation {
+public class InSchoolAlignment implements IThresholdEvaluation {
 
     private static final int MIN_STUDENT_AGE = 16;
     private static final int MAX_STUDENT_AGE = 29;
@@ -67,6 +67,40 @@ public class InSchoolAlignment implements IEvaluation {
     }
 
 
+    /**
+     * @return target share of students among persons of student age
+     */
+    @Override
+    public double getTargetShare() {
+        return targetStudentShare;
+    }
+
+    /**
+     * Thresholds of persons of student age, evaluated from lagged status as in evaluate. Null if the lagged status of
+     * any is unknown, as their status then depends on previous evaluations.
+     */
+    @Override
+    public double[] getThresholds(double lower, double upper) {
+
+        if (persons.stream().anyMatch(person -> isStudentAge(person) && person.getLes_c4_lag1() == null))
+            return null;
+
+        // reset status from lagged status, as in evaluate, before thresholds are evaluated
+        for (Person person : persons) {
+            if (isStudentAge(person))
+                person.setLes_c4(person.getLes_c4_lag1());
+        }
+        return persons.parallelStream()
+                .filter(InSchoolAlignment::isStudentAge)
+                .mapToDouble(person -> person.getInSchoolThreshold(lower, upper))
+                .toArray();
+    }
+
+    private static boolean isStudentAge(Person person) {
+        return person.getDag() >= MIN_STUDENT_AGE && person.getDag() <= MAX_STUDENT_AGE;
+    }
+
+
     /**
      * Evaluates the aggregate share of students.
      *
@@ -76,12 +110,12 @@ public class InSchoolAlignment implements IEvaluation {
      */
     private double evalStudentShare() {
 
-        long numStudents = model.getPersons().stream()
+        long numStudents = persons.stream()
                 .filter(person -> person.getLes_c4() != null)
                 .filter(person -> person.getDag() >= MIN_STUDENT_AGE && person.getDag() <= MAX_STUDENT_AGE)
                 .filter(person -> (!person.isToLeaveSchool() && Les_c4.Student.equals(person.getLes_c4()) ))
                 .count();
-        long numPeople = model.getPersons().stream()
+        long numPeople = persons.stream()
                 .filter(person -> person.getLes_c4() != null)
                 .filter(person -> person.getDag() >= MIN_STUDENT_AGE && person.getDag() <= MAX_STUDENT_AGE)
                 .count();
@@ -0,0 +1,138 @@
+package simpaths.model;
+
+
+import simpaths.model.enums.Region;
+import simpaths.model.enums.SampleEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+
+/**
+ * Class to build the simulated population from clones of original households.
+ *
+ * Households are first selected sequentially (see add), which fixes the order of the simulated population and
+ * the ids of all simulated entities. The selected households are then cloned in parallel (see build), and added
+ * to the simulated population in the order selected.
+ *
+ * Seeds of the clones are drawn from a generator that is split once for each selected household, so that clones
+ * are independent of the order in which they are created and the population is reproducible for a given seed.
+ * When cloning processed input data, ids and seeds are instead taken from the original entities.
+ */
+public class InitialPopulationBuilder {
+
+    private final SampleEntry sampleEntry;
+    private final SplittableRandom random;
+
+    private final List<Household> originals = new ArrayList<>();
+    private final List<Region> regions = new ArrayList<>();
+    private final List<Long> seeds = new ArrayList<>();
+    private int numberOfBenefitUnits;
+    private int numberOfPersons;
+
+
+    // CONSTRUCTOR
+    public InitialPopulationBuilder(SampleEntry sampleEntry, long seed) {
+        this.sampleEntry = sampleEntry;
+        random = new SplittableRandom(seed);
+    }
+
+
+    /**
+     * selects a household for cloning
+     * @param household original household
+     * @param region region assigned to all benefit units of the clone, or null to keep the regions of the original
+     */
+    public void add(Household household, Region region) {
+
+        if (household.getBenefitUnits().isEmpty())
+            throw new RuntimeException("problem identifying household benefit units to clone");
+        originals.add(household);
+        regions.add(region);
+        seeds.add(random.split().nextLong());
+        numberOfBenefitUnits += household.getBenefitUnits().size();
+        for (BenefitUnit benefitUnit : household.getBenefitUnits()) {
+            numberOfPersons += benefitUnit.getMembers().size();
+        }
+    }
+
+    public int getNumberOfPersons() {
+        return numberOfPersons;
+    }
+
+    /**
+     * clones all selected households, and adds them to the simulated population in the order selected
+     * ids of new entities continue from the id counters of the entity classes, which are advanced accordingly
+     */
+    public void build(Set<Household> households, Set<BenefitUnit> benefitUnits, Set<Person> persons) {
+
+        // allocate ids in order of selection
+        int nHouseholds = originals.size();
+        long[] householdIds = new long[nHouseholds];
+        long[] benefitUnitIds = new long[nHouseholds];
+        long[] personIds = new long[nHouseholds];
+        long householdId = Household.householdIdCounter, benefitUnitId = BenefitUnit.benefitUnitIdCounter, personId = Person.personIdCounter;
+        for (int ii = 0; ii < nHouseholds; ii++) {
+            householdIds[ii] = householdId++;
+            benefitUnitIds[ii] = benefitUnitId;
+            personIds[ii] = personId;
+            for (BenefitUnit benefitUnit : originals.get(ii).getBenefitUnits()) {
+                benefitUnitId++;
+                personId += benefitUnit.getMembers().size();
+            }
+        }
+
+        // clone in parallel
+        Household[] clones = new Household[nHouseholds];
+        IntStream.range(0, nHouseholds).parallel().forEach(ii ->
+                clones[ii] = cloneHousehold(originals.get(ii), regions.get(ii), seeds.get(ii), householdIds[ii], benefitUnitIds[ii], personIds[ii]));
+
+        // add to population in order of selection
+        for (Household household : clones) {
+            households.add(household);
+            for (BenefitUnit benefitUnit : household.getBenefitUnits()) {
+                benefitUnits.add(benefitUnit);
+                persons.addAll(benefitUnit.getMembers());
+            }
+        }
+        if (!SampleEntry.ProcessedInputData.equals(sampleEntry)) {
+            Household.setHouseholdIdCounter(householdId);
+            BenefitUnit.setBenefitUnitIdCounter(benefitUnitId);
+            Person.setPersonIdCounter(personId);
+        }
+    }
+
+    private Household cloneHousehold(Household originalHousehold, Region region, long seed, long householdId, long benefitUnitId, long personId) {
+
+        boolean processed = SampleEntry.ProcessedInputData.equals(sampleEntry);
+        SplittableRandom cloneRandom = new SplittableRandom(seed);
+        Household newHousehold = new Household(originalHousehold, sampleEntry, processed ? originalHousehold.getId() : householdId);
+        for (BenefitUnit originalBenefitUnit : originalHousehold.getBenefitUnits()) {
+
+            long id = processed ? originalBenefitUnit.getId() : benefitUnitId++;
+            long benefitUnitSeed = processed ? originalBenefitUnit.getSeed() : (long)(cloneRandom.nextDouble()*100000);
+            BenefitUnit newBenefitUnit = new BenefitUnit(originalBenefitUnit, id, benefitUnitSeed, sampleEntry);
+            newBenefitUnit.setHousehold(newHousehold);
+            if (region != null)
+                newBenefitUnit.setRegion(region);
+
+            if (originalBenefitUnit.getMembers().isEmpty())
+                throw new RuntimeException("problem identifying benefit unit members to clone");
+            for (Person originalPerson : originalBenefitUnit.getMembers()) {
+
+                id = processed ? originalPerson.getId() : personId++;
+                long personSeed = processed ? originalPerson.getSeed() : (long)(cloneRandom.nextDouble()*100000);
+                Person newPerson = new Person(originalPerson, id, personSeed, sampleEntry);
+                newPerson.setBenefitUnit(newBenefitUnit);
+            }
+            for (Person person : newBenefitUnit.getMembers()) {
+                person.cloneCleanup();
+            }
+        }
+        newHousehold.resetWeights(1.0d);
+        return newHousehold;
+    }
+}
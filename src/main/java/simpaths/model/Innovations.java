@@ -3,21 +3,57 @@ package simpaths.model;
 import java.util.Random;
 import java.util.random.RandomGenerator;
 
+/**
+ * Random draws of an agent, renewed each year (double draws) or drawn once (single draws).
+ *
+ * In the compact layout (compactAgents parameter of SimPathsModel, passed on construction), draws are not stored
+ * but evaluated from a counter-based stream, as a hash of the seed of the agent, the number of renewals and the
+ * index of the draw. Each agent then holds only its seed and counter, in place of a generator and arrays of draws,
+ * which reduces the heap needed for large populations. Draws of the compact layout differ from those of the default
+ * layout, so that simulations are only reproducible within a layout.
+ */
 public class Innovations {
 
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
     RandomGenerator generator;
     double[] doubleInnovs;
     double[] singleDrawDoubleInnovs;
     long[] singleDrawLongInnovs;
 
+    // compact layout
+    private long key;
+    private int renewals;
+    private int nDoubleInnovs;
+    private int nSingleDrawDoubleInnovs;
+    private int nSingleDrawLongInnovs;
+
     public Innovations(int nmbr, long seed) {
-        generator = new Random(seed);
-        doubleInnovs = new double[nmbr];
+        this(nmbr, seed, false);
+    }
+
+    public Innovations(int nmbr, long seed, boolean compact) {
+        if (compact) {
+            key = RandomStreams.mix(seed);
+            nDoubleInnovs = nmbr;
+        } else {
+            generator = new Random(seed);
+            doubleInnovs = new double[nmbr];
+        }
         getNewDoubleDraws();
     }
 
     public Innovations(int nDoubleInnovs, int nSingleDrawDoubleInnovs, int nSingleDrawLongInnovs, long seed) {
-        this(nDoubleInnovs, seed);
+        this(nDoubleInnovs, nSingleDrawDoubleInnovs, nSingleDrawLongInnovs, seed, false);
+    }
+
+    public Innovations(int nDoubleInnovs, int nSingleDrawDoubleInnovs, int nSingleDrawLongInnovs, long seed, boolean compact) {
+        this(nDoubleInnovs, seed, compact);
+        if (generator == null) {
+            this.nSingleDrawDoubleInnovs = nSingleDrawDoubleInnovs;
+            this.nSingleDrawLongInnovs = nSingleDrawLongInnovs;
+            return;
+        }
         singleDrawDoubleInnovs = new double[nSingleDrawDoubleInnovs];
         for (int ii = 0; ii < nSingleDrawDoubleInnovs; ii++) {
             singleDrawDoubleInnovs[ii] = generator.nextDouble();
@@ -29,19 +65,39 @@ public class Innovations {
     }
 
     public void getNewDoubleDraws() {
+        if (generator == null) {
+            renewals++;
+            return;
+        }
         for (int ii = 0; ii < doubleInnovs.length; ii++) {
             doubleInnovs[ii] = generator.nextDouble();
         }
     }
 
     public double getDoubleDraw(int ii) {
+        if (generator == null)
+            return toDouble(draw(renewals, ii, nDoubleInnovs));
         return doubleInnovs[ii];
     }
 
     public double getSingleDrawDoubleInnov(int ii) {
+        if (generator == null)
+            return toDouble(draw(-1, ii, nSingleDrawDoubleInnovs));
         return singleDrawDoubleInnovs[ii];
     }
     public long getSingleDrawLongInnov(int ii) {
+        if (generator == null)
+            return draw(-2, ii, nSingleDrawLongInnovs);
         return singleDrawLongInnovs[ii];
     }
+
+    private long draw(int stream, int ii, int nn) {
+        if (ii < 0 || ii >= nn)
+            throw new ArrayIndexOutOfBoundsException("Index " + ii + " out of bounds for length " + nn);
+        return RandomStreams.mix(key + GOLDEN_GAMMA * (((long) stream << 32) + ii + 1));
+    }
+
+    private static double toDouble(long bits) {
+        return (bits >>> 11) * 0x1.0p-53;
+    }
 }
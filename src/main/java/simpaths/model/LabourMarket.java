@@ -27,6 +27,13 @@ public class LabourMarket {
     RandomGenerator labourInnov;
 
 
+    //Constructor for restoring from a checkpoint (see Checkpoint), which then sets all fields:
+    private LabourMarket() {
+        model = null;
+        benefitUnitsByRegion = new LinkedHashMap<>();
+        benefitUnitsAllRegions = new LinkedHashSet<>();
+    }
+
     //Constructor:
     LabourMarket(Set<BenefitUnit> benefitUnits) {
 
@@ -42,7 +49,7 @@ public class LabourMarket {
             benefitUnitsByRegion.put(region, new LinkedHashSet<BenefitUnit>());
         }
 
-        labourInnov = new Random(SimulationEngine.getRnd().nextLong());
+        labourInnov = new Random(model.getProcessSeed(RandomStreams.Stream.LabourMarket));
     }
 
 
@@ -77,13 +84,7 @@ public class LabourMarket {
 
 
                 // Run alignment separately by b.u. subgroup
-                model.activityAlignmentSingleMales();
-                model.activityAlignmentSingleACMales();
-                model.activityAlignmentSingleFemales();
-                model.activityAlignmentSingleACFemales();
-                model.activityAlignmentCouples();
-                model.activityAlignmentMaleWithDependents();
-                model.activityAlignmentFemaleWithDependents();
+                model.activityAlignmentBySubgroup();
             }
 
             if (model.isMacroShocksOn()) {
@@ -11,10 +11,12 @@ import microsim.statistics.Series;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.log4j.Logger;
+import simpaths.data.InputDatabase;
 import simpaths.data.ManagerRegressions;
 import simpaths.data.MultiValEvent;
 import simpaths.data.Parameters;
 import simpaths.data.RegressionName;
+import simpaths.data.ThresholdAlignment;
 import simpaths.data.filters.FertileFilter;
 import simpaths.model.decisions.Axis;
 import simpaths.model.decisions.DecisionParams;
@@ -158,7 +160,8 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
     @Column(name="l1_obs_earnings_hourly") private Double L1_fullTimeHourlyEarningsPotential; // Lag(1) of potentialHourlyEarnings
     @Transient private Series.Double yearlyEquivalisedDisposableIncomeSeries;
     private Double yearlyEquivalisedConsumption;
-    @Transient private Series.Double yearlyEquivalisedConsumptionSeries;
+    @Transient private double[] sIndexConsumptionWindow;      // transformed consumption of the last years of the S Index time window, as a ring buffer
+    @Transient private int sIndexConsumptionYears;            // number of years of consumption recorded in sIndexConsumptionWindow
     private Double sIndex;
     private Double sIndexNormalised;
     @Transient private LinkedHashMap<Integer, Double> sIndexYearMap;
@@ -166,6 +169,8 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
     @Transient private Integer dcpyy_lag1; //Lag(1) of number of years in partnership
     private Double ypnbihs_dv; // asinh of personal non-benefit income per month
     @Transient private Double ypnbihs_dv_lag1; //Lag(1) of gross personal non-benefit income
+    @Transient private boolean incomeLagRead;     // true if lagged income has been read by regression functions since last cleared (see ExpectationsCache)
+    @Transient private RandomStreams.Draws streamDraws;     // draws of this person from random streams in the current year, allocated on first draw
     private Double yptciihs_dv; // asinh of non-employment non-benefit income per month (capital and pension)
     private Double ypncp; // asinh of capital income per month
     private Double ypnoab; // asinh of pension income per month
@@ -250,11 +255,53 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
         }
     }
 
+    // used by expectations object to reuse a dummy person, by restoring the fields set by the expectations object
+    // to their values on construction by Person(true)
+    public void resetRegressionProxy() {
+        if (model != null)
+            throw new RuntimeException("reset of simulated person as proxy for regression functions");
+        dag = 0;
+        dgn = null;
+        dhe = null;
+        dhe_lag1 = null;
+        deh_c4 = null;
+        deh_c4_lag1 = null;
+        dehf_c4 = null;
+        dehm_c4 = null;
+        ded = null;
+        dlltsd = null;
+        dlltsd_lag1 = null;
+        regionLocal = null;
+        yearLocal = null;
+        dcpstLocal = null;
+        dcpst_lag1 = null;
+        dhhtp_c4_lag1Local = null;
+        ydses_c5_lag1Local = null;
+        numberChildrenAllLocal = null;
+        numberChildrenAllLocal_lag1 = null;
+        numberChildren02Local_lag1 = null;
+        numberChildren017Local = null;
+        indicatorChildren02Local = null;
+        liwwh = null;
+        L1_fullTimeHourlyEarningsPotential = null;
+        ioFlag = false;
+        dehsp_c4_lag1 = null;
+        dhesp_lag1 = null;
+        dcpyy_lag1 = null;
+        dcpagdf_lag1 = null;
+        les_c4_lag1 = null;
+        lesdf_c4_lag1 = null;
+        ypnbihs_dv_lag1 = null;
+        ynbcpdf_dv_lag1 = null;
+        incomeLagRead = false;
+        setAllSocialCareVariablesToFalse();
+    }
+
     // used to create new people who enter the simulation during UpdateMaternityStatus
     // it is the “birth constructor” — used when the simulation generates a new child (e.g., during UpdateMaternityStatus)
     public Person(Gender gender, Person mother) {
 
-        this(personIdCounter++, (long)(100000*mother.getFertilityRandomUniform2()));
+        this(personIdCounter++, mother.getNewAgentSeed(RandomStreams.Stream.Birth, mother.getFertilityRandomUniform2()));
 
         sampleEntry = SampleEntry.Birth;
         dgn = gender;
@@ -297,7 +344,6 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
         idHousehold = mother.getBenefitUnit().getHousehold().getId();
 //		setDeviationFromMeanRetirementAge();			//This would normally be done within initialisation, but the line above has been commented out for reasons given...
         yearlyEquivalisedDisposableIncomeSeries = new Series.Double(this, DoublesVariables.EquivalisedIncomeYearly);
-        yearlyEquivalisedConsumptionSeries = new Series.Double(this, DoublesVariables.EquivalisedConsumptionYearly);
         yearlyEquivalisedConsumption = 0.;
         sIndexYearMap = new LinkedHashMap<Integer, Double>();
         bornInSimulation = true;
@@ -306,11 +352,56 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
         updateVariables(false);
     }
 
+    // used to create the persons of a synthetic starting population, in place of persons loaded from the input database
+    // sets the variables of the input database (see Parameters.PERSON_VARIABLES_INITIAL); see SyntheticPopulation
+    public Person(long id, long seed, Gender gender, int age, Education education, Les_c4 activity,
+                  double hourlyEarningsPotential, int hoursWorked, Person mother, Person father) {
+
+        this(id, seed);
+        sampleEntry = SampleEntry.InputData;
+        dgn = gender;
+        dag = age;
+        deh_c4 = education;
+        idMother = (mother == null) ? null : mother.getId();
+        idFather = (father == null) ? null : father.getId();
+        dehm_c4 = (mother == null) ? Education.NotAssigned : mother.getDeh_c4();
+        dehf_c4 = (father == null) ? Education.NotAssigned : father.getDeh_c4();
+        ded = (Les_c4.Student.equals(activity)) ? Indicator.True : Indicator.False;
+        der = Indicator.False;
+        sedex = Indicator.False;
+        dhe = (age < 50) ? Dhe.VeryGood : Dhe.Good;
+        dlltsd = Indicator.False;
+        les_c4 = activity;
+        les_c4_lag1 = activity;
+        adultchildflag = Indicator.False;
+        dhhOwned = false;
+        liwwh = (Les_c4.EmployedOrSelfEmployed.equals(activity)) ? Math.max(0, age - 20) : 0;
+        dcpyy = 0;
+
+        // monetary variables are the asinh of monthly values
+        double labourIncome = hourlyEarningsPotential * hoursWorked * Parameters.WEEKS_PER_MONTH;
+        yplgrs_dv = Math.log(labourIncome + Math.sqrt(labourIncome * labourIncome + 1.0));
+        yptciihs_dv = 0.0;
+        ypncp = 0.0;
+        ypnoab = 0.0;
+        ypnbihs_dv = yplgrs_dv;
+        fullTimeHourlyEarningsPotential = hourlyEarningsPotential;
+        L1_fullTimeHourlyEarningsPotential = hourlyEarningsPotential;
+        labourSupplyWeekly = Labour.convertHoursToLabour(hoursWorked, gender);
+        hoursWorkedWeekly = hoursWorked;
+        weight = 1.0;
+    }
+
     // a "copy constructor" for persons: used by the cloneBenefitUnit method of the SimPathsModel object
     // used to generate clones both at population load (to un-weight data) and to generate international immigrants
     public Person (Person originalPerson, long seed, SampleEntry sampleEntry) {
+        this(originalPerson, personIdCounter++, seed, sampleEntry);
+    }
 
-        this(personIdCounter++, seed);
+    // copy constructor with the id of the new person given, for use where persons are cloned in parallel
+    public Person (Person originalPerson, long id, long seed, SampleEntry sampleEntry) {
+
+        this(id, seed);
         switch (sampleEntry) {
             case ProcessedInputData -> {
                 key.setId(originalPerson.getId());
@@ -508,7 +599,6 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
 
         adultchildflag = originalPerson.adultchildflag;
         yearlyEquivalisedDisposableIncomeSeries = new Series.Double(this, DoublesVariables.EquivalisedIncomeYearly);
-        yearlyEquivalisedConsumptionSeries = new Series.Double(this, DoublesVariables.EquivalisedConsumptionYearly);
         yearlyEquivalisedConsumption = originalPerson.yearlyEquivalisedConsumption;
         sIndexYearMap = new LinkedHashMap<Integer, Double>();
         dhhOwned = originalPerson.dhhOwned;
@@ -540,7 +630,7 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
 
         // initialise random draws
         this.seed = seed;
-        innovations = new Innovations(32, 1, 1, seed);
+        innovations = new Innovations(32, 1, 1, seed, model != null && model.isCompactAgents());
 
         //Draw desired age and wage differential for parametric partnership formation for people above age to get married:
         double[] sampleDifferentials = setMarriageTargets();
@@ -788,6 +878,15 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
         }
     }
 
+    /**
+     * @return adjustment from which a fertile person is to give birth in fertility(probitAdjustment)
+     */
+    public double getFertilityThreshold(double lower, double upper) {
+        double score = Parameters.getRegFertilityF1().getScore(this, Person.DoublesVariables.class);
+        double draw = innovations.getDoubleDraw(29);
+        return ThresholdAlignment.threshold(adjustment -> draw < Parameters.getRegFertilityF1().getProbability(score + adjustment), lower, upper);
+    }
+
     private void updateUnemploymentState() {
         lowWageOffer = false;
         if (Parameters.flagUnemployment) {
@@ -1451,6 +1550,31 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
     }
 
 
+    /**
+     * @return adjustment from which the person is a student after inSchool(probitAdjustment), for persons whose
+     * lagged activity status is known
+     */
+    protected double getInSchoolThreshold(double lower, double upper) {
+
+        double labourInnov = innovations.getDoubleDraw(24);
+        if (Les_c4.Student.equals(les_c4_lag1)) {
+
+            if (dag < MIN_AGE_TO_LEAVE_EDUCATION)
+                return Double.NEGATIVE_INFINITY;
+            if (dag > MAX_AGE_TO_STAY_IN_CONTINUOUS_EDUCATION)
+                return Double.POSITIVE_INFINITY;
+            double score = Parameters.getRegEducationE1a().getScore(this, Person.DoublesVariables.class);
+            return ThresholdAlignment.threshold(adjustment -> labourInnov < Parameters.getRegEducationE1a().getProbability(score + adjustment), lower, upper);
+        } else if (Les_c4.Retired.equals(les_c4_lag1)) {
+
+            return Double.POSITIVE_INFINITY;
+        } else {
+
+            double score = Parameters.getRegEducationE1b().getScore(this, Person.DoublesVariables.class);
+            return ThresholdAlignment.threshold(adjustment -> labourInnov < Parameters.getRegEducationE1b().getProbability(score + adjustment), lower, upper);
+        }
+    }
+
     public void leavingSchool() {
 
         if (toLeaveSchool) {
@@ -1550,6 +1674,18 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
             setFullTimeHourlyEarningsPotential(upratedFullTimeHourlyEarnings);
         }
     }
+    /**
+     * uprates monetary values of a person loaded from the input database, where the starting population of a
+     * preceding year is used (see InputDatabase.uprateAsinh)
+     */
+    public void uprateInputIncomes(double upratingFactor) {
+        ypnbihs_dv = InputDatabase.uprateAsinh(ypnbihs_dv, upratingFactor);
+        yptciihs_dv = InputDatabase.uprateAsinh(yptciihs_dv, upratingFactor);
+        ypncp = InputDatabase.uprateAsinh(ypncp, upratingFactor);
+        ypnoab = InputDatabase.uprateAsinh(ypnoab, upratingFactor);
+        yplgrs_dv = InputDatabase.uprateAsinh(yplgrs_dv, upratingFactor);
+    }
+
     public void setYpncp(double val) {
         ypncp = val;
     }
@@ -1938,7 +2074,7 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
             } else {
                 newHousehold = new Household();
             }
-            long seed = (long)(getBenefitUnitRandomUniform()*100000);
+            long seed = getNewAgentSeed(RandomStreams.Stream.BenefitUnitFormation, getBenefitUnitRandomUniform());
             newBenefitUnit = new BenefitUnit(this, seed);
             if (model.getBenefitUnits().contains(newBenefitUnit)) {
                 throw new RuntimeException("New benefit unit already found in benefitUnits - Hint: Primary keys may be corrupted");
@@ -3287,6 +3423,7 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
                 } else return 0.;
             }
             case Ypnbihs_dv_L1 -> {
+                incomeLagRead = true;
                 if (ypnbihs_dv_lag1 != null) {
                     return ypnbihs_dv_lag1;
                 } else {
@@ -3294,6 +3431,7 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
                 }
             }
             case Ypnbihs_dv_L1_sq -> {
+                incomeLagRead = true;
                 if (ypnbihs_dv_lag1 != null) {
                     return ypnbihs_dv_lag1 * ypnbihs_dv_lag1;
                 } else {
@@ -3301,6 +3439,7 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
                 }
             }
             case Ynbcpdf_dv_L1 -> {
+                incomeLagRead = true;
                 return (ynbcpdf_dv_lag1 != null) ? ynbcpdf_dv_lag1 : 0.0;
             }
             case Yptciihs_dv_L1 -> {
@@ -4385,6 +4524,14 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
         return ynbcpdf_dv_lag1;
     }
 
+    public boolean isIncomeLagRead() {
+        return incomeLagRead;
+    }
+
+    public void clearIncomeLagRead() {
+        incomeLagRead = false;
+    }
+
     public Lesdf_c4 getLesdf_c4() {
         if (benefitUnit.getCoupleBoolean() && dag>=Parameters.AGE_TO_BECOME_RESPONSIBLE) {
             if (getPartner()==null)
@@ -4509,12 +4656,31 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
         this.yearlyEquivalisedConsumption = yearlyEquivalisedConsumption;
     }
 
-    public Series.Double getYearlyEquivalisedConsumptionSeries() {
-        return yearlyEquivalisedConsumptionSeries;
+    /**
+     * Records yearly equivalised consumption of the current year for the S Index, as consumption^(1/alpha), retaining
+     * only the values of the last timeWindow years.
+     */
+    public void recordSIndexConsumption(int timeWindow, double alpha) {
+        if (sIndexConsumptionWindow == null || sIndexConsumptionWindow.length != timeWindow) {
+            sIndexConsumptionWindow = new double[timeWindow];
+            sIndexConsumptionYears = 0;
+        }
+        sIndexConsumptionWindow[sIndexConsumptionYears % timeWindow] = Math.pow(getDoubleValue(DoublesVariables.EquivalisedConsumptionYearly), 1/alpha);
+        sIndexConsumptionYears++;
+    }
+
+    /**
+     * Returns true once consumption has been recorded for every year of the S Index time window
+     */
+    public boolean hasSIndexConsumptionWindow() {
+        return sIndexConsumptionWindow != null && sIndexConsumptionYears >= sIndexConsumptionWindow.length;
     }
 
-    public void setYearlyEquivalisedConsumptionSeries(Series.Double yearlyEquivalisedConsumptionSeries) {
-        this.yearlyEquivalisedConsumptionSeries = yearlyEquivalisedConsumptionSeries;
+    /**
+     * Returns the transformed consumption recorded lag years before the latest year recorded
+     */
+    public double getSIndexConsumption(int lag) {
+        return sIndexConsumptionWindow[(sIndexConsumptionYears - 1 - lag) % sIndexConsumptionWindow.length];
     }
 
     /*
@@ -4917,6 +5083,21 @@ public class Person implements EventListener, IDoubleSource, IIntSource, Weight,
     }
     public double getBenefitUnitRandomUniform() {return innovations.getDoubleDraw(31);}
 
+    // seed of a new agent, drawn from the stream of this person in the current year (see RandomStreams)
+    long getStreamSeed(RandomStreams.Stream stream) {return model.getAgentSeed(stream, getId(), getStreamDraws().next(stream, model.getYear()));}
+
+    // seed of a new agent, drawn from the stream of this person where the model uses random streams, and scaled from
+    // the uniform draw of this person otherwise
+    long getNewAgentSeed(RandomStreams.Stream stream, double uniformDraw) {
+        return (model.isRandomStreams()) ? getStreamSeed(stream) : (long)(uniformDraw*100000);
+    }
+
+    private synchronized RandomStreams.Draws getStreamDraws() {
+        if (streamDraws == null)
+            streamDraws = new RandomStreams.Draws();
+        return streamDraws;
+    }
+
     public double getHoursFormalSocialCare_L1() {
         return (careHoursFromFormalWeekly_lag1 > 0.0) ? careHoursFromFormalWeekly_lag1 : 0.0;
     }
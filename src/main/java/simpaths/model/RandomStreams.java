@@ -0,0 +1,98 @@
+package simpaths.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ *
+ * CLASS TO DERIVE INDEPENDENT RANDOM NUMBER STREAMS FROM THE SEED OF A SIMULATION RUN
+ *
+ * Each stream is identified by the process it serves, the simulated year and the id of the agent it is drawn for (or
+ * zero for processes of the model), and is seeded by a hash of these and the seed of the run. Successive seeds drawn
+ * by an agent from a stream in a year (e.g. for twins) are distinguished by their ordinal (see Draws). Draws of a
+ * stream are then independent of the order in which other streams are drawn, so that they do not change with the
+ * iteration order of collections or the number of threads over which agents are processed.
+ *
+ * Where the randomStreams parameter of SimPathsModel is set, the generators of the model processes are reseeded each
+ * year from their streams, the seeds of the starting population and the labour market are drawn from their streams,
+ * and the seeds of newborns, new benefit units and immigrants are drawn from the streams of the parent or original
+ * agent. Results then differ from those under the default sequential seeding, so that simulations are only
+ * reproducible within a setting.
+ *
+ */
+public class RandomStreams {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    public enum Stream {
+        Cohabitation,
+        Education,
+        PopulationAlignment,
+        Birth,
+        BenefitUnitFormation,
+        Partnership,
+        LabourMarket,
+        InitialPopulation,
+        BenefitUnitClone,
+        PersonClone,
+    }
+
+
+    /**
+     * returns the seed of a stream
+     * @param runSeed seed of the simulation run
+     * @param stream process served by the stream
+     * @param year simulated year
+     * @param id id of the agent the stream is drawn for, or zero for processes of the model
+     */
+    public static long seed(long runSeed, Stream stream, int year, long id) {
+        long zz = mix(runSeed + GOLDEN_GAMMA * (stream.ordinal() + 1));
+        zz = mix(zz + GOLDEN_GAMMA * year);
+        return mix(zz + GOLDEN_GAMMA * id);
+    }
+
+    /**
+     * returns the seed of the draw of an agent from a stream with the ordinal, as counted by Draws
+     * @param ordinal number of preceding draws of the agent from the stream in the year
+     */
+    public static long seed(long runSeed, Stream stream, int year, long id, int ordinal) {
+        long zz = seed(runSeed, stream, year, id);
+        return (ordinal == 0) ? zz : mix(zz + GOLDEN_GAMMA * ordinal);
+    }
+
+    /**
+     * returns a generator for a process of the model in a year
+     */
+    public static Random random(long runSeed, Stream stream, int year) {
+        return new Random(seed(runSeed, stream, year, 0L));
+    }
+
+    /**
+     * Counts the draws of an agent from each stream in a year, so that successive draws of the agent from a stream in
+     * the same year are given distinct seeds
+     */
+    public static final class Draws {
+
+        private int year = Integer.MIN_VALUE;
+        private final int[] counts = new int[Stream.values().length];
+
+        /**
+         * returns the ordinal of the next draw from the stream in the year, counted from zero
+         */
+        public synchronized int next(Stream stream, int year) {
+            if (year != this.year) {
+                Arrays.fill(counts, 0);
+                this.year = year;
+            }
+            return counts[stream.ordinal()]++;
+        }
+    }
+
+    // finaliser of the SplitMix64 generator
+    static long mix(long zz) {
+        zz = (zz ^ (zz >>> 30)) * 0xBF58476D1CE4E5B9L;
+        zz = (zz ^ (zz >>> 27)) * 0x94D049BB133111EBL;
+        return zz ^ (zz >>> 31);
+    }
+}
@@ -3,6 +3,7 @@ package simpaths.model;
 
 // import Java packages
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
@@ -12,6 +13,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
 
 // import plug-in packages
 import jakarta.persistence.EntityManager;
@@ -23,10 +25,16 @@ import microsim.data.MultiKeyCoefficientMap;
 import org.apache.commons.lang3.ArrayUtils;
 import org.jetbrains.annotations.NotNull;
 import simpaths.data.IEvaluation;
+import simpaths.data.InputDatabase;
 import simpaths.data.MahalanobisDistance;
+import simpaths.data.MultiRunCache;
+import simpaths.data.ParameterBundle;
 import simpaths.data.RootSearch;
 import simpaths.data.RootSearch2;
+import simpaths.data.ThresholdAlignment;
+import simpaths.data.IThresholdEvaluation;
 import simpaths.data.startingpop.Processed;
+import simpaths.data.startingpop.PopulationSnapshot;
 import simpaths.experiment.SimPathsCollector;
 import simpaths.model.decisions.*;
 import microsim.alignment.outcome.ResamplingAlignment;
@@ -273,6 +281,37 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
     @GUIparameter(description = "simulation name to read in grids from:")
     private String readGrid = "test1";
 
+    @GUIparameter(description = "save a checkpoint of the simulation at the end of this year (0 for none)")
+    private Integer checkpointYear = 0;
+
+    @GUIparameter(description = "checkpoint file to resume the simulation from (blank to start from the input population)")
+    private String resumeFromCheckpoint = "";
+
+    private Checkpoint resumedCheckpoint;
+
+    @GUIparameter(description = "tick to record time and allocations of each scheduled event by year")
+    private boolean profileEvents = false;
+
+    @GUIparameter(description = "tick to solve in-school and fertility alignments from sorted agent thresholds rather than by root search")
+    private boolean thresholdAlignment = true;
+
+    @GUIparameter(description = "tick to read the starting population and tax donors from the input database without copying them to default tables")
+    private boolean readOnlyInputDatabase = true;
+
+    @GUIparameter(description = "tick to cache coefficient maps loaded from the Excel workbooks of the input directory in a binary parameter bundle")
+    private boolean parameterBundle = false;
+
+    @GUIparameter(description = "tick to save processed starting populations to binary snapshots, which are read in place of the input database")
+    private boolean populationSnapshot = false;
+
+    @GUIparameter(description = "tick to evaluate random draws of agents on demand rather than store them, to reduce the heap needed for large populations")
+    private boolean compactAgents = false;
+
+    @GUIparameter(description = "tick to seed new agents and model processes from independent random streams, so that draws do not depend on the order in which agents are processed")
+    private boolean randomStreams = false;
+
+    private EventProfiler eventProfiler;
+
     // flag to project population using time series average statistics (dampens temporal variation)
     private boolean flagDefaultToTimeSeriesAverages = false;
 
@@ -282,6 +321,9 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
     // save imperfect tax database matches to potentially expand input database
     private boolean saveImperfectTaxDBMatches = false;
 
+    // simulate a synthetic starting population in place of that of the input database (see SyntheticPopulation)
+    private boolean syntheticPopulation = false;
+
     //	@GUIparameter(description = "the number of employment options from which a household's principal wage earner can choose")
     private Integer employmentOptionsOfPrincipalWorker = 3;
 
@@ -329,7 +371,10 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
     Random initialiseInnov1;
     Random initialiseInnov2;
     Random popAlignInnov;
+    private final AlignmentCellIndex alignmentCellIndex = new AlignmentCellIndex();
     Random educationInnov;
+    long randomStreamSeed;
+    private final Map<Long, RandomStreams.Draws> cloneDraws = new HashMap<>();    // draws for clones of each original agent in the current year
 
 
     /**
@@ -374,8 +419,18 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         initialiseInnov2 = new Random(SimulationEngine.getRnd().nextLong());
         educationInnov = new Random(SimulationEngine.getRnd().nextLong());
         popAlignInnov = new Random(SimulationEngine.getRnd().nextLong());
+        if (randomStreams) randomStreamSeed = SimulationEngine.getRnd().nextLong();
+
+        // read checkpoint to resume from, which defines the simulated population
+        if (resumeFromCheckpoint != null && !resumeFromCheckpoint.isBlank()) {
+            resumedCheckpoint = Checkpoint.read(new File(resumeFromCheckpoint));
+            country = resumedCheckpoint.getCountry();
+            startYear = resumedCheckpoint.getStartYear();
+            popSize = resumedCheckpoint.getPopSize();
+        }
 
         // load model parameters
+        ParameterBundle.setEnabled(parameterBundle);
         Parameters.loadParameters(country, maxAge, enableIntertemporalOptimisations, projectFormalChildcare,
                 projectSocialCare, donorPoolAveraging,
                 fixTimeTrend, fixTimeTrendR1a, fixTimeTrendR1b,  fixTimeTrendE1a, fixTimeTrendE1b, fixTimeTrendE2a,
@@ -386,6 +441,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         if (enableIntertemporalOptimisations) {
 
             alignEmployment = false;
+            ExpectationsCache.clear();      // expectations cached by a preceding run were evaluated with its parameters
             DecisionParams.loadParameters(employmentOptionsOfPrincipalWorker, employmentOptionsOfSecondaryWorker,
                     responsesToHealth, minAgeForPoorHealth, responsesToDisability, responsesToRegion, responsesToEducation,
                     responsesToPension, responsesToLowWageOffer, responsesToRetirement, saveBehaviour,
@@ -397,6 +453,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
 
         // populate tax donor references
         if (flagUpdateCountry) {
+            InputDatabase.close();
             taxDatabaseUpdate();
             TaxDonorDataParser.populateDonorTaxUnitTables(country, false); // Populate tax unit donor tables from person data
         }
@@ -413,10 +470,31 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         //Display current country and start year in the console
         System.out.println("Country: " + country + ". Running simulation from: " + startYear + " to " + endYear);
 
+        if (resumedCheckpoint != null) {
+
+            // restore simulated population and model state, in place of the initialisation below
+            resumedCheckpoint.restoreModel(this);
+            System.out.println("Resuming simulation from checkpoint in year " + year);
+        } else {
+            initialiseSimulatedPopulation();
+        }
+
+        // save current simulation parameters
+        saveRunParameters();
+
+        // finalise
+        elapsedTime1 = System.currentTimeMillis();
+        log.debug("Time to build objects: " + (elapsedTime1 - timerStartSim)/1000. + " seconds.");
+        System.out.println("Time to complete initialisation " + (System.currentTimeMillis() - timerStartSim)/1000.0/60.0 + " minutes.");
+        elapsedTime0 = elapsedTime1;
+    }
+
+    private void initialiseSimulatedPopulation() {
+
         // creates initial population (Person and BenefitUnit objects) based on data in input database.
         // Note that the population may be cropped to simulate a smaller population depending on user choices in the GUI.
         createInitialPopulationDataStructures();
-        elapsedTime1 = System.currentTimeMillis();
+        long elapsedTime1 = System.currentTimeMillis();
         System.out.println("Time to create initial population structures: " + (elapsedTime1 - elapsedTime0)/1000. + " seconds.");
         elapsedTime0 = elapsedTime1;
 
@@ -444,15 +522,6 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
 
         //Set up tests class
         tests = new Tests();
-
-        // save current simulation parameters
-        saveRunParameters();
-
-        // finalise
-        elapsedTime1 = System.currentTimeMillis();
-        log.debug("Time to build objects: " + (elapsedTime1 - timerStartSim)/1000. + " seconds.");
-        System.out.println("Time to complete initialisation " + (System.currentTimeMillis() - timerStartSim)/1000.0/60.0 + " minutes.");
-        elapsedTime0 = elapsedTime1;
     }
 
 
@@ -480,6 +549,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
     @Override
     public void buildSchedule() {
 
+        eventProfiler = (profileEvents) ? new EventProfiler() : null;
         addEventToAllYears(Processes.StartYear);
 
         addEventToAllYears(Processes.UpdateParameters);
@@ -487,7 +557,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         addCollectionEventToAllYears(benefitUnits, BenefitUnit.Processes.Update);
         addCollectionEventToAllYears(persons, Person.Processes.Update);
 
-        yearlySchedule.addCollectionEvent(persons, Person.Processes.Aging);
+        addCollectionEvent(yearlySchedule, persons, Person.Processes.Aging);
 
         // Health Alignment - redrawing alignment used adjust state of individuals to projections by Gender and Age
         //Turned off for now as health determined below based on individual characteristics
@@ -496,66 +566,66 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
 
         // Check whether persons have reached retirement Age
         addEventToAllYears(Processes.RetirementAlignment);
-        yearlySchedule.addCollectionEvent(persons, Person.Processes.ConsiderRetirement, false);
+        addCollectionEvent(yearlySchedule, persons, Person.Processes.ConsiderRetirement, false);
 
         // EDUCATION MODULE
         // Documentation: diagram "SimPathsEU education module - MR2"
         // Check In School - check whether still in education, and if leaving school, reset Education Level
-        yearlySchedule.addCollectionEvent(persons, Person.Processes.InSchool);
+        addCollectionEvent(yearlySchedule, persons, Person.Processes.InSchool);
 
         // In School alignment
-        yearlySchedule.addEvent(this, Processes.InSchoolAlignment);
-        yearlySchedule.addCollectionEvent(persons, Person.Processes.LeavingSchool);
+        addEvent(yearlySchedule, this, Processes.InSchoolAlignment);
+        addCollectionEvent(yearlySchedule, persons, Person.Processes.LeavingSchool);
 
         // Align the level of education if required
         addEventToAllYears(Processes.EducationLevelAlignment);
 
         // Homeownership status
-        yearlySchedule.addCollectionEvent(benefitUnits, BenefitUnit.Processes.Homeownership);
+        addCollectionEvent(yearlySchedule, benefitUnits, BenefitUnit.Processes.Homeownership);
 
         // HEALTH MODULE
         // Update Health - determine health (continuous) based on regression models: done here because health depends on education
         addEventToAllYears(Processes.DisabilityAlignment);
-        yearlySchedule.addCollectionEvent(persons, Person.Processes.Health);
+        addCollectionEvent(yearlySchedule, persons, Person.Processes.Health);
 
         // HOUSEHOLD COMPOSITION MODULE: Decide whether to enter into a union (marry / cohabit), and then perform union matching (marriage) between a male and female
 
         // Update potential earnings so that as up to date as possible to decide partner in union matching.
-        yearlySchedule.addCollectionEvent(persons, Person.Processes.UpdatePotentialHourlyEarnings);
+        addCollectionEvent(yearlySchedule, persons, Person.Processes.UpdatePotentialHourlyEarnings);
 
         // Consider whether in consensual union (cohabiting)
-        yearlySchedule.addEvent(this, Processes.CohabitationAlignment);
-        yearlySchedule.addCollectionEvent(persons, Person.Processes.Cohabitation);
+        addEvent(yearlySchedule, this, Processes.CohabitationAlignment);
+        addCollectionEvent(yearlySchedule, persons, Person.Processes.Cohabitation);
 
         // partnership variation
-        yearlySchedule.addCollectionEvent(persons, Person.Processes.PartnershipDissolution);
-        yearlySchedule.addEvent(this, Processes.UnionMatching);
+        addCollectionEvent(yearlySchedule, persons, Person.Processes.PartnershipDissolution);
+        addEvent(yearlySchedule, this, Processes.UnionMatching);
         //yearlySchedule.addEvent(this, Processes.CheckForEmptyHouseholds);
         //yearlySchedule.addEvent(this, Processes.Timer);
 
         // Fertility
-        yearlySchedule.addEvent(this, Processes.FertilityAlignment);        //Align to fertility rates implied by projected population statistics.
-        yearlySchedule.addCollectionEvent(persons, Person.Processes.Fertility);
-        yearlySchedule.addCollectionEvent(persons, Person.Processes.GiveBirth, false);        //Cannot use read-only collection schedule as newborn children cause concurrent modification exception.  Need to specify false in last argument of Collection event.
+        addEvent(yearlySchedule, this, Processes.FertilityAlignment);        //Align to fertility rates implied by projected population statistics.
+        addCollectionEvent(yearlySchedule, persons, Person.Processes.Fertility);
+        addCollectionEvent(yearlySchedule, persons, Person.Processes.GiveBirth, false);        //Cannot use read-only collection schedule as newborn children cause concurrent modification exception.  Need to specify false in last argument of Collection event.
 
         // TIME USE MODULE
-        yearlySchedule.addEvent(this, Processes.LabourMarketAndIncomeUpdate);
+        addEvent(yearlySchedule, this, Processes.LabourMarketAndIncomeUpdate);
 
         // Assign benefit status to individuals in benefit units, from donors. Based on donor tax unit status.
-        yearlySchedule.addCollectionEvent(benefitUnits, BenefitUnit.Processes.ReceivesBenefits);
+        addCollectionEvent(yearlySchedule, benefitUnits, BenefitUnit.Processes.ReceivesBenefits);
 
         // CONSUMPTION AND SAVINGS MODULE
-        yearlySchedule.addCollectionEvent(persons, Person.Processes.ProjectEquivConsumption);
+        addCollectionEvent(yearlySchedule, persons, Person.Processes.ProjectEquivConsumption);
 
         // equivalised disposable income
-        yearlySchedule.addCollectionEvent(benefitUnits, BenefitUnit.Processes.CalculateChangeInEDI);
+        addCollectionEvent(yearlySchedule, benefitUnits, BenefitUnit.Processes.CalculateChangeInEDI);
 
         // mortality (migration) and population alignment at year's end
         addCollectionEventToAllYears(persons, Person.Processes.ConsiderMortality);
         addEventToAllYears(Processes.PopulationAlignment);
 
         // END OF YEAR PROCESSES
-        yearlySchedule.addEvent(this, Processes.CheckForImperfectTaxDBMatches);
+        addEvent(yearlySchedule, this, Processes.CheckForImperfectTaxDBMatches);
         addEventToAllYears(tests, Tests.Processes.RunTests); //Run tests
         addCollectionEventToAllYears(persons, Person.Processes.UpdateOutputVariables); // Update idPartner, dhhtp_c4
         addCollectionEventToAllYears(benefitUnits, BenefitUnit.Processes.UpdateOutputVariables); // Update dhhtp_c4
@@ -563,41 +633,72 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
 
         // UPDATE YEAR
         addEventToAllYears(Processes.UpdateYear);
+        if (eventProfiler != null) {
+            eventProfiler.mark(firstYearSched, this, null);
+            eventProfiler.mark(yearlySchedule, this, null);
+        }
 
         // UPDATE EVENT QUEUE
-        getEngine().getEventQueue().scheduleOnce(firstYearSched, startYear, ordering);
-        getEngine().getEventQueue().scheduleRepeat(yearlySchedule, startYear+1, ordering, 1.);
+        if (resumedCheckpoint == null) {
+            getEngine().getEventQueue().scheduleOnce(firstYearSched, startYear, ordering);
+            getEngine().getEventQueue().scheduleRepeat(yearlySchedule, startYear+1, ordering, 1.);
+        } else {
+            getEngine().getEventQueue().scheduleRepeat(yearlySchedule, resumedCheckpoint.getYear(), ordering, 1.);
+        }
+
+        // save checkpoint once the collector and observer have processed the year
+        if (checkpointYear != null && checkpointYear >= getFirstScheduledYear() && checkpointYear < endYear) {
+            getEngine().getEventQueue().scheduleOnce(new SingleTargetEvent(this, Processes.SaveCheckpoint), checkpointYear, Parameters.OBSERVER_ORDERING + 1);
+        }
 
         // at termination of simulation
         int orderEarlier = -1;            //Set less than order so that this is called before the yearlySchedule in the endYear.
         SystemEvent end = new SystemEvent(SimulationEngine.getInstance(), SystemEventType.End);
         getEngine().getEventQueue().scheduleOnce(end, endYear+1, orderEarlier);
+        if (eventProfiler != null) {
+            getEngine().getEventQueue().scheduleOnce(new SingleTargetEvent(this, Processes.WriteEventProfile), endYear+1, orderEarlier-1);
+        }
 
         log.debug("Time to build schedule " + (System.currentTimeMillis() - elapsedTime0)/1000. + " seconds.");
         elapsedTime0 = System.currentTimeMillis();
     }
     private void addEventToAllYears(Tests tt, Enum ee) {
-        firstYearSched.addEvent(tt, ee);
-        yearlySchedule.addEvent(tt, ee);
+        addEvent(firstYearSched, tt, ee);
+        addEvent(yearlySchedule, tt, ee);
     }
     private void addEventToAllYears(SimPathsCollector cc, Enum ee) {
-        firstYearSched.addEvent(cc, ee);
-        yearlySchedule.addEvent(cc, ee);
+        addEvent(firstYearSched, cc, ee);
+        addEvent(yearlySchedule, cc, ee);
     }
     void addEventToAllYears(Enum ee) {
 
-        firstYearSched.addEvent(this, ee);
-        yearlySchedule.addEvent(this, ee);
+        addEvent(firstYearSched, this, ee);
+        addEvent(yearlySchedule, this, ee);
     }
     private void addCollectionEventToAllYears(Set set, Enum ee, boolean readOnly) {
 
-        firstYearSched.addCollectionEvent(set, ee, readOnly);
-        yearlySchedule.addCollectionEvent(set, ee, readOnly);
+        addCollectionEvent(firstYearSched, set, ee, readOnly);
+        addCollectionEvent(yearlySchedule, set, ee, readOnly);
     }
     private void addCollectionEventToAllYears(Set set, Enum ee) {
 
-        firstYearSched.addCollectionEvent(set, ee);
-        yearlySchedule.addCollectionEvent(set, ee);
+        addCollectionEvent(firstYearSched, set, ee);
+        addCollectionEvent(yearlySchedule, set, ee);
+    }
+    private void addEvent(EventGroup schedule, EventListener target, Enum ee) {
+
+        if (eventProfiler != null) eventProfiler.mark(schedule, this, ee);
+        schedule.addEvent(target, ee);
+    }
+    private void addCollectionEvent(EventGroup schedule, Set set, Enum ee, boolean readOnly) {
+
+        if (eventProfiler != null) eventProfiler.mark(schedule, this, ee);
+        schedule.addCollectionEvent(set, ee, readOnly);
+    }
+    private void addCollectionEvent(EventGroup schedule, Set set, Enum ee) {
+
+        if (eventProfiler != null) eventProfiler.mark(schedule, this, ee);
+        schedule.addCollectionEvent(set, ee);
     }
 
     private void saveRunParameters() {
@@ -751,6 +852,8 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         CheckForEmptyBenefitUnits,
         GarbageCollection,
         CheckForImperfectTaxDBMatches,
+        SaveCheckpoint,
+        WriteEventProfile,
     }
 
     @Override
@@ -761,6 +864,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                 elapsedTime0 = System.currentTimeMillis();
                 System.out.println("Starting year " + year);
                 if (commentsOn) log.info("Starting year " + year);
+                if (randomStreams) reseedProcessGenerators();
             }
             case EndYear -> {
                 //System.out.println("Model assigned " + lowEd + "low education levels, " + medEd + "medium, " + highEd + "high ed");
@@ -875,6 +979,17 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
             case GarbageCollection -> {
                 screenForExitingObjects();
             }
+            case SaveCheckpoint -> {
+                SimPathsCollector simPathsCollector = (collector != null) ? collector :
+                        (SimPathsCollector) SimulationEngine.getInstance().getManager(SimPathsCollector.class.getCanonicalName());
+                File file = new File(getEngine().getCurrentExperiment().getOutputFolder() + File.separator + "checkpoints",
+                        "checkpoint_" + (year - 1) + Checkpoint.FILE_EXTENSION);
+                Checkpoint.save(this, simPathsCollector, file);
+            }
+            case WriteEventProfile -> {
+                eventProfiler.write(new File(getEngine().getCurrentExperiment().getOutputFolder() + File.separator + "csv",
+                        "event_profile.csv"));
+            }
             case CheckForImperfectTaxDBMatches -> {
 
                 if (Parameters.saveImperfectTaxDBMatches) {
@@ -982,34 +1097,21 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
     private void populationAlignmentWeighted() {
 
         int maxAlignAge = Math.min(maxAge, Parameters.getPopulationProjectionsMaxAge());
-        MultiKeyMap<Object, Double> weightsByGenderRegionAndAge = MultiKeyMap.multiKeyMap(new LinkedMap<>());
-        MultiKeyMap<Object, List<Person>> personsByGenderRegionAndAge = personsByAlignmentGroupInit(maxAlignAge);
+        AlignmentCellIndex personsByGenderRegionAndAge = personsByAlignmentGroupInit(maxAlignAge);
 
         //Calculate Weights
+        double[] weightsByGenderRegionAndAge = personsByGenderRegionAndAge.getWeights();
         for (Gender gender : Gender.values()) {
             for (Region region: Parameters.getCountryRegions()) {
                 for (int age = 0; age <= maxAlignAge; age++) {
-                    double weight = 0.0;
-                    for ( Person person : personsByGenderRegionAndAge.get(gender, region, age) ) {
-                        weight += person.getWeight();
-                    }
-                    weight = Parameters.getPopulationProjections(gender, region, age, year) / weight;
-                    weightsByGenderRegionAndAge.put(gender, region, age, weight);
+                    int cell = personsByGenderRegionAndAge.cell(gender, region, age);
+                    weightsByGenderRegionAndAge[cell] = Parameters.getPopulationProjections(gender, region, age, year) / weightsByGenderRegionAndAge[cell];
                 }
             }
         }
 
         //Re-weight simulation
-        for (Person person : persons) {
-            if (SampleExit.NotYet.equals(person.getSampleExit())) {
-
-                Gender gender = person.getDgn();
-                Region region = person.getRegion();
-                int age = Math.min(person.getDag(), maxAlignAge);
-                double weight = ((Number)weightsByGenderRegionAndAge.get(gender, region, age)).doubleValue();
-                person.setWeight(weight);
-            }
-        }
+        personsByGenderRegionAndAge.setWeights(weightsByGenderRegionAndAge);
     }
 
 
@@ -1033,16 +1135,17 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
     private void populationAlignmentUnweighted() {
 
         int maxAlignAge = Math.min(maxAge, Parameters.getPopulationProjectionsMaxAge());
-        MultiKeyMap<Object, List<Person>> personsByAlignmentGroup = personsByAlignmentGroupInit(maxAlignAge);
-        MultiKeyMap<Object, List<Person>> migrantPoolByAlignmentGroup = migrantPoolByAlignmentGroupInit(maxAlignAge, personsByAlignmentGroup);
+        AlignmentCellIndex index = personsByAlignmentGroupInit(maxAlignAge);
+        List<List<Person>> personsByAlignmentGroup = index.getPersonLists();
+        List<List<Person>> migrantPoolByAlignmentGroup = index.getMigrantLists();
 
         //Align to targets
         for (int age = 0; age <= maxAlignAge; age++) {
 
             for (Gender gender : Gender.values()) {
 
-                boolean flagSufficientMigrants = populationAlignmentDomesticMigration(age, gender, maxAlignAge, personsByAlignmentGroup, migrantPoolByAlignmentGroup);
-                populationAlignmentResidual(age, gender, maxAlignAge, personsByAlignmentGroup, flagSufficientMigrants, migrantPoolByAlignmentGroup);
+                boolean flagSufficientMigrants = populationAlignmentDomesticMigration(age, gender, maxAlignAge, index, personsByAlignmentGroup, migrantPoolByAlignmentGroup);
+                populationAlignmentResidual(age, gender, maxAlignAge, index, personsByAlignmentGroup, flagSufficientMigrants, migrantPoolByAlignmentGroup);
             }
         }
     }
@@ -1052,85 +1155,18 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
      *
      * METHOD TO ORGANISE SIMULATED POPULATION INTO SUBSETS FOR ALIGNMENT
      *
-     * @param maxAlignAge upper age for population alignment (lesser of maximum simulation age and age of supplied population projections)
-     * @return Mapping of subsets and population maps
+     * Subsets are ordered by id and shuffled, and potential migrants are identified as individuals who are the
+     * exclusive youngest member of their respective benefit units and are in households comprised of a single
+     * benefit unit
      *
-     **************************************************************/
-    private MultiKeyMap<Object, List<Person>> personsByAlignmentGroupInit(int maxAlignAge) {
-
-        MultiKeyMap<Object, List<Person>> personsByAlignmentGroup = MultiKeyMap.multiKeyMap(new LinkedMap<>());
-
-        //identify simulated personsByGenderRegionAndAge
-        for (Gender gender : Gender.values()) {
-            for (Region region: Parameters.getCountryRegions()) {
-                for (int age = 0; age <= maxAlignAge; age++) {
-                    personsByAlignmentGroup.put(gender, region, age, new LinkedList<>());
-                }
-            }
-        }
-        for (Person person : persons) {
-
-            if (SampleExit.NotYet.equals(person.getSampleExit())) {
-
-                int age = Math.min(person.getDag(), maxAlignAge);
-                List<Person> listHere = personsByAlignmentGroup.get(person.getDgn(), person.getRegion(), age);
-                if (listHere==null)
-                    throw new RuntimeException("failed to identify requested person alignment list");
-                listHere.add(person);
-            }
-        }
-
-        // order subgroup lists by id
-        // NOTE: lists are used to ensure that simulated populations are replicable
-        for (Gender gender : Gender.values()) {
-            for (Region region : Parameters.getCountryRegions()) {
-                for (int age = 0; age <= maxAlignAge; age++) {
-                    Collections.sort(personsByAlignmentGroup.get(gender, region, age));
-                    Collections.shuffle(personsByAlignmentGroup.get(gender, region, age), popAlignInnov);
-                }
-            }
-        }
-
-        return personsByAlignmentGroup;
-    }
-
-
-    /**************************************************************
-     *
-     * METHOD TO ORGANISE SIMULATED POPULATION OF POTENTIAL MIGRANTS INTO SUBGROUPS FOR POPULATION ALIGNMENT
-     * 	as for personsByAlignmentGroup, but limited to population of individuals who are the exclusive youngest member of
-     * 	their respective benefit units and are in households comprised of a single benefit unit
+     * @param maxAlignAge upper age for population alignment (lesser of maximum simulation age and age of supplied population projections)
+     * @return Index of subsets
      *
      **************************************************************/
-    private MultiKeyMap<Object, List<Person>> migrantPoolByAlignmentGroupInit(int maxAlignAge, MultiKeyMap<Object,
-            List<Person>> personsByAlignmentGroup) {
+    private AlignmentCellIndex personsByAlignmentGroupInit(int maxAlignAge) {
 
-        MultiKeyMap<Object, List<Person>> migrantsByAlignmentGroup;
-
-        //identify simulated personsByGenderRegionAndAge
-        migrantsByAlignmentGroup = MultiKeyMap.multiKeyMap(new LinkedMap<>());
-        for (Gender gender : Gender.values()) {
-            for (Region region: Parameters.getCountryRegions()) {
-                for (int age = 0; age <= maxAlignAge; age++) {
-                    migrantsByAlignmentGroup.put(gender, region, age, new LinkedList<>());
-                    List<Person> personsInGroup = personsByAlignmentGroup.get(gender, region, age);
-                    for (Person person : personsInGroup) {
-
-                        boolean flagAccept = true;
-                        if ( person.getBenefitUnit().getHousehold().getBenefitUnits().size() != 1) {
-                            flagAccept = false;
-                        } else {
-                            for (Person member : person.getBenefitUnit().getMembers()) {
-                                if ( member.getDag() <= person.getDag() && member != person ) flagAccept = false;
-                            }
-                        }
-                        if (flagAccept) migrantsByAlignmentGroup.get(gender, region, age).add(person);
-                    }
-                }
-            }
-        }
-
-        return migrantsByAlignmentGroup;
+        alignmentCellIndex.rebuild(persons, Parameters.getCountryRegions(), maxAlignAge, popAlignInnov);
+        return alignmentCellIndex;
     }
 
 
@@ -1145,9 +1181,9 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
      * @param migrantPoolByAlignmentGroup as for personsByAlignment group, but limited to youngest benefit unit members
      *
      *********************************************/
-    private boolean populationAlignmentDomesticMigration(int age, Gender gender, int maxAlignAge,
-                                                         MultiKeyMap<Object, List<Person>> personsByAlignmentGroup,
-                                                         MultiKeyMap<Object, List<Person>> migrantPoolByAlignmentGroup) {
+    private boolean populationAlignmentDomesticMigration(int age, Gender gender, int maxAlignAge, AlignmentCellIndex index,
+                                                         List<List<Person>> personsByAlignmentGroup,
+                                                         List<List<Person>> migrantPoolByAlignmentGroup) {
 
         boolean flagSufficientMigrants = true;
 
@@ -1159,7 +1195,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         for (Region region : regions) {
 
             int targetNumber = (int) Math.round(Parameters.getPopulationProjections(gender, region, age, year) / scalingFactor);
-            int simulatedNumber = personsByAlignmentGroup.get(gender, region, age).size();
+            int simulatedNumber = personsByAlignmentGroup.get(index.cell(gender, region, age)).size();
             if (targetNumber > simulatedNumber) {
 
                 for(int ii=0; ii<targetNumber-simulatedNumber; ii++) {
@@ -1168,7 +1204,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
             }
             if (targetNumber < simulatedNumber) {
 
-                for (Person person : migrantPoolByAlignmentGroup.get(gender, region, age)) {
+                for (Person person : migrantPoolByAlignmentGroup.get(index.cell(gender, region, age))) {
                     emigrantPool.add(person);
                     simulatedNumber--;
                     if (targetNumber == simulatedNumber) break;
@@ -1198,12 +1234,12 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                     int ageHere = Math.min(person.getDag(), maxAlignAge);
                     Gender genderHere = person.getDgn();
 
-                    personsByAlignmentGroup.get(genderHere, fromRegion, ageHere).remove(person);
-                    personsByAlignmentGroup.get(genderHere, toRegion, ageHere).add(person);
+                    personsByAlignmentGroup.get(index.cell(genderHere, fromRegion, ageHere)).remove(person);
+                    personsByAlignmentGroup.get(index.cell(genderHere, toRegion, ageHere)).add(person);
                     if (ageHere == age) {
 
-                        migrantPoolByAlignmentGroup.get(genderHere, fromRegion, age).remove(person);
-                        migrantPoolByAlignmentGroup.get(genderHere, toRegion, age).add(person);
+                        migrantPoolByAlignmentGroup.get(index.cell(genderHere, fromRegion, age)).remove(person);
+                        migrantPoolByAlignmentGroup.get(index.cell(genderHere, toRegion, age)).add(person);
                     }
                 }
             }
@@ -1228,10 +1264,10 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
      * @param migrantPoolByAlignmentGroup as for personsByAlignmentGroup, but limited to youngest benefit unit members
      *
      *********************************************/
-    private void populationAlignmentResidual(int age, Gender gender, int maxAlignAge,
-                                             MultiKeyMap<Object, List<Person>> personsByAlignmentGroup,
+    private void populationAlignmentResidual(int age, Gender gender, int maxAlignAge, AlignmentCellIndex index,
+                                             List<List<Person>> personsByAlignmentGroup,
                                              boolean flagSufficientMigrants,
-                                             MultiKeyMap<Object, List<Person>> migrantPoolByAlignmentGroup) {
+                                             List<List<Person>> migrantPoolByAlignmentGroup) {
 
         int indicatorError = 0;
         List<Region> regions = new LinkedList<>(Parameters.getCountryRegions());
@@ -1239,7 +1275,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         for (Region region : regions) {
 
             int targetNumber = (int) Math.round(Parameters.getPopulationProjections(gender, region, age, year) / scalingFactor);
-            int simulatedNumber = personsByAlignmentGroup.get(gender, region, age).size();
+            int simulatedNumber = personsByAlignmentGroup.get(index.cell(gender, region, age)).size();
             if (targetNumber < simulatedNumber) {
                 // emigration or death
 
@@ -1252,7 +1288,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                 if (age < Parameters.ALIGN_MIN_AGE_ASSUME_DEATH) {
                     // simulate emigration
 
-                    Iterator<Person> migrantPoolByAlignmentGroupIterator = migrantPoolByAlignmentGroup.get(gender, region, age).iterator();
+                    Iterator<Person> migrantPoolByAlignmentGroupIterator = migrantPoolByAlignmentGroup.get(index.cell(gender, region, age)).iterator();
                     while (targetNumber < simulatedNumber && migrantPoolByAlignmentGroupIterator.hasNext()) {
 
                         Person emigrant = migrantPoolByAlignmentGroupIterator.next();
@@ -1266,9 +1302,9 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
 
                                 int ageHere = Math.min(person.getDag(), maxAlignAge);
                                 Gender genderHere = person.getDgn();
-                                personsByAlignmentGroup.get(genderHere, region, ageHere).remove(person);
+                                personsByAlignmentGroup.get(index.cell(genderHere, region, ageHere)).remove(person);
                                 if (ageHere == age && person!=emigrant) {
-                                    migrantPoolByAlignmentGroup.get(genderHere, region, age).remove(person);
+                                    migrantPoolByAlignmentGroup.get(index.cell(genderHere, region, age)).remove(person);
                                 }
                                 person.setSampleExit(SampleExit.EmigrationAlignment);
                             }
@@ -1277,7 +1313,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                         simulatedNumber --;
                     }
                 }
-                Iterator<Person> personIterator = personsByAlignmentGroup.get(gender, region, age).iterator();
+                Iterator<Person> personIterator = personsByAlignmentGroup.get(index.cell(gender, region, age)).iterator();
                 while (targetNumber < simulatedNumber && personIterator.hasNext()) {
                     // simulate death - may be of any age
 
@@ -1294,8 +1330,8 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
 
                         // update counters and references
                         personIterator.remove();
-                        if (migrantPoolByAlignmentGroup.get(gender, region,age).contains(candidate)) {
-                            migrantPoolByAlignmentGroup.get(gender, region,age).remove(candidate);
+                        if (migrantPoolByAlignmentGroup.get(index.cell(gender, region,age)).contains(candidate)) {
+                            migrantPoolByAlignmentGroup.get(index.cell(gender, region,age)).remove(candidate);
                         }
                         simulatedNumber --;
                     }
@@ -1310,10 +1346,10 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                     throw new RuntimeException("Inconsistent treatment of population alignment across regions");
                 }
 
-                List<Person> migrantPool = migrantPoolByAlignmentGroup.get(gender, region, age);
+                List<Person> migrantPool = migrantPoolByAlignmentGroup.get(index.cell(gender, region, age));
                 for (Region region1 : regions) {
                     if (region1 != region) {
-                        migrantPool.addAll(migrantPoolByAlignmentGroup.get(gender, region1, age));
+                        migrantPool.addAll(migrantPoolByAlignmentGroup.get(index.cell(gender, region1, age)));
                     }
                 }
                 Iterator<Person> migrantPoolIterator = migrantPool.iterator();
@@ -1330,7 +1366,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
 
                         int ageHere = Math.min(person.getDag(), maxAlignAge);
                         Gender genderHere = person.getDgn();
-                        personsByAlignmentGroup.get(genderHere, region, ageHere).add(person);
+                        personsByAlignmentGroup.get(index.cell(genderHere, region, ageHere)).add(person);
                     }
                     simulatedNumber ++;
                 }
@@ -1339,21 +1375,43 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
     }
 
 
-    /**********************************************************
-     *
-     * METHOD TO CLONE EXISTING HOUSEHOLD AND ADD TO SIMULATED POPULATION
-     *
-     *********************************************************/
-    private void cloneHousehold(Household originalHousehold, SampleEntry sampleEntry) {
+    /**
+     * reseeds the generators of the model processes from the streams of the year, so that the draws of a process in
+     * a year do not depend on the number of draws made by the process in preceding years
+     */
+    private void reseedProcessGenerators() {
+        cohabitInnov = RandomStreams.random(randomStreamSeed, RandomStreams.Stream.Cohabitation, year);
+        educationInnov = RandomStreams.random(randomStreamSeed, RandomStreams.Stream.Education, year);
+        popAlignInnov = RandomStreams.random(randomStreamSeed, RandomStreams.Stream.PopulationAlignment, year);
+        labourMarket.labourInnov = RandomStreams.random(randomStreamSeed, RandomStreams.Stream.LabourMarket, year);
+        cloneDraws.clear();
+    }
 
-        Household newHousehold = new Household(originalHousehold, sampleEntry);
-        households.add(newHousehold);
-        if (originalHousehold.getBenefitUnits().isEmpty())
-            throw new RuntimeException("problem identifying household benefit units to clone");
-        for (BenefitUnit originalBenefitUnit : originalHousehold.getBenefitUnits()) {
-            cloneBenefitUnit(originalBenefitUnit, newHousehold, sampleEntry);
-        }
-        newHousehold.resetWeights(1.0d);
+    /**
+     * returns the seed of a new agent, drawn from the stream of its parent agent in the current year
+     * @param ordinal number of preceding draws of the parent from the stream in the year
+     */
+    public long getAgentSeed(RandomStreams.Stream stream, long parentId, int ordinal) {
+        return RandomStreams.seed(randomStreamSeed, stream, year, parentId, ordinal);
+    }
+
+    /**
+     * returns the seed of a process of the model, drawn from its stream in the current year where random streams are
+     * used, and from the generator of the simulation engine otherwise
+     */
+    long getProcessSeed(RandomStreams.Stream stream) {
+        return (randomStreams) ? RandomStreams.seed(randomStreamSeed, stream, year, 0L) : SimulationEngine.getRnd().nextLong();
+    }
+
+    /**
+     * returns the seed of a clone of an agent, drawn from the stream of the original agent in the current year where
+     * random streams are used, and scaled from a uniform draw otherwise
+     */
+    private long getCloneSeed(RandomStreams.Stream stream, long originalId, double uniformDraw) {
+        if (!randomStreams)
+            return (long)(uniformDraw*100000);
+        int ordinal = cloneDraws.computeIfAbsent(originalId, id -> new RandomStreams.Draws()).next(stream, year);
+        return RandomStreams.seed(randomStreamSeed, stream, year, originalId, ordinal);
     }
 
 
@@ -1367,7 +1425,8 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         // initialise objects
 
         double seed0 = SimulationEngine.getRnd().nextDouble();
-        long seed = (SampleEntry.ProcessedInputData.equals(sampleEntry)) ? originalBenefitUnit.getSeed() : (long)(seed0*100000);
+        long seed = (SampleEntry.ProcessedInputData.equals(sampleEntry)) ? originalBenefitUnit.getSeed() :
+                getCloneSeed(RandomStreams.Stream.BenefitUnitClone, originalBenefitUnit.getId(), seed0);
 
         BenefitUnit newBenefitUnit = new BenefitUnit(originalBenefitUnit, seed, sampleEntry);
         newBenefitUnit.setHousehold(newHousehold);
@@ -1379,7 +1438,8 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         for (Person originalPerson : originalPersons) {
 
             seed0 = SimulationEngine.getRnd().nextDouble();
-            seed = (SampleEntry.ProcessedInputData.equals(sampleEntry)) ? originalPerson.getSeed() : (long)(seed0*100000);
+            seed = (SampleEntry.ProcessedInputData.equals(sampleEntry)) ? originalPerson.getSeed() :
+                    getCloneSeed(RandomStreams.Stream.PersonClone, originalPerson.getId(), seed0);
             Person newPerson = new Person(originalPerson, seed, sampleEntry);
             newPerson.setBenefitUnit(newBenefitUnit);
             persons.add(newPerson);
@@ -1412,15 +1472,47 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
     protected void unionMatching(boolean alignmentRun) {
 
         matches.clear();
+        List<Pair<Set<Person>, Set<Person>>> unmatchedByRegion = new ArrayList<>();
+        Set<Person> candidates = new HashSet<>();
+        boolean disjoint = true;
         for (Region region : Parameters.getCountryRegions()) {
 
             Set<Person> unmatchedMales = new LinkedHashSet<>();
             Set<Person> unmatchedFemales = new LinkedHashSet<>();
             unmatchedMales.addAll(personsToMatch.get(Gender.Male).get(region));
             unmatchedFemales.addAll(personsToMatch.get(Gender.Female).get(region));
-            Pair<Set<Person>, Set<Person>> unmatched = new Pair<>(unmatchedMales, unmatchedFemales);
+            unmatchedByRegion.add(new Pair<>(unmatchedMales, unmatchedFemales));
+            for (Person person : unmatchedMales) disjoint &= candidates.add(person);
+            for (Person person : unmatchedFemales) disjoint &= candidates.add(person);
+        }
+
+        if (!disjoint || !CandidateMatching.prunes(Parameters.AGE_DIFFERENCE_INITIAL_BOUND, Parameters.POTENTIAL_EARNINGS_DIFFERENCE_INITIAL_BOUND)) {
+            // a person to match in more than one region may only be matched once, and matching over all pairs uses
+            // the shared instance of GlobalMatching, so regions are matched in turn
+            for (Pair<Set<Person>, Set<Person>> unmatched : unmatchedByRegion) {
+                evalMatches(unmatched, alignmentRun);
+            }
+            return;
+        }
+
+        // regions do not share candidates, and are matched over candidate pairs by CandidateMatching, which holds no
+        // state between calls, so are matched concurrently
+        UnionMatching[] regionMatching = new UnionMatching[unmatchedByRegion.size()];
+        IntStream.range(0, regionMatching.length).parallel().forEach(rr -> {
+
+            Pair<Set<Person>, Set<Person>> unmatched = unmatchedByRegion.get(rr);
+            if (!unmatched.getFirst().isEmpty() && !unmatched.getSecond().isEmpty()) {
+                regionMatching[rr] = new UnionMatching(unmatched, alignmentRun, true);
+                regionMatching[rr].evaluate("GM");
+            }
+        });
 
-            evalMatches(unmatched, alignmentRun);
+        // form unions in region order, as if regions were matched in turn
+        for (UnionMatching unionMatching : regionMatching) {
+            if (unionMatching != null) {
+                unionMatching.applyMatches();
+                recordMatches(unionMatching.getMatches());
+            }
         }
     }
 
@@ -1447,17 +1539,21 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
 
             UnionMatching unionMatching = new UnionMatching(unmatched, alignmentRun);
             unionMatching.evaluate("GM");
-            List<Pair<Person,Person>> matchesHere = unionMatching.getMatches();
-            for (Pair<Person,Person> match : matchesHere) {
-                Person male = match.getFirst();
-                Person female = match.getSecond();
-                personsToMatch.get(male.getDgn()).get(male.getRegion()).remove(male);
-                for (Region region : Parameters.getCountryRegions()) {
-                    personsToMatch.get(female.getDgn()).get(region).remove(female);
-                }
+            recordMatches(unionMatching.getMatches());
+        }
+    }
+
+    private void recordMatches(List<Pair<Person,Person>> matchesHere) {
+
+        for (Pair<Person,Person> match : matchesHere) {
+            Person male = match.getFirst();
+            Person female = match.getSecond();
+            personsToMatch.get(male.getDgn()).get(male.getRegion()).remove(male);
+            for (Region region : Parameters.getCountryRegions()) {
+                personsToMatch.get(female.getDgn()).get(region).remove(female);
             }
-            matches.addAll(matchesHere);
         }
+        matches.addAll(matchesHere);
     }
 
     private void socialCareMarketClearing() {
@@ -1556,115 +1652,137 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
     }
 
     /*
-    Private helper method used to set up alignment for different occupancy types
+    Subgroups of benefit units aligned separately, in the order in which they are aligned by the labour market module
      */
-    private void activityAlignment(
+    private static final OccupancyExtended[] ACTIVITY_ALIGNMENT_SUBGROUPS = {
+            OccupancyExtended.Single_Male,
+            OccupancyExtended.Male_AC,
+            OccupancyExtended.Single_Female,
+            OccupancyExtended.Female_AC,
+            OccupancyExtended.Couple,
+            OccupancyExtended.Male_With_Dependent,
+            OccupancyExtended.Female_With_Dependent
+    };
+
+    /*
+    Alignment settings of each subgroup of benefit units
+     */
+    private record ActivityAlignmentSubgroup(
             TimeSeriesVariable adjustmentMap, // map storing adjustment values used in the alignment process
             MultiKeyCoefficientMap coefficientMap, // map storing original labour supply utility regression coefficients
             String[] regressionCoefficientName, // name of regression coefficient to adjust
             OccupancyExtended occupancy, // benefit unit occupancy extended to allow all types used in labour supply module
             String occupancyLabel // displays the type of benefit unit to which adjustment is applied
-    ) {
+    ) {}
+
+    private static ActivityAlignmentSubgroup activityAlignmentSubgroup(OccupancyExtended occupancy) {
+        return switch (occupancy) {
+            case Single_Male -> new ActivityAlignmentSubgroup(
+                    TimeSeriesVariable.UtilityAdjustmentSingleMales,
+                    Parameters.getCoeffLabourSupplyUtilityMales(),
+                    new String[]{"AlignmentFixedCostMen"},
+                    occupancy,
+                    "single males");
+            case Male_AC -> new ActivityAlignmentSubgroup(
+                    TimeSeriesVariable.UtilityAdjustmentACMales,
+                    Parameters.getCoeffLabourSupplyUtilityACMales(),
+                    new String[]{"AlignmentFixedCostMen"},
+                    occupancy,
+                    "single AC males");
+            case Female_AC -> new ActivityAlignmentSubgroup(
+                    TimeSeriesVariable.UtilityAdjustmentACFemales,
+                    Parameters.getCoeffLabourSupplyUtilityACFemales(),
+                    new String[]{"AlignmentFixedCostWomen"},
+                    occupancy,
+                    "single AC females");
+            case Single_Female -> new ActivityAlignmentSubgroup(
+                    TimeSeriesVariable.UtilityAdjustmentSingleFemales,
+                    Parameters.getCoeffLabourSupplyUtilityFemales(),
+                    new String[]{"AlignmentFixedCostWomen"},
+                    occupancy,
+                    "single females");
+            case Couple -> new ActivityAlignmentSubgroup(
+                    TimeSeriesVariable.UtilityAdjustmentCouples,
+                    Parameters.getCoeffLabourSupplyUtilityCouples(),
+                    new String[]{"AlignmentFixedCostMen","AlignmentFixedCostWomen"},
+                    occupancy,
+                    "couples");
+            case Male_With_Dependent -> new ActivityAlignmentSubgroup(
+                    TimeSeriesVariable.UtilityAdjustmentMaleWithDep,
+                    Parameters.getCoeffLabourSupplyUtilityMalesWithDependent(),
+                    new String[]{"AlignmentFixedCostMen"},
+                    occupancy,
+                    "males with dependents");
+            case Female_With_Dependent -> new ActivityAlignmentSubgroup(
+                    TimeSeriesVariable.UtilityAdjustmentFemaleWithDep,
+                    Parameters.getCoeffLabourSupplyUtilityFemalesWithDependent(),
+                    new String[]{"AlignmentFixedCostWomen"},
+                    occupancy,
+                    "females with dependents");
+        };
+    }
+
+    /*
+    Private helper method used to set up alignment for different occupancy types
+    subgroupBenefitUnits are the benefit units of the subgroup
+    alignment details are written to log
+     */
+    private void activityAlignment(ActivityAlignmentSubgroup subgroup, BenefitUnit[] subgroupBenefitUnits, Formatter log) {
+
         // Use the initial value from time_series_factor.xlsx as the cold start each year,
         // rather than the previous year's alignment result, to prevent whiplash oscillation
         // where overshooting in one year causes overcorrection in the next.
-        double utilityAdjustment = Parameters.getInitialUtilityAdjustment(getYear(), adjustmentMap);
+        double utilityAdjustment = Parameters.getInitialUtilityAdjustment(getYear(), subgroup.adjustmentMap());
 
         if (Parameters.LOG_ALIGNMENT_DETAILS) {
-            System.out.printf("[Alignment] Activity %-20s | year=%d | cold-start=%.4f%n",
-                    occupancyLabel, getYear(), utilityAdjustment);
+            log.format("[Alignment] Activity %-20s | year=%d | cold-start=%.4f%n",
+                    subgroup.occupancyLabel(), getYear(), utilityAdjustment);
         }
 
-        ActivityAlignmentV2 activityAlignment = new ActivityAlignmentV2(benefitUnits, coefficientMap, regressionCoefficientName, occupancy);
+        ActivityAlignmentV2 activityAlignment = new ActivityAlignmentV2(subgroupBenefitUnits, subgroup.coefficientMap(), subgroup.regressionCoefficientName(), subgroup.occupancy());
         RootSearch2 search = getRootSearch2(utilityAdjustment, activityAlignment, 0.5, 5.0E-3, Parameters.EMPLOYMENT_ALIGNMENT_BOUND);
 
         if (Parameters.LOG_ALIGNMENT_DETAILS) {
-            System.out.printf("[Alignment] Activity %-20s | result=%.6f | altered=%s | iters=%d%n",
-                    occupancyLabel, search.getTarget()[0], search.isTargetAltered(), search.getIterationCount());
+            log.format("[Alignment] Activity %-20s | result=%.6f | altered=%s | iters=%d%n",
+                    subgroup.occupancyLabel(), search.getTarget()[0], search.isTargetAltered(), search.getIterationCount());
             for (RootSearch2.IterationInfo it : search.getIterationHistory()) {
-                System.out.printf("  iter %2d | x=% .6f | f(x)=% .3e | step=% .3e | funcTol=%-5s | ordTol=%-5s%n",
+                log.format("  iter %2d | x=% .6f | f(x)=% .3e | step=% .3e | funcTol=%-5s | ordTol=%-5s%n",
                         it.getIteration(), it.getX(), it.getFx(), it.getStep(),
                         it.isFuncTolMet(), it.isOrdTolMet());
             }
         }
+        log.flush();
 
         if (search.isTargetAltered()) {
-            Parameters.putTimeSeriesValue(getYear(), search.getTarget()[0], adjustmentMap);
+            Parameters.putTimeSeriesValue(getYear(), search.getTarget()[0], subgroup.adjustmentMap());
         }
 
     }
 
-    public void activityAlignmentSingleMales() {
-        activityAlignment(
-                TimeSeriesVariable.UtilityAdjustmentSingleMales,
-                Parameters.getCoeffLabourSupplyUtilityMales(),
-                new String[]{"AlignmentFixedCostMen"},
-                OccupancyExtended.Single_Male,
-                "single males"
-        );
-    }
-
-    public void activityAlignmentSingleACMales() {
-        activityAlignment(
-                TimeSeriesVariable.UtilityAdjustmentACMales,
-                Parameters.getCoeffLabourSupplyUtilityACMales(),
-                new String[]{"AlignmentFixedCostMen"},
-                OccupancyExtended.Male_AC,
-                "single AC males"
-        );
-    }
-
-    public void activityAlignmentSingleACFemales() {
-        activityAlignment(
-                TimeSeriesVariable.UtilityAdjustmentACFemales,
-                Parameters.getCoeffLabourSupplyUtilityACFemales(),
-                new String[]{"AlignmentFixedCostWomen"},
-                OccupancyExtended.Female_AC,
-                "single AC females"
-        );
-    }
-
-    public void activityAlignmentSingleFemales() {
-        activityAlignment(
-                TimeSeriesVariable.UtilityAdjustmentSingleFemales,
-                Parameters.getCoeffLabourSupplyUtilityFemales(),
-                new String[]{"AlignmentFixedCostWomen"},
-                OccupancyExtended.Single_Female,
-                "single females"
-        );
-    }
-
-    public void activityAlignmentCouples() {
-        activityAlignment(
-                TimeSeriesVariable.UtilityAdjustmentCouples,
-                Parameters.getCoeffLabourSupplyUtilityCouples(),
-                new String[]{"AlignmentFixedCostMen","AlignmentFixedCostWomen"},
-                OccupancyExtended.Couple,
-                "couples"
-        );
-    }
-
-    public void activityAlignmentMaleWithDependents() {
-        activityAlignment(
-                TimeSeriesVariable.UtilityAdjustmentMaleWithDep,
-                Parameters.getCoeffLabourSupplyUtilityMalesWithDependent(),
-                new String[]{"AlignmentFixedCostMen"},
-                OccupancyExtended.Male_With_Dependent,
-                "males with dependents"
-        );
-    }
+    /**
+     * Aligns the activity of all subgroups of benefit units.
+     *
+     * The subgroups are disjoint and each adjusts its own coefficient map, so that the alignment of one subgroup
+     * does not depend on that of any other. Benefit units are therefore partitioned by subgroup once, and the root
+     * searches of all subgroups are run concurrently, each over the benefit units of its subgroup. Alignment details
+     * are printed after all searches complete, in the order of ACTIVITY_ALIGNMENT_SUBGROUPS.
+     */
+    public void activityAlignmentBySubgroup() {
 
-    public void activityAlignmentFemaleWithDependents() {
-        activityAlignment(
-                TimeSeriesVariable.UtilityAdjustmentFemaleWithDep,
-                Parameters.getCoeffLabourSupplyUtilityFemalesWithDependent(),
-                new String[]{"AlignmentFixedCostWomen"},
-                OccupancyExtended.Female_With_Dependent,
-                "females with dependents"
-        );
+        Map<OccupancyExtended, BenefitUnit[]> subgroupBenefitUnits = ActivityAlignmentV2.partitionBySubgroup(benefitUnits);
+        ActivityAlignmentSubgroup[] subgroups = new ActivityAlignmentSubgroup[ACTIVITY_ALIGNMENT_SUBGROUPS.length];
+        StringBuilder[] logs = new StringBuilder[ACTIVITY_ALIGNMENT_SUBGROUPS.length];
+        for (int ii = 0; ii < subgroups.length; ii++) {
+            subgroups[ii] = activityAlignmentSubgroup(ACTIVITY_ALIGNMENT_SUBGROUPS[ii]);
+            logs[ii] = new StringBuilder();
+        }
+        IntStream.range(0, subgroups.length).parallel().forEach(ii ->
+                activityAlignment(subgroups[ii], subgroupBenefitUnits.get(subgroups[ii].occupancy()), new Formatter(logs[ii])));
+        for (StringBuilder log : logs) {
+            System.out.print(log);
+        }
     }
 
-
     private void partnershipAlignment() {
 
         // Instantiate alignment object
@@ -1717,6 +1835,20 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
     }
 
 
+    /**
+     * Solves the adjustment of an alignment from the thresholds of agents where the alignment provides them (see
+     * ThresholdAlignment) and thresholdAlignment is set, and by root search otherwise. Outcomes of agents are left as
+     * at the adjustment returned.
+     */
+    private double getAlignedAdjustment(double initialAdjustment, double minVal, double maxVal, IEvaluation alignmentClass, double epsOrdinates, double epsFunction) {
+        if (thresholdAlignment && alignmentClass instanceof IThresholdEvaluation thresholdEvaluation) {
+            Double adjustment = ThresholdAlignment.align(thresholdEvaluation, initialAdjustment, minVal, maxVal, epsFunction);
+            if (adjustment != null)
+                return adjustment;
+        }
+        return getRootSearch(initialAdjustment, minVal, maxVal, alignmentClass, epsOrdinates, epsFunction).getTarget()[0];
+    }
+
     @NotNull
     private static RootSearch2 getRootSearch2(double initialAdjustment, IEvaluation alignmentClass, double epsOrdinates, double epsFunction, double modifier) {
         double minVal = initialAdjustment - modifier;
@@ -1801,12 +1933,13 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         } else {
             inSchoolAdjustment = Parameters.getTimeSeriesValue(getYear(), TimeSeriesVariable.InSchoolAdjustment);
         }
-        RootSearch search = getRootSearch(inSchoolAdjustment, inSchoolAlignment, 1.0E-2, 1.0E-2, Parameters.IN_SCHOOL_ALIGNMENT_BOUND);
+        double adjustment = getAlignedAdjustment(inSchoolAdjustment, inSchoolAdjustment - Parameters.IN_SCHOOL_ALIGNMENT_BOUND,
+                inSchoolAdjustment + Parameters.IN_SCHOOL_ALIGNMENT_BOUND, inSchoolAlignment, 1.0E-2, 1.0E-2);
 
         // update and exit
-        Parameters.putTimeSeriesValue(getYear(), search.getTarget()[0], TimeSeriesVariable.InSchoolAdjustment);
+        Parameters.putTimeSeriesValue(getYear(), adjustment, TimeSeriesVariable.InSchoolAdjustment);
         if (Parameters.LOG_ALIGNMENT_DETAILS) {
-            System.out.printf("[Alignment] InSchool                  | year=%d | adjustment=%.6f%n", getYear(), search.getTarget()[0]);
+            System.out.printf("[Alignment] InSchool                  | year=%d | adjustment=%.6f%n", getYear(), adjustment);
         }
     }
 
@@ -2089,12 +2222,12 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         double maxVal = Math.min(Parameters.FERTILITY_ALIGNMENT_BOUND, - fertilityAdjustment + Parameters.FERTILITY_ALIGNMENT_BOUND);
 
         // run search
-        RootSearch search = getRootSearch(fertilityAdjustment, minVal, maxVal, fertilityAlignment, 5.0E-3, 5.0E-3); // epsOrdinates and epsFunction determine the stopping condition for the search. For partnershipAlignment error term is the difference between target and observed share of partnered individuals.
+        double adjustment = getAlignedAdjustment(fertilityAdjustment, minVal, maxVal, fertilityAlignment, 5.0E-3, 5.0E-3); // epsOrdinates and epsFunction determine the stopping condition for the search. For partnershipAlignment error term is the difference between target and observed share of partnered individuals.
 
         // update and exit
-        Parameters.putTimeSeriesValue(getYear(), search.getTarget()[0], TimeSeriesVariable.FertilityAdjustment);
+        Parameters.putTimeSeriesValue(getYear(), adjustment, TimeSeriesVariable.FertilityAdjustment);
         if (Parameters.LOG_ALIGNMENT_DETAILS) {
-            System.out.printf("[Alignment] Fertility                 | year=%d | adjustment=%.6f%n", getYear(), search.getTarget()[0]);
+            System.out.printf("[Alignment] Fertility                 | year=%d | adjustment=%.6f%n", getYear(), adjustment);
         }
     }
 
@@ -2144,8 +2277,30 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
     }
 
 
+    //If user chooses start year that is higher than the last available initial population, last available population should be used but with uprated monetary values
+    private boolean isUprateInitialPopulation() {
+        return startYear > Parameters.getMaxStartYear();
+    }
+
+    // year of the initial population loaded from the country-year specific tables of the input database
+    private int getInputPopulationYear() {
+        return isUprateInitialPopulation() ? Parameters.getMaxStartYear() : startYear;
+    }
+
+    private double getInitialPopulationUpratingFactor() {
+        return Parameters.getTimeSeriesIndex(startYear, UpratingCase.ModelInitialise) /
+                Parameters.getTimeSeriesIndex(Parameters.getMaxStartYear(), UpratingCase.ModelInitialise);
+    }
+
     private void inputDatabaseInteraction() {
 
+        if (readOnlyInputDatabase) {
+            // read-only access: starting population is read from its country-year tables, and uprated as loaded
+            System.out.println("Reading from database at " + DatabaseUtils.databaseInputUrl + " (read-only)");
+            initialHoursWorkedWeekly = InputDatabase.readInitialHoursWorkedWeekly(country, getInputPopulationYear());
+            return;
+        }
+
         Connection conn = null;
         Statement stat = null;
         try {
@@ -2159,8 +2314,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                 throw new RuntimeException("SQL Exception! " + e.getMessage());
             }
 
-            //If user chooses start year that is higher than the last available initial population, last available population should be used but with uprated monetary values
-            boolean uprateInitialPopulation = (startYear > Parameters.getMaxStartYear());
+            boolean uprateInitialPopulation = isUprateInitialPopulation();
 
             stat = conn.createStatement();
 
@@ -2170,12 +2324,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                 String[] tableNamesInitial = new String[]{"HOUSEHOLD", "BENEFITUNIT", "PERSON"};
                 for (String tableName : tableNamesInitial) {
                     stat.execute("DROP TABLE IF EXISTS " + tableName + " CASCADE");
-                    int year;
-                    if (uprateInitialPopulation) {
-                        year = Parameters.getMaxStartYear(); // Load the last available initial population from all available in tables of the database
-                    } else {
-                        year = startYear; // Load the country-year specific initial population from all available in tables of the database
-                    }
+                    int year = getInputPopulationYear();
                     stat.execute("CREATE TABLE " + tableName + " AS SELECT * FROM " + tableName + "_" + country + "_" + year);
                     System.out.println("Completed reading from " + tableName + "_" + country + "_" + year);
                 }
@@ -2192,9 +2341,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
 
             //If start year is higher than the last available population, calculate the uprating factor and apply it to the monetary values in the database:
             if (uprateInitialPopulation & isFirstRun) {
-                double upratingFactor =
-                        Parameters.getTimeSeriesIndex(startYear, UpratingCase.ModelInitialise) /
-                                Parameters.getTimeSeriesIndex(Parameters.getMaxStartYear(), UpratingCase.ModelInitialise);
+                double upratingFactor = getInitialPopulationUpratingFactor();
                 //Modify the underlying initial population being used by applying the upratingFactor to its monetary values
                 String[] columnsToUprate = new String[]{"YPNBIHS_DV", "YPTCIIHS_DV", "YPNCP", "YPNOAB", "YPLGRS_DV"};
                 for (String columnToUprateName : columnsToUprate) {
@@ -2249,6 +2396,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
 
         // initialisations
         System.out.println("Creating population structures");
+        long heapBefore = heapUsedAfterGC();
         persons = new LinkedHashSet<Person>();
         benefitUnits = new LinkedHashSet<BenefitUnit>();
         households = new LinkedHashSet<Household>(); //Also initialise set of families to which benefitUnits belong
@@ -2257,13 +2405,17 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         double aggregateHouseholdsWeight = 0.;        //Aggregate Weight of simulated benefitUnits (a weighted sum of the simulated households)
 
         //TODO: Slight differences between otherwise identical simulations arise when loading "processed" vs "unprocessed" data (distinguished by the if statement below)
-        Processed processed = getProcessed();
-        if (processed!=null) {
+        Processed processed = (syntheticPopulation) ? null : getProcessed();
+        if (syntheticPopulation) {
+            System.out.println("Generating synthetic starting population");
+            SyntheticPopulation.build(popSize, Parameters.getCountryRegions(), getProcessSeed(RandomStreams.Stream.InitialPopulation), households, benefitUnits, persons);
+        } else if (processed!=null) {
             Set<Household> households = processed.getHouseholds();
             if (households.isEmpty())
                 throw new RuntimeException("No households in processed set");
             System.out.println("Found processed dataset - preparing for simulation");
             long householdIdCounter = 1L, benefitUnitIdCounter = 1L, personIdCounter = 1L;
+            InitialPopulationBuilder builder = new InitialPopulationBuilder(SampleEntry.ProcessedInputData, 0L);
             for ( Household originalHousehold : processed.getHouseholds()) {
                 if (originalHousehold.getId() > householdIdCounter)
                     householdIdCounter = originalHousehold.getId();
@@ -2277,8 +2429,9 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                     }
                     benefitUnit.initializeFields();
                 }
-                cloneHousehold(originalHousehold, SampleEntry.ProcessedInputData);
+                builder.add(originalHousehold, null);
             }
+            builder.build(this.households, benefitUnits, persons);
             Household.setHouseholdIdCounter(householdIdCounter+1);
             BenefitUnit.setBenefitUnitIdCounter(benefitUnitIdCounter+1);
             Person.setPersonIdCounter(personIdCounter+1);
@@ -2302,8 +2455,8 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                 // subgroups. In this case you may have many similar observations in the sample all with low survey weights
                 // so that replicating by a factor adjustment on weight of each observation may result in none of the
                 // observations being included in the simulated sample (unless the simulated sample was very large).
-                List<Household> householdList1 = new LinkedList<>();
-                List<Household> householdList2 = new LinkedList<>();
+                List<Household> householdList1 = new ArrayList<>();
+                List<Household> householdList2 = new ArrayList<>();
                 Double minWeight = null;
                 for (Household household : inputHouseholdList) {
                     double hhweight = household.getWeight();
@@ -2325,57 +2478,42 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                 }
                 double replicationFactor = 1.0 / minWeight;    // ensures each sampled household represented at least 1 time in list
 
-                List<Household> householdList1Deweighted = new LinkedList<>();
-                for (Household household : householdList1) {
-
-                    int numberOfClones = (int) Math.round(household.getWeight() * replicationFactor);
-                    for (int ii=0; ii<numberOfClones; ii++) {
-                        householdList1Deweighted.add(household);
-                    }
-                }
-                List<Household> householdList2Deweighted = new LinkedList<>();
-                for (Household household : householdList2) {
-
-                    int numberOfClones = (int) Math.round(household.getWeight() * replicationFactor);
-                    for (int ii=0; ii<numberOfClones; ii++) {
-                        householdList2Deweighted.add(household);
-                    }
-                }
-
-                Collections.shuffle(householdList1Deweighted, initialiseInnov1);
-                Collections.shuffle(householdList2Deweighted, initialiseInnov2);
+                // replicates are referenced by position in the household lists, and cloned once selected
+                int[] householdList1Deweighted = deweight(householdList1, replicationFactor, initialiseInnov1);
+                int[] householdList2Deweighted = deweight(householdList2, replicationFactor, initialiseInnov2);
                 InitialPopulationFilter filter;
                 if (!ignoreTargetsAtPopulationLoad)
                     filter = new InitialPopulationFilter(popSize, startYear, maxAge);
                 else
                     filter = new InitialPopulationFilter();
+                InitialPopulationBuilder builder = new InitialPopulationBuilder(SampleEntry.InputData, getProcessSeed(RandomStreams.Stream.InitialPopulation));
                 boolean flagSearch1 = true, flagConsiderRegion = true;
                 int counter = 0;
-                while (persons.size() < (int)((double)popSize*0.999)) {
+                while (builder.getNumberOfPersons() < (int)((double)popSize*0.999)) {
 
                     counter++;
-                    int populationLag = persons.size();
+                    int populationLag = builder.getNumberOfPersons();
 
                     if (flagSearch1)
-                        searchForClones(householdList1Deweighted, flagConsiderRegion, filter);
+                        searchForClones(householdList1, householdList1Deweighted, flagConsiderRegion, filter, builder);
                     else
-                        searchForClones(householdList2Deweighted, flagConsiderRegion, filter);
+                        searchForClones(householdList2, householdList2Deweighted, flagConsiderRegion, filter, builder);
 
                     if (!ignoreTargetsAtPopulationLoad) {
                         // reporting
 
                         if (flagSearch1 && flagConsiderRegion)
-                            System.out.println("Resampling child households with region: iteration " + counter + " for population size " + persons.size());
+                            System.out.println("Resampling child households with region: iteration " + counter + " for population size " + builder.getNumberOfPersons());
                         else if (flagSearch1 && !flagConsiderRegion)
-                            System.out.println("Resampling child households without region: iteration " + counter + " for population size " + persons.size());
+                            System.out.println("Resampling child households without region: iteration " + counter + " for population size " + builder.getNumberOfPersons());
                         else if (!flagSearch1 && flagConsiderRegion)
-                            System.out.println("Resampling adult households with region: iteration " + counter + " for population size " + persons.size());
+                            System.out.println("Resampling adult households with region: iteration " + counter + " for population size " + builder.getNumberOfPersons());
                         else
-                            System.out.println("Resampling adult households without region: iteration " + counter + " for population size " + persons.size());
+                            System.out.println("Resampling adult households without region: iteration " + counter + " for population size " + builder.getNumberOfPersons());
                     }
 
                     // consider next iteration
-                    int increment = persons.size() - populationLag;
+                    int increment = builder.getNumberOfPersons() - populationLag;
                     if (increment < 50 || ((double)increment/(double)popSize) < 0.005) {
                         // switch search strategy
                         if (flagConsiderRegion)
@@ -2387,6 +2525,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                            break;
                     }
                 }
+                builder.build(households, benefitUnits, persons);
                 //filter.getRemainingVacancies();
             } else {
                 // use population weights
@@ -2411,25 +2550,81 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         // finalise
         System.out.println("Number of simulated individuals (persons.size()) is " + persons.size() + " living in " + benefitUnits.size() + " simulated benefitUnits.");
         initialHoursWorkedWeekly = null;
+        reportHeapFootprint(heapBefore, heapUsedAfterGC());
+    }
+
+    /**
+     * returns the heap used once unreachable objects have been collected
+     */
+    private static long heapUsedAfterGC() {
         System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
     }
 
-    private void searchForClones(List<Household> householdList, boolean flagConsiderRegion, InitialPopulationFilter filter) {
+    /**
+     * reports the heap retained by the simulated population, as the difference between the heap used before and after
+     * the population is created, in total and per person including the benefit units and households of each person
+     */
+    private void reportHeapFootprint(long heapBefore, long heapAfter) {
+
+        long populationHeap = Math.max(0L, heapAfter - heapBefore);
+        System.out.printf("Population heap %.0f MB: %.0f bytes per person including benefit units and households (%s agent layout)%n",
+                populationHeap / 1048576.0, (persons.isEmpty()) ? 0.0 : (double) populationHeap / persons.size(),
+                (compactAgents) ? "compact" : "default");
+    }
 
-        for (Household originalHousehold : householdList) {
+    /**
+     * replicates each household in proportion to its weight, and returns the positions of the replicates in the
+     * household list in random order
+     */
+    private int[] deweight(List<Household> householdList, double replicationFactor, Random random) {
 
+        int numberOfReplicates = 0;
+        int[] numberOfClones = new int[householdList.size()];
+        for (int ii=0; ii<householdList.size(); ii++) {
+            numberOfClones[ii] = (int) Math.round(householdList.get(ii).getWeight() * replicationFactor);
+            numberOfReplicates += numberOfClones[ii];
+        }
+        int[] replicates = new int[numberOfReplicates];
+        int position = 0;
+        for (int ii=0; ii<householdList.size(); ii++) {
+            for (int jj=0; jj<numberOfClones[ii]; jj++) {
+                replicates[position++] = ii;
+            }
+        }
+
+        // shuffle as Collections.shuffle
+        for (int ii=numberOfReplicates; ii>1; ii--) {
+            int jj = random.nextInt(ii);
+            int replicate = replicates[ii-1];
+            replicates[ii-1] = replicates[jj];
+            replicates[jj] = replicate;
+        }
+        return replicates;
+    }
+
+    private void searchForClones(List<Household> householdList, int[] replicates, boolean flagConsiderRegion, InitialPopulationFilter filter, InitialPopulationBuilder builder) {
+
+        for (int replicate : replicates) {
+
+            Household originalHousehold = householdList.get(replicate);
             if (flagConsiderRegion) {
-                if (ignoreTargetsAtPopulationLoad || filter.evaluate(originalHousehold)) {
-                    cloneHousehold(originalHousehold, SampleEntry.InputData);
+                if (ignoreTargetsAtPopulationLoad) {
+                    builder.add(originalHousehold, null);
+                } else {
+                    Region region = originalHousehold.getBenefitUnits().iterator().next().getRegion();
+                    if (filter.evaluate(originalHousehold, region))
+                        builder.add(originalHousehold, region);
                 }
             } else {
                 for (Region region : Parameters.getCountryRegions()) {
-                    if (ignoreTargetsAtPopulationLoad || filter.evaluate(originalHousehold, region)) {
-                        cloneHousehold(originalHousehold, SampleEntry.InputData);
-                    }
+                    if (ignoreTargetsAtPopulationLoad)
+                        builder.add(originalHousehold, null);
+                    else if (filter.evaluate(originalHousehold, region))
+                        builder.add(originalHousehold, region);
                 }
             }
-            if (persons.size() >= popSize) break;
+            if (builder.getNumberOfPersons() >= popSize) break;
         }
     }
 
@@ -2529,10 +2724,36 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         return popSize;
     }
 
+    public void setSyntheticPopulation(boolean syntheticPopulation) {
+        this.syntheticPopulation = syntheticPopulation;
+    }
+
     public void setPopSize(Integer popSize) {
         this.popSize = popSize;
     }
 
+    /**
+     * @return checkpoint the simulation resumed from, or null if it started from the input population
+     */
+    public Checkpoint getResumedCheckpoint() {
+        return resumedCheckpoint;
+    }
+
+    /**
+     * @return first year for which events are scheduled, which is the start year unless resuming from a checkpoint
+     */
+    public int getFirstScheduledYear() {
+        return (resumedCheckpoint == null) ? startYear : resumedCheckpoint.getYear();
+    }
+
+    public boolean isRandomStreams() {
+        return randomStreams;
+    }
+
+    public boolean isCompactAgents() {
+        return compactAgents;
+    }
+
     public int getYear() {
         return year;
     }
@@ -3036,8 +3257,12 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
      * POPULATE PARAMETERS.taxdbReferences FOR EVALUATING TAX AND BENEFIT PAYMENTS
      *
      */
-    private static void populateTaxdbReferences() {
+    private void populateTaxdbReferences() {
 
+        // donor pool and references are retained between the runs of a multirun, unless the country or EUROMOD systems change
+        String donorsKey = country + ":" + Parameters.EUROMODpolicyScheduleSystemYearMap.values();
+        if (!MultiRunCache.hasDonors(donorsKey))
+            Parameters.setTaxdbReferences(new HashMap<>());
         Map<Triple<Integer,Integer,Integer>,List<Integer>> taxdbReferences = Parameters.getTaxdbReferences();
         if (taxdbReferences.size() == 0) {
             // Checks if the map is already populated; if not proceed with the code below. This should happen only on the first run of the model.
@@ -3051,9 +3276,14 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
             try {
 
                 // access database and obtain donor pool
-                Map propertyMap = new HashMap();
-                propertyMap.put("hibernate.connection.url", "jdbc:h2:file:" + DatabaseUtils.databaseInputUrl);
-                EntityManager em = Persistence.createEntityManagerFactory("tax-database", propertyMap).createEntityManager();
+                EntityManager em;
+                if (readOnlyInputDatabase) {
+                    em = InputDatabase.getEntityManagerFactory(InputDatabase.TAX_DATABASE, InputDatabase.getTaxDonorTableSuffix(country)).createEntityManager();
+                } else {
+                    Map propertyMap = new HashMap();
+                    propertyMap.put("hibernate.connection.url", "jdbc:h2:file:" + DatabaseUtils.databaseInputUrl);
+                    em = Persistence.createEntityManagerFactory("tax-database", propertyMap).createEntityManager();
+                }
                 txn = em.getTransaction();
                 txn.begin();
                 String query = "SELECT tu FROM DonorTaxUnit tu LEFT JOIN FETCH tu.policies tp ORDER BY tp.originalIncomePerMonth";
@@ -3137,6 +3367,7 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                 Parameters.setMdDualIncome(mdDualIncome);
             //    Parameters.setMdChildcare(mdChildcare);
             //    Parameters.setMdDualIncomeChildcare(mdDualIncomeChildcare);
+                MultiRunCache.setDonors(donorsKey);
 
                 // close database connection
                 txn.commit();
@@ -3181,18 +3412,30 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         try {
 
             // query database
-            if (emfStartingPopulation == null)
+            if (emfStartingPopulation == null) {
+                InputDatabase.close();  // processed populations are written to the input database
                 emfStartingPopulation = Persistence.createEntityManagerFactory("starting-population");
+            }
             EntityManager em = emfStartingPopulation.createEntityManager();
             txn = em.getTransaction();
             txn.begin();
-            String query = "SELECT processed FROM Processed processed WHERE processed.startYear = " + startYear + " AND processed.popSize = " + popSize + " AND processed.country = " + country + " AND processed.noTargets = " + ignoreTargetsAtPopulationLoad;
+            String condition = " FROM Processed processed WHERE processed.startYear = " + startYear + " AND processed.popSize = " + popSize + " AND processed.country = " + country + " AND processed.noTargets = " + ignoreTargetsAtPopulationLoad;
+
+            // use population snapshot where it copies the dataset held in the database
+            List<Long> processedIds = em.createQuery("SELECT processed.id" + condition).getResultList();
+            if (processedIds.size()>1)
+                throw new RuntimeException("more than one relevant dataset returned from database");
+            if (populationSnapshot && processedIds.size()==1)
+                processed = PopulationSnapshot.read(country, startYear, popSize, ignoreTargetsAtPopulationLoad, processedIds.get(0));
 
-            List<Processed> processedList = em.createQuery(query).getResultList();
-            if (!processedList.isEmpty()) {
+            List<Processed> processedList = (processed == null && !processedIds.isEmpty()) ? em.createQuery("SELECT processed" + condition).getResultList() : new ArrayList<>();
+            if (!processedList.isEmpty() && processedList.get(0).getHouseholds().isEmpty()) {
+
+                // population was saved only to its snapshot, which is missing or out of date: process it again
+                em.remove(processedList.get(0));
+                txn.commit();
+            } else if (!processedList.isEmpty()) {
 
-                if (processedList.size()>1)
-                    throw new RuntimeException("more than one relevant dataset returned from database");
                 processed = processedList.get(0);
                 // Force-initialize all collections within the session (triggers SUBSELECT fetches:
                 // one query per collection level, no Cartesian product)
@@ -3202,6 +3445,8 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                     }
                 }
                 processed.resetDependents();
+                if (populationSnapshot)
+                    PopulationSnapshot.write(processed);
             }
 
             // close database connection
@@ -3224,9 +3469,15 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         EntityTransaction txn = null;
         try {
 
-            Map propertyMap = new HashMap();
-            propertyMap.put("hibernate.connection.url", "jdbc:h2:file:" + DatabaseUtils.databaseInputUrl);
-            EntityManager em = Persistence.createEntityManagerFactory("starting-population", propertyMap).createEntityManager();
+            EntityManager em;
+            if (readOnlyInputDatabase) {
+                String tableSuffix = InputDatabase.getStartingPopulationTableSuffix(country, getInputPopulationYear());
+                em = InputDatabase.getEntityManagerFactory(InputDatabase.STARTING_POPULATION, tableSuffix).createEntityManager();
+            } else {
+                Map propertyMap = new HashMap();
+                propertyMap.put("hibernate.connection.url", "jdbc:h2:file:" + DatabaseUtils.databaseInputUrl);
+                em = Persistence.createEntityManagerFactory("starting-population", propertyMap).createEntityManager();
+            }
             txn = em.getTransaction();
             txn.begin();
             String query = "SELECT households FROM Household households";
@@ -3240,15 +3491,29 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
             }
 
             // close database connection
+            txn.commit();
             em.close();
         } catch (Exception e) {
-            if (txn != null) {
+            if (txn != null && txn.isActive()) {
                 txn.rollback();
             }
             e.printStackTrace();
             throw new RuntimeException("Problem sourcing data for starting population");
         }
 
+        // uprate monetary values in memory, rather than in the database
+        if (readOnlyInputDatabase && isUprateInitialPopulation()) {
+            double upratingFactor = getInitialPopulationUpratingFactor();
+            for (Household hh : households) {
+                for (BenefitUnit bu : hh.getBenefitUnits()) {
+                    for (Person person : bu.getMembers()) {
+                        person.uprateInputIncomes(upratingFactor);
+                    }
+                }
+            }
+            System.out.println("Completed uprating starting population");
+        }
+
         return households;
     }
 
@@ -3261,8 +3526,10 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
         EntityTransaction txn = null;
         try {
 
-            if (emfStartingPopulation == null)
+            if (emfStartingPopulation == null) {
+                InputDatabase.close();  // processed populations are written to the input database
                 emfStartingPopulation = Persistence.createEntityManagerFactory("starting-population");
+            }
             EntityManager em = emfStartingPopulation.createEntityManager();
             txn = em.getTransaction();
             txn.begin();
@@ -3279,9 +3546,38 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                     }
                 }
             }
-            processed.setHouseholds(households);
+            if (populationSnapshot) {
+                // the population is saved to its snapshot, and only the Processed record that identifies it to the database
+                txn.commit();
+                em.close();
+                processed.setHouseholds(households);
+                if (!PopulationSnapshot.write(processed))
+                    removeProcessed(processed.getId());
+            } else {
+                processed.setHouseholds(households);
+                em.persist(processed);
+                txn.commit();
+                em.close();
+            }
+        } catch (Exception e) {
+            if (txn != null) {
+                txn.rollback();
+            }
+            e.printStackTrace();
+            throw new RuntimeException("Problem sourcing data for starting population");
+        }
+    }
+
+    private void removeProcessed(long processedId) {
 
-            em.persist(processed);
+        EntityTransaction txn = null;
+        try {
+            EntityManager em = emfStartingPopulation.createEntityManager();
+            txn = em.getTransaction();
+            txn.begin();
+            Processed processed = em.find(Processed.class, processedId);
+            if (processed != null)
+                em.remove(processed);
             txn.commit();
             em.close();
         } catch (Exception e) {
@@ -3289,7 +3585,6 @@ public class SimPathsModel extends AbstractSimulationManager implements EventLis
                 txn.rollback();
             }
             e.printStackTrace();
-            throw new RuntimeException("Problem sourcing data for starting population");
         }
     }
 }
@@ -0,0 +1,166 @@
+package simpaths.model;
+
+import simpaths.data.Parameters;
+import simpaths.model.enums.Education;
+import simpaths.model.enums.Gender;
+import simpaths.model.enums.Les_c4;
+import simpaths.model.enums.Region;
+import simpaths.model.enums.SampleEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+
+/**
+ *
+ * CLASS TO GENERATE A SYNTHETIC STARTING POPULATION
+ *
+ * Generates a pool of template households, each of a single benefit unit comprising a single adult or a couple and
+ * up to three children, with the variables that are otherwise loaded from the starting population of the input
+ * database. The simulated population is then built from clones of templates drawn at random, as a population is
+ * built from the households of the input database (see InitialPopulationBuilder), so that populations of any size
+ * can be simulated without the input database.
+ *
+ * Characteristics are stylised rather than representative of any country, and are intended for benchmarking. The
+ * population is reproducible for a given seed.
+ *
+ */
+public class SyntheticPopulation {
+
+    private static final int TEMPLATE_HOUSEHOLDS = 10000;
+    private static final double SHARE_COUPLES = 0.55;
+    private static final double[] SHARE_BY_CHILDREN = {0.55, 0.2, 0.18, 0.07};    // share of benefit units by number of children
+    private static final int MIN_AGE_ADULT = 18;
+    private static final int MAX_AGE_ADULT = 90;
+    private static final int AGE_TO_RETIRE = 65;
+    private static final int MAX_AGE_STUDENT = 24;
+
+
+    /**
+     * builds a synthetic population of at least popSize persons, and adds it to the simulated population
+     * ids of new entities continue from the id counters of the entity classes, which are advanced accordingly
+     * @param popSize number of persons to simulate
+     * @param regions regions of the country, to which benefit units are allocated uniformly
+     * @param seed seed of the random number generator used to generate and select templates
+     */
+    public static void build(int popSize, Collection<Region> regions, long seed,
+                             Set<Household> households, Set<BenefitUnit> benefitUnits, Set<Person> persons) {
+
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Household> templates = templates(new ArrayList<>(regions), random.split());
+        InitialPopulationBuilder builder = new InitialPopulationBuilder(SampleEntry.InputData, random.nextLong());
+        while (builder.getNumberOfPersons() < popSize) {
+            builder.add(templates.get(random.nextInt(templates.size())), null);
+        }
+        builder.build(households, benefitUnits, persons);
+    }
+
+    private static List<Household> templates(List<Region> regions, SplittableRandom random) {
+
+        if (regions.isEmpty())
+            throw new RuntimeException("no regions defined for synthetic population");
+        List<Household> templates = new ArrayList<>(TEMPLATE_HOUSEHOLDS);
+        long personId = 1L;
+        for (long id = 1L; id <= TEMPLATE_HOUSEHOLDS; id++) {
+
+            Household household = new Household(id);
+            BenefitUnit benefitUnit = new BenefitUnit(id, random.nextLong(100000));
+            benefitUnit.setRegion(regions.get(random.nextInt(regions.size())));
+            benefitUnit.setHousehold(household);
+
+            // adults
+            boolean couple = random.nextDouble() < SHARE_COUPLES;
+            Gender gender = (couple || random.nextBoolean()) ? Gender.Female : Gender.Male;
+            int age = MIN_AGE_ADULT + random.nextInt(MAX_AGE_ADULT - MIN_AGE_ADULT + 1);
+            Person mother = adult(personId++, gender, age, random);
+            mother.setBenefitUnit(benefitUnit);
+            Person father = null;
+            if (couple) {
+                int partnerAge = Math.max(MIN_AGE_ADULT, Math.min(MAX_AGE_ADULT, age + random.nextInt(-3, 6)));
+                father = adult(personId++, Gender.Male, partnerAge, random);
+                father.setBenefitUnit(benefitUnit);
+            } else if (Gender.Male.equals(gender)) {
+                father = mother;
+                mother = null;
+            }
+
+            // children, born to parents aged 18 to 45
+            int children = children(random);
+            Person parent = (mother != null) ? mother : father;
+            int maxChildAge = Math.min(Parameters.AGE_TO_BECOME_RESPONSIBLE - 1, parent.getDag() - MIN_AGE_ADULT);
+            int minChildAge = Math.max(0, parent.getDag() - 45);
+            for (int cc = 0; cc < children && minChildAge <= maxChildAge; cc++) {
+                int childAge = minChildAge + random.nextInt(maxChildAge - minChildAge + 1);
+                Les_c4 activity = (childAge < Parameters.MIN_AGE_TO_LEAVE_EDUCATION) ? Les_c4.Student : activity(childAge, random);
+                Education education = (Les_c4.Student.equals(activity)) ? Education.NotAssigned : Education.Low;
+                Person child = new Person(personId++, random.nextLong(100000), random.nextBoolean() ? Gender.Female : Gender.Male,
+                        childAge, education, activity, wage(education, random), hours(activity, random), mother, father);
+                child.setBenefitUnit(benefitUnit);
+            }
+
+            // initialise as a household loaded from the input database
+            for (Person person : benefitUnit.getMembers()) {
+                person.setAdditionalFieldsInInitialPopulation();
+            }
+            benefitUnit.initializeFields();
+            templates.add(household);
+        }
+        return templates;
+    }
+
+    private static Person adult(long id, Gender gender, int age, SplittableRandom random) {
+
+        double draw = random.nextDouble();
+        Education education = (draw < 0.25) ? Education.Low : (draw < 0.7) ? Education.Medium : Education.High;
+        Les_c4 activity = activity(age, random);
+        return new Person(id, random.nextLong(100000), gender, age, education, activity, wage(education, random),
+                hours(activity, random), null, null);
+    }
+
+    private static Les_c4 activity(int age, SplittableRandom random) {
+
+        if (age >= AGE_TO_RETIRE)
+            return Les_c4.Retired;
+        if (age <= MAX_AGE_STUDENT && random.nextDouble() < 0.4)
+            return Les_c4.Student;
+        return (random.nextDouble() < 0.75) ? Les_c4.EmployedOrSelfEmployed : Les_c4.NotEmployed;
+    }
+
+    private static int hours(Les_c4 activity, SplittableRandom random) {
+        if (!Les_c4.EmployedOrSelfEmployed.equals(activity))
+            return 0;
+        return (random.nextDouble() < 0.8) ? 40 : 20;
+    }
+
+    private static double wage(Education education, SplittableRandom random) {
+
+        // log-normal hourly wage, increasing with education
+        double mean = switch (education) {
+            case High -> 2.8;
+            case Medium -> 2.4;
+            default -> 2.1;
+        };
+        double draw = mean + 0.4 * gaussian(random);
+        return Math.min(Parameters.MAX_HOURLY_WAGE_RATE, Math.max(Parameters.MIN_HOURLY_WAGE_RATE, Math.exp(draw)));
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller transform, as SplittableRandom does not draw from the normal distribution
+        double u1 = 1.0 - random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * random.nextDouble());
+    }
+
+    private static int children(SplittableRandom random) {
+
+        double draw = random.nextDouble();
+        for (int nn = 0; nn < SHARE_BY_CHILDREN.length; nn++) {
+            draw -= SHARE_BY_CHILDREN[nn];
+            if (draw < 0.0)
+                return nn;
+        }
+        return SHARE_BY_CHILDREN.length - 1;
+    }
+}
@@ -22,6 +22,7 @@ public class UnionMatching {
     Set<Person> unmatchedFemales;
     List<Pair<Person,Person>> matches = new ArrayList<>();
     boolean alignmentRun = false;
+    boolean deferUnions = false;        // if true, unions are only formed by applyMatches()
 
 
     // CONSTRUCTOR
@@ -34,6 +35,10 @@ public class UnionMatching {
         this(unmatched);
         this.alignmentRun = alignmentRun;
     }
+    public UnionMatching(Pair<Set<Person>, Set<Person>> unmatched, boolean alignmentRun, boolean deferUnions) {
+        this(unmatched, alignmentRun);
+        this.deferUnions = deferUnions;
+    }
 
 
     /**
@@ -41,6 +46,18 @@ public class UnionMatching {
      */
     public List<Pair<Person,Person>> getMatches() {return matches;}
 
+    /**
+     * forms the unions of all matches, in order of matching, where these were deferred so that matching could be
+     * evaluated concurrently with other matching that does not share candidates
+     */
+    public void applyMatches() {
+        if (!deferUnions)
+            throw new IllegalStateException("unions of UnionMatching are only deferred if requested on construction");
+        for (Pair<Person,Person> match : matches) {
+            formUnion(match.getFirst(), match.getSecond());
+        }
+    }
+
 
     // EVALUATE MATCHES BY ITERATIVE RANDOM MATCHING
     public void evaluate(String typ) {
@@ -100,6 +117,12 @@ public class UnionMatching {
     // EVALUATE MATCHES BY GLOBAL MATCHING
     public void evaluateGM() {
 
+        if (CandidateMatching.prunes(Parameters.AGE_DIFFERENCE_INITIAL_BOUND, Parameters.POTENTIAL_EARNINGS_DIFFERENCE_INITIAL_BOUND)) {
+            // score only pairs within the bounds of localGetValue
+            evaluateCandidateGM();
+            return;
+        }
+
         // unmatched = IterativeSimpleMatching.getInstance().matching(
         unmatched = GlobalMatching.getInstance().matching(
 
@@ -123,6 +146,26 @@ public class UnionMatching {
     }
 
 
+    // EVALUATE MATCHES BY GLOBAL MATCHING, SCORING ONLY PAIRS WITHIN THE BOUNDS OF localGetValue
+    public void evaluateCandidateGM() {
+
+        // coordinates are defined so that their differences are the age and earnings terms of localGetValue
+        unmatched = CandidateMatching.matching(
+
+            unmatched.getFirst(),
+            male -> male.getDag() - male.getDesiredAgeDiff(),
+            male -> male.getFullTimeHourlyEarningsPotential(),
+            unmatched.getSecond(),
+            female -> female.getDag(),
+            female -> female.getFullTimeHourlyEarningsPotential() + female.getDesiredEarningsPotentialDiff(),
+            Parameters.AGE_DIFFERENCE_INITIAL_BOUND,
+            Parameters.POTENTIAL_EARNINGS_DIFFERENCE_INITIAL_BOUND,
+            this::localGetValue,
+            this::localMatch
+        );
+    }
+
+
     private void localMatch(Person male, Person female) {
 
         if (!male.getDgn().equals(Gender.Male))
@@ -133,6 +176,12 @@ public class UnionMatching {
         unmatchedMales.remove(male);
         unmatchedFemales.remove(female);
         matches.add(new Pair<>(male, female));
+        if (!deferUnions)
+            formUnion(male, female);
+    }
+
+    private void formUnion(Person male, Person female) {
+
         if (alignmentRun) {
 
             male.setHasTestPartner(true);
@@ -124,7 +124,7 @@ public class Expectations {
         numberExpected = outerExpectations.numberExpected;
         probability = outerExpectations.probability;
         anticipated = outerExpectations.anticipated;
-        benefitUnitProxyThisPeriod = new BenefitUnit(outerExpectations.benefitUnitProxyThisPeriod, true);
+        benefitUnitProxyThisPeriod = ProxyAgents.invariantBenefitUnit(outerExpectations.benefitUnitProxyThisPeriod);
 
         // prevailing characteristics - based on currentStates
         this.currentStates = currentStates;
@@ -161,7 +161,7 @@ public class Expectations {
             probability[ii] = invariantExpectations.probability[ii];
             anticipated[ii] = new States(invariantExpectations.anticipated[ii]);
         }
-        benefitUnitProxyThisPeriod = new BenefitUnit(invariantExpectations.benefitUnitProxyThisPeriod, true);
+        benefitUnitProxyThisPeriod = ProxyAgents.benefitUnit(invariantExpectations.benefitUnitProxyThisPeriod);
         currentStates = invariantExpectations.currentStates;
         fullTimeHourlyEarningsPotential = invariantExpectations.fullTimeHourlyEarningsPotential;
         pensionIncomePerYear = invariantExpectations.pensionIncomePerYear;
@@ -170,7 +170,7 @@ public class Expectations {
         mortalityProbability = invariantExpectations.mortalityProbability;
 
         // add new data for within period regression specifications
-        personProxyThisPeriod = new Person(true);
+        personProxyThisPeriod = ProxyAgents.personThisPeriod();
         personProxyThisPeriod.setDag(ageYearsThisPeriod);
         personProxyThisPeriod.setRegionLocal(currentStates.getRegionCode());
         personProxyThisPeriod.setDgn(currentStates.getGenderCode());
@@ -181,7 +181,7 @@ public class Expectations {
         personProxyThisPeriod.populateSocialCareReceipt(currentStates.getSocialCareReceiptStateCode());
 
         // add person proxy for next period expectations
-        personProxyNextPeriod = new Person(true);
+        personProxyNextPeriod = ProxyAgents.personNextPeriod();
         personProxyNextPeriod.setYearLocal(currentStates.getYearByAge(ageYearsNextPeriod));
         personProxyNextPeriod.setDhhtp_c4_lag1Local(currentStates.getHouseholdTypeCode());
         personProxyNextPeriod.setYdses_c5_lag1Local(Ydses_c5.Q3);
@@ -376,79 +376,93 @@ public class Expectations {
                 personProxyNextPeriod.setYnbcpdf_dv_lag1(0.0);
             }
 
-            // instantiate expectations factory
-            ExpectationsFactory futures = new ExpectationsFactory(anticipated, probability, personProxyNextPeriod, scale, ageYearsThisPeriod, currentStates, pensionIncomePerYear);
+            // expectations from cache, where evaluated for another liquid wealth
+            ExpectationsCache.Key key = new ExpectationsCache.Key(currentStates, emp1Pr, emp2Pr, pensionIncomePerYear, retiring);
+            ExpectationsCache.Tree tree = ExpectationsCache.get(key);
+            if (tree != null) {
 
-            // region
-            if (DecisionParams.flagRegion) {
-                futures.updateRegion();
-                throw new RuntimeException("Please validate code for regions in expectations object");
-            }
-
-            // retirement - not a state included in personProxyNextPeriod (don't track changes)
-            if (DecisionParams.flagRetirement && ageYearsNextPeriod > DecisionParams.minAgeToRetire && ageYearsNextPeriod <= DecisionParams.maxAgeFlexibleLabourSupply) {
-                futures.updateRetirement(retiring);
-                throw new RuntimeException("Please validate code for retirement in expectations object");
-            }
-
-            // student - don't need to track separately from education (no need for flagStudentVaries)
-            if (DecisionParams.flagEducation && ageYearsNextPeriod<=Parameters.MAX_AGE_TO_STAY_IN_CONTINUOUS_EDUCATION) {
-                futures.updateStudent();
-            }
-
-            // education
-            if (DecisionParams.flagEducation) {
-                futures.updateEducation();
-            }
-
-            // health
-            if (DecisionParams.flagHealth && ageYearsNextPeriod >= DecisionParams.minAgeForPoorHealth) {
-                futures.updateHealth();
-            }
-
-            // disability
-            if (DecisionParams.flagDisability  && ageYearsNextPeriod >= DecisionParams.minAgeForPoorHealth && ageYearsNextPeriod <= DecisionParams.maxAgeForDisability()) {
-                futures.updateDisability();
-            }
-
-            // cohabitation (1 = cohabiting)
-            if (ageYearsNextPeriod <= DecisionParams.MAX_AGE_COHABITATION) {
-               futures.updateCohabitation();
-            }
-
-            // dependent children
-            futures.updateChildren();
-
-            // social care receipt
-            if (Parameters.flagSocialCare  && ageYearsNextPeriod >= DecisionParams.minAgeReceiveFormalCare) {
-                futures.updateSocialCareReceipt();
-            }
-
-            // social care provision
-            if (Parameters.flagSocialCare) {
-                futures.updateSocialCareProvision();
-            }
-
-            // full-time wage potential
-            if (ageYearsNextPeriod <= DecisionParams.maxAgeFlexibleLabourSupply) {
-                futures.updateWagePotential();
-            }
-
-            // pension income
-            if (DecisionParams.flagPrivatePension && ageYearsNextPeriod > DecisionParams.minAgeToRetire) {
-                futures.updatePensionIncome();
-            }
+                probability = tree.getProbability();
+                anticipated = tree.getAnticipated();
+                numberExpected = tree.getNumberExpected();
+            } else {
 
-            // wage offer
-            if (ageYearsNextPeriod <= DecisionParams.maxAgeFlexibleLabourSupply && DecisionParams.flagLowWageOffer1) {
-                futures.updateWageOffer1();
+                personProxyNextPeriod.clearIncomeLagRead();
+
+                // instantiate expectations factory
+                ExpectationsFactory futures = new ExpectationsFactory(anticipated, probability, personProxyNextPeriod, scale, ageYearsThisPeriod, currentStates, pensionIncomePerYear);
+
+                // region
+                if (DecisionParams.flagRegion) {
+                    futures.updateRegion();
+                    throw new RuntimeException("Please validate code for regions in expectations object");
+                }
+
+                // retirement - not a state included in personProxyNextPeriod (don't track changes)
+                if (DecisionParams.flagRetirement && ageYearsNextPeriod > DecisionParams.minAgeToRetire && ageYearsNextPeriod <= DecisionParams.maxAgeFlexibleLabourSupply) {
+                    futures.updateRetirement(retiring);
+                    throw new RuntimeException("Please validate code for retirement in expectations object");
+                }
+
+                // student - don't need to track separately from education (no need for flagStudentVaries)
+                if (DecisionParams.flagEducation && ageYearsNextPeriod<=Parameters.MAX_AGE_TO_STAY_IN_CONTINUOUS_EDUCATION) {
+                    futures.updateStudent();
+                }
+
+                // education
+                if (DecisionParams.flagEducation) {
+                    futures.updateEducation();
+                }
+
+                // health
+                if (DecisionParams.flagHealth && ageYearsNextPeriod >= DecisionParams.minAgeForPoorHealth) {
+                    futures.updateHealth();
+                }
+
+                // disability
+                if (DecisionParams.flagDisability  && ageYearsNextPeriod >= DecisionParams.minAgeForPoorHealth && ageYearsNextPeriod <= DecisionParams.maxAgeForDisability()) {
+                    futures.updateDisability();
+                }
+
+                // cohabitation (1 = cohabiting)
+                if (ageYearsNextPeriod <= DecisionParams.MAX_AGE_COHABITATION) {
+                   futures.updateCohabitation();
+                }
+
+                // dependent children
+                futures.updateChildren();
+
+                // social care receipt
+                if (Parameters.flagSocialCare  && ageYearsNextPeriod >= DecisionParams.minAgeReceiveFormalCare) {
+                    futures.updateSocialCareReceipt();
+                }
+
+                // social care provision
+                if (Parameters.flagSocialCare) {
+                    futures.updateSocialCareProvision();
+                }
+
+                // full-time wage potential
+                if (ageYearsNextPeriod <= DecisionParams.maxAgeFlexibleLabourSupply) {
+                    futures.updateWagePotential();
+                }
+
+                // pension income
+                if (DecisionParams.flagPrivatePension && ageYearsNextPeriod > DecisionParams.minAgeToRetire) {
+                    futures.updatePensionIncome();
+                }
+
+                // wage offer
+                if (ageYearsNextPeriod <= DecisionParams.maxAgeFlexibleLabourSupply && DecisionParams.flagLowWageOffer1) {
+                    futures.updateWageOffer1();
+                }
+
+                // retrieve results
+                probability = futures.getProbability();
+                anticipated = futures.getAnticipated();
+                numberExpected = futures.getNumberExpected();
+                ExpectationsCache.put(key, probability, anticipated, numberExpected, personProxyNextPeriod);
             }
 
-            // retrieve results
-            probability = futures.getProbability();
-            anticipated = futures.getAnticipated();
-            numberExpected = futures.getNumberExpected();
-
             // check evaluated probabilities
             double probabilityCheck = 0;
             for (int ii = 0; ii< numberExpected; ii++) {
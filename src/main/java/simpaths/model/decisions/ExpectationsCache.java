@@ -0,0 +1,125 @@
+package simpaths.model.decisions;
+
+import simpaths.model.Person;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ *
+ * CLASS TO CACHE EXPECTATIONS FOR THE SUCCEEDING PERIOD BETWEEN STATE COMBINATIONS
+ *
+ * The anticipated state combinations and their probabilities (the expectation tree evaluated by ExpectationsFactory)
+ * do not depend on liquid wealth, other than through the lagged income of the person proxy and the pension income of
+ * a person who retires. Trees are consequently cached by all other states, the discrete controls and pension income,
+ * and reused for all liquid wealth points of the grid.
+ *
+ * Where the regressions evaluated for a tree read lagged income from the proxy, the tree varies with liquid wealth
+ * and is not cached, but evaluated by ExpectationsFactory for each wealth point. Cached expectations are therefore
+ * identical to those evaluated by ExpectationsFactory. The cache is cleared for each age, as it is solved by
+ * ManagerSolveGrids, and for each run of the model.
+ *
+ */
+public class ExpectationsCache {
+
+    private static final Map<Key, Tree> cache = new ConcurrentHashMap<>();
+
+
+    public static void clear() {
+        cache.clear();
+    }
+
+    /**
+     * returns the cached tree for the key, or null if none is cached
+     */
+    static Tree get(Key key) {
+        return cache.get(key);
+    }
+
+    /**
+     * caches the tree evaluated for the key, unless its evaluation read lagged income from the person proxy (in which
+     * case it depends on liquid wealth), or a tree is cached for the key already
+     */
+    static void put(Key key, double[] probability, States[] anticipated, int numberExpected, Person personProxyNextPeriod) {
+        if (personProxyNextPeriod.isIncomeLagRead())
+            return;
+        cache.putIfAbsent(key, new Tree(probability, anticipated, numberExpected));
+    }
+
+
+    /**
+     * Key of a tree, comprising the states other than liquid wealth, the discrete controls and pension income
+     */
+    static final class Key {
+
+        private final double[] values;
+        private final int hash;
+
+        Key(States currentStates, double emp1Pr, double emp2Pr, double pensionIncomePerYear, boolean retiring) {
+
+            int nn = currentStates.states.length;
+            values = new double[nn + 5];
+            System.arraycopy(currentStates.states, 1, values, 0, nn - 1);    // liquid wealth is the first state
+            values[nn - 1] = currentStates.ageYears;
+            values[nn] = emp1Pr;
+            values[nn + 1] = emp2Pr;
+            values[nn + 2] = pensionIncomePerYear;
+            values[nn + 3] = (retiring) ? 1.0 : 0.0;
+            values[nn + 4] = nn;
+            hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key key && hash == key.hash && Arrays.equals(values, key.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+
+    /**
+     * Anticipated state combinations and their probabilities, as evaluated for a key
+     */
+    static final class Tree {
+
+        private final double[] probability;
+        private final States[] anticipated;
+        private final int numberExpected;
+
+        private Tree(double[] probability, States[] anticipated, int numberExpected) {
+
+            this.probability = Arrays.copyOf(probability, numberExpected);
+            this.anticipated = copy(anticipated, numberExpected);
+            this.numberExpected = numberExpected;
+        }
+
+        double[] getProbability() {
+            return Arrays.copyOf(probability, numberExpected);
+        }
+
+        /**
+         * anticipated states are copied, as the liquid wealth of each is updated when evaluating utility
+         */
+        States[] getAnticipated() {
+            return copy(anticipated, numberExpected);
+        }
+
+        int getNumberExpected() {
+            return numberExpected;
+        }
+
+        private static States[] copy(States[] anticipated, int numberExpected) {
+            States[] copy = new States[numberExpected];
+            for (int ii = 0; ii < numberExpected; ii++) {
+                copy[ii] = new States(anticipated[ii]);
+            }
+            return copy;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package simpaths.model.decisions;
 
 import simpaths.data.Parameters;
 
+import java.util.Arrays;
+
 /**
  *
  * CLASS TO DEFINE GRID AXES
@@ -560,4 +562,14 @@ public class GridScale {
         // not recognised
         return -1;
     }
+
+
+    /**
+     * METHOD TO DESCRIBE THE DIMENSIONS AND AXES OF THE GRID
+     * GRIDS WITH EQUAL DESCRIPTIONS ARE INTERCHANGEABLE
+     */
+    String describe() {
+        return simLifeSpan + ";" + numberOfStates + ";" + Arrays.deepToString(gridDimensions) + ";" +
+                Arrays.deepToString(axes) + ";" + DecisionParams.FLAG_IO_EMPLOYMENT1 + ";" + DecisionParams.FLAG_IO_EMPLOYMENT2;
+    }
 }
@@ -1,6 +1,7 @@
 package simpaths.model.decisions;
 
 
+import simpaths.data.MultiRunCache;
 import simpaths.model.SimPathsModel;
 
 import java.time.Duration;
@@ -26,15 +27,23 @@ public class ManagerPopulateGrids {
         System.out.println("Populating optimised decision matrix");
         Instant beforeTotal = Instant.now();
 
-        // initiate the decision grids
-        Grids grids = new Grids();
-
-        // populate the decision grids
-        if (useSavedGrids) {
-            ManagerFileGrids.read(grids);
+        // initiate and populate the decision grids
+        Grids grids;
+        if (useSavedGrids && !DecisionParams.SOLVE_FROM_INTERMEDIATE) {
+            // grids read from disk are not updated, and are retained for subsequent runs of a multirun
+            grids = MultiRunCache.grids(DecisionParams.gridsInputDirectory, new GridScale().describe(), () -> {
+                Grids read = new Grids();
+                ManagerFileGrids.read(read);
+                return read;
+            });
         } else {
-            if (DecisionParams.SOLVE_FROM_INTERMEDIATE)
-                throw new RuntimeException("cannot solve from intermediate solutions without loading intermediate solutions");
+            grids = new Grids();
+            if (useSavedGrids) {
+                ManagerFileGrids.read(grids);
+            } else {
+                if (DecisionParams.SOLVE_FROM_INTERMEDIATE)
+                    throw new RuntimeException("cannot solve from intermediate solutions without loading intermediate solutions");
+            }
         }
         if (!useSavedGrids || DecisionParams.SOLVE_FROM_INTERMEDIATE) {
             // need to solve for intertemporal optimisations
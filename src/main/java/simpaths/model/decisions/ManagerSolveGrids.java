@@ -64,6 +64,7 @@ public class ManagerSolveGrids {
             int ageYears = aa + Parameters.AGE_TO_BECOME_RESPONSIBLE;
             Matches imperfectMatches = new Matches();
             List<Matches> imperfectMatchStore = newImperfectMatchStore((int)grids.scale.gridDimensions[aa][2]);
+            ExpectationsCache.clear();
 
             // loop over outer dimensions, for which expectations are independent of IO decisions (controls)
             for (int iiOuter=0; iiOuter<outerDimension; iiOuter++) {
@@ -120,6 +121,7 @@ public class ManagerSolveGrids {
             Duration duration = Duration.between(before, after);
             System.out.println("Calculations for age " + ageYears + " completed in " + String.format("%.3f", (double)duration.toMillis()/1000.0) + " seconds");
         }
+        ExpectationsCache.clear();
         if (beforeTotal != null && afterTotal != null) {
 
             Duration durationTotal = Duration.between(beforeTotal, afterTotal);
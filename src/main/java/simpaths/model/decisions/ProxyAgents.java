@@ -0,0 +1,66 @@
+package simpaths.model.decisions;
+
+import simpaths.model.BenefitUnit;
+import simpaths.model.Person;
+
+
+/**
+ *
+ * CLASS TO POOL THE PROXY AGENTS USED BY EXPECTATIONS TO INTERACT WITH REGRESSION MODELS
+ *
+ * Each thread that solves state combinations holds one set of proxies, which are reset to the state of a newly
+ * constructed proxy each time that they are requested. The proxies of an Expectations object are only used while
+ * the solution for a discrete control combination is evaluated (see UtilityMaximisation), and the state combinations
+ * of a thread are solved one after the other (see ManagerSolveGrids), so that a proxy can be reused by the next
+ * Expectations object of the same thread. Proxies for expectations that are invariant to agent decisions are held
+ * apart from those for discrete control combinations, from which they are copied.
+ *
+ * Proxies are not pooled for the outer expectations, which are shared between threads.
+ *
+ */
+class ProxyAgents {
+
+    private static final ThreadLocal<ProxyAgents> pool = ThreadLocal.withInitial(ProxyAgents::new);
+
+    private final BenefitUnit invariantBenefitUnit = new BenefitUnit(true);
+    private final BenefitUnit benefitUnit = new BenefitUnit(true);
+    private final Person personThisPeriod = new Person(true);
+    private final Person personNextPeriod = new Person(true);
+
+
+    /**
+     * proxy benefit unit for expectations invariant to agent decisions, as copied from originalBenefitUnit
+     */
+    static BenefitUnit invariantBenefitUnit(BenefitUnit originalBenefitUnit) {
+        BenefitUnit proxy = pool.get().invariantBenefitUnit;
+        proxy.resetRegressionProxy(originalBenefitUnit);
+        return proxy;
+    }
+
+    /**
+     * proxy benefit unit for expectations of a discrete control combination, as copied from originalBenefitUnit
+     */
+    static BenefitUnit benefitUnit(BenefitUnit originalBenefitUnit) {
+        BenefitUnit proxy = pool.get().benefitUnit;
+        proxy.resetRegressionProxy(originalBenefitUnit);
+        return proxy;
+    }
+
+    /**
+     * proxy person for the current period of expectations of a discrete control combination
+     */
+    static Person personThisPeriod() {
+        Person proxy = pool.get().personThisPeriod;
+        proxy.resetRegressionProxy();
+        return proxy;
+    }
+
+    /**
+     * proxy person for the next period of expectations of a discrete control combination
+     */
+    static Person personNextPeriod() {
+        Person proxy = pool.get().personNextPeriod;
+        proxy.resetRegressionProxy();
+        return proxy;
+    }
+}
@@ -18,6 +18,7 @@ import java.util.*;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
 import jakarta.persistence.Persistence;
+import simpaths.data.CsvTableLoader;
 import simpaths.data.FormattedDialogBox;
 import simpaths.data.Parameters;
 import simpaths.model.enums.Country;
@@ -146,28 +147,31 @@ public class TaxDonorDataParser {
         String taxDonorInputFileName = Parameters.getTaxDonorInputFileName();
         String donorInputFileLocation = Parameters.INPUT_DIRECTORY + taxDonorInputFileName + ".csv";
 
+        // Ensure no duplicate column names
+        Set<String> inputPersonStaticColumnNames = new LinkedHashSet<>(Arrays.asList(Parameters.DONOR_STATIC_VARIABLES));
+        inputPersonStaticColumnNames.add((String) Parameters.getBenefitUnitVariableNames().getValue(country.getCountryName()));
+
         // create temporary table for manipulating data
         Statement stat = null;
         try {
             stat = conn.createStatement();
-            stat.execute(
-
-                //Refresh table
-                "DROP TABLE IF EXISTS " + taxDonorInputFileName + " CASCADE;"
 
-                //Create new database table by reading in from population_country.csv file
-                + "CREATE TABLE " + taxDonorInputFileName + " AS SELECT * FROM CSVREAD('" + donorInputFileLocation + "');"
-            );
+            // load only the static variables and the policy variables of each system, in a single pass of the file
+            Set<String> inputColumnNames = new LinkedHashSet<>(inputPersonStaticColumnNames);
+            inputColumnNames.add("IDPERSON");
+            for (Integer fromYear : Parameters.EUROMODpolicyScheduleSystemYearMap.keySet()) {
+                String systemName = Parameters.EUROMODpolicyScheduleSystemYearMap.get(fromYear).getKey();
+                for (String variable : Parameters.DONOR_POLICY_VARIABLES) {
+                    inputColumnNames.add(variable + "_" + systemName);
+                }
+            }
+            CsvTableLoader.load(conn, donorInputFileLocation, taxDonorInputFileName, inputColumnNames);
 
             //---------------------------------------------------------------------------
             //	DonorPerson table
             //---------------------------------------------------------------------------
             String personTableName = "DONORPERSON_" + country;
 
-            // Ensure no duplicate column names
-            Set<String> inputPersonStaticColumnNames = new LinkedHashSet<>(Arrays.asList(Parameters.DONOR_STATIC_VARIABLES));
-            inputPersonStaticColumnNames.add((String) Parameters.getBenefitUnitVariableNames().getValue(country.getCountryName()));
-
             // begin SQL translation for person table - start with policy invariant variables (DONOR_STATIC_VARIABLES)
             stat.execute(
 
@@ -283,7 +287,7 @@ public class TaxDonorDataParser {
 
             // initialise table
             StringBuilder varList1 = new StringBuilder("PID VARCHAR, FROM_YEAR INT, SYSTEM_YEAR INT");
-            StringBuilder varList2 = new StringBuilder("PID");
+            StringBuilder varList2 = new StringBuilder("PID, FROM_YEAR, SYSTEM_YEAR");
             for(String variable: Parameters.DONOR_POLICY_VARIABLES) {
                 varList1.append(", ").append(variable.toUpperCase()).append(" VARCHAR");
                 varList2.append(", ").append(variable.toUpperCase());
@@ -301,18 +305,15 @@ public class TaxDonorDataParser {
                 String systemName = Parameters.EUROMODpolicyScheduleSystemYearMap.get(fromYear).getKey();
                 Integer systemYear = Parameters.EUROMODpolicyScheduleSystemYearMap.get(fromYear).getValue();
                 Set<String> inputPersonDynamicColumnNames = new LinkedHashSet<>(0);
-                inputPersonDynamicColumnNames.add("IDPERSON");
                 for(String variable: Parameters.DONOR_POLICY_VARIABLES) {
                     inputPersonDynamicColumnNames.add(variable + "_" + systemName);
                 }
 
+                // systems are inserted in order, so that ids are the same from one database build to the next
                 stat.execute(
                     "INSERT INTO " + personPolicyTableName + " (" + varList2 + ")"
-                    + " SELECT " + stringAppender(inputPersonDynamicColumnNames) + " FROM " + taxDonorInputFileName + ";"
-                );
-                stat.execute(
-                    "UPDATE " + personPolicyTableName + " SET SYSTEM_YEAR = " + systemYear + " WHERE SYSTEM_YEAR IS NULL;"
-                    + "UPDATE " + personPolicyTableName + " SET FROM_YEAR = " + fromYear + " WHERE FROM_YEAR IS NULL;"
+                    + " SELECT IDPERSON, " + fromYear + ", " + systemYear + ", " + stringAppender(inputPersonDynamicColumnNames)
+                    + " FROM " + taxDonorInputFileName + ";"
                 );
             }
             stat.execute(
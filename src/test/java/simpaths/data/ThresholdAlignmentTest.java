@@ -0,0 +1,107 @@
+package simpaths.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThresholdAlignmentTest {
+
+    private static double logistic(double score) {
+        return 1.0 / (1.0 + Math.exp(-score));
+    }
+
+    @Test
+    void thresholdIsSmallestAdjustmentWithOutcome() {
+
+        Random random = new Random(7L);
+        for (int ii = 0; ii < 1000; ii++) {
+            double score = random.nextGaussian(), draw = random.nextDouble();
+            double threshold = ThresholdAlignment.threshold(adjustment -> draw < logistic(score + adjustment), -3.0, 3.0);
+            if (Double.isInfinite(threshold)) {
+                assertEquals(threshold < 0.0, draw < logistic(score - 3.0));
+                assertEquals(threshold > 0.0, draw >= logistic(score + 3.0));
+            } else {
+                assertTrue(draw < logistic(score + threshold));
+                assertFalse(draw < logistic(score + Math.nextDown(threshold)));
+            }
+        }
+    }
+
+    /**
+     * Alignment of agents with fixed scores and draws, as for a probit adjustment
+     */
+    private static class Population implements IThresholdEvaluation {
+
+        final double[] scores, draws;
+        final double target;
+        int evaluations;
+
+        Population(int size, double target, long seed) {
+            Random random = new Random(seed);
+            scores = new double[size];
+            draws = new double[size];
+            for (int ii = 0; ii < size; ii++) {
+                scores[ii] = random.nextGaussian();
+                draws[ii] = random.nextDouble();
+            }
+            this.target = target;
+        }
+
+        @Override
+        public double evaluate(double[] args) {
+            evaluations++;
+            int count = 0;
+            for (int ii = 0; ii < scores.length; ii++) {
+                if (draws[ii] < logistic(scores[ii] + args[0])) count++;
+            }
+            return target - (double) count / scores.length;
+        }
+
+        @Override
+        public double getTargetShare() {
+            return target;
+        }
+
+        @Override
+        public double[] getThresholds(double lower, double upper) {
+            double[] thresholds = new double[scores.length];
+            for (int ii = 0; ii < scores.length; ii++) {
+                int agent = ii;
+                thresholds[ii] = ThresholdAlignment.threshold(adjustment -> draws[agent] < logistic(scores[agent] + adjustment), lower, upper);
+            }
+            return thresholds;
+        }
+    }
+
+    @Test
+    void solvesTargetShareInOneEvaluation() {
+
+        Population population = new Population(5000, 0.37, 11L);
+        Double adjustment = ThresholdAlignment.align(population, 0.0, -2.0, 2.0, 1.0E-4);
+        assertNotNull(adjustment);
+        assertEquals(1, population.evaluations);
+        assertEquals(0.0, population.evaluate(new double[] {adjustment}), 0.5 / 5000);
+    }
+
+    @Test
+    void retainsStartWithinTolerance() {
+
+        Population population = new Population(2000, 0.5, 3L);
+        double error = population.evaluate(new double[] {0.1});
+        Double adjustment = ThresholdAlignment.align(population, 0.1, -2.0, 2.0, Math.abs(error) + 1.0E-9);
+        assertEquals(0.1, adjustment);
+    }
+
+    @Test
+    void boundsLimitAdjustment() {
+
+        // target share not attainable within the bounds
+        Population population = new Population(1000, 0.99, 5L);
+        Double adjustment = ThresholdAlignment.align(population, 0.0, -0.5, 0.5, 1.0E-3);
+        assertNotNull(adjustment);
+        assertTrue(adjustment <= 0.5);
+        assertEquals(population.evaluate(new double[] {0.5}), population.evaluate(new double[] {adjustment}));
+    }
+}
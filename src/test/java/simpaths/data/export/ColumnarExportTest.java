@@ -0,0 +1,88 @@
+package simpaths.data.export;
+
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Transient;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarExportTest {
+
+    enum Status { Employed, Student, Retired }
+
+    @Embeddable
+    static class Key {
+        private long id;
+        private double simulationTime;
+        Key(long id) { this.id = id; }
+    }
+
+    static class Agent {
+        private static int counter;                 // not exported
+        @EmbeddedId private Key key;
+        private int age;
+        private Double income;
+        private boolean female;
+        private Status status;
+        @Transient private double scratch;          // not exported
+        private List<Agent> children;               // not exported
+
+        Agent(long id, int age, Double income, boolean female, Status status) {
+            this.key = new Key(id);
+            this.age = age;
+            this.income = income;
+            this.female = female;
+            this.status = status;
+        }
+    }
+
+    @Test
+    void roundTripsYearlySnapshots() throws Exception {
+
+        File directory = Files.createTempDirectory("columnar").toFile();
+        List<Agent> agents = new ArrayList<>();
+        for (int ii = 0; ii < 1000; ii++) {
+            agents.add(new Agent(ii, 20 + ii % 50, (ii % 7 == 0) ? null : 100.0 * ii, ii % 2 == 0, (ii % 11 == 0) ? null : Status.values()[ii % 3]));
+        }
+
+        ColumnarExport export = new ColumnarExport(agents, Agent.class, directory.getPath(), 1);
+        export.export(2019);
+        agents.get(3).age = 99;
+        agents.remove(0);
+        export.export(2020);
+        export.close();
+        export.close();
+
+        try (ColumnarExportReader reader = new ColumnarExportReader(export.getFile())) {
+            ColumnarSchema schema = reader.getSchema();
+            assertEquals("Agent", schema.getEntityName());
+            assertEquals(6, schema.getNumberOfColumns());
+            assertEquals("id", schema.getColumnName(0));
+            assertEquals(ColumnarSchema.ColumnType.DICTIONARY, schema.getColumnType(5));
+
+            ColumnarSchema.Snapshot first = reader.next();
+            assertEquals(2019, first.getYear());
+            assertEquals(1000, first.getNumberOfRows());
+            assertEquals(23, ((int[]) first.getValues(2))[3]);
+            assertFalse(first.isPresent(3, 7));
+            assertEquals(800.0, ((double[]) first.getValues(3))[8], 0.0);
+            assertTrue(((boolean[]) first.getValues(4))[8]);
+            assertNull(((Object[]) first.getValues(5))[11]);
+            assertEquals("Retired", ((Object[]) first.getValues(5))[8]);
+
+            ColumnarSchema.Snapshot second = reader.next();
+            assertEquals(2020, second.getYear());
+            assertEquals(999, second.getNumberOfRows());
+            assertEquals(1L, ((long[]) second.getValues(0))[0]);
+            assertEquals(99, ((int[]) second.getValues(2))[2]);
+
+            assertNull(reader.next());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package simpaths.data.statistics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    @Test
+    void quantilesWithinRankError() {
+        // Test data: log-normal incomes with a mass point at zero
+        Random random = new Random(42L);
+        int number = 200000;
+        double[] values = new double[number];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int ii = 0; ii < number; ii++) {
+            values[ii] = (random.nextDouble() < 0.2) ? 0.0 : Math.exp(7.0 + random.nextGaussian());
+            sketch.add(values[ii]);
+        }
+        Arrays.sort(values);
+
+        for (double qq : new double[]{0.1, 0.2, 0.4, 0.5, 0.6, 0.8, 0.99}) {
+            double estimate = sketch.quantile(qq);
+            // rank of the estimate in the sorted data should be within the expected rank error
+            int rank = Arrays.binarySearch(values, estimate);
+            if (rank < 0) rank = -rank - 1;
+            double rankError = Math.abs((double) rank / number - qq);
+            if (values[rank] != 0.0)
+                assertTrue(rankError < 0.005, "rank error " + rankError + " at quantile " + qq);
+            else
+                assertEquals(0.0, estimate, 0.0);
+        }
+        assertTrue(sketch.getNumberOfCentroids() <= 2 * QuantileSketch.DEFAULT_COMPRESSION + 10);
+    }
+
+    @Test
+    void mergeIsDeterministicAndMatchesSingleSketch() {
+        Random random = new Random(7L);
+        QuantileSketch whole = new QuantileSketch();
+        QuantileSketch[] parts = {new QuantileSketch(), new QuantileSketch(), new QuantileSketch()};
+        for (int ii = 0; ii < 90000; ii++) {
+            double value = random.nextGaussian();
+            whole.add(value);
+            parts[ii % 3].add(value);
+        }
+        QuantileSketch merged1 = new QuantileSketch();
+        QuantileSketch merged2 = new QuantileSketch();
+        for (QuantileSketch part : parts) {
+            merged1.merge(part);
+            merged2.merge(part);
+        }
+
+        assertEquals(merged1.quantile(0.5), merged2.quantile(0.5), 0.0);
+        assertEquals(whole.quantile(0.5), merged1.quantile(0.5), 0.02);
+        assertEquals(whole.quantile(0.2), merged1.quantile(0.2), 0.02);
+        assertEquals(90000.0, merged1.getTotalWeight(), 0.0);
+    }
+
+    @Test
+    void nonFiniteValuesRankAsInSortedArray() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int ii = 0; ii < 60; ii++) {
+            sketch.add(ii);
+        }
+        for (int ii = 0; ii < 40; ii++) {
+            sketch.add(Double.NaN);
+        }
+
+        assertEquals(29.5, sketch.quantile(0.3), 0.5);
+        assertTrue(Double.isNaN(sketch.quantile(0.8)));
+        assertTrue(Double.isNaN(new QuantileSketch().quantile(0.5)));
+    }
+
+    @Test
+    void giniOfWeightedValues() {
+        // Two-point distribution: G = w1 * w2 * |x1 - x2| / ((w1 + w2) * (w1 * x1 + w2 * x2))
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(1.0, 3.0);
+        sketch.add(5.0, 1.0);
+
+        assertEquals(3.0 * 1.0 * 4.0 / (4.0 * 8.0), sketch.gini(), 1.0E-12);
+    }
+}
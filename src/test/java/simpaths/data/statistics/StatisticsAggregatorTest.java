@@ -0,0 +1,109 @@
+package simpaths.data.statistics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticsAggregatorTest {
+
+    private record Agent(double value, double weight, int group) {}
+
+    private static List<Agent> agents(int number, long seed) {
+        Random random = new Random(seed);
+        List<Agent> agents = new ArrayList<>();
+        for (int ii = 0; ii < number; ii++) {
+            agents.add(new Agent(Math.floor(random.nextDouble() * 100.0), 0.5 + random.nextDouble(), random.nextInt(3)));
+        }
+        return agents;
+    }
+
+    @Test
+    void giniMatchesPairwiseDefinition() {
+        // Test data spanning several chunks, with ties in values
+        List<Agent> agents = agents(StatisticsAggregator.CHUNK_SIZE + 17, 1234L);
+
+        StatisticsAggregator<Agent> aggregator = new StatisticsAggregator<>();
+        StatisticsAggregator.Gini<Agent, Integer> gini = aggregator.gini(Agent::value, Agent::weight, Agent::group, agent -> agent.value() > 0.0);
+        aggregator.update(agents);
+
+        // Expected Gini from the O(N^2) definition, on a sub-sample of groups
+        double absDiff = 0.0, absDiffGroup = 0.0, weight = 0.0, weightGroup = 0.0, weighted = 0.0, weightedGroup = 0.0;
+        for (Agent a1 : agents) {
+            if (a1.value() <= 0.0) continue;
+            weight += a1.weight();
+            weighted += a1.weight() * a1.value();
+            if (a1.group() == 1) {
+                weightGroup += a1.weight();
+                weightedGroup += a1.weight() * a1.value();
+            }
+            for (Agent a2 : agents) {
+                if (a2.value() <= 0.0) continue;
+                double diff = a1.weight() * a2.weight() * Math.abs(a1.value() - a2.value());
+                absDiff += diff;
+                if (a1.group() == 1 && a2.group() == 1)
+                    absDiffGroup += diff;
+            }
+        }
+
+        assertEquals(absDiff / (2.0 * weight * weighted), gini.getValue(), 1.0E-10);
+        assertEquals(absDiffGroup / (2.0 * weightGroup * weightedGroup), gini.getValue(1), 1.0E-10);
+        assertTrue(Double.isNaN(gini.getValue(7)));
+    }
+
+    @Test
+    void vectorSums() {
+        List<Agent> agents = agents(2 * StatisticsAggregator.CHUNK_SIZE + 5, 99L);
+
+        StatisticsAggregator<Agent> aggregator = new StatisticsAggregator<>();
+        StatisticsAggregator.VectorSum<Agent> counts = aggregator.vectorSum(3, (agent, sums) -> sums[agent.group()] += 1.0);
+        StatisticsAggregator.VectorSum<Agent> values = aggregator.vectorSum(1, (agent, sums) -> sums[0] += (agent.group() == 0) ? agent.value() : 0.0);
+        aggregator.update(agents);
+
+        double expectedSum = 0.0;
+        long expectedCount = 0;
+        for (Agent agent : agents) {
+            if (agent.group() == 0) {
+                expectedSum += agent.value();
+                expectedCount++;
+            }
+        }
+
+        assertEquals(expectedSum, values.getSums()[0], 1.0E-8);
+        assertEquals(agents.size(), counts.getSums()[0] + counts.getSums()[1] + counts.getSums()[2], 0.0);
+        assertEquals(expectedCount, (long) counts.getSums()[0]);
+    }
+
+    @Test
+    void streamingModeApproximatesExactStatistics() {
+        List<Agent> agents = agents(5 * StatisticsAggregator.CHUNK_SIZE, 2024L);
+
+        StatisticsAggregator<Agent> exact = new StatisticsAggregator<>();
+        StatisticsAggregator.Gini<Agent, Integer> exactGini = exact.gini(Agent::value, Agent::weight, Agent::group, null);
+        exact.update(agents);
+
+        StatisticsAggregator<Agent> streaming = new StatisticsAggregator<>(QuantileSketch.DEFAULT_COMPRESSION);
+        StatisticsAggregator.Gini<Agent, Integer> streamingGini = streaming.gini(Agent::value, Agent::weight, Agent::group, null);
+        StatisticsAggregator.Quantiles<Agent> streamingQuantiles = streaming.quantiles(Agent::value, null);
+        streaming.update(agents);
+
+        assertTrue(streaming.isStreaming());
+        assertEquals(exactGini.getValue(), streamingGini.getValue(), 1.0E-3);
+        assertEquals(exactGini.getValue(2), streamingGini.getValue(2), 1.0E-3);
+        assertEquals(agents.size(), streamingQuantiles.getSketch().getTotalWeight(), 0.0);
+    }
+
+    @Test
+    void sortedOrderIsStableAscendingOrder() {
+        double[] values = {3.0, -1.0, 3.0, Double.NaN, 0.0, -0.0, 2.5, -1.0, Double.POSITIVE_INFINITY};
+        Integer[] expected = new Integer[values.length];
+        for (int ii = 0; ii < expected.length; ii++) expected[ii] = ii;
+        java.util.Arrays.sort(expected, (i1, i2) -> Double.compare(values[i1], values[i2]));
+
+        int[] order = StatisticsAggregator.Gini.sortedOrder(values);
+        assertArrayEquals(java.util.Arrays.stream(expected).mapToInt(Integer::intValue).toArray(), order);
+    }
+}
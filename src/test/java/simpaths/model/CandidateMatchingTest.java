@@ -0,0 +1,123 @@
+package simpaths.model;
+
+import microsim.matching.GlobalMatching;
+import microsim.matching.MatchingClosure;
+import microsim.matching.MatchingScoreClosure;
+import org.apache.commons.math3.util.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandidateMatchingTest {
+
+    private record Agent(int id, double x, double y) {}
+
+    private static final double BOUND_X = 5.0;
+    private static final double BOUND_Y = 3.0;
+
+    private static List<Agent> agents(int number, int firstId, Random random) {
+        List<Agent> agents = new ArrayList<>();
+        for (int ii = 0; ii < number; ii++) {
+            // integer coordinates, so that many pairs have equal scores
+            agents.add(new Agent(firstId + ii, random.nextInt(60), random.nextInt(40)));
+        }
+        return agents;
+    }
+
+    private static final MatchingScoreClosure<Agent> SCORE = (a1, a2) -> {
+        double dx = a1.x() - a2.x(), dy = a1.y() - a2.y();
+        if (Math.abs(dx) < BOUND_X && Math.abs(dy) < BOUND_Y)
+            return dx * dx + dy * dy;
+        return Double.POSITIVE_INFINITY;
+    };
+
+    private record Matching(List<Pair<Agent, Agent>> matches, Pair<Set<Agent>, Set<Agent>> unmatched) {}
+
+    /**
+     * Matches the two lists by GlobalMatching, which scores all pairs
+     */
+    private static Matching globalMatching(List<Agent> list1, List<Agent> list2) {
+
+        List<Pair<Agent, Agent>> matches = new ArrayList<>();
+        MatchingClosure<Agent> match = (a1, a2) -> matches.add(new Pair<>(a1, a2));
+        Pair<Set<Agent>, Set<Agent>> unmatched = GlobalMatching.getInstance().matching(
+                new LinkedHashSet<>(list1), null, new LinkedHashSet<>(list2), null, SCORE, match);
+        return new Matching(matches, unmatched);
+    }
+
+    /**
+     * Matches the two lists by CandidateMatching, which scores only pairs within the bounds
+     */
+    private static Matching candidateMatching(List<Agent> list1, List<Agent> list2) {
+
+        List<Pair<Agent, Agent>> matches = new ArrayList<>();
+        Pair<Set<Agent>, Set<Agent>> unmatched = CandidateMatching.matching(
+                new LinkedHashSet<>(list1), Agent::x, Agent::y, new LinkedHashSet<>(list2), Agent::x, Agent::y,
+                BOUND_X, BOUND_Y, SCORE, (a1, a2) -> matches.add(new Pair<>(a1, a2)));
+        return new Matching(matches, unmatched);
+    }
+
+    private static void assertMatchesGlobalMatching(List<Agent> list1, List<Agent> list2) {
+
+        Matching expected = globalMatching(list1, list2);
+        Matching actual = candidateMatching(list1, list2);
+        assertEquals(expected.matches(), actual.matches());
+        assertEquals(expected.unmatched().getFirst(), actual.unmatched().getFirst());
+        assertEquals(expected.unmatched().getSecond(), actual.unmatched().getSecond());
+    }
+
+    @Test
+    void matchesGlobalMatchingWithTies() {
+
+        Random random = new Random(2024L);
+        for (int size : new int[] {1, 50, 1500}) {
+            List<Agent> list1 = agents(size, 0, random);
+            List<Agent> list2 = agents(size + 7, 100000, random);
+            assertMatchesGlobalMatching(list1, list2);
+        }
+    }
+
+    @Test
+    void matchesGlobalMatchingAtBounds() {
+
+        // lattices with spacing of half the bounds, so that many pairs differ by exactly the bounds, which are also
+        // the edges of the cells of the candidate index
+        List<Agent> list1 = new ArrayList<>();
+        List<Agent> list2 = new ArrayList<>();
+        for (int ii = -4; ii <= 4; ii++) {
+            for (int jj = -4; jj <= 4; jj++) {
+                list1.add(new Agent(list1.size(), ii * BOUND_X / 2.0, jj * BOUND_Y / 2.0));
+                list2.add(new Agent(100000 + list2.size(), ii * BOUND_X / 2.0 + BOUND_X, jj * BOUND_Y / 2.0));
+                list2.add(new Agent(100000 + list2.size(), ii * BOUND_X / 2.0, jj * BOUND_Y / 2.0 - BOUND_Y));
+            }
+        }
+        assertMatchesGlobalMatching(list1, list2);
+    }
+
+    @Test
+    void noCandidatesOutsideBounds() {
+
+        List<Agent> list1 = List.of(new Agent(1, 0.0, 0.0));
+        List<Agent> list2 = List.of(new Agent(2, BOUND_X, 0.0), new Agent(3, 0.0, -BOUND_Y), new Agent(4, 0.0, Double.NaN));
+        Pair<Set<Agent>, Set<Agent>> unmatched = CandidateMatching.matching(list1, Agent::x, Agent::y, list2, Agent::x, Agent::y,
+                BOUND_X, BOUND_Y, SCORE, (a1, a2) -> fail("unexpected match"));
+        assertEquals(1, unmatched.getFirst().size());
+        assertEquals(3, unmatched.getSecond().size());
+        assertMatchesGlobalMatching(list1, list2);
+    }
+
+    @Test
+    void prunesOnlyWithinFiniteSmallBounds() {
+
+        assertTrue(CandidateMatching.prunes(BOUND_X, BOUND_Y));
+        assertTrue(CandidateMatching.prunes(999., BOUND_Y));
+        assertFalse(CandidateMatching.prunes(999., 999.));
+        assertFalse(CandidateMatching.prunes(BOUND_X, Double.POSITIVE_INFINITY));
+    }
+}
@@ -0,0 +1,100 @@
+package simpaths.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointTest {
+
+    static class Agent {
+        private long id;
+        private Innovations innovations;
+        private double wealth;
+        private Agent partner;
+
+        private Agent() {}
+
+        Agent(long id, long seed) {
+            this.id = id;
+            this.innovations = new Innovations(2, 1, 1, seed);
+        }
+    }
+
+    static class Population {
+        private final List<Agent> agents = new ArrayList<>();
+        private final Map<Long, Agent> agentsById = new HashMap<>();
+        private Random random;
+        private long nextId;
+
+        void add(long seed) {
+            Agent agent = new Agent(nextId++, seed);
+            agents.add(agent);
+            agentsById.put(agent.id, agent);
+        }
+    }
+
+    private static Population population(int size, long seed) {
+        Population population = new Population();
+        population.random = new Random(seed);
+        for (int ii = 0; ii < size; ii++) {
+            population.add(population.random.nextLong());
+        }
+        return population;
+    }
+
+    private static double simulateYear(Population population) {
+
+        double total = 0.;
+        for (Agent agent : population.agents) {
+            agent.innovations.getNewDoubleDraws();
+            agent.wealth = 0.9 * agent.wealth + agent.innovations.getDoubleDraw(0);
+            if (agent.partner == null && agent.innovations.getDoubleDraw(1) < 0.2) {
+                Agent other = population.agents.get(population.random.nextInt(population.agents.size()));
+                if (other != agent && other.partner == null) {
+                    agent.partner = other;
+                    other.partner = agent;
+                }
+            }
+            total += agent.wealth + ((agent.partner != null) ? agent.partner.wealth : 0.);
+        }
+        if (population.random.nextDouble() < 0.5)
+            population.add(population.random.nextLong());
+        return total;
+    }
+
+    @Test
+    void resumedSimulationReproducesUninterruptedSimulation() throws Exception {
+
+        int years = 20;
+        int checkpointYear = 10;
+        Population uninterrupted = population(200, 1234L);
+        double[] expected = new double[years];
+        for (int year = 0; year < years; year++) {
+            expected[year] = simulateYear(uninterrupted);
+        }
+
+        Population interrupted = population(200, 1234L);
+        for (int year = 0; year < checkpointYear; year++) {
+            assertEquals(expected[year], simulateYear(interrupted));
+        }
+        Population resumed = (Population) Checkpoint.copy(Map.of("population", interrupted)).get("population");
+
+        assertNotSame(interrupted, resumed);
+        assertEquals(interrupted.agents.size(), resumed.agents.size());
+        for (Agent agent : resumed.agents) {
+            assertSame(agent, resumed.agentsById.get(agent.id));
+            if (agent.partner != null)
+                assertSame(agent, agent.partner.partner);
+        }
+        for (int year = checkpointYear; year < years; year++) {
+            assertEquals(expected[year], simulateYear(resumed));
+        }
+        assertEquals(uninterrupted.agents.size(), resumed.agents.size());
+    }
+}
@@ -0,0 +1,80 @@
+package simpaths.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomStreamsTest {
+
+    @Test
+    void seedsAreReproducible() {
+        assertEquals(RandomStreams.seed(615L, RandomStreams.Stream.Birth, 2020, 42L),
+                RandomStreams.seed(615L, RandomStreams.Stream.Birth, 2020, 42L));
+        assertEquals(RandomStreams.random(615L, RandomStreams.Stream.Cohabitation, 2020).nextLong(),
+                RandomStreams.random(615L, RandomStreams.Stream.Cohabitation, 2020).nextLong());
+    }
+
+    @Test
+    void seedsDifferAcrossStreamsYearsAndAgents() {
+        Set<Long> seeds = new HashSet<>();
+        int nn = 0;
+        for (RandomStreams.Stream stream : RandomStreams.Stream.values()) {
+            for (int year = 2019; year < 2030; year++) {
+                for (long id = 0L; id < 100L; id++) {
+                    seeds.add(RandomStreams.seed(615L, stream, year, id));
+                    nn++;
+                }
+            }
+        }
+        assertEquals(nn, seeds.size());
+        assertNotEquals(RandomStreams.seed(615L, RandomStreams.Stream.Birth, 2020, 42L),
+                RandomStreams.seed(616L, RandomStreams.Stream.Birth, 2020, 42L));
+    }
+
+    /**
+     * seeds of the children of each parent, as drawn when parents are processed in the order given, where the number
+     * of children of a parent in each year (more than one for twins) is its id / 100
+     */
+    private static Map<String, Long> childSeeds(List<Long> parentIds, boolean parallel) {
+
+        Map<Long, RandomStreams.Draws> draws = new ConcurrentHashMap<>();
+        for (long parentId : parentIds) draws.put(parentId, new RandomStreams.Draws());
+        Map<String, Long> seeds = new ConcurrentHashMap<>();
+        (parallel ? parentIds.parallelStream() : parentIds.stream()).forEach(parentId -> {
+            for (int year = 2020; year < 2022; year++) {
+                for (int child = 0; child < parentId / 100; child++) {
+                    int ordinal = draws.get(parentId).next(RandomStreams.Stream.Birth, year);
+                    seeds.put(parentId + "/" + year + "/" + child, RandomStreams.seed(615L, RandomStreams.Stream.Birth, year, parentId, ordinal));
+                }
+            }
+        });
+        return seeds;
+    }
+
+    @Test
+    void seedsDoNotDependOnProcessingOrder() {
+
+        List<Long> parentIds = new ArrayList<>();
+        for (long index = 0L; index < 200L; index++) {
+            parentIds.add(100L * (1L + index % 3L) + index);
+        }
+        Map<String, Long> expected = childSeeds(parentIds, false);
+
+        List<Long> shuffled = new ArrayList<>(parentIds);
+        Collections.shuffle(shuffled, new Random(1234L));
+        assertEquals(expected, childSeeds(shuffled, false));
+        assertEquals(expected, childSeeds(shuffled, true));
+
+        // twins and triplets of a parent, and children of the same parent in different years, have distinct seeds
+        assertEquals(expected.size(), new HashSet<>(expected.values()).size());
+    }
+}
@@ -0,0 +1,86 @@
+package simpaths.model;
+
+import org.junit.jupiter.api.Test;
+import simpaths.model.enums.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegressionProxyResetTest {
+
+    /**
+     * asserts that the fields of two objects of primitive, boxed and enum types are equal
+     */
+    private static void assertFieldsEqual(Object expected, Object actual) throws IllegalAccessException {
+
+        for (Class<?> cls = expected.getClass(); cls != Object.class; cls = cls.getSuperclass()) {
+            for (Field field : cls.getDeclaredFields()) {
+                Class<?> type = field.getType();
+                if (Modifier.isStatic(field.getModifiers()) || !(type.isPrimitive() || type.isEnum() ||
+                        Number.class.isAssignableFrom(type) || type == Boolean.class || type == String.class))
+                    continue;
+                field.setAccessible(true);
+                assertTrue(Objects.equals(field.get(expected), field.get(actual)),
+                        "field " + field.getName() + ": expected " + field.get(expected) + " but was " + field.get(actual));
+            }
+        }
+    }
+
+    @Test
+    void resetPersonMatchesNewProxy() throws IllegalAccessException {
+
+        Person proxy = new Person(true);
+        proxy.setDag(45);
+        proxy.setDgn(Gender.Female);
+        proxy.setDhe(Dhe.Good);
+        proxy.setDhe_lag1(Dhe.Good);
+        proxy.setDeh_c4(Education.High);
+        proxy.setDeh_c4_lag1(Education.High);
+        proxy.setDehf_c4(Education.Medium);
+        proxy.setDehm_c4(Education.Medium);
+        proxy.setDed(Indicator.False);
+        proxy.setDlltsd(Indicator.True);
+        proxy.setDlltsd_lag1(Indicator.True);
+        proxy.setYearLocal(2025);
+        proxy.setDcpstLocal(Dcpst.Partnered);
+        proxy.setDcpst_lag1(Dcpst.Partnered);
+        proxy.setYdses_c5_lag1Local(Ydses_c5.Q3);
+        proxy.setNumberChildrenAllLocal(2);
+        proxy.setNumberChildrenAllLocal_lag1(2);
+        proxy.setNumberChildren02Local_lag1(1);
+        proxy.setNumberChildren017Local(2);
+        proxy.setIndicatorChildren02Local(Indicator.True);
+        proxy.setLiwwh(120);
+        proxy.setL1_fullTimeHourlyEarningsPotential(15.0);
+        proxy.setIoFlag(true);
+        proxy.setDcpyy_lag1(10);
+        proxy.setDcpagdf_lag1(2);
+        proxy.setYpnbihs_dv_lag1(7.5);
+        proxy.setYnbcpdf_dv_lag1(0.5);
+        proxy.populateSocialCareReceipt(SocialCareReceiptState.Mixed);
+        proxy.populateSocialCareReceipt_lag1(SocialCareReceiptState.Mixed);
+
+        proxy.resetRegressionProxy();
+        assertFieldsEqual(new Person(true), proxy);
+    }
+
+    @Test
+    void resetBenefitUnitMatchesCopiedProxy() throws IllegalAccessException {
+
+        BenefitUnit original = new BenefitUnit(true);
+        original.setYearLocal(2025);
+        original.setDeh_c4Local(Education.Medium);
+
+        BenefitUnit proxy = new BenefitUnit(true);
+        proxy.setYearLocal(2030);
+        proxy.setDeh_c4Local(Education.Low);
+        proxy.setLabourHoursWeekly1Local(40);
+        proxy.setLabourHoursWeekly2Local(20);
+
+        proxy.resetRegressionProxy(original);
+        assertFieldsEqual(new BenefitUnit(original, true), proxy);
+    }
+}
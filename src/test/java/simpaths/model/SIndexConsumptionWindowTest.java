@@ -0,0 +1,26 @@
+package simpaths.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SIndexConsumptionWindowTest {
+
+    @Test
+    void windowRetainsLatestYears() {
+
+        int timeWindow = 5;
+        double alpha = 2.;
+        double[] consumption = {120., 95.5, 300., 42., 180., 77., 260., 310.};
+        Person person = new Person(true);
+        for (int year = 0; year < consumption.length; year++) {
+
+            person.setYearlyEquivalisedConsumption(consumption[year]);
+            person.recordSIndexConsumption(timeWindow, alpha);
+            assertEquals(year + 1 >= timeWindow, person.hasSIndexConsumptionWindow());
+            for (int lag = 0; lag < Math.min(year + 1, timeWindow); lag++) {
+                assertEquals(Math.pow(consumption[year - lag], 1/alpha), person.getSIndexConsumption(lag));
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package simpaths.model.decisions;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import simpaths.model.Person;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpectationsCacheTest {
+
+    private static final double[] LIQUID_WEALTH = {-5000.0, 0.0, 1000.0, 25000.0, 400000.0};
+
+    /**
+     * expectations as evaluated for a state combination, as returned from the cache or by ExpectationsFactory
+     */
+    private record Evaluated(double[] probability, double[] wealthOfAnticipated) {}
+
+    @AfterEach
+    void clearCache() {
+        ExpectationsCache.clear();
+    }
+
+    private static States states(double liquidWealth) {
+
+        States states = Mockito.mock(States.class);
+        states.ageYears = 40;
+        states.states = new double[]{liquidWealth, 2.5, 1.0, 0.0};
+        return states;
+    }
+
+    /**
+     * stands in for ExpectationsFactory: two anticipated states, with probabilities that depend on lagged income only
+     * if readIncomeLag is set
+     */
+    private static Evaluated evaluate(Person personProxy, States currentStates, boolean readIncomeLag) {
+
+        double share = (readIncomeLag) ? 1.0 / (1.0 + Math.exp(-personProxy.getDoubleValue(Person.DoublesVariables.Ypnbihs_dv_L1))) : 0.3;
+        return new Evaluated(new double[]{share, 1.0 - share}, new double[]{currentStates.states[0], currentStates.states[0]});
+    }
+
+    /**
+     * evaluates expectations for a liquid wealth point as Expectations does, using the cache if useCache is set
+     */
+    private static Evaluated expectations(double liquidWealth, boolean readIncomeLag, boolean useCache) {
+
+        States currentStates = states(liquidWealth);
+        Person personProxy = new Person(true);
+        personProxy.setYpnbihs_dv_lag1(Math.log(liquidWealth + 10000.0) - 9.0);    // lagged income includes investment income
+
+        ExpectationsCache.Key key = new ExpectationsCache.Key(currentStates, 1.0, 0.0, 0.0, false);
+        ExpectationsCache.Tree tree = (useCache) ? ExpectationsCache.get(key) : null;
+        if (tree != null) {
+            States[] anticipated = tree.getAnticipated();
+            double[] wealthOfAnticipated = new double[tree.getNumberExpected()];
+            for (int ii = 0; ii < wealthOfAnticipated.length; ii++) {
+                anticipated[ii].states[0] = liquidWealth;       // as updated by Expectations for the wealth point
+                wealthOfAnticipated[ii] = anticipated[ii].states[0];
+            }
+            return new Evaluated(tree.getProbability(), wealthOfAnticipated);
+        }
+
+        personProxy.clearIncomeLagRead();
+        Evaluated evaluated = evaluate(personProxy, currentStates, readIncomeLag);
+        States[] anticipated = {new States(currentStates), new States(currentStates)};
+        if (useCache)
+            ExpectationsCache.put(key, evaluated.probability(), anticipated, anticipated.length, personProxy);
+        return evaluated;
+    }
+
+    private static void assertCachedEqualUncached(boolean readIncomeLag) {
+
+        for (double liquidWealth : LIQUID_WEALTH) {
+            Evaluated uncached = expectations(liquidWealth, readIncomeLag, false);
+            Evaluated cached = expectations(liquidWealth, readIncomeLag, true);
+            assertArrayEquals(uncached.probability(), cached.probability(), "liquid wealth " + liquidWealth);
+            assertArrayEquals(uncached.wealthOfAnticipated(), cached.wealthOfAnticipated(), "liquid wealth " + liquidWealth);
+        }
+    }
+
+    @Test
+    void cachedExpectationsEqualUncachedAcrossWealthPoints() {
+
+        assertCachedEqualUncached(false);
+        assertNotNull(ExpectationsCache.get(new ExpectationsCache.Key(states(0.0), 1.0, 0.0, 0.0, false)));
+    }
+
+    @Test
+    void expectationsThatReadLaggedIncomeAreNotCached() {
+
+        assertCachedEqualUncached(true);
+        assertNull(ExpectationsCache.get(new ExpectationsCache.Key(states(0.0), 1.0, 0.0, 0.0, false)));
+    }
+
+    @Test
+    void keyIgnoresLiquidWealthOnly() {
+
+        ExpectationsCache.Key key = new ExpectationsCache.Key(states(0.0), 1.0, 0.0, 0.0, false);
+        assertEquals(key, new ExpectationsCache.Key(states(25000.0), 1.0, 0.0, 0.0, false));
+        assertNotEquals(key, new ExpectationsCache.Key(states(0.0), 0.0, 0.0, 0.0, false));
+        assertNotEquals(key, new ExpectationsCache.Key(states(0.0), 1.0, 0.0, 0.0, true));
+    }
+}